@@ -0,0 +1,177 @@
+package weatheralerts;
+
+import java.awt.Color;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+// One parsed alert as an immutable typed record. Severity, urgency and certainty are enums,
+// the event is an interned EventType shared by every alert of that type, and timestamps are
+// epoch millis resolved once at ingest; only free text is held as strings, and the long
+// description and instruction texts stay undecoded until read. A timestamp that did not
+// parse keeps its original text so it can still be shown. Alerts issued for a drawn polygon
+// carry it as an AlertGeometry; zone-based alerts have none. The states an alert covers are
+// taken from the UGC codes of its zones, whichever area it was fetched for.
+final class Alert {
+
+    enum Severity {
+        EXTREME("Extreme"), SEVERE("Severe"), MODERATE("Moderate"), MINOR("Minor"), UNKNOWN("Unknown");
+
+        private static final Severity[] VALUES = values();
+
+        final String label;
+        final Color color;
+
+        Severity(String label) {
+            this.label = label;
+            this.color = AlertClassifier.severityColor(label);
+        }
+
+        static Severity of(char[] text, int offset, int length) {
+            for (Severity severity : VALUES) {
+                if (matches(severity.label, text, offset, length)) {
+                    return severity;
+                }
+            }
+            return UNKNOWN;
+        }
+    }
+
+    enum Urgency {
+        IMMEDIATE("Immediate"), EXPECTED("Expected"), FUTURE("Future"), PAST("Past"), UNKNOWN("Unknown");
+
+        private static final Urgency[] VALUES = values();
+
+        final String label;
+
+        Urgency(String label) {
+            this.label = label;
+        }
+
+        static Urgency of(char[] text, int offset, int length) {
+            for (Urgency urgency : VALUES) {
+                if (matches(urgency.label, text, offset, length)) {
+                    return urgency;
+                }
+            }
+            return UNKNOWN;
+        }
+    }
+
+    enum Certainty {
+        OBSERVED("Observed"), LIKELY("Likely"), POSSIBLE("Possible"), UNLIKELY("Unlikely"), UNKNOWN("Unknown");
+
+        private static final Certainty[] VALUES = values();
+
+        final String label;
+
+        Certainty(String label) {
+            this.label = label;
+        }
+
+        static Certainty of(char[] text, int offset, int length) {
+            for (Certainty certainty : VALUES) {
+                if (matches(certainty.label, text, offset, length)) {
+                    return certainty;
+                }
+            }
+            return UNKNOWN;
+        }
+    }
+
+    final String id;
+    final EventType event;
+    final Severity severity;
+    final Urgency urgency;
+    final Certainty certainty;
+    final long effective;
+    final long expires;
+    final long onset;
+    // Null when absent; the long texts are decoded only when read
+    final String headline;
+    final String areaDesc;
+    // Two-letter prefixes of the alert's UGC zone codes, distinct and in feed order; empty when
+    // the feed lists none
+    final List<String> states;
+    final LazyText description;
+    final LazyText instruction;
+    // Null when the feature has no Polygon or MultiPolygon geometry
+    final AlertGeometry geometry;
+    // Original text of a timestamp that was present but did not parse, else null
+    final String effectiveText;
+    final String expiresText;
+    final String onsetText;
+
+    private Alert(Builder builder) {
+        this.id = builder.id;
+        this.event = builder.event;
+        this.severity = builder.severity;
+        this.urgency = builder.urgency;
+        this.certainty = builder.certainty;
+        this.effective = builder.effective;
+        this.expires = builder.expires;
+        this.onset = builder.onset;
+        this.headline = builder.headline;
+        this.areaDesc = builder.areaDesc;
+        this.states = builder.states;
+        this.description = builder.description;
+        this.instruction = builder.instruction;
+        this.geometry = builder.geometry;
+        this.effectiveText = builder.effectiveText;
+        this.expiresText = builder.expiresText;
+        this.onsetText = builder.onsetText;
+    }
+
+    boolean hasOnset() {
+        return onset != IsoTimestamps.NONE || onsetText != null;
+    }
+
+    // Same values in every field; tells a re-parsed copy from a changed alert
+    boolean sameContent(Alert other) {
+        return event == other.event && severity == other.severity && urgency == other.urgency
+            && certainty == other.certainty && effective == other.effective && expires == other.expires
+            && onset == other.onset && Objects.equals(id, other.id) && Objects.equals(headline, other.headline)
+            && Objects.equals(areaDesc, other.areaDesc) && states.equals(other.states)
+            && LazyText.same(description, other.description) && LazyText.same(instruction, other.instruction)
+            && Objects.equals(geometry, other.geometry)
+            && Objects.equals(effectiveText, other.effectiveText) && Objects.equals(expiresText, other.expiresText)
+            && Objects.equals(onsetText, other.onsetText);
+    }
+
+    private static boolean matches(String label, char[] text, int offset, int length) {
+        if (label.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (label.charAt(i) != text[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Mutable collector the parser fills one property at a time
+    static final class Builder {
+        String id;
+        EventType event = EventType.NONE;
+        Severity severity = Severity.UNKNOWN;
+        Urgency urgency = Urgency.UNKNOWN;
+        Certainty certainty = Certainty.UNKNOWN;
+        long effective = IsoTimestamps.NONE;
+        long expires = IsoTimestamps.NONE;
+        long onset = IsoTimestamps.NONE;
+        String headline;
+        String areaDesc;
+        List<String> states = Collections.emptyList();
+        LazyText description;
+        LazyText instruction;
+        AlertGeometry geometry;
+        String effectiveText;
+        String expiresText;
+        String onsetText;
+
+        Alert build() {
+            return new Alert(this);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package weatheralerts;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.ListCellRenderer;
+import javax.swing.SwingConstants;
+import javax.swing.border.EmptyBorder;
+
+// Paints one alert row of the result list. A single instance of this component tree is
+// reconfigured and stamped for every visible row, so the cost of the list no longer grows
+// with the number of alerts: only rows inside the viewport are ever laid out or painted.
+// Texts, colors and icons come precomputed in the row's AlertRow.
+final class AlertCellRenderer extends JPanel implements ListCellRenderer<Alert> {
+    private static final long serialVersionUID = 1L;
+
+    // Row height including the gap below each row; the list uses it as a fixed cell height
+    static final int ROW_HEIGHT = 84;
+
+    // How long a newly arrived alert stays highlighted, fading back to the row background
+    static final int FLASH_MILLIS = 3000;
+
+    private static final Color ROW_BACKGROUND = new Color(250, 250, 250);
+    private static final Color ROW_HOVER_BACKGROUND = new Color(240, 240, 240);
+    private static final Color FLASH_BACKGROUND = new Color(255, 236, 150);
+    private static final Color ICON_BACKGROUND = new Color(240, 240, 240);
+    private static final Font GLYPH_FONT = new Font("Arial", Font.BOLD, 24);
+    private static final Font EVENT_FONT = new Font("Arial", Font.BOLD, 14);
+    private static final Font TEXT_FONT = new Font("Arial", Font.PLAIN, 12);
+    private static final Font BADGE_FONT = new Font("Arial", Font.BOLD, 12);
+
+    private final JPanel rowPanel = new JPanel(new BorderLayout());
+    private final JLabel iconLabel = new JLabel();
+    private final JPanel detailsPanel = new JPanel(new GridBagLayout());
+    private final JLabel eventLabel = new JLabel();
+    private final JLabel headlineLabel = new JLabel();
+    private final JLabel effectiveLabel = new JLabel();
+    private final JLabel expiresLabel = new JLabel();
+    private final JLabel severityLabel = new JLabel();
+    private final Map<Alert, Long> flashStarts = new IdentityHashMap<>();
+    private int hoverIndex = -1;
+
+    AlertCellRenderer() {
+        super(new BorderLayout());
+        setOpaque(false);
+        setBorder(new EmptyBorder(0, 0, 4, 0));
+        add(rowPanel, BorderLayout.CENTER);
+
+        // Left side: Icon based on event type
+        JPanel iconPanel = new JPanel(new BorderLayout());
+        iconPanel.setBackground(ICON_BACKGROUND);
+        iconPanel.setPreferredSize(new Dimension(60, 60));
+        iconPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        iconLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        iconLabel.setFont(GLYPH_FONT);
+        iconPanel.add(iconLabel, BorderLayout.CENTER);
+        rowPanel.add(iconPanel, BorderLayout.WEST);
+
+        // Right side: Alert details
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.gridwidth = 2;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(2, 5, 2, 5);
+        eventLabel.setFont(EVENT_FONT);
+        detailsPanel.add(eventLabel, gbc);
+        gbc.gridy++;
+        headlineLabel.setFont(TEXT_FONT);
+        detailsPanel.add(headlineLabel, gbc);
+        gbc.gridy++;
+        gbc.gridwidth = 1;
+        effectiveLabel.setFont(TEXT_FONT);
+        detailsPanel.add(effectiveLabel, gbc);
+        gbc.gridx = 1;
+        expiresLabel.setFont(TEXT_FONT);
+        detailsPanel.add(expiresLabel, gbc);
+        rowPanel.add(detailsPanel, BorderLayout.CENTER);
+
+        // Severity indicator
+        severityLabel.setForeground(Color.WHITE);
+        severityLabel.setFont(BADGE_FONT);
+        severityLabel.setOpaque(true);
+        severityLabel.setBorder(BorderFactory.createEmptyBorder(2, 8, 2, 8));
+        severityLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        rowPanel.add(severityLabel, BorderLayout.EAST);
+    }
+
+    int getHoverIndex() {
+        return hoverIndex;
+    }
+
+    // Row under the mouse, painted with the hover background
+    void setHoverIndex(int hoverIndex) {
+        this.hoverIndex = hoverIndex;
+    }
+
+    // Highlights a newly arrived alert from now on
+    void flash(Alert alert) {
+        flashStarts.put(alert, System.currentTimeMillis());
+    }
+
+    // Drops finished highlights; true while any row is still flashing
+    boolean pruneFlashes(long now) {
+        flashStarts.values().removeIf(start -> now - start >= FLASH_MILLIS);
+        return !flashStarts.isEmpty();
+    }
+
+    void clearFlashes() {
+        flashStarts.clear();
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends Alert> list,
+                                                  Alert alert, int index,
+                                                  boolean isSelected, boolean cellHasFocus) {
+        long start = Diagnostics.isEnabled() ? System.nanoTime() : 0;
+        AlertRow row = list.getModel() instanceof AlertListModel
+            ? ((AlertListModel) list.getModel()).view(index) : AlertRow.of(alert);
+        rowPanel.setBorder(row.border);
+        Color background = index == hoverIndex ? ROW_HOVER_BACKGROUND : ROW_BACKGROUND;
+        Long flashStart = flashStarts.isEmpty() ? null : flashStarts.get(alert);
+        if (flashStart != null) {
+            background = fade(FLASH_BACKGROUND, background,
+                (System.currentTimeMillis() - flashStart) / (float) FLASH_MILLIS);
+        }
+        rowPanel.setBackground(background);
+        detailsPanel.setBackground(background);
+
+        // If no icon is available, use text instead
+        iconLabel.setIcon(row.icon);
+        iconLabel.setText(row.icon == null ? row.glyph : "");
+
+        // Event type and number
+        eventLabel.setText("#" + (index + 1) + ": " + row.title);
+
+        headlineLabel.setText(row.headline != null ? row.headline : "");
+        headlineLabel.setVisible(row.headline != null);
+
+        effectiveLabel.setText(row.effective);
+        expiresLabel.setText(row.expires);
+
+        severityLabel.setText(alert.severity.label);
+        severityLabel.setBackground(row.severityColor);
+        if (start != 0) {
+            Diagnostics.rowRendered(System.nanoTime() - start);
+        }
+        return this;
+    }
+
+    // Linear blend from one color to another; progress is clamped to 0..1
+    private static Color fade(Color from, Color to, float progress) {
+        float t = Math.max(0f, Math.min(1f, progress));
+        return new Color(
+            Math.round(from.getRed() + (to.getRed() - from.getRed()) * t),
+            Math.round(from.getGreen() + (to.getGreen() - from.getGreen()) * t),
+            Math.round(from.getBlue() + (to.getBlue() - from.getBlue()) * t));
+    }
+}
@@ -0,0 +1,244 @@
+package weatheralerts;
+
+import java.awt.Color;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+
+// Maps event and severity strings to their icon category and color. The keyword tables are
+// compiled once into Aho-Corasick automata so a string is classified in a single scan, the
+// result per distinct string is memoized, and each icon is decoded at most once per process.
+// When several keywords occur, the longest wins and ties go to the earlier table entry, so
+// "Flash Flood Warning" is always Flash Flood and "Hurricane Force Wind Warning" Hurricane.
+final class AlertClassifier {
+
+    static final class Category {
+        final String keyword;
+        final String iconPath;
+        // Text shown when the icon resource is unavailable
+        final String glyph;
+        private volatile Icon icon;
+        private volatile boolean iconLoaded;
+
+        Category(String keyword, String iconPath, String glyph) {
+            this.keyword = keyword;
+            this.iconPath = iconPath;
+            this.glyph = glyph;
+        }
+
+        // Shared decoded icon, or null when the resource is missing and the glyph should be used
+        Icon icon() {
+            if (!iconLoaded) {
+                synchronized (this) {
+                    if (!iconLoaded) {
+                        icon = loadIcon(iconPath);
+                        iconLoaded = true;
+                    }
+                }
+            }
+            return icon;
+        }
+
+        private static Icon loadIcon(String path) {
+            if (path == null) {
+                return null;
+            }
+            try {
+                URL iconUrl = AlertClassifier.class.getResource(path);
+                return iconUrl != null ? new ImageIcon(iconUrl) : null;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+
+    // Icons for different alert types (paths to resources), in tie-break order
+    private static final Map<String, String> ALERT_ICONS = new LinkedHashMap<>();
+    static {
+        ALERT_ICONS.put("Tornado", "/icons/tornado.png");
+        ALERT_ICONS.put("Severe Thunderstorm", "/icons/thunderstorm.png");
+        ALERT_ICONS.put("Flash Flood", "/icons/flood.png");
+        ALERT_ICONS.put("Flood", "/icons/flood.png");
+        ALERT_ICONS.put("Winter Storm", "/icons/winter.png");
+        ALERT_ICONS.put("Blizzard", "/icons/snow.png");
+        ALERT_ICONS.put("Wind", "/icons/wind.png");
+        ALERT_ICONS.put("Heat", "/icons/heat.png");
+        ALERT_ICONS.put("Fire", "/icons/fire.png");
+        ALERT_ICONS.put("Hurricane", "/icons/hurricane.png");
+        // Add more mappings as needed
+    }
+
+    // Severity colors
+    private static final Map<String, Color> SEVERITY_COLORS = new LinkedHashMap<>();
+    static {
+        SEVERITY_COLORS.put("Extreme", new Color(139, 0, 0)); // Dark Red
+        SEVERITY_COLORS.put("Severe", new Color(255, 0, 0)); // Red
+        SEVERITY_COLORS.put("Moderate", new Color(255, 165, 0)); // Orange
+        SEVERITY_COLORS.put("Minor", new Color(255, 255, 0)); // Yellow
+        SEVERITY_COLORS.put("Unknown", new Color(128, 128, 128)); // Gray
+    }
+
+    // Used for events that match no keyword
+    static final Category DEFAULT_CATEGORY = new Category(null, null, "!");
+
+    // Memo tables are cleared if feeds ever produce this many distinct strings
+    private static final int MAX_MEMO_SIZE = 4096;
+
+    private static final List<Category> CATEGORIES = new ArrayList<>();
+    private static final KeywordMatcher EVENT_MATCHER;
+    private static final KeywordMatcher SEVERITY_MATCHER;
+    private static final Color[] SEVERITY_PALETTE;
+    private static final Map<String, Category> EVENT_MEMO = new ConcurrentHashMap<>();
+    private static final Map<String, Color> SEVERITY_MEMO = new ConcurrentHashMap<>();
+
+    static {
+        for (Map.Entry<String, String> entry : ALERT_ICONS.entrySet()) {
+            CATEGORIES.add(new Category(entry.getKey(), entry.getValue(), entry.getKey().substring(0, 1)));
+        }
+        EVENT_MATCHER = new KeywordMatcher(ALERT_ICONS.keySet().toArray(new String[0]));
+        SEVERITY_MATCHER = new KeywordMatcher(SEVERITY_COLORS.keySet().toArray(new String[0]));
+        SEVERITY_PALETTE = SEVERITY_COLORS.values().toArray(new Color[0]);
+    }
+
+    private AlertClassifier() {
+    }
+
+    static Category categoryOf(String eventType) {
+        if (eventType == null || eventType.isEmpty()) {
+            return DEFAULT_CATEGORY;
+        }
+        Category category = EVENT_MEMO.get(eventType);
+        if (category == null) {
+            int match = EVENT_MATCHER.bestMatch(eventType);
+            category = match >= 0 ? CATEGORIES.get(match) : DEFAULT_CATEGORY;
+            memoize(EVENT_MEMO, eventType, category);
+        }
+        return category;
+    }
+
+    static Color severityColor(String severity) {
+        if (severity == null) {
+            return SEVERITY_COLORS.get("Unknown");
+        }
+        Color color = SEVERITY_MEMO.get(severity);
+        if (color == null) {
+            int match = SEVERITY_MATCHER.bestMatch(severity);
+            color = match >= 0 ? SEVERITY_PALETTE[match] : SEVERITY_COLORS.get("Unknown");
+            memoize(SEVERITY_MEMO, severity, color);
+        }
+        return color;
+    }
+
+    private static <V> void memoize(Map<String, V> memo, String key, V value) {
+        if (memo.size() >= MAX_MEMO_SIZE) {
+            memo.clear();
+        }
+        memo.put(key, value);
+    }
+
+    // Aho-Corasick automaton over the keywords, flattened into a dense transition table.
+    // Characters that occur in no keyword share alphabet slot 0.
+    static final class KeywordMatcher {
+        private final int[] lengths;
+        private final byte[] alphabet = new byte[128];
+        private final int[][] next;
+        // Best keyword ending at each state (including via failure links), or -1
+        private final int[] output;
+
+        KeywordMatcher(String[] keywords) {
+            lengths = new int[keywords.length];
+            int alphabetSize = 1;
+            int maxStates = 1;
+            for (String keyword : keywords) {
+                maxStates += keyword.length();
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = keyword.charAt(i);
+                    if (c >= 128) {
+                        throw new IllegalArgumentException("Keywords must be ASCII: " + keyword);
+                    }
+                    if (alphabet[c] == 0) {
+                        alphabet[c] = (byte) alphabetSize++;
+                    }
+                }
+            }
+
+            // Trie
+            int[][] trie = new int[maxStates][alphabetSize];
+            int[] out = new int[maxStates];
+            Arrays.fill(out, -1);
+            int states = 1;
+            for (int k = 0; k < keywords.length; k++) {
+                lengths[k] = keywords[k].length();
+                int state = 0;
+                for (int i = 0; i < keywords[k].length(); i++) {
+                    int symbol = alphabet[keywords[k].charAt(i)];
+                    if (trie[state][symbol] == 0) {
+                        trie[state][symbol] = states++;
+                    }
+                    state = trie[state][symbol];
+                }
+                out[state] = better(out[state], k);
+            }
+
+            // Failure links, breadth first, folded into the transition table
+            int[] fail = new int[states];
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int symbol = 1; symbol < alphabetSize; symbol++) {
+                if (trie[0][symbol] != 0) {
+                    queue.add(trie[0][symbol]);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.remove();
+                out[state] = better(out[state], out[fail[state]]);
+                for (int symbol = 1; symbol < alphabetSize; symbol++) {
+                    int child = trie[state][symbol];
+                    if (child != 0) {
+                        fail[child] = trie[fail[state]][symbol];
+                        queue.add(child);
+                    } else {
+                        trie[state][symbol] = trie[fail[state]][symbol];
+                    }
+                }
+            }
+            next = Arrays.copyOf(trie, states);
+            output = Arrays.copyOf(out, states);
+        }
+
+        // Index of the longest keyword occurring in text (earliest in the table on ties), or -1
+        int bestMatch(CharSequence text) {
+            int state = 0;
+            int best = -1;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                state = next[state][c < 128 ? alphabet[c] : 0];
+                if (output[state] >= 0) {
+                    best = better(best, output[state]);
+                }
+            }
+            return best;
+        }
+
+        private int better(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            if (b < 0) {
+                return a;
+            }
+            if (lengths[a] != lengths[b]) {
+                return lengths[a] > lengths[b] ? a : b;
+            }
+            return Math.min(a, b);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package weatheralerts;
+
+import java.util.Arrays;
+
+// Area of an alert: the rings of its GeoJSON Polygon or MultiPolygon, flattened into one
+// array of interleaved longitude/latitude floats (about a metre of precision) with the start
+// of each ring, plus the bounding box. Containment is the even-odd rule across all rings, so
+// holes and the parts of a multipolygon need no bookkeeping of their own. An area lying across
+// the 180th meridian, as Alaska's western marine zones do, is narrower with its western
+// longitudes counted past 180: it then wraps, and is tested and boxed with longitudes in
+// [0, 360), where its edges no longer jump across the globe.
+final class AlertGeometry {
+
+    // lon0, lat0, lon1, lat1, ...; each ring repeats its first point at the end, as in GeoJSON
+    final float[] coordinates;
+    // Point index where each ring starts, then the total point count
+    final int[] ringStarts;
+    // Whether the area is measured with longitudes in [0, 360), where maxLon is past 180
+    final boolean wraps;
+    final float minLon;
+    final float minLat;
+    final float maxLon;
+    final float maxLat;
+    // The coordinates tests run on: the coordinates themselves, or a copy with longitudes in
+    // [0, 360) when the area wraps
+    private final float[] planar;
+
+    AlertGeometry(float[] coordinates, int[] ringStarts) {
+        this.coordinates = coordinates;
+        this.ringStarts = ringStarts;
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        float minShifted = Float.POSITIVE_INFINITY;
+        float maxShifted = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < coordinates.length; i += 2) {
+            float x = coordinates[i];
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minShifted = Math.min(minShifted, shift(x));
+            maxShifted = Math.max(maxShifted, shift(x));
+            minY = Math.min(minY, coordinates[i + 1]);
+            maxY = Math.max(maxY, coordinates[i + 1]);
+        }
+        this.wraps = maxShifted - minShifted < maxX - minX;
+        if (wraps) {
+            planar = coordinates.clone();
+            for (int i = 0; i < planar.length; i += 2) {
+                planar[i] = shift(planar[i]);
+            }
+            minX = minShifted;
+            maxX = maxShifted;
+        } else {
+            planar = coordinates;
+        }
+        this.minLon = minX;
+        this.minLat = minY;
+        this.maxLon = maxX;
+        this.maxLat = maxY;
+    }
+
+    private static float shift(float lon) {
+        return lon < 0 ? lon + 360 : lon;
+    }
+
+    int ringCount() {
+        return ringStarts.length - 1;
+    }
+
+    int pointCount() {
+        return coordinates.length / 2;
+    }
+
+    boolean contains(double lat, double lon) {
+        if (wraps && lon < 0) {
+            lon += 360;
+        }
+        if (lon < minLon || lon > maxLon || lat < minLat || lat > maxLat) {
+            return false;
+        }
+        boolean inside = false;
+        for (int ring = 0; ring < ringCount(); ring++) {
+            int end = ringStarts[ring + 1];
+            int j = end - 1;
+            for (int i = ringStarts[ring]; i < end; j = i++) {
+                float xi = planar[2 * i];
+                float yi = planar[2 * i + 1];
+                float xj = planar[2 * j];
+                float yj = planar[2 * j + 1];
+                if ((yi > lat) != (yj > lat) && lon < (xj - xi) * (lat - yi) / (yj - yi) + xi) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+    // Whether the area and the box share any point. A wrapping area is tested against the box
+    // and against the box moved 360 degrees east, which between them cover its western part.
+    boolean intersects(double south, double west, double north, double east) {
+        return intersectsPlanar(south, west, north, east)
+            || wraps && intersectsPlanar(south, west + 360, north, east + 360);
+    }
+
+    // A vertex inside the box, the box's centre inside the area, or an edge crossing the box
+    private boolean intersectsPlanar(double south, double west, double north, double east) {
+        if (east < minLon || west > maxLon || north < minLat || south > maxLat) {
+            return false;
+        }
+        if (contains((south + north) / 2, (west + east) / 2)) {
+            return true;
+        }
+        for (int ring = 0; ring < ringCount(); ring++) {
+            int end = ringStarts[ring + 1];
+            for (int i = ringStarts[ring]; i < end; i++) {
+                float x = planar[2 * i];
+                float y = planar[2 * i + 1];
+                if (x >= west && x <= east && y >= south && y <= north) {
+                    return true;
+                }
+                if (i + 1 < end && crossesBox(x, y, planar[2 * i + 2], planar[2 * i + 3],
+                        south, west, north, east)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Liang-Barsky: whether the segment passes through the box
+    private static boolean crossesBox(double x0, double y0, double x1, double y1,
+                                      double south, double west, double north, double east) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {x0 - west, east - x0, y0 - south, north - y0};
+        double enter = 0;
+        double leave = 1;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return false;
+                }
+            } else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) {
+                    enter = Math.max(enter, t);
+                } else {
+                    leave = Math.min(leave, t);
+                }
+            }
+        }
+        return enter <= leave;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof AlertGeometry)) {
+            return false;
+        }
+        AlertGeometry geometry = (AlertGeometry) other;
+        return Arrays.equals(ringStarts, geometry.ringStarts) && Arrays.equals(coordinates, geometry.coordinates);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(ringStarts) + Arrays.hashCode(coordinates);
+    }
+}
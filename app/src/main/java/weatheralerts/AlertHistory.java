@@ -0,0 +1,862 @@
+package weatheralerts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+// Local history of every alert ingested, kept after NWS drops it from alerts/active. Alerts
+// are appended to a log split into numbered segment files; an alert whose content changed
+// since it was last recorded gets a new version under the same NWS id, and an unchanged one
+// is not written again. Each segment has a memory-mapped index of fixed-size entries (states,
+// event, validity window, version), and in memory the entries of each event and state, so a
+// query reads only the entries that can match and then only the records they point to.
+// Segments past the retention period or the size budget are dropped oldest first, and a
+// segment that is at least half dead records is rewritten without them.
+final class AlertHistory {
+
+    // One stored version of an alert
+    static final class Entry {
+        final Alert alert;
+        // The alert's own states, or the area it was fetched for if it lists none
+        final List<String> states;
+        final int version;
+        final long recordedAt;
+
+        Entry(Alert alert, List<String> states, int version, long recordedAt) {
+            this.alert = alert;
+            this.states = states;
+            this.version = version;
+            this.recordedAt = recordedAt;
+        }
+    }
+
+    private static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+    private static final long DEFAULT_RETENTION_MILLIS = 90L * 24 * 60 * 60 * 1000;
+    private static final long DEFAULT_SEGMENT_BYTES = 8L * 1024 * 1024;
+    // Superseded versions of an alert that expired longer ago than this are compacted away
+    private static final long KEEP_VERSIONS_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    // A record is framed as int body length, int CRC-32 of the body, body. The body starts with
+    // a fixed header (format, version, recording time, area fetched for) followed by the alert
+    // content. Format 1 records, whose content has no states, still decode.
+    private static final byte FORMAT = 2;
+    private static final byte FORMAT_WITHOUT_STATES = 1;
+    private static final int FRAME_HEADER = 8;
+    private static final int BODY_HEADER = 17;
+    private static final int MAX_BODY = 16 * 1024 * 1024;
+
+    // Index file: int magic, int entry count, 8 bytes reserved, then ENTRY_BYTES per record. An
+    // index of another layout has the wrong magic and is rebuilt from its log.
+    private static final int INDEX_MAGIC = 0x41484959;
+    private static final int INDEX_HEADER = 16;
+    private static final int INDEX_GROWTH = 1024;
+    private static final int ENTRY_BYTES = 64;
+    private static final int E_OFFSET = 0;
+    private static final int E_LENGTH = 4;
+    private static final int E_EFFECTIVE = 8;
+    private static final int E_EXPIRES = 16;
+    private static final int E_RECORDED = 24;
+    private static final int E_ID = 32;
+    private static final int E_EVENT = 40;
+    private static final int E_VERSION = 44;
+    private static final int E_CONTENT = 48;
+    // Bit stateBit(state) set for each of the entry's states
+    private static final int E_STATES = 56;
+
+    private static final class Segment {
+        final long number;
+        final File log;
+        final File indexFile;
+        final FileChannel channel;
+        MappedByteBuffer index;
+        int count;
+        // Length of the valid records; a torn write past it is cut off when the segment is opened
+        long size;
+        // Span of the validity windows of its records, so queries can skip the whole segment
+        long minStart = Long.MAX_VALUE;
+        long maxEnd = Long.MIN_VALUE;
+        long newestRecorded = Long.MIN_VALUE;
+        // Set after a failed write, so the next record starts a new segment
+        boolean sealed;
+        // Entry numbers by event hash and by state bit, oldest first
+        final Map<Integer, Postings> byEvent = new HashMap<>();
+        final Postings[] byState = new Postings[64];
+
+        Segment(File directory, long number) throws IOException {
+            this.number = number;
+            this.log = new File(directory, segmentName(number) + ".log");
+            this.indexFile = new File(directory, segmentName(number) + ".idx");
+            this.channel = new RandomAccessFile(log, "rw").getChannel();
+        }
+
+        // Maps the index and brings it up to date with the log, which is ahead of it after a
+        // crash between the two writes
+        void recover() throws IOException {
+            mapIndex(Math.max(indexFile.length(), INDEX_HEADER + (long) INDEX_GROWTH * ENTRY_BYTES));
+            count = index.getInt(0) == INDEX_MAGIC ? index.getInt(4) : 0;
+            if (count < 0 || INDEX_HEADER + (long) count * ENTRY_BYTES > index.capacity()) {
+                count = 0;
+            }
+            long end = 0;
+            if (count > 0) {
+                int last = entryAt(count - 1);
+                end = (index.getInt(last + E_OFFSET) & 0xFFFFFFFFL) + index.getInt(last + E_LENGTH);
+                if (end > channel.size()) {
+                    count = 0;
+                    end = 0;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                track(entryAt(i));
+            }
+            size = end;
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+            while (true) {
+                header.clear();
+                if (readFully(channel, header, size) < FRAME_HEADER) {
+                    break;
+                }
+                int length = header.getInt(0);
+                if (length < BODY_HEADER || length > MAX_BODY || size + FRAME_HEADER + length > channel.size()) {
+                    break;
+                }
+                ByteBuffer body = ByteBuffer.allocate(length);
+                readFully(channel, body, size + FRAME_HEADER);
+                if (crc(body.array(), 0, length) != header.getInt(4)
+                        || (body.get(0) != FORMAT && body.get(0) != FORMAT_WITHOUT_STATES)) {
+                    break;
+                }
+                Entry entry = decode(body.array(), null);
+                addEntry(entryBytes(size, FRAME_HEADER + length, entry, crc(body.array(), BODY_HEADER,
+                    length - BODY_HEADER)));
+                size += FRAME_HEADER + length;
+            }
+            if (channel.size() > size) {
+                channel.truncate(size);
+            }
+            index.putInt(0, INDEX_MAGIC);
+            index.putInt(4, count);
+        }
+
+        void append(byte[] frame, byte[] entry) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(frame);
+            long position = size;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            size = position;
+            addEntry(entry);
+        }
+
+        void addEntry(byte[] entry) throws IOException {
+            long needed = INDEX_HEADER + (long) (count + 1) * ENTRY_BYTES;
+            if (needed > index.capacity()) {
+                mapIndex(index.capacity() + (long) INDEX_GROWTH * ENTRY_BYTES);
+            }
+            int at = entryAt(count);
+            for (int i = 0; i < ENTRY_BYTES; i++) {
+                index.put(at + i, entry[i]);
+            }
+            // The count goes last, so a crash never exposes a half-written entry
+            count++;
+            index.putInt(4, count);
+            track(at);
+        }
+
+        byte[] readBody(int entry) throws IOException {
+            long offset = index.getInt(entry + E_OFFSET) & 0xFFFFFFFFL;
+            ByteBuffer body = ByteBuffer.allocate(index.getInt(entry + E_LENGTH) - FRAME_HEADER);
+            if (readFully(channel, body, offset + FRAME_HEADER) < body.capacity()) {
+                throw new IOException("Truncated history record in " + log);
+            }
+            return body.array();
+        }
+
+        static int entryAt(int i) {
+            return INDEX_HEADER + i * ENTRY_BYTES;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing was pending; every append is already in the file
+            }
+            index = null;
+        }
+
+        private void track(int entry) {
+            minStart = Math.min(minStart, start(index, entry));
+            maxEnd = Math.max(maxEnd, end(index, entry));
+            newestRecorded = Math.max(newestRecorded, index.getLong(entry + E_RECORDED));
+            int number = (entry - INDEX_HEADER) / ENTRY_BYTES;
+            byEvent.computeIfAbsent(index.getInt(entry + E_EVENT), event -> new Postings()).add(number);
+            long states = index.getLong(entry + E_STATES);
+            while (states != 0) {
+                int bit = Long.numberOfTrailingZeros(states);
+                if (byState[bit] == null) {
+                    byState[bit] = new Postings();
+                }
+                byState[bit].add(number);
+                states &= states - 1;
+            }
+        }
+
+        private void mapIndex(long capacity) throws IOException {
+            try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+                index = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            }
+        }
+    }
+
+    // Growable list of entry numbers
+    private static final class Postings {
+        int[] entries = new int[8];
+        int count;
+
+        void add(int entry) {
+            if (count == entries.length) {
+                entries = Arrays.copyOf(entries, count * 2);
+            }
+            entries[count++] = entry;
+        }
+    }
+
+    // Latest stored version of an alert, to number the next one and skip unchanged repeats
+    private static final class Latest {
+        final int version;
+        final int contentCrc;
+        // Where the version is stored, to settle a CRC match against the record itself
+        final long segment;
+        int entry;
+        // The alert last recorded or found unchanged, which a replayed feed delivers again
+        WeakReference<Alert> alert;
+
+        Latest(int version, int contentCrc, long segment, int entry) {
+            this.version = version;
+            this.contentCrc = contentCrc;
+            this.segment = segment;
+            this.entry = entry;
+        }
+    }
+
+    private final File directory;
+    private final long maxBytes;
+    private final long retentionMillis;
+    private final long segmentBytes;
+    // Oldest first; the last one is appended to
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<Long, Latest> latest = new HashMap<>();
+    private long totalBytes;
+    private int totalRecords;
+    // Segments are opened on first use, so creating the history costs the startup path nothing
+    private boolean loaded;
+    // Records handed over by fetch threads are appended here, in the order they were delivered
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(daemon("alerts-history"));
+    // Searches from the window run here, one at a time, never queued behind a network query
+    private final ExecutorService searcher = Executors.newSingleThreadExecutor(daemon("alerts-history-search"));
+
+    AlertHistory(File directory, long maxBytes, long retentionMillis) {
+        this(directory, maxBytes, retentionMillis, DEFAULT_SEGMENT_BYTES);
+    }
+
+    AlertHistory(File directory, long maxBytes, long retentionMillis, long segmentBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.retentionMillis = retentionMillis;
+        this.segmentBytes = segmentBytes;
+    }
+
+    // History under ~/.weatheralerts/history unless weatheralerts.historyDir points elsewhere
+    static AlertHistory openDefault() {
+        String dir = System.getProperty("weatheralerts.historyDir",
+            System.getProperty("user.home") + File.separator + ".weatheralerts" + File.separator + "history");
+        return new AlertHistory(new File(dir), DEFAULT_MAX_BYTES, DEFAULT_RETENTION_MILLIS);
+    }
+
+    // Appends the alert unless its latest stored version has the same content; area is what it
+    // was fetched for, kept for an alert that lists no states of its own, or null. History is
+    // best effort: a failed write loses that version and the next one starts a fresh segment.
+    synchronized void record(String area, Alert alert) {
+        if (alert.id == null) {
+            // Versions are keyed by id
+            return;
+        }
+        ensureLoaded();
+        long idHash = hash64(alert.id);
+        Latest previous = latest.get(idHash);
+        if (previous != null && previous.alert != null && previous.alert.get() == alert) {
+            return;
+        }
+        byte[] content = encodeContent(alert);
+        int contentCrc = crc(content, 0, content.length);
+        // The CRC only rules a change in; the stored version settles a match
+        if (previous != null && previous.contentCrc == contentCrc && sameAsStored(previous, alert)) {
+            previous.alert = new WeakReference<>(alert);
+            return;
+        }
+        int version = previous != null ? previous.version + 1 : 1;
+        long now = System.currentTimeMillis();
+        byte[] frame = new byte[FRAME_HEADER + BODY_HEADER + content.length];
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        buffer.putInt(BODY_HEADER + content.length).putInt(0);
+        buffer.put(FORMAT).putInt(version).putLong(now).putInt(packState(area)).put(content);
+        buffer.putInt(4, crc(frame, FRAME_HEADER, frame.length - FRAME_HEADER));
+        try {
+            Segment active = activeSegment(now);
+            long offset = active.size;
+            Entry entry = new Entry(alert, statesOf(alert, unpackState(packState(area))), version, now);
+            active.append(frame, entryBytes(offset, frame.length, entry, contentCrc));
+            totalBytes += frame.length;
+            totalRecords++;
+            Latest recorded = new Latest(version, contentCrc, active.number, active.count - 1);
+            recorded.alert = new WeakReference<>(alert);
+            latest.put(idHash, recorded);
+        } catch (IOException e) {
+            roll();
+        }
+    }
+
+    // Records on the history thread, for callers holding locks that must not wait on the disk.
+    // Alerts are immutable, so the record sees the alert as it was delivered.
+    void recordLater(String area, Alert alert) {
+        if (alert.id != null) {
+            writer.execute(() -> record(area, alert));
+        }
+    }
+
+    private boolean sameAsStored(Latest stored, Alert alert) {
+        for (Segment segment : segments) {
+            if (segment.number == stored.segment && stored.entry < segment.count) {
+                try {
+                    return decode(segment.readBody(Segment.entryAt(stored.entry)), null).alert.sameContent(alert);
+                } catch (IOException | RuntimeException e) {
+                    // Unreadable: record the alert again rather than lose a change
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Runs a search of the history off the EDT, on the history's own search thread
+    void searchLater(Runnable search) {
+        searcher.execute(search);
+    }
+
+    // Stored versions whose validity window overlaps [from, to] (epoch millis), newest first,
+    // at most limit of them. A null state or event matches any; events match ignoring case.
+    synchronized List<Entry> query(String state, String event, long from, long to, int limit) throws IOException {
+        ensureLoaded();
+        String stateCode = state != null ? unpackState(packState(state)) : null;
+        int stateBit = stateCode != null ? stateBit(stateCode) : 0;
+        int eventKey = event != null ? eventHash(event) : 0;
+        List<Entry> found = new ArrayList<>();
+        for (int s = segments.size() - 1; s >= 0 && found.size() < limit; s--) {
+            Segment segment = segments.get(s);
+            if (segment.maxEnd < from || segment.minStart > to) {
+                continue;
+            }
+            // The shorter of the entries of the state and of the event, or all of them
+            Postings candidates = null;
+            if (state != null) {
+                candidates = stateCode != null ? segment.byState[stateBit] : null;
+                if (candidates == null) {
+                    continue;
+                }
+            }
+            if (event != null) {
+                Postings ofEvent = segment.byEvent.get(eventKey);
+                if (ofEvent == null) {
+                    continue;
+                }
+                if (candidates == null || ofEvent.count < candidates.count) {
+                    candidates = ofEvent;
+                }
+            }
+            MappedByteBuffer index = segment.index;
+            int count = candidates != null ? candidates.count : segment.count;
+            for (int k = count - 1; k >= 0 && found.size() < limit; k--) {
+                int at = Segment.entryAt(candidates != null ? candidates.entries[k] : k);
+                if ((state != null && (index.getLong(at + E_STATES) & 1L << stateBit) == 0)
+                        || (event != null && index.getInt(at + E_EVENT) != eventKey)
+                        || start(index, at) > to || end(index, at) < from) {
+                    continue;
+                }
+                Entry entry = decode(segment.readBody(at), TextStore.SHARED);
+                // The index holds hashes; the record settles collisions
+                if ((event == null || entry.alert.event.name.equalsIgnoreCase(event))
+                        && (state == null || entry.states.contains(stateCode))) {
+                    found.add(entry);
+                }
+            }
+        }
+        return found;
+    }
+
+    synchronized int size() {
+        ensureLoaded();
+        return totalRecords;
+    }
+
+    synchronized long totalBytes() {
+        ensureLoaded();
+        return totalBytes;
+    }
+
+    synchronized void close() {
+        loaded = true;
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    private Segment activeSegment(long now) throws IOException {
+        Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (active != null && !active.sealed && active.size < segmentBytes) {
+            return active;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create history directory " + directory);
+        }
+        Segment next = new Segment(directory, active != null ? active.number + 1 : 1);
+        next.recover();
+        segments.add(next);
+        maintain(now);
+        return next;
+    }
+
+    private void roll() {
+        if (!segments.isEmpty()) {
+            segments.get(segments.size() - 1).sealed = true;
+        }
+    }
+
+    // Applies retention and the size budget, then compacts sealed segments that are mostly
+    // dead. The segment being appended to is left alone.
+    private void maintain(long now) {
+        long cutoff = now - retentionMillis;
+        while (segments.size() > 1) {
+            Segment oldest = segments.get(0);
+            if (oldest.newestRecorded >= cutoff && totalBytes <= maxBytes) {
+                break;
+            }
+            segments.remove(0);
+            forget(oldest, 0, oldest.count);
+            totalBytes -= oldest.size;
+            totalRecords -= oldest.count;
+            delete(oldest);
+        }
+        for (int s = 0; s < segments.size() - 1; s++) {
+            Segment segment = segments.get(s);
+            int dead = 0;
+            for (int i = 0; i < segment.count; i++) {
+                if (isDead(segment.index, Segment.entryAt(i), cutoff, now)) {
+                    dead++;
+                }
+            }
+            if (dead > 0 && dead * 2 >= segment.count) {
+                try {
+                    segments.set(s, compact(segment, cutoff, now));
+                } catch (IOException e) {
+                    // The segment stays as it was; the next roll tries again
+                }
+            }
+        }
+    }
+
+    // Past retention, or a superseded version of an alert that expired a while ago
+    private boolean isDead(MappedByteBuffer index, int entry, long cutoff, long now) {
+        if (index.getLong(entry + E_RECORDED) < cutoff) {
+            return true;
+        }
+        long expires = index.getLong(entry + E_EXPIRES);
+        if (expires == IsoTimestamps.NONE || expires >= now - KEEP_VERSIONS_MILLIS) {
+            return false;
+        }
+        Latest newest = latest.get(index.getLong(entry + E_ID));
+        return newest != null && newest.version > index.getInt(entry + E_VERSION);
+    }
+
+    // Rewrites the live records of a sealed segment into a new log that replaces it; the
+    // replacement's index is rebuilt from the log when it is opened
+    private Segment compact(Segment segment, long cutoff, long now) throws IOException {
+        File compactLog = new File(directory, segment.log.getName() + COMPACT_SUFFIX);
+        try (FileChannel out = new RandomAccessFile(compactLog, "rw").getChannel()) {
+            out.truncate(0);
+            long position = 0;
+            for (int i = 0; i < segment.count; i++) {
+                int at = Segment.entryAt(i);
+                if (isDead(segment.index, at, cutoff, now)) {
+                    forget(segment, i, i + 1);
+                    continue;
+                }
+                ByteBuffer frame = ByteBuffer.allocate(segment.index.getInt(at + E_LENGTH));
+                readFully(segment.channel, frame, segment.index.getInt(at + E_OFFSET) & 0xFFFFFFFFL);
+                frame.flip();
+                while (frame.hasRemaining()) {
+                    position += out.write(frame, position);
+                }
+            }
+        }
+        long sizeBefore = segment.size;
+        int countBefore = segment.count;
+        segment.close();
+        // A platform that cannot delete a file still mapped keeps the old segment, and the
+        // leftover compact file is removed on the next launch
+        if (segment.log.delete()) {
+            segment.indexFile.delete();
+            compactLog.renameTo(segment.log);
+        }
+        Segment replacement = new Segment(directory, segment.number);
+        replacement.recover();
+        // Latest versions kept by the rewrite have moved up within the segment
+        for (int i = 0; i < replacement.count; i++) {
+            int at = Segment.entryAt(i);
+            Latest newest = latest.get(replacement.index.getLong(at + E_ID));
+            if (newest != null && newest.segment == segment.number
+                    && newest.version == replacement.index.getInt(at + E_VERSION)) {
+                newest.entry = i;
+            }
+        }
+        totalBytes += replacement.size - sizeBefore;
+        totalRecords += replacement.count - countBefore;
+        return replacement;
+    }
+
+    // Drops the latest-version marks that point into entries [from, to) of a segment going away,
+    // so an alert seen again is recorded anew
+    private void forget(Segment segment, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int at = Segment.entryAt(i);
+            long id = segment.index.getLong(at + E_ID);
+            Latest newest = latest.get(id);
+            if (newest != null && newest.version == segment.index.getInt(at + E_VERSION)) {
+                latest.remove(id);
+            }
+        }
+    }
+
+    private void delete(Segment segment) {
+        segment.close();
+        segment.log.delete();
+        segment.indexFile.delete();
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            loaded = true;
+            load();
+        }
+    }
+
+    // Opens the segments in order, recovering indexes, and drops leftovers of compactions
+    private void load() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<Long> numbers = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(COMPACT_SUFFIX)) {
+                file.delete();
+            } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(".log")) {
+                try {
+                    numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - 4)));
+                } catch (NumberFormatException e) {
+                    // Not ours
+                }
+            }
+        }
+        numbers.sort(null);
+        for (long number : numbers) {
+            try {
+                Segment segment = new Segment(directory, number);
+                segment.recover();
+                segments.add(segment);
+                totalBytes += segment.size;
+                totalRecords += segment.count;
+                for (int i = 0; i < segment.count; i++) {
+                    int at = Segment.entryAt(i);
+                    latest.put(segment.index.getLong(at + E_ID), new Latest(segment.index.getInt(at + E_VERSION),
+                        segment.index.getInt(at + E_CONTENT), number, i));
+                }
+            } catch (IOException e) {
+                // An unreadable segment is left on disk and out of the history
+            }
+        }
+        if (!segments.isEmpty()) {
+            maintain(System.currentTimeMillis());
+        }
+    }
+
+    private static byte[] entryBytes(long offset, int frameLength, Entry entry, int contentCrc) {
+        Alert alert = entry.alert;
+        byte[] bytes = new byte[ENTRY_BYTES];
+        ByteBuffer.wrap(bytes)
+            .putInt(E_OFFSET, (int) offset)
+            .putInt(E_LENGTH, frameLength)
+            .putLong(E_EFFECTIVE, alert.effective)
+            .putLong(E_EXPIRES, alert.expires)
+            .putLong(E_RECORDED, entry.recordedAt)
+            .putLong(E_ID, hash64(alert.id))
+            .putInt(E_EVENT, eventHash(alert.event.name))
+            .putInt(E_VERSION, entry.version)
+            .putInt(E_CONTENT, contentCrc)
+            .putLong(E_STATES, stateMask(entry.states));
+        return bytes;
+    }
+
+    private static long stateMask(List<String> states) {
+        long mask = 0;
+        for (String state : states) {
+            mask |= 1L << stateBit(state);
+        }
+        return mask;
+    }
+
+    // One of 64 bits for a state code; the 70-odd state and marine area prefixes share some,
+    // which the record settles
+    private static int stateBit(String state) {
+        return (packState(state) * 0x9E3779B9) >>> 26;
+    }
+
+    // The alert's states, or the area it was fetched for if it lists none
+    private static List<String> statesOf(Alert alert, String area) {
+        if (!alert.states.isEmpty() || area == null) {
+            return alert.states;
+        }
+        return Collections.singletonList(area);
+    }
+
+    // Validity window of an entry; an alert without an effective time counts from when it was
+    // recorded, one without an expiry never ends
+    private static long start(ByteBuffer index, int entry) {
+        long effective = index.getLong(entry + E_EFFECTIVE);
+        return effective != IsoTimestamps.NONE ? effective : index.getLong(entry + E_RECORDED);
+    }
+
+    private static long end(ByteBuffer index, int entry) {
+        long expires = index.getLong(entry + E_EXPIRES);
+        return expires != IsoTimestamps.NONE ? expires : Long.MAX_VALUE;
+    }
+
+    // The alert content of a record, also the format of AlertSnapshot's alerts
+    static byte[] encodeContent(Alert alert) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, alert.id);
+            writeString(out, alert.event.name);
+            out.writeByte(alert.severity.ordinal());
+            out.writeByte(alert.urgency.ordinal());
+            out.writeByte(alert.certainty.ordinal());
+            out.writeLong(alert.effective);
+            out.writeLong(alert.expires);
+            out.writeLong(alert.onset);
+            writeString(out, alert.headline);
+            writeString(out, alert.areaDesc);
+            out.writeByte(alert.states.size());
+            for (String state : alert.states) {
+                out.writeByte(state.charAt(0));
+                out.writeByte(state.charAt(1));
+            }
+            writeString(out, alert.effectiveText);
+            writeString(out, alert.expiresText);
+            writeString(out, alert.onsetText);
+            writeRaw(out, alert.description);
+            writeRaw(out, alert.instruction);
+            // Optional trailer, so records written before geometry was kept still decode
+            if (alert.geometry != null) {
+                writeGeometry(out, alert.geometry);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Entry decode(byte[] body, TextStore texts) {
+        ByteBuffer in = ByteBuffer.wrap(body);
+        boolean withStates = in.get() != FORMAT_WITHOUT_STATES;
+        int version = in.getInt();
+        long recordedAt = in.getLong();
+        String area = unpackState(in.getInt());
+        Alert alert = decodeContent(in, body, texts, withStates);
+        return new Entry(alert, statesOf(alert, area), version, recordedAt);
+    }
+
+    // Reads content written by encodeContent up to the limit of in, which wraps body; content
+    // written before states were kept has none. With a text store, versions and snapshot
+    // alerts share their texts with the live alerts, else the description and instruction
+    // point into body; either way they stay undecoded.
+    static Alert decodeContent(ByteBuffer in, byte[] body, TextStore texts, boolean withStates) {
+        Alert.Builder alert = new Alert.Builder();
+        alert.id = readString(in);
+        alert.event = EventType.of(readString(in));
+        alert.severity = Alert.Severity.values()[in.get()];
+        alert.urgency = Alert.Urgency.values()[in.get()];
+        alert.certainty = Alert.Certainty.values()[in.get()];
+        alert.effective = in.getLong();
+        alert.expires = in.getLong();
+        alert.onset = in.getLong();
+        alert.headline = texts != null ? texts.text(readString(in)) : readString(in);
+        alert.areaDesc = readString(in);
+        if (withStates) {
+            String[] states = new String[in.get() & 0xFF];
+            for (int i = 0; i < states.length; i++) {
+                states[i] = AlertJsonReader.stateCode((char) in.get(), (char) in.get());
+            }
+            alert.states = states.length == 0 ? Collections.<String>emptyList() : List.of(states);
+        }
+        alert.effectiveText = readString(in);
+        alert.expiresText = readString(in);
+        alert.onsetText = readString(in);
+        // Stored as read from the feed, so they stay undecoded here too
+        alert.description = readRaw(in, body, texts);
+        alert.instruction = readRaw(in, body, texts);
+        if (in.hasRemaining()) {
+            alert.geometry = readGeometry(in);
+        }
+        return alert.build();
+    }
+
+    static void writeString(DataOutputStream out, String text) throws IOException {
+        if (text == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String text = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return text;
+    }
+
+    private static void writeRaw(DataOutputStream out, LazyText text) throws IOException {
+        if (text == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(text.rawLength());
+        text.writeRaw(out);
+    }
+
+    private static void writeGeometry(DataOutputStream out, AlertGeometry geometry) throws IOException {
+        out.writeInt(geometry.ringStarts.length);
+        for (int start : geometry.ringStarts) {
+            out.writeInt(start);
+        }
+        out.writeInt(geometry.coordinates.length);
+        for (float coordinate : geometry.coordinates) {
+            out.writeFloat(coordinate);
+        }
+    }
+
+    private static AlertGeometry readGeometry(ByteBuffer in) {
+        int[] ringStarts = new int[in.getInt()];
+        for (int i = 0; i < ringStarts.length; i++) {
+            ringStarts[i] = in.getInt();
+        }
+        float[] coordinates = new float[in.getInt()];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = in.getFloat();
+        }
+        return new AlertGeometry(coordinates, ringStarts);
+    }
+
+    private static LazyText readRaw(ByteBuffer in, byte[] body, TextStore texts) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        LazyText text = texts != null ? texts.text(body, in.position(), length)
+            : new LazyText(body, in.position(), length);
+        in.position(in.position() + length + 1);
+        return text;
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static int crc(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    // FNV-1a over the id's chars; 64 bits keep collisions between real ids out of reach
+    private static long hash64(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static int eventHash(String event) {
+        return event.toLowerCase(Locale.ROOT).hashCode();
+    }
+
+    private static int packState(String state) {
+        if (state == null || state.length() != 2) {
+            return 0;
+        }
+        return (Character.toUpperCase(state.charAt(0)) << 16) | Character.toUpperCase(state.charAt(1));
+    }
+
+    private static String unpackState(int packed) {
+        return packed == 0 ? null : new String(new char[] {(char) (packed >>> 16), (char) packed});
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static String segmentName(long number) {
+        return String.format(Locale.ROOT, "%s%08d", SEGMENT_PREFIX, number);
+    }
+}
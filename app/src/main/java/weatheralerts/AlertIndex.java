@@ -0,0 +1,427 @@
+package weatheralerts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Inverted index over one result set, kept current as alerts arrive, change and expire. Words
+// of the event, headline, area and description map to sorted posting lists of document ids;
+// area words are indexed a second time under their own prefix so the area filter does not
+// match description text. Alert polygons go into a SpatialIndex under the same ids. A search
+// unions the postings of every indexed word starting with each query word, intersects across
+// query words and with the alerts covering the filter's location, and then checks the facets,
+// so refiltering thousands of alerts is a matter of milliseconds. The index belongs to the
+// EDT; fetch threads only tokenize, through prepare, so the EDT's share of an add is a few
+// lookups.
+final class AlertIndex {
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+    // Marks area words; tokens are letters and digits only, so it cannot collide
+    private static final String AREA = "@";
+
+    enum TimeWindow {
+        ANY("Any time"),
+        IN_EFFECT("In effect now"),
+        EXPIRES_1H("Expires within 1 hour"),
+        EXPIRES_6H("Expires within 6 hours"),
+        UPCOMING("Not yet started");
+
+        final String label;
+
+        TimeWindow(String label) {
+            this.label = label;
+        }
+
+        boolean matches(Alert alert, long now) {
+            long start = alert.onset != IsoTimestamps.NONE ? alert.onset : alert.effective;
+            switch (this) {
+                case IN_EFFECT:
+                    return (start == IsoTimestamps.NONE || start <= now)
+                        && (alert.expires == IsoTimestamps.NONE || now < alert.expires);
+                case EXPIRES_1H:
+                    return expiresWithin(alert, now, HOUR_MILLIS);
+                case EXPIRES_6H:
+                    return expiresWithin(alert, now, 6 * HOUR_MILLIS);
+                case UPCOMING:
+                    return start != IsoTimestamps.NONE && start > now;
+                default:
+                    return true;
+            }
+        }
+
+        private static boolean expiresWithin(Alert alert, long now, long millis) {
+            return alert.expires != IsoTimestamps.NONE && alert.expires >= now && alert.expires - now <= millis;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    // What to show. Every word must start a word of the alert and every area word a word of
+    // its area description, and the alert's polygon must cover the region; null facets, a null
+    // region and TimeWindow.ANY match everything.
+    static final class Filter {
+        static final Filter ALL = new Filter("", "", null, null, TimeWindow.ANY, null);
+
+        private final String[] words;
+        private final String[] areaWords;
+        final Alert.Severity severity;
+        final EventType event;
+        final TimeWindow window;
+        final SpatialIndex.Region region;
+
+        Filter(String text, String area, Alert.Severity severity, EventType event, TimeWindow window,
+               SpatialIndex.Region region) {
+            this.words = tokens(text, "").toArray(new String[0]);
+            this.areaWords = tokens(area, AREA).toArray(new String[0]);
+            this.severity = severity;
+            this.event = event;
+            this.window = window;
+            this.region = region;
+        }
+
+        boolean isEmpty() {
+            return words.length == 0 && areaWords.length == 0 && severity == null && event == null
+                && window == TimeWindow.ANY && region == null;
+        }
+
+        private boolean matchesFacets(Alert alert, long now) {
+            return (severity == null || alert.severity == severity) && (event == null || alert.event == event)
+                && window.matches(alert, now);
+        }
+    }
+
+    // An alert tokenized for indexing; prepare runs on any thread
+    static final class Entry {
+        final Alert alert;
+        private final String[] tokens;
+
+        private Entry(Alert alert, String[] tokens) {
+            this.alert = alert;
+            this.tokens = tokens;
+        }
+    }
+
+    private static final class Term {
+        final String text;
+        // Ascending document ids
+        int[] postings = new int[2];
+        int size;
+
+        Term(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Document {
+        final int id;
+        // Arrival order; an updated alert keeps the place of the one it replaces
+        final long sequence;
+        final Alert alert;
+        final Term[] terms;
+
+        Document(int id, long sequence, Alert alert, Term[] terms) {
+            this.id = id;
+            this.sequence = sequence;
+            this.alert = alert;
+            this.terms = terms;
+        }
+
+        boolean hasPrefix(String prefix) {
+            for (Term term : terms) {
+                if (term.text.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Sorted, so every word with a given prefix is one contiguous range
+    private final TreeMap<String, Term> terms = new TreeMap<>();
+    private final Map<String, Document> byId = new HashMap<>();
+    private final Map<Alert, Document> byAlert = new IdentityHashMap<>();
+    private final Map<EventType, Integer> eventCounts = new HashMap<>();
+    private final SpatialIndex spatial = new SpatialIndex();
+    // Indexed by document id; ids of removed documents are reused
+    private Document[] documents = new Document[64];
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int idLimit;
+    private long nextSequence;
+
+    static Entry prepare(Alert alert) {
+        return new Entry(alert, tokenize(alert).toArray(new String[0]));
+    }
+
+    Alert put(Alert alert) {
+        return put(prepare(alert));
+    }
+
+    // Adds the alert, replacing an indexed alert with the same id; returns the replaced alert
+    Alert put(Entry entry) {
+        Alert alert = entry.alert;
+        Document previous = alert.id != null ? byId.get(alert.id) : null;
+        long sequence = nextSequence++;
+        if (previous != null) {
+            sequence = previous.sequence;
+            unlink(previous);
+        }
+        Term[] docTerms = new Term[entry.tokens.length];
+        for (int i = 0; i < docTerms.length; i++) {
+            String token = entry.tokens[i];
+            Term term = terms.get(token);
+            if (term == null) {
+                term = new Term(token);
+                terms.put(token, term);
+            }
+            docTerms[i] = term;
+        }
+        Document document = new Document(allocateId(), sequence, alert, docTerms);
+        for (Term term : docTerms) {
+            insert(term, document.id);
+        }
+        documents[document.id] = document;
+        if (alert.geometry != null) {
+            spatial.put(document.id, alert.geometry);
+        }
+        byAlert.put(alert, document);
+        if (alert.id != null) {
+            byId.put(alert.id, document);
+        }
+        eventCounts.merge(alert.event, 1, Integer::sum);
+        return previous != null ? previous.alert : null;
+    }
+
+    // Removes the alert with this id; returns it, or null if it was not indexed
+    Alert remove(String id) {
+        Document document = byId.get(id);
+        if (document == null) {
+            return null;
+        }
+        unlink(document);
+        return document.alert;
+    }
+
+    Alert get(String id) {
+        Document document = byId.get(id);
+        return document != null ? document.alert : null;
+    }
+
+    int size() {
+        return byAlert.size();
+    }
+
+    // Every indexed alert in arrival order
+    List<Alert> alerts() {
+        return search(Filter.ALL, System.currentTimeMillis());
+    }
+
+    // Event types currently present, by name, for the event facet
+    List<EventType> eventTypes() {
+        List<EventType> types = new ArrayList<>(eventCounts.keySet());
+        types.sort((a, b) -> a.name.compareToIgnoreCase(b.name));
+        return types;
+    }
+
+    // Alerts passing the filter, in arrival order
+    List<Alert> search(Filter filter, long now) {
+        BitSet candidates = null;
+        for (String word : filter.words) {
+            candidates = narrow(candidates, word);
+        }
+        for (String word : filter.areaWords) {
+            candidates = narrow(candidates, word);
+        }
+        if (filter.region != null) {
+            BitSet covering = new BitSet(idLimit);
+            spatial.find(filter.region, covering);
+            if (candidates != null) {
+                covering.and(candidates);
+            }
+            candidates = covering;
+        }
+        List<Document> hits = new ArrayList<>();
+        if (candidates == null) {
+            for (int id = 0; id < idLimit; id++) {
+                Document document = documents[id];
+                if (document != null && filter.matchesFacets(document.alert, now)) {
+                    hits.add(document);
+                }
+            }
+        } else {
+            for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                Document document = documents[id];
+                if (filter.matchesFacets(document.alert, now)) {
+                    hits.add(document);
+                }
+            }
+        }
+        hits.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+        List<Alert> alerts = new ArrayList<>(hits.size());
+        for (Document document : hits) {
+            alerts.add(document.alert);
+        }
+        return alerts;
+    }
+
+    // Whether an indexed alert passes the filter, without running a search
+    boolean matches(Alert alert, Filter filter, long now) {
+        Document document = byAlert.get(alert);
+        if (document == null || !filter.matchesFacets(alert, now)) {
+            return false;
+        }
+        if (filter.region != null && !filter.region.matches(alert.geometry)) {
+            return false;
+        }
+        for (String word : filter.words) {
+            if (!document.hasPrefix(word)) {
+                return false;
+            }
+        }
+        for (String word : filter.areaWords) {
+            if (!document.hasPrefix(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Intersects candidates with the documents holding a word that starts with prefix
+    private BitSet narrow(BitSet candidates, String prefix) {
+        BitSet matches = new BitSet(idLimit);
+        for (Term term : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            for (int i = 0; i < term.size; i++) {
+                matches.set(term.postings[i]);
+            }
+        }
+        if (candidates != null) {
+            matches.and(candidates);
+        }
+        return matches;
+    }
+
+    private void unlink(Document document) {
+        for (Term term : document.terms) {
+            delete(term, document.id);
+            if (term.size == 0) {
+                terms.remove(term.text);
+            }
+        }
+        documents[document.id] = null;
+        spatial.remove(document.id);
+        byAlert.remove(document.alert);
+        if (document.alert.id != null) {
+            byId.remove(document.alert.id);
+        }
+        eventCounts.computeIfPresent(document.alert.event, (type, count) -> count > 1 ? count - 1 : null);
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = document.id;
+    }
+
+    private int allocateId() {
+        if (freeCount > 0) {
+            return freeIds[--freeCount];
+        }
+        if (idLimit == documents.length) {
+            documents = Arrays.copyOf(documents, idLimit * 2);
+        }
+        return idLimit++;
+    }
+
+    private static void insert(Term term, int id) {
+        int at = Arrays.binarySearch(term.postings, 0, term.size, id);
+        if (at >= 0) {
+            return;
+        }
+        at = -at - 1;
+        if (term.size == term.postings.length) {
+            term.postings = Arrays.copyOf(term.postings, term.size * 2);
+        }
+        System.arraycopy(term.postings, at, term.postings, at + 1, term.size - at);
+        term.postings[at] = id;
+        term.size++;
+    }
+
+    private static void delete(Term term, int id) {
+        int at = Arrays.binarySearch(term.postings, 0, term.size, id);
+        if (at >= 0) {
+            System.arraycopy(term.postings, at + 1, term.postings, at, term.size - at - 1);
+            term.size--;
+        }
+    }
+
+    private static Set<String> tokenize(Alert alert) {
+        Tokenizer tokenizer = new Tokenizer();
+        tokenizer.add(alert.event.name, "");
+        tokenizer.add(alert.headline, "");
+        tokenizer.add(alert.areaDesc, "");
+        tokenizer.add(alert.areaDesc, AREA);
+        // Read from the raw bytes; the alert keeps its description undecoded, and no String of
+        // it is built
+        if (alert.description != null) {
+            tokenizer.start("");
+            alert.description.decodeTo(tokenizer);
+            tokenizer.end();
+        }
+        return tokenizer.tokens;
+    }
+
+    private static Set<String> tokens(String text, String prefix) {
+        Tokenizer tokenizer = new Tokenizer();
+        tokenizer.add(text, prefix);
+        return tokenizer.tokens;
+    }
+
+    // Collects the lower-cased runs of letters and digits of the chars it is fed, each with
+    // the prefix given to start
+    private static final class Tokenizer implements LazyText.CharSink {
+        final Set<String> tokens = new LinkedHashSet<>();
+        private final StringBuilder token = new StringBuilder();
+        private int prefixLength;
+
+        void add(String text, String prefix) {
+            if (text == null) {
+                return;
+            }
+            start(prefix);
+            for (int i = 0; i < text.length(); i++) {
+                put(text.charAt(i));
+            }
+            end();
+        }
+
+        void start(String prefix) {
+            token.setLength(0);
+            token.append(prefix);
+            prefixLength = prefix.length();
+        }
+
+        @Override
+        public void put(char c) {
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else {
+                end();
+            }
+        }
+
+        void end() {
+            if (token.length() > prefixLength) {
+                tokens.add(token.toString());
+                token.setLength(prefixLength);
+            }
+        }
+    }
+}
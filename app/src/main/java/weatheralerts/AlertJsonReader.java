@@ -0,0 +1,1051 @@
+package weatheralerts;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Single forward-pass reader for the NWS alerts GeoJSON payload. The document is walked
+// exactly once: each feature is handed to the handler as soon as it closes, with the
+// coordinates of a Polygon or MultiPolygon geometry parsed straight from the bytes into float
+// arrays, and everything else (parameters, references, zones) is skipped in place without
+// being copied or decoded. Input is either a byte array or a
+// stream read through a small fixed buffer, so memory stays bounded by the largest field.
+final class AlertJsonReader {
+
+    interface Handler {
+        void onAlert(Alert alert);
+    }
+
+    // Thrown for input that is not the JSON we expect, as opposed to I/O failures on the stream.
+    // Input that simply ends early is an EOFException instead: a cut connection, not a bad document.
+    static final class MalformedJsonException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        MalformedJsonException(String message) {
+            super(message);
+        }
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+    // Raw text of lazily decoded fields is packed into chunks that grow up to this size
+    private static final int MIN_TEXT_CHUNK = 4096;
+    private static final int MAX_TEXT_CHUNK = 65536;
+
+    // Property fields extracted from every feature, indexed by the constants below
+    private static final byte[][] FIELD_KEYS = keys(
+        "id", "effective", "expires", "headline", "description", "severity", "event", "instruction", "onset",
+        "urgency", "certainty", "areaDesc", "geocode");
+    private static final int ID = 0;
+    private static final int EFFECTIVE = 1;
+    private static final int EXPIRES = 2;
+    private static final int HEADLINE = 3;
+    private static final int DESCRIPTION = 4;
+    private static final int SEVERITY = 5;
+    private static final int EVENT = 6;
+    private static final int INSTRUCTION = 7;
+    private static final int ONSET = 8;
+    private static final int URGENCY = 9;
+    private static final int CERTAINTY = 10;
+    private static final int AREA_DESC = 11;
+    private static final int GEOCODE = 12;
+    private static final byte[][] GEOCODE_KEYS = keys("UGC");
+    // One shared String per two-letter state code, indexed by its letters
+    private static final String[] STATE_CODES = new String[26 * 26];
+    private static final byte[][] ROOT_KEYS = keys("features", "pagination");
+    private static final int PAGINATION = 1;
+    private static final byte[][] PAGINATION_KEYS = keys("next");
+    private static final byte[][] FEATURE_KEYS = keys("properties", "geometry");
+    private static final int PROPERTIES = 0;
+    private static final int GEOMETRY = 1;
+    private static final byte[][] GEOMETRY_KEYS = keys("type", "coordinates");
+    private static final int GEOMETRY_TYPE = 0;
+    private static final int COORDINATES = 1;
+    // Eight bytes at a time for scanStructure, and the bytes it looks for repeated eight times
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long QUOTES = 0x2222222222222222L;
+    private static final long BACKSLASHES = 0x5C5C5C5C5C5C5C5CL;
+    private static final long OPEN_BRACES = 0x7B7B7B7B7B7B7B7BL;
+    private static final long CLOSE_BRACES = 0x7D7D7D7D7D7D7D7DL;
+    private static final long CASE_BITS = 0x2020202020202020L;
+    // Exact powers of ten as doubles, for numbers with up to 18 significant digits
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18,
+        1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream in;
+    private final byte[] buf;
+    private final int start;
+    private int pos;
+    private int limit;
+    // Stream offset of buf[0], for error messages
+    private long base;
+
+    // Scratch space for decoding strings and matching keys, reused across the whole document
+    private char[] chars = new char[256];
+    private byte[] keyBytes = new byte[64];
+    // Points and ring starts of the geometry being read
+    private float[] points = new float[256];
+    private int pointCount;
+    private int[] rings = new int[8];
+    private int ringCount;
+    // States of the geocode being read
+    private String[] states = new String[8];
+
+    // Current chunk of raw text for LazyText fields, the fill position, and where the field
+    // being captured starts. With a text store the chunk only stages each field until the
+    // store has it.
+    private byte[] textChunk = new byte[0];
+    private int textPos;
+    private int textStart;
+    private TextStore texts = TextStore.SHARED;
+
+    AlertJsonReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    AlertJsonReader(byte[] data, int offset, int length) {
+        this.in = null;
+        this.buf = data;
+        this.start = offset;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    // Reads UTF-8 JSON from the stream as it arrives; the caller owns and closes the stream
+    AlertJsonReader(InputStream in) {
+        this.in = in;
+        this.buf = new byte[BUFFER_SIZE];
+        this.start = 0;
+    }
+
+    // Null keeps each document's texts in chunks of its own, unshared
+    void setTextStore(TextStore texts) {
+        this.texts = texts;
+    }
+
+    void parse(Handler handler) throws IOException {
+        if (nextToken() != '{') {
+            return;
+        }
+        if (consumeIf('}')) {
+            return;
+        }
+        do {
+            int key = readKey(ROOT_KEYS);
+            expect(':');
+            if (key == 0 && peekToken() == '[') {
+                readFeatures(handler);
+            } else {
+                skipValue();
+            }
+        } while (nextMember('}'));
+    }
+
+    // The pagination.next URL of a page of a paged feed, or null on the last page. Only skims
+    // the document, so the next page can be requested before this one is parsed.
+    static String nextPageUrl(byte[] page) throws IOException {
+        AlertJsonReader reader = new AlertJsonReader(page);
+        if (reader.nextToken() != '{' || reader.consumeIf('}')) {
+            return null;
+        }
+        String next = null;
+        do {
+            int key = reader.readKey(ROOT_KEYS);
+            reader.expect(':');
+            if (key == PAGINATION && reader.peekToken() == '{') {
+                next = reader.readNext();
+            } else {
+                reader.skipValue();
+            }
+        } while (reader.nextMember('}'));
+        return next;
+    }
+
+    // Offset just after the [ opening the root features array, or -1 if the document has none
+    static int featuresStart(byte[] data) throws IOException {
+        AlertJsonReader reader = new AlertJsonReader(data);
+        if (reader.nextToken() != '{' || reader.consumeIf('}')) {
+            return -1;
+        }
+        do {
+            int key = reader.readKey(ROOT_KEYS);
+            reader.expect(':');
+            if (key == 0 && reader.peekToken() == '[') {
+                return reader.pos + 1;
+            }
+            reader.skipValue();
+        } while (reader.nextMember('}'));
+        return -1;
+    }
+
+    // The quotes and brackets of one stretch of a document, found without knowing whether the
+    // stretch starts inside a string, so stretches can be scanned in parallel. Which brackets
+    // count is settled afterwards by featureBounds, once the quotes before each stretch are known.
+    static final class Structure {
+        // Unescaped quotes in the stretch
+        int quotes;
+        // Offset of each bracket shifted left by two, with bit 1 set for an opening bracket and
+        // bit 0 the parity of the quotes before it in the stretch
+        int[] brackets = new int[64];
+        int count;
+
+        private void add(int offset, boolean open, int parity) {
+            if (count == brackets.length) {
+                brackets = Arrays.copyOf(brackets, count * 2);
+            }
+            brackets[count++] = offset << 2 | (open ? 2 : 0) | parity;
+        }
+    }
+
+    // Scans data[from, to) eight bytes at a time for quotes, backslashes and brackets. A quote
+    // is escaped by an odd run of backslashes before it, and backslashes only occur in strings,
+    // so a stretch starting on an escaped byte is recognised by looking back, without context.
+    static Structure scanStructure(byte[] data, int from, int to) {
+        Structure structure = new Structure();
+        // From the start of a run of backslashes just before from, stepping over escapes lands
+        // on the first byte of the stretch that is not escaped
+        int i = from;
+        while (i > 0 && data[i - 1] == '\\') {
+            i--;
+        }
+        int parity = 0;
+        while (i < to) {
+            for (; i + 8 <= to; i += 8) {
+                long word = (long) LONGS.get(data, i);
+                // Setting bit 5 turns [ and ] into { and }, and no other byte into either
+                long folded = word | CASE_BITS;
+                long found = bytesEqual(word, QUOTES) | bytesEqual(word, BACKSLASHES)
+                    | bytesEqual(folded, OPEN_BRACES) | bytesEqual(folded, CLOSE_BRACES);
+                if (found != 0) {
+                    i += Long.numberOfTrailingZeros(found) >>> 3;
+                    break;
+                }
+            }
+            if (i + 8 > to) {
+                while (i < to && !isStructural(data[i])) {
+                    i++;
+                }
+                if (i == to) {
+                    break;
+                }
+            }
+            byte c = data[i];
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (i >= from) {
+                if (c == '"') {
+                    structure.quotes++;
+                    parity ^= 1;
+                } else {
+                    structure.add(i, c == '{' || c == '[', parity);
+                }
+            }
+            i++;
+        }
+        return structure;
+    }
+
+    // Where each element of the features array starts and ends, as pairs of offsets, from the
+    // structures of consecutive stretches covering the document from featuresStart on. Only
+    // the brackets are checked; what lies between the features is checked by separated.
+    static int[] featureBounds(Structure[] stretches) throws MalformedJsonException {
+        int[] bounds = new int[256];
+        int count = 0;
+        int inString = 0;
+        // Depth 1 is inside the features array, so features are the values opened there
+        int depth = 1;
+        for (Structure stretch : stretches) {
+            for (int i = 0; i < stretch.count; i++) {
+                int bracket = stretch.brackets[i];
+                if (((bracket ^ inString) & 1) != 0) {
+                    continue;
+                }
+                if ((bracket & 2) != 0) {
+                    if (depth == 1) {
+                        if (count + 2 > bounds.length) {
+                            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                        }
+                        bounds[count++] = bracket >>> 2;
+                    }
+                    depth++;
+                } else if (--depth == 1) {
+                    bounds[count++] = (bracket >>> 2) + 1;
+                } else if (depth == 0) {
+                    return Arrays.copyOf(bounds, count);
+                }
+            }
+            inString ^= stretch.quotes & 1;
+        }
+        throw new MalformedJsonException("Unterminated features array");
+    }
+
+    private static boolean isStructural(byte c) {
+        return c == '"' || c == '\\' || c == '{' || c == '}' || c == '[' || c == ']';
+    }
+
+    // High bit set in each byte of word that equals the byte repeated in pattern. Bytes above
+    // the lowest match may be flagged falsely, so only the lowest flag is to be used.
+    private static long bytesEqual(long word, long pattern) {
+        long diff = word ^ pattern;
+        return (diff - 0x0101010101010101L) & ~diff & 0x8080808080808080L;
+    }
+
+    // Whether the bounds found by featureBounds account for the whole features array opened
+    // just before start: only whitespace before the first feature and after the last one, and
+    // whitespace around a single comma between consecutive ones. Anything else there, from a
+    // missing or doubled comma to a scalar element, which has no brackets to be bounded by, is
+    // for the sequential reader to accept or reject.
+    static boolean separated(byte[] data, int start, int[] bounds) {
+        int at = start;
+        for (int i = 0; i < bounds.length; i += 2) {
+            at = skipWhitespace(data, at, bounds[i]);
+            if (i > 0) {
+                if (at == bounds[i] || data[at] != ',') {
+                    return false;
+                }
+                at = skipWhitespace(data, at + 1, bounds[i]);
+            }
+            if (at != bounds[i]) {
+                return false;
+            }
+            at = bounds[i + 1];
+        }
+        at = skipWhitespace(data, at, data.length);
+        return at < data.length && data[at] == ']';
+    }
+
+    private static int skipWhitespace(byte[] data, int from, int to) {
+        while (from < to && isWhitespace(data[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    // Parses features from (inclusive) to to (exclusive) of the bounds found by featureBounds,
+    // for a reader over the same byte array. The bounds must have passed separated, so they
+    // hold every element of the array; those that are not objects are skipped, as readFeatures
+    // skips them.
+    void parseFeatures(int[] bounds, int from, int to, Handler handler) throws IOException {
+        for (int i = from; i < to; i++) {
+            pos = bounds[2 * i];
+            limit = bounds[2 * i + 1];
+            if (peekToken() == '{') {
+                readFeature(handler);
+            } else {
+                skipValue();
+            }
+        }
+    }
+
+    private String readNext() throws IOException {
+        expect('{');
+        String next = null;
+        if (!consumeIf('}')) {
+            do {
+                int key = readKey(PAGINATION_KEYS);
+                expect(':');
+                if (key == 0 && peekToken() == '"') {
+                    pos++;
+                    next = text(decodeString());
+                } else {
+                    skipValue();
+                }
+            } while (nextMember('}'));
+        }
+        return next;
+    }
+
+    private void readFeatures(Handler handler) throws IOException {
+        expect('[');
+        if (consumeIf(']')) {
+            return;
+        }
+        do {
+            if (peekToken() == '{') {
+                readFeature(handler);
+            } else {
+                skipValue();
+            }
+        } while (nextMember(']'));
+    }
+
+    private void readFeature(Handler handler) throws IOException {
+        expect('{');
+        if (consumeIf('}')) {
+            return;
+        }
+        // GeoJSON does not order the members, so the alert waits for the end of the feature
+        Alert.Builder alert = null;
+        AlertGeometry geometry = null;
+        do {
+            int key = readKey(FEATURE_KEYS);
+            expect(':');
+            if (key == PROPERTIES && peekToken() == '{') {
+                alert = readProperties();
+            } else if (key == GEOMETRY && peekToken() == '{') {
+                geometry = readGeometry();
+            } else {
+                skipValue();
+            }
+        } while (nextMember('}'));
+        if (alert != null) {
+            alert.geometry = geometry;
+            handler.onAlert(alert.build());
+        }
+    }
+
+    private Alert.Builder readProperties() throws IOException {
+        Alert.Builder alert = new Alert.Builder();
+        expect('{');
+        if (!consumeIf('}')) {
+            do {
+                int key = readKey(FIELD_KEYS);
+                expect(':');
+                if (key == GEOCODE && peekToken() == '{') {
+                    alert.states = readStates();
+                } else if (key >= 0 && peekToken() == '"') {
+                    pos++;
+                    if (key == DESCRIPTION) {
+                        alert.description = captureString();
+                    } else if (key == INSTRUCTION) {
+                        alert.instruction = captureString();
+                    } else {
+                        setField(alert, key, decodeString());
+                    }
+                } else {
+                    skipValue();
+                }
+            } while (nextMember('}'));
+        }
+        return alert;
+    }
+
+    // The states of a geocode object, from the letters its UGC codes start with (TXC113 and
+    // TXZ120 are both in TX). The other code lists are skipped.
+    private List<String> readStates() throws IOException {
+        int count = 0;
+        expect('{');
+        if (!consumeIf('}')) {
+            do {
+                int key = readKey(GEOCODE_KEYS);
+                expect(':');
+                if (key == 0 && peekToken() == '[') {
+                    count = readStateCodes();
+                } else {
+                    skipValue();
+                }
+            } while (nextMember('}'));
+        }
+        return count == 0 ? Collections.<String>emptyList() : List.of(Arrays.copyOf(states, count));
+    }
+
+    private int readStateCodes() throws IOException {
+        expect('[');
+        int count = 0;
+        if (consumeIf(']')) {
+            return 0;
+        }
+        do {
+            if (peekToken() != '"') {
+                skipValue();
+                continue;
+            }
+            pos++;
+            String state = decodeString() >= 2 ? stateCode(chars[0], chars[1]) : null;
+            for (int i = 0; i < count && state != null; i++) {
+                // Codes are shared, so a repeat is the same instance
+                if (states[i] == state) {
+                    state = null;
+                }
+            }
+            if (state == null) {
+                continue;
+            }
+            if (count == states.length) {
+                states = Arrays.copyOf(states, count * 2);
+            }
+            states[count++] = state;
+        } while (nextMember(']'));
+        return count;
+    }
+
+    // The shared code for two upper-case letters, or null for anything else
+    static String stateCode(char first, char second) {
+        if (first < 'A' || first > 'Z' || second < 'A' || second > 'Z') {
+            return null;
+        }
+        int at = (first - 'A') * 26 + second - 'A';
+        String code = STATE_CODES[at];
+        if (code == null) {
+            // A race only creates an equal String twice
+            code = new String(new char[] {first, second});
+            STATE_CODES[at] = code;
+        }
+        return code;
+    }
+
+    // Reads a geometry object; null unless it is a Polygon or MultiPolygon with a usable ring
+    private AlertGeometry readGeometry() throws IOException {
+        expect('{');
+        boolean area = false;
+        pointCount = 0;
+        ringCount = 0;
+        if (!consumeIf('}')) {
+            do {
+                int key = readKey(GEOMETRY_KEYS);
+                expect(':');
+                if (key == GEOMETRY_TYPE && peekToken() == '"') {
+                    pos++;
+                    int length = decodeString();
+                    area = charsEqual("Polygon", length) || charsEqual("MultiPolygon", length);
+                } else if (key == COORDINATES && peekToken() == '[') {
+                    readCoordinates();
+                } else {
+                    skipValue();
+                }
+            } while (nextMember('}'));
+        }
+        if (!area || ringCount == 0) {
+            return null;
+        }
+        // Rings are contiguous, so the last one ends where the points do
+        int[] ringStarts = Arrays.copyOf(rings, ringCount + 1);
+        ringStarts[ringCount] = pointCount;
+        return new AlertGeometry(Arrays.copyOf(points, pointCount * 2), ringStarts);
+    }
+
+    // Reads one level of nested coordinate arrays. A position ([lon, lat], any altitude
+    // ignored) is appended to the points and reported by returning true; an array whose
+    // elements are positions is a ring.
+    private boolean readCoordinates() throws IOException {
+        expect('[');
+        if (consumeIf(']')) {
+            return false;
+        }
+        byte first = peekToken();
+        if (first != '[') {
+            if (first != '-' && (first < '0' || first > '9')) {
+                skipRest();
+                return false;
+            }
+            double lon = readNumber();
+            if (!nextMember(']')) {
+                throw malformed();
+            }
+            double lat = readNumber();
+            if (nextMember(']')) {
+                skipRest();
+            }
+            appendPoint((float) lon, (float) lat);
+            return true;
+        }
+        int ringStart = pointCount;
+        boolean ring = readCoordinates();
+        while (nextMember(']')) {
+            readCoordinates();
+        }
+        if (ring) {
+            if (pointCount - ringStart < 3) {
+                // Not an area; drop it
+                pointCount = ringStart;
+            } else {
+                if (ringCount + 1 == rings.length) {
+                    rings = Arrays.copyOf(rings, rings.length * 2);
+                }
+                rings[ringCount++] = ringStart;
+            }
+        }
+        return false;
+    }
+
+    private void appendPoint(float lon, float lat) {
+        if (pointCount * 2 + 2 > points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        points[pointCount * 2] = lon;
+        points[pointCount * 2 + 1] = lat;
+        pointCount++;
+    }
+
+    // Skips the remaining elements of an array and its closing bracket
+    private void skipRest() throws IOException {
+        do {
+            skipValue();
+        } while (nextMember(']'));
+    }
+
+    // Parses a JSON number from the bytes. Up to 18 significant digits are kept in a long and
+    // scaled by an exact power of ten, which covers coordinates without going through a String.
+    private double readNumber() throws IOException {
+        boolean negative = consumeIf('-');
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean any = false;
+        while ((pos < limit || fill()) && buf[pos] >= '0' && buf[pos] <= '9') {
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (buf[pos] - '0');
+                digits += mantissa > 0 ? 1 : 0;
+            } else {
+                exponent++;
+            }
+            any = true;
+            pos++;
+        }
+        if ((pos < limit || fill()) && buf[pos] == '.') {
+            pos++;
+            while ((pos < limit || fill()) && buf[pos] >= '0' && buf[pos] <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (buf[pos] - '0');
+                    digits += mantissa > 0 ? 1 : 0;
+                    exponent--;
+                }
+                any = true;
+                pos++;
+            }
+        }
+        if (!any) {
+            throw failure();
+        }
+        if ((pos < limit || fill()) && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if ((pos < limit || fill()) && (buf[pos] == '+' || buf[pos] == '-')) {
+                negativeExponent = buf[pos++] == '-';
+            }
+            int value = 0;
+            boolean exponentDigits = false;
+            while ((pos < limit || fill()) && buf[pos] >= '0' && buf[pos] <= '9') {
+                value = Math.min(value * 10 + (buf[pos++] - '0'), 1000);
+                exponentDigits = true;
+            }
+            if (!exponentDigits) {
+                throw failure();
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        double result;
+        if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+            result = mantissa * POWERS_OF_TEN[exponent];
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            result = mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            result = mantissa * Math.pow(10, exponent);
+        }
+        return negative ? -result : result;
+    }
+
+    private boolean charsEqual(String text, int length) {
+        if (text.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chars[i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Stores the decoded string in chars[0, length) as field key; enums, event types and
+    // timestamps are resolved from the buffer without creating a String
+    private void setField(Alert.Builder alert, int key, int length) {
+        switch (key) {
+            case SEVERITY:
+                alert.severity = Alert.Severity.of(chars, 0, length);
+                break;
+            case URGENCY:
+                alert.urgency = Alert.Urgency.of(chars, 0, length);
+                break;
+            case CERTAINTY:
+                alert.certainty = Alert.Certainty.of(chars, 0, length);
+                break;
+            case EVENT:
+                alert.event = EventType.intern(chars, 0, length);
+                break;
+            case EFFECTIVE:
+                alert.effective = IsoTimestamps.parse(chars, 0, length);
+                alert.effectiveText = alert.effective == IsoTimestamps.NONE ? text(length) : null;
+                break;
+            case EXPIRES:
+                alert.expires = IsoTimestamps.parse(chars, 0, length);
+                alert.expiresText = alert.expires == IsoTimestamps.NONE ? text(length) : null;
+                break;
+            case ONSET:
+                alert.onset = IsoTimestamps.parse(chars, 0, length);
+                alert.onsetText = alert.onset == IsoTimestamps.NONE ? text(length) : null;
+                break;
+            case ID:
+                alert.id = text(length);
+                break;
+            case HEADLINE:
+                alert.headline = texts != null ? texts.text(text(length)) : text(length);
+                break;
+            case AREA_DESC:
+                alert.areaDesc = text(length);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private String text(int length) {
+        return new String(chars, 0, length);
+    }
+
+    // Decodes a string body captured by captureString; raw[offset + length] is its closing quote
+    static String decodeText(byte[] raw, int offset, int length) throws IOException {
+        AlertJsonReader reader = new AlertJsonReader(raw, offset, length + 1);
+        return reader.text(reader.decodeString());
+    }
+
+    // Reads an object key and returns its index in candidates, or -1 if it is not one of them
+    private int readKey(byte[][] candidates) throws IOException {
+        expect('"');
+        int length = 0;
+        while (true) {
+            byte b = read();
+            if (b == '"') {
+                break;
+            }
+            if (b == '\\') {
+                // Escaped keys never match the plain ASCII names we look for
+                read();
+                length = -1;
+            }
+            if (length >= 0) {
+                if (length == keyBytes.length) {
+                    length = -1;
+                } else {
+                    keyBytes[length++] = b;
+                }
+            }
+        }
+        for (int i = 0; length >= 0 && i < candidates.length; i++) {
+            byte[] candidate = candidates[i];
+            if (candidate.length == length && regionMatches(candidate, length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(byte[] candidate, int length) {
+        for (int i = 0; i < length; i++) {
+            if (keyBytes[i] != candidate[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Decodes the string body after the opening quote into chars in one pass, UTF-8 and
+    // escapes together, and returns its length
+    private int decodeString() throws IOException {
+        int length = 0;
+        while (true) {
+            int b = read() & 0xFF;
+            if (b == '"') {
+                return length;
+            }
+            if (length + 2 > chars.length) {
+                char[] grown = new char[chars.length * 2];
+                System.arraycopy(chars, 0, grown, 0, length);
+                chars = grown;
+            }
+            if (b == '\\') {
+                chars[length++] = readEscape();
+            } else if (b < 0x80) {
+                chars[length++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[length++] = (char) (((b & 0x1F) << 6) | continuation());
+            } else if ((b & 0xF0) == 0xE0) {
+                chars[length++] = (char) (((b & 0x0F) << 12) | (continuation() << 6) | continuation());
+            } else if ((b & 0xF8) == 0xF0) {
+                int codePoint = ((b & 0x07) << 18) | (continuation() << 12) | (continuation() << 6) | continuation();
+                chars[length++] = Character.highSurrogate(codePoint);
+                chars[length++] = Character.lowSurrogate(codePoint);
+            } else {
+                chars[length++] = '\uFFFD';
+            }
+        }
+    }
+
+    // Copies the string body after the opening quote, escapes intact, into the text chunk and
+    // returns it undecoded, as held by the text store if there is one. Escapes are validated
+    // here so a later decode cannot fail on them.
+    private LazyText captureString() throws IOException {
+        textStart = textPos;
+        while (true) {
+            if (pos >= limit && !fill()) {
+                throw truncated();
+            }
+            int run = pos;
+            while (run < limit && buf[run] != '"' && buf[run] != '\\') {
+                run++;
+            }
+            appendText(buf, pos, run - pos);
+            pos = run;
+            if (pos == limit) {
+                continue;
+            }
+            if (buf[pos++] == '"') {
+                break;
+            }
+            byte escape = read();
+            appendText((byte) '\\');
+            appendText(escape);
+            if (escape == 'u') {
+                for (int i = 0; i < 4; i++) {
+                    byte digit = read();
+                    if (Character.digit(digit, 16) < 0) {
+                        throw malformed();
+                    }
+                    appendText(digit);
+                }
+            } else if ("\"\\/bfnrt".indexOf(escape) < 0) {
+                throw malformed();
+            }
+        }
+        appendText((byte) '"');
+        int length = textPos - textStart - 1;
+        if (texts == null) {
+            return new LazyText(textChunk, textStart, length);
+        }
+        textPos = textStart;
+        return texts.text(textChunk, textStart, length);
+    }
+
+    private void appendText(byte b) {
+        if (textPos == textChunk.length) {
+            newTextChunk(1);
+        }
+        textChunk[textPos++] = b;
+    }
+
+    private void appendText(byte[] bytes, int offset, int length) {
+        if (textPos + length > textChunk.length) {
+            newTextChunk(length);
+        }
+        System.arraycopy(bytes, offset, textChunk, textPos, length);
+        textPos += length;
+    }
+
+    // Starts a new chunk with room for needed more bytes, carrying over the field in progress
+    private void newTextChunk(int needed) {
+        int partial = textPos - textStart;
+        int size = Math.max(Math.min(textChunk.length * 2, MAX_TEXT_CHUNK), MIN_TEXT_CHUNK);
+        size = Math.max(size, (partial + needed) * 2);
+        byte[] chunk = new byte[size];
+        System.arraycopy(textChunk, textStart, chunk, 0, partial);
+        textChunk = chunk;
+        textStart = 0;
+        textPos = partial;
+    }
+
+    private int continuation() throws IOException {
+        return read() & 0x3F;
+    }
+
+    private char readEscape() throws IOException {
+        byte b = read();
+        switch (b) {
+            case '"': return '"';
+            case '\\': return '\\';
+            case '/': return '/';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw malformed();
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw malformed();
+        }
+    }
+
+    private void skipValue() throws IOException {
+        byte b = nextToken();
+        if (b == '"') {
+            skipString();
+        } else if (b == '{' || b == '[') {
+            skipContainer();
+        } else if (b == '}' || b == ']' || b == ',' || b == ':') {
+            throw malformed();
+        } else {
+            // Scalar: number, true, false or null
+            while (pos < limit || fill()) {
+                byte c = buf[pos];
+                if (c == ',' || c == '}' || c == ']' || isWhitespace(c)) {
+                    break;
+                }
+                pos++;
+            }
+        }
+    }
+
+    // Skips to the bracket closing the one just read. Most of a feature is skipped, so this
+    // runs over the buffer in local variables and only looks at brackets and quotes.
+    private void skipContainer() throws IOException {
+        int depth = 1;
+        while (pos < limit || fill()) {
+            byte[] b = buf;
+            int i = pos;
+            int end = limit;
+            while (i < end) {
+                byte c = b[i++];
+                if (c == '"') {
+                    pos = i;
+                    skipString();
+                    i = pos;
+                    end = limit;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if ((c == '}' || c == ']') && --depth == 0) {
+                    pos = i;
+                    return;
+                }
+            }
+            pos = i;
+        }
+        throw truncated();
+    }
+
+    private void skipString() throws IOException {
+        while (pos < limit || fill()) {
+            byte[] b = buf;
+            int i = pos;
+            int end = limit;
+            while (i < end) {
+                byte c = b[i++];
+                if (c == '"') {
+                    pos = i;
+                    return;
+                }
+                if (c == '\\') {
+                    // The escaped byte may be in the next buffer
+                    pos = i;
+                    read();
+                    i = pos;
+                    end = limit;
+                }
+            }
+            pos = i;
+        }
+        throw truncated();
+    }
+
+    // Consumes the separator after an object member or array element; false when the container closes
+    private boolean nextMember(char close) throws IOException {
+        byte b = nextToken();
+        if (b == ',') {
+            return true;
+        }
+        if (b == close) {
+            return false;
+        }
+        throw malformed();
+    }
+
+    private boolean consumeIf(char c) throws IOException {
+        if (peekToken() == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) throws IOException {
+        if (nextToken() != c) {
+            throw malformed();
+        }
+    }
+
+    private byte nextToken() throws IOException {
+        byte b = peekToken();
+        pos++;
+        return b;
+    }
+
+    private byte peekToken() throws IOException {
+        while (pos < limit || fill()) {
+            byte b = buf[pos];
+            if (!isWhitespace(b)) {
+                return b;
+            }
+            pos++;
+        }
+        throw truncated();
+    }
+
+    private byte read() throws IOException {
+        if (pos >= limit && !fill()) {
+            throw truncated();
+        }
+        return buf[pos++];
+    }
+
+    // Refills the buffer from the stream once it is exhausted; false at end of input
+    private boolean fill() throws IOException {
+        if (in == null) {
+            return false;
+        }
+        int n;
+        do {
+            n = in.read(buf, 0, buf.length);
+        } while (n == 0);
+        if (n < 0) {
+            return false;
+        }
+        base += limit;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private MalformedJsonException malformed() {
+        return new MalformedJsonException("Malformed JSON at byte " + (base + pos - start));
+    }
+
+    // A number cut off at its sign or exponent is truncated; anything else there is malformed
+    private IOException failure() throws IOException {
+        return pos >= limit && !fill() ? truncated() : malformed();
+    }
+
+    // Input that stops mid-document: a dropped connection rather than a bad document, so it is
+    // an IOException the caller may retry, not a MalformedJsonException
+    private EOFException truncated() {
+        return new EOFException("Response ended early at byte " + (base + pos - start));
+    }
+
+    private static byte[][] keys(String... names) {
+        byte[][] result = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            result[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return result;
+    }
+}
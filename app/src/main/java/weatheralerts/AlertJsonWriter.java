@@ -0,0 +1,197 @@
+package weatheralerts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+// Writes alerts back out as a compact alerts/active document: a FeatureCollection whose
+// features carry only the geometry and properties AlertJsonReader extracts, without
+// whitespace, so a client reads it exactly like an NWS response at a fraction of the size.
+// Descriptions and instructions are copied as the raw bytes they were read as, without being
+// decoded.
+final class AlertJsonWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final ByteArrayOutputStream out;
+
+    private AlertJsonWriter(int expectedAlerts) {
+        this.out = new ByteArrayOutputStream(256 + expectedAlerts * 1536);
+    }
+
+    static byte[] write(List<Alert> alerts) {
+        AlertJsonWriter writer = new AlertJsonWriter(alerts.size());
+        writer.ascii("{\"type\":\"FeatureCollection\",\"features\":[");
+        for (int i = 0; i < alerts.size(); i++) {
+            if (i > 0) {
+                writer.out.write(',');
+            }
+            writer.feature(alerts.get(i));
+        }
+        writer.ascii("]}");
+        return writer.out.toByteArray();
+    }
+
+    private void feature(Alert alert) {
+        ascii("{\"type\":\"Feature\",");
+        if (alert.geometry != null) {
+            geometry(alert.geometry);
+        }
+        ascii("\"properties\":{");
+        boolean first = true;
+        first = field(first, "id", alert.id);
+        first = field(first, "areaDesc", alert.areaDesc);
+        first = states(first, alert.states);
+        first = timestamp(first, "effective", alert.effective, alert.effectiveText);
+        first = timestamp(first, "onset", alert.onset, alert.onsetText);
+        first = timestamp(first, "expires", alert.expires, alert.expiresText);
+        if (alert.severity != Alert.Severity.UNKNOWN) {
+            first = field(first, "severity", alert.severity.label);
+        }
+        if (alert.certainty != Alert.Certainty.UNKNOWN) {
+            first = field(first, "certainty", alert.certainty.label);
+        }
+        if (alert.urgency != Alert.Urgency.UNKNOWN) {
+            first = field(first, "urgency", alert.urgency.label);
+        }
+        if (alert.event != EventType.NONE) {
+            first = field(first, "event", alert.event.name);
+        }
+        first = field(first, "headline", alert.headline);
+        first = raw(first, "description", alert.description);
+        raw(first, "instruction", alert.instruction);
+        ascii("}}");
+    }
+
+    // Written back as one Polygon ring set; the reader makes no distinction between a
+    // MultiPolygon and a Polygon with the same rings
+    private void geometry(AlertGeometry geometry) {
+        ascii("\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[");
+        for (int ring = 0; ring < geometry.ringCount(); ring++) {
+            if (ring > 0) {
+                out.write(',');
+            }
+            out.write('[');
+            for (int i = geometry.ringStarts[ring]; i < geometry.ringStarts[ring + 1]; i++) {
+                if (i > geometry.ringStarts[ring]) {
+                    out.write(',');
+                }
+                out.write('[');
+                ascii(Float.toString(geometry.coordinates[2 * i]));
+                out.write(',');
+                ascii(Float.toString(geometry.coordinates[2 * i + 1]));
+                out.write(']');
+            }
+            out.write(']');
+        }
+        ascii("]},");
+    }
+
+    // The states stand in for the UGC codes they were read from, which is all the reader keeps
+    private boolean states(boolean first, List<String> states) {
+        if (states.isEmpty()) {
+            return first;
+        }
+        key(first, "geocode");
+        ascii("{\"UGC\":[");
+        for (int i = 0; i < states.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            string(states.get(i));
+        }
+        ascii("]}");
+        return false;
+    }
+
+    // Timestamps are written as UTC instants; one that did not parse keeps its original text
+    private boolean timestamp(boolean first, String key, long millis, String text) {
+        if (millis != IsoTimestamps.NONE) {
+            return field(first, key, Instant.ofEpochMilli(millis).toString());
+        }
+        return field(first, key, text);
+    }
+
+    private boolean field(boolean first, String key, String value) {
+        if (value == null) {
+            return first;
+        }
+        key(first, key);
+        string(value);
+        return false;
+    }
+
+    private boolean raw(boolean first, String key, LazyText value) {
+        if (value == null) {
+            return first;
+        }
+        key(first, key);
+        out.write('"');
+        try {
+            value.writeRaw(out);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        return false;
+    }
+
+    private void key(boolean first, String key) {
+        if (!first) {
+            out.write(',');
+        }
+        out.write('"');
+        ascii(key);
+        ascii("\":");
+    }
+
+    private void string(String value) {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            utf8(value, start, i);
+            out.write('\\');
+            switch (c) {
+                case '"':
+                case '\\':
+                    out.write(c);
+                    break;
+                case '\n':
+                    out.write('n');
+                    break;
+                case '\r':
+                    out.write('r');
+                    break;
+                case '\t':
+                    out.write('t');
+                    break;
+                default:
+                    ascii("u00");
+                    out.write(HEX[c >> 4]);
+                    out.write(HEX[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        utf8(value, start, value.length());
+        out.write('"');
+    }
+
+    private void utf8(String value, int start, int end) {
+        if (end > start) {
+            byte[] bytes = value.substring(start, end).getBytes(StandardCharsets.UTF_8);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private void ascii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            out.write(text.charAt(i));
+        }
+    }
+}
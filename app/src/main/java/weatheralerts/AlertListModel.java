@@ -0,0 +1,106 @@
+package weatheralerts;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.AbstractListModel;
+
+// Rows of the alert list. Unlike DefaultListModel it can swap in a whole new result in one
+// step, as refiltering does on every keystroke, firing one change for the rows that stay and
+// one add or remove for the difference instead of an event per row. It also keeps each
+// alert's AlertRow, handed in ready-made by the fetch pipeline or else built on first paint,
+// and keeps it while the alert is filtered out so it is not rebuilt when it shows again.
+final class AlertListModel extends AbstractListModel<Alert> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Alert> rows = new ArrayList<>();
+    private final Map<Alert, AlertRow> views = new IdentityHashMap<>();
+
+    @Override
+    public int getSize() {
+        return rows.size();
+    }
+
+    @Override
+    public Alert getElementAt(int index) {
+        return rows.get(index);
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    Alert get(int index) {
+        return rows.get(index);
+    }
+
+    List<Alert> toList() {
+        return new ArrayList<>(rows);
+    }
+
+    AlertRow view(int index) {
+        return views.computeIfAbsent(rows.get(index), AlertRow::of);
+    }
+
+    // Keeps a prepared row for when its alert is shown
+    void putView(AlertRow row) {
+        views.put(row.alert, row);
+    }
+
+    // Drops the row of an alert that has left the result set
+    void forget(Alert alert) {
+        views.remove(alert);
+    }
+
+    void add(Alert alert) {
+        rows.add(alert);
+        fireIntervalAdded(this, rows.size() - 1, rows.size() - 1);
+    }
+
+    // Appends with a single event, so the list revalidates once per batch
+    void addAll(List<Alert> alerts) {
+        if (alerts.isEmpty()) {
+            return;
+        }
+        int first = rows.size();
+        rows.addAll(alerts);
+        fireIntervalAdded(this, first, rows.size() - 1);
+    }
+
+    void set(int index, Alert alert) {
+        rows.set(index, alert);
+        fireContentsChanged(this, index, index);
+    }
+
+    void remove(int index) {
+        rows.remove(index);
+        fireIntervalRemoved(this, index, index);
+    }
+
+    void clear() {
+        views.clear();
+        replaceAll(new ArrayList<>());
+    }
+
+    void replaceAll(List<Alert> alerts) {
+        int before = rows.size();
+        rows.clear();
+        rows.addAll(alerts);
+        int after = rows.size();
+        int kept = Math.min(before, after);
+        if (kept > 0) {
+            fireContentsChanged(this, 0, kept - 1);
+        }
+        if (after > before) {
+            fireIntervalAdded(this, before, after - 1);
+        } else if (before > after) {
+            fireIntervalRemoved(this, after, before - 1);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package weatheralerts;
+
+import java.awt.AWTException;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.SystemTray;
+import java.awt.Toolkit;
+import java.awt.TrayIcon;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Tells the desktop about subscription matches: a balloon from the system tray icon, added on
+// the first match, and a beep. Where there is no tray only the beep is left, and the caller's
+// status line is the record. Clicking the icon or balloon opens the alert last announced.
+// Only used on the EDT.
+final class AlertNotifier {
+
+    private final Consumer<Alert> opener;
+    private TrayIcon icon;
+    private boolean unsupported;
+    private Alert last;
+
+    AlertNotifier(Consumer<Alert> opener) {
+        this.opener = opener;
+    }
+
+    // One balloon for the matches of one poll, led by the most severe; false if only the beep
+    // could be given
+    boolean announce(List<Subscriptions.Match> matches) {
+        if (matches.isEmpty()) {
+            return true;
+        }
+        Subscriptions.Match lead = matches.get(0);
+        for (Subscriptions.Match match : matches) {
+            if (match.alert.severity.ordinal() < lead.alert.severity.ordinal()) {
+                lead = match;
+            }
+        }
+        last = lead.alert;
+        Toolkit.getDefaultToolkit().beep();
+        TrayIcon tray = icon();
+        if (tray == null) {
+            return false;
+        }
+        String caption = lead.alert.event.name + " \u00b7 " + lead.alert.severity.label;
+        StringBuilder message = new StringBuilder();
+        message.append(lead.alert.areaDesc != null ? lead.alert.areaDesc : "").append('\n')
+            .append("Rule: ").append(lead.rule.text);
+        if (matches.size() > 1) {
+            message.append('\n').append("and ").append(matches.size() - 1).append(" more matching alert")
+                .append(matches.size() > 2 ? "s" : "");
+        }
+        tray.displayMessage(caption, message.toString(), messageType(lead.alert.severity));
+        return true;
+    }
+
+    private static TrayIcon.MessageType messageType(Alert.Severity severity) {
+        switch (severity) {
+            case EXTREME:
+                return TrayIcon.MessageType.ERROR;
+            case SEVERE:
+                return TrayIcon.MessageType.WARNING;
+            default:
+                return TrayIcon.MessageType.INFO;
+        }
+    }
+
+    // Null once the tray turns out to be unavailable
+    private TrayIcon icon() {
+        if (icon != null || unsupported) {
+            return icon;
+        }
+        if (!SystemTray.isSupported()) {
+            unsupported = true;
+            return null;
+        }
+        TrayIcon created = new TrayIcon(image(), "Weather Alerts");
+        created.setImageAutoSize(true);
+        created.addActionListener(e -> {
+            if (last != null) {
+                opener.accept(last);
+            }
+        });
+        try {
+            SystemTray.getSystemTray().add(created);
+        } catch (AWTException e) {
+            unsupported = true;
+            return null;
+        }
+        icon = created;
+        return icon;
+    }
+
+    // A warning triangle in the Severe color, drawn rather than shipped as a resource
+    private static BufferedImage image() {
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Alert.Severity.SEVERE.color);
+        g.fillPolygon(new int[] {8, 15, 1}, new int[] {1, 14, 14}, 3);
+        g.setColor(Color.WHITE);
+        g.fillRect(7, 5, 2, 5);
+        g.fillRect(7, 11, 2, 2);
+        g.dispose();
+        return image;
+    }
+}
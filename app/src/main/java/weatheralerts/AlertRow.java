@@ -0,0 +1,52 @@
+package weatheralerts;
+
+import java.awt.Color;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.swing.BorderFactory;
+import javax.swing.Icon;
+import javax.swing.border.Border;
+
+// Everything the list shows for one alert, worked out ahead of painting: the formatted dates,
+// the truncated headline, the severity color and border, and the icon or its fallback glyph.
+// Built on fetch threads as alerts arrive, so the renderer only copies fields into labels.
+final class AlertRow {
+
+    private static final int HEADLINE_LENGTH = 100;
+    // Shared per severity color; borders are immutable
+    private static final Map<Color, Border> BORDERS = new ConcurrentHashMap<>();
+
+    final Alert alert;
+    final String title;
+    // Null when there is no headline worth showing
+    final String headline;
+    final String effective;
+    final String expires;
+    final Color severityColor;
+    final Border border;
+    // Null when the category has no icon and the glyph is shown instead
+    final Icon icon;
+    final String glyph;
+
+    private AlertRow(Alert alert) {
+        this.alert = alert;
+        this.title = alert.event.nameOr("Unknown Event");
+        String text = alert.headline != null ? alert.headline.trim() : "";
+        this.headline = !text.isEmpty() && !text.equals(alert.event.name)
+            ? WeatherAlertsApp.truncateText(text, HEADLINE_LENGTH) : null;
+        this.effective = "Effective: " + WeatherAlertsApp.formatDate(alert.effective, alert.effectiveText);
+        this.expires = "Expires: " + WeatherAlertsApp.formatDate(alert.expires, alert.expiresText);
+        this.severityColor = alert.severity.color;
+        this.border = BORDERS.computeIfAbsent(severityColor, color -> BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(color, 2),
+            BorderFactory.createEmptyBorder(8, 8, 8, 8)));
+        this.icon = alert.event.category.icon();
+        this.glyph = alert.event.category.glyph;
+    }
+
+    // Safe on any thread
+    static AlertRow of(Alert alert) {
+        return new AlertRow(alert);
+    }
+}
@@ -0,0 +1,336 @@
+package weatheralerts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Headless caching proxy (--serve): serves /alerts/active?area=XX to any number of desktop
+// clients while fetching each area from upstream at most once per refresh interval. Requests
+// for an area arriving while it is being fetched wait for that one fetch. Each fetch is
+// serialized once, as compact JSON and gzipped, and every response after that is a copy of
+// those bytes; an ETag and a max-age running to the next refresh let clients revalidate with
+// a 304. Once a snapshot is due for refresh it is still served at once while the refresh runs
+// behind it; only the first request for an area waits for upstream. When a refresh fails,
+// the last good snapshot keeps being served and upstream is not asked again for that area
+// until a backoff, doubling with each failure in a row up to the refresh interval, is over.
+final class AlertServer {
+
+    static final long DEFAULT_REFRESH_SECONDS = 60;
+
+    // How long a request for an area not yet fetched waits for upstream
+    private static final int UPSTREAM_TIMEOUT_SECONDS = 30;
+    // Wait after a first failed refresh before asking upstream again
+    private static final long FIRST_RETRY_MILLIS = 1000;
+    private static final int REQUEST_THREADS = 32;
+
+    // One area's alerts as served until the next refresh
+    private static final class Snapshot {
+        final long fetchedAt;
+        final byte[] body;
+        final byte[] gzipped;
+        final String etag;
+        final String gzipEtag;
+
+        Snapshot(long fetchedAt, byte[] body) throws IOException {
+            this.fetchedAt = fetchedAt;
+            this.body = body;
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            this.gzipped = compressed.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            String tag = Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(body.length);
+            this.etag = "\"" + tag + "\"";
+            this.gzipEtag = "\"" + tag + "-gzip\"";
+        }
+    }
+
+    // Refreshes of one area that failed in a row, and when upstream may next be asked
+    private static final class Failures {
+        final int count;
+        final long retryAt;
+        final IOException last;
+
+        Failures(int count, long retryAt, IOException last) {
+            this.count = count;
+            this.retryAt = retryAt;
+            this.last = last;
+        }
+    }
+
+    private final NwsClient client;
+    private final String upstream;
+    private final long refreshMillis;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final ExecutorService upstreamExecutor;
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    // Upstream fetches in progress, by area; guarded by itself
+    private final Map<String, CompletableFuture<Snapshot>> refreshing = new HashMap<>();
+    // Areas whose last refresh failed; guarded by refreshing
+    private final Map<String, Failures> failures = new HashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong upstreamFetches = new AtomicLong();
+    private final AtomicLong upstreamFailures = new AtomicLong();
+
+    AlertServer(InetSocketAddress address, NwsClient client, String upstream, long refreshMillis) throws IOException {
+        this.client = client;
+        this.upstream = upstream;
+        this.refreshMillis = refreshMillis;
+        this.server = HttpServer.create(address, 256);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.requestExecutor = Executors.newFixedThreadPool(REQUEST_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "alerts-serve-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.upstreamExecutor = Executors.newFixedThreadPool(RequestCoordinator.MAX_CONCURRENT_FETCHES, runnable -> {
+            Thread thread = new Thread(runnable, "alerts-upstream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(requestExecutor);
+        server.createContext("/alerts/active", this::handleAlerts);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    // Runs a server on address ("[host]:port") until the process is stopped
+    static void serve(String address, long refreshSeconds) throws IOException {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Expected [host]:port, got " + address);
+        }
+        String host = address.substring(0, colon);
+        int port = Integer.parseInt(address.substring(colon + 1));
+        InetSocketAddress socket = host.isEmpty() ? new InetSocketAddress(port) : new InetSocketAddress(host, port);
+        AlertServer server = new AlertServer(socket, new NwsClient(HttpCache.openDefault()), NwsClient.upstream(),
+            TimeUnit.SECONDS.toMillis(refreshSeconds));
+        server.start();
+        System.out.println("Serving alerts from " + server.upstream + " on port " + server.port()
+            + ", refreshing every " + refreshSeconds + " s");
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        requestExecutor.shutdownNow();
+        upstreamExecutor.shutdownNow();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleAlerts(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                sendText(exchange, 405, "Only GET is supported");
+                return;
+            }
+            String area = areaOf(exchange.getRequestURI());
+            if (area == null) {
+                sendText(exchange, 400, "Expected ?area= with one state or territory code");
+                return;
+            }
+            Snapshot snapshot;
+            try {
+                snapshot = snapshot(area);
+            } catch (IOException e) {
+                sendText(exchange, 502, "Upstream error: " + e.getMessage());
+                return;
+            }
+            Headers headers = exchange.getResponseHeaders();
+            long maxAge = Math.max(0, (snapshot.fetchedAt + refreshMillis - System.currentTimeMillis()) / 1000);
+            headers.set("Cache-Control", "public, max-age=" + maxAge);
+            headers.set("Vary", "Accept-Encoding");
+            // The two encodings are different representations, so they get different tags
+            boolean gzip = acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            String etag = gzip ? snapshot.gzipEtag : snapshot.etag;
+            headers.set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            headers.set("Content-Type", "application/geo+json");
+            byte[] body = gzip ? snapshot.gzipped : snapshot.body;
+            if (gzip) {
+                headers.set("Content-Encoding", "gzip");
+            }
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            List<String> areas = new ArrayList<>(snapshots.keySet());
+            areas.sort(null);
+            sendText(exchange, 200, "requests " + requests.get() + "\nnot modified " + notModified.get()
+                + "\ncoalesced " + coalesced.get() + "\nupstream fetches " + upstreamFetches.get()
+                + "\nupstream failures " + upstreamFailures.get() + "\nareas " + String.join(" ", areas) + "\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // The current snapshot of area. One older than the interval is returned as it is and a
+    // refresh started behind it, unless one is running or upstream is backing off; with no
+    // snapshot yet, the caller waits for the first fetch, joining one that is running.
+    private Snapshot snapshot(String area) throws IOException {
+        Snapshot current = snapshots.get(area);
+        long now = System.currentTimeMillis();
+        if (current != null && now - current.fetchedAt < refreshMillis) {
+            return current;
+        }
+        CompletableFuture<Snapshot> refresh;
+        synchronized (refreshing) {
+            refresh = refreshing.get(area);
+            if (refresh != null) {
+                coalesced.incrementAndGet();
+            } else {
+                Failures failed = failures.get(area);
+                if (failed != null && now < failed.retryAt) {
+                    if (current != null) {
+                        return current;
+                    }
+                    throw new IOException(failed.last.getMessage(), failed.last);
+                }
+                refresh = CompletableFuture.supplyAsync(() -> fetch(area), upstreamExecutor);
+                refreshing.put(area, refresh);
+                CompletableFuture<Snapshot> started = refresh;
+                refresh.whenComplete((snapshot, failure) -> {
+                    synchronized (refreshing) {
+                        refreshing.remove(area, started);
+                    }
+                });
+            }
+        }
+        if (current != null) {
+            // Stale alerts now beat fresh ones after a wait; the refresh replaces them for the
+            // requests after it
+            return current;
+        }
+        try {
+            return refresh.get(UPSTREAM_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e;
+            throw new IOException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+
+    private Snapshot fetch(String area) {
+        upstreamFetches.incrementAndGet();
+        long fetchedAt = System.currentTimeMillis();
+        List<Alert> alerts = new ArrayList<>();
+        try {
+            if (!client.fetchAlerts(NwsClient.activeAlertsUrl(upstream, area), alerts::add, new NwsClient.Call())) {
+                throw new IOException("Failed to retrieve data from the server.");
+            }
+            Snapshot snapshot = new Snapshot(fetchedAt, AlertJsonWriter.write(alerts));
+            snapshots.put(area, snapshot);
+            synchronized (refreshing) {
+                failures.remove(area);
+            }
+            return snapshot;
+        } catch (IOException e) {
+            upstreamFailures.incrementAndGet();
+            synchronized (refreshing) {
+                Failures previous = failures.get(area);
+                int count = previous == null ? 1 : previous.count + 1;
+                long backoff = Math.min(Math.max(refreshMillis, FIRST_RETRY_MILLIS),
+                    FIRST_RETRY_MILLIS << Math.min(count - 1, 20));
+                failures.put(area, new Failures(count, System.currentTimeMillis() + backoff, e));
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The single area code of a request, or null if it names none or several
+    private static String areaOf(URI uri) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("area=")) {
+                String area = parameter.substring("area=".length()).toUpperCase(Locale.ROOT);
+                try {
+                    List<String> states = MultiStateFetcher.parseStates(area);
+                    // The national feed is paged upstream and not proxied
+                    return states.size() == 1 && states.get(0).equals(area) && !area.equals(MultiStateFetcher.NATIONAL)
+                        ? area : null;
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String c = coding.trim().toLowerCase(Locale.ROOT);
+            if (c.equals("gzip") || (c.startsWith("gzip;") && !c.replace(" ", "").endsWith("q=0"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package weatheralerts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+// The last query and its alerts, saved so the next launch can show them before the network
+// answers. Two slot files are written in turn, each framed with its length and a CRC, so a
+// save interrupted by a crash or a power cut leaves the previous snapshot intact. Slots are
+// overwritten in place, and bytes past the frame of a smaller snapshot are ignored, so a save
+// never deletes or truncates a file. Alerts use the history's record
+// content, with descriptions and instructions left undecoded and their texts shared through
+// the TextStore, so the body read at launch is not kept once the refresh replaces them.
+final class AlertSnapshot {
+
+    // A snapshot as loaded: the query text as typed, when it was saved, and its alerts
+    static final class Saved {
+        final String query;
+        final long savedAt;
+        final List<Alert> alerts;
+
+        Saved(String query, long savedAt, List<Alert> alerts) {
+            this.query = query;
+            this.savedAt = savedAt;
+            this.alerts = alerts;
+        }
+    }
+
+    // Slot: int magic, byte format, long saved-at, int body length, int CRC-32 of the body, then
+    // the body: the query, int alert count, and each alert as int length and content
+    private static final int MAGIC = 0x41534E50;
+    private static final byte FORMAT = 2;
+    private static final int HEADER = 21;
+    private static final int MAX_BODY = 256 * 1024 * 1024;
+    private static final String[] SLOT_NAMES = {"snapshot-a.bin", "snapshot-b.bin"};
+
+    private final File directory;
+    private final File[] slots = new File[SLOT_NAMES.length];
+    // Saves requested from the EDT are written here, the newest replacing any still waiting
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "alerts-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<Saved> pending = new AtomicReference<>();
+    // Never the slot holding the newest good snapshot
+    private int nextSlot;
+    // Saved-at of the newest snapshot loaded or written here, so that saves within the same
+    // millisecond still load back in the order they were made
+    private long lastSavedAt = Long.MIN_VALUE;
+
+    AlertSnapshot(File directory) {
+        this.directory = directory;
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new File(directory, SLOT_NAMES[i]);
+        }
+    }
+
+    // Snapshot under ~/.weatheralerts unless weatheralerts.snapshotDir points elsewhere
+    static AlertSnapshot openDefault() {
+        String dir = System.getProperty("weatheralerts.snapshotDir",
+            System.getProperty("user.home") + File.separator + ".weatheralerts");
+        return new AlertSnapshot(new File(dir));
+    }
+
+    // The newest intact snapshot, or null if there is none. The slot's body is read straight
+    // into the array the alerts are decoded from, and their texts are then taken from it.
+    synchronized Saved load() {
+        int newest = -1;
+        long newestSavedAt = Long.MIN_VALUE;
+        for (int i = 0; i < slots.length; i++) {
+            long savedAt = savedAt(slots[i]);
+            if (savedAt > newestSavedAt) {
+                newest = i;
+                newestSavedAt = savedAt;
+            }
+        }
+        // Falls back to the older slot if the newer one does not check out
+        for (int attempt = 0; attempt < slots.length && newest >= 0; attempt++) {
+            int slot = (newest + attempt) % slots.length;
+            Saved saved = read(slots[slot]);
+            if (saved != null) {
+                nextSlot = (slot + 1) % slots.length;
+                lastSavedAt = Math.max(lastSavedAt, saved.savedAt);
+                return saved;
+            }
+        }
+        return null;
+    }
+
+    // Writes now, on the calling thread; false if the snapshot could not be written
+    synchronized boolean save(String query, List<Alert> alerts) {
+        long savedAt = Math.max(System.currentTimeMillis(), lastSavedAt + 1);
+        byte[] slot = encode(new Saved(query, savedAt, alerts));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(slots[nextSlot].toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(slot);
+            long position = 0;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            // Bytes past the frame from an earlier, larger snapshot are ignored
+            channel.force(false);
+        } catch (IOException e) {
+            return false;
+        }
+        nextSlot = (nextSlot + 1) % slots.length;
+        lastSavedAt = savedAt;
+        return true;
+    }
+
+    // Saves on the snapshot thread; alerts must not change afterwards
+    void saveLater(String query, List<Alert> alerts) {
+        if (pending.getAndSet(new Saved(query, 0, alerts)) == null) {
+            writer.execute(() -> {
+                Saved next = pending.getAndSet(null);
+                save(next.query, next.alerts);
+            });
+        }
+    }
+
+    private static byte[] encode(Saved saved) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(new byte[HEADER]);
+            AlertHistory.writeString(out, saved.query);
+            out.writeInt(saved.alerts.size());
+            for (Alert alert : saved.alerts) {
+                byte[] content = AlertHistory.encodeContent(alert);
+                out.writeInt(content.length);
+                out.write(content);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] slot = bytes.toByteArray();
+        ByteBuffer.wrap(slot).putInt(MAGIC).put(FORMAT).putLong(saved.savedAt).putInt(slot.length - HEADER)
+            .putInt(crc(slot, HEADER, slot.length - HEADER));
+        return slot;
+    }
+
+    // Saved-at time from the slot's header, or Long.MIN_VALUE if it holds no snapshot
+    private static long savedAt(File slot) {
+        if (!slot.isFile()) {
+            return Long.MIN_VALUE;
+        }
+        try (FileChannel channel = FileChannel.open(slot.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            if (!readFully(channel, header, 0) || header.getInt(0) != MAGIC || header.get(4) != FORMAT) {
+                return Long.MIN_VALUE;
+            }
+            return header.getLong(5);
+        } catch (IOException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    // The slot's snapshot, or null if it is torn, corrupt or of another format
+    private static Saved read(File slot) {
+        try (FileChannel channel = FileChannel.open(slot.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            if (!readFully(channel, header, 0)) {
+                return null;
+            }
+            int length = header.getInt(13);
+            if (header.getInt(0) != MAGIC || header.get(4) != FORMAT || length < 0 || length > MAX_BODY
+                    || HEADER + (long) length > channel.size()) {
+                return null;
+            }
+            byte[] body = new byte[length];
+            if (!readFully(channel, ByteBuffer.wrap(body), HEADER) || crc(body, 0, length) != header.getInt(17)) {
+                return null;
+            }
+            return decode(body, header.getLong(5));
+        } catch (IOException | RuntimeException e) {
+            // Unreadable, or content from a format this build does not know
+            return null;
+        }
+    }
+
+    // Reads from position until buffer is full; false if the file ends first
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Saved decode(byte[] body, long savedAt) {
+        ByteBuffer in = ByteBuffer.wrap(body);
+        String query = AlertHistory.readString(in);
+        int count = in.getInt();
+        List<Alert> alerts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = in.getInt();
+            alerts.add(AlertHistory.decodeContent(ByteBuffer.wrap(body, in.position(), length), body,
+                TextStore.SHARED, true));
+            in.position(in.position() + length);
+        }
+        return new Saved(query, savedAt, alerts);
+    }
+
+    private static int crc(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+}
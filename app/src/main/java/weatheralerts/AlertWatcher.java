@@ -0,0 +1,199 @@
+package weatheralerts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Re-polls a set of areas on a fixed delay and reports what changed since the previous poll,
+// matching alerts by their NWS id. An unchanged feed is answered from the HTTP cache (still
+// fresh, or a 304) with the very Alert instances delivered last time, so a quiet poll costs an
+// identity check per alert and yields an empty change set; between polls the thread is parked.
+final class AlertWatcher {
+
+    interface Listener {
+        // Called on the watcher thread after every poll of the current watch, with the
+        // generation the watch was started for
+        void onPoll(int generation, Changes changes, List<MultiStateFetcher.StateResult> results);
+    }
+
+    static final class Changes {
+        final List<Alert> added;
+        final List<Alert> updated;
+        final List<Alert> expired;
+
+        Changes(List<Alert> added, List<Alert> updated, List<Alert> expired) {
+            this.added = added;
+            this.updated = updated;
+            this.expired = expired;
+        }
+
+        boolean isEmpty() {
+            return added.isEmpty() && updated.isEmpty() && expired.isEmpty();
+        }
+    }
+
+    // One watched query; replaced as a whole when the query or interval changes
+    private static final class Session {
+        final int generation;
+        final List<String> states;
+        // id -> alert and id -> area it was delivered for, as of the last poll
+        Map<String, Alert> alerts = new LinkedHashMap<>();
+        Map<String, String> areas = new HashMap<>();
+        ScheduledFuture<?> future;
+        volatile RequestCoordinator.Query poll;
+
+        Session(int generation, List<String> states) {
+            this.generation = generation;
+            this.states = states;
+        }
+    }
+
+    private final RequestCoordinator coordinator;
+    private final MultiStateFetcher fetcher;
+    private final Listener listener;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "alerts-watch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Session current;
+
+    AlertWatcher(RequestCoordinator coordinator, MultiStateFetcher fetcher, Listener listener) {
+        this.coordinator = coordinator;
+        this.fetcher = fetcher;
+        this.listener = listener;
+    }
+
+    // Starts polling states every interval, diffing against the alerts already on screen
+    synchronized void watch(int generation, List<String> states, List<Alert> onScreen, long interval, TimeUnit unit) {
+        stop();
+        Session session = new Session(generation, states);
+        for (Alert alert : onScreen) {
+            String id = alert.id;
+            if (id != null) {
+                session.alerts.put(id, alert);
+            }
+        }
+        current = session;
+        session.future = scheduler.scheduleWithFixedDelay(() -> poll(session), interval, interval, unit);
+    }
+
+    synchronized void stop() {
+        Session session = current;
+        if (session != null) {
+            current = null;
+            session.future.cancel(false);
+            // Abort a poll that is already downloading
+            RequestCoordinator.Query poll = session.poll;
+            if (poll != null) {
+                poll.cancel();
+            }
+        }
+    }
+
+    boolean isWatching() {
+        return current != null;
+    }
+
+    private void poll(Session session) {
+        Map<String, Alert> next = new LinkedHashMap<>();
+        Map<String, String> nextAreas = new HashMap<>();
+        List<MultiStateFetcher.StateResult> results;
+        RequestCoordinator.Query query = coordinator.newQuery();
+        session.poll = query;
+        if (current != session) {
+            return;
+        }
+        try {
+            results = fetcher.fetchAll(session.states, new MultiStateFetcher.Listener() {
+                @Override
+                public void onAlert(String state, Alert alert) {
+                    // Alerts without an id cannot be matched across polls
+                    String id = alert.id;
+                    if (id != null) {
+                        synchronized (next) {
+                            next.put(id, alert);
+                            nextAreas.put(id, state);
+                        }
+                    }
+                }
+
+                @Override
+                public void onStateDone(MultiStateFetcher.StateResult result) {
+                }
+            }, query, false);
+        } catch (CancellationException e) {
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        // A state that failed this time keeps its previous alerts rather than expiring them
+        Set<String> failed = new HashSet<>();
+        for (MultiStateFetcher.StateResult result : results) {
+            if (result.failed()) {
+                failed.add(result.state);
+            }
+        }
+        if (!failed.isEmpty()) {
+            for (Map.Entry<String, Alert> entry : session.alerts.entrySet()) {
+                String id = entry.getKey();
+                // Alerts seeded from the screen have no known area and are kept on any failure
+                String area = session.areas.get(id);
+                if ((area == null || failed.contains(area)) && !next.containsKey(id)) {
+                    next.put(id, entry.getValue());
+                    if (area != null) {
+                        nextAreas.put(id, area);
+                    }
+                }
+            }
+        }
+
+        List<Alert> added = new ArrayList<>();
+        List<Alert> updated = new ArrayList<>();
+        for (Map.Entry<String, Alert> entry : next.entrySet()) {
+            Alert previous = session.alerts.get(entry.getKey());
+            Alert alert = entry.getValue();
+            if (previous == null) {
+                added.add(alert);
+            } else if (previous != alert) {
+                if (previous.sameContent(alert)) {
+                    // Re-parsed but identical: keep the instance the UI already holds
+                    entry.setValue(previous);
+                } else {
+                    updated.add(alert);
+                }
+            }
+        }
+        List<Alert> expired = new ArrayList<>();
+        for (Map.Entry<String, Alert> entry : session.alerts.entrySet()) {
+            if (!next.containsKey(entry.getKey())) {
+                expired.add(entry.getValue());
+            }
+        }
+        session.alerts = next;
+        session.areas = nextAreas;
+
+        if (current == session) {
+            Changes changes = new Changes(unmodifiable(added), unmodifiable(updated), unmodifiable(expired));
+            // Only what changed goes to the history, so a quiet poll writes nothing
+            fetcher.recordChanges(changes, nextAreas);
+            listener.onPoll(session.generation, changes, results);
+        }
+    }
+
+    private static List<Alert> unmodifiable(List<Alert> alerts) {
+        return alerts.isEmpty() ? Collections.<Alert>emptyList() : Collections.unmodifiableList(alerts);
+    }
+}
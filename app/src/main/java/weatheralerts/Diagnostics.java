@@ -0,0 +1,615 @@
+package weatheralerts;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// Stage timings for the fetch-to-screen pipeline. An HTTP exchange is split into connect (up
+// to the response headers, so DNS, TLS and server time are included), download (time blocked
+// reading the body off the socket), parse (the rest of the body time, including gzip or
+// deflate decoding) and deliver (time in the alert handlers: history, dedup, indexing). A
+// query adds the EDT time spent applying its results, the time to its first row and its
+// total, and configuring a list row for painting, which formats its dates, is timed per row.
+// Exchanges and queries are emitted as JFR events whenever a recording has them enabled;
+// while diagnostics are on they also feed the per-stage histograms exposed over JMX and the
+// recent requests shown in the diagnostics panel. With both off, the pipeline only reads a
+// flag per exchange, query and painted row.
+final class Diagnostics {
+
+    enum Stage {
+        CONNECT("Connect"),
+        DOWNLOAD("Download"),
+        PARSE("Parse"),
+        DELIVER("Deliver"),
+        EDT("EDT"),
+        FIRST_ROW("First row"),
+        // An exchange and a query are timed end to end separately, so neither skews the other
+        FETCH_TOTAL("Fetch total"),
+        QUERY_TOTAL("Query total"),
+        ROW_RENDER("Row render");
+
+        final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    static final int RECENT_LIMIT = 50;
+
+    // A finished exchange or query as shown in the diagnostics panel
+    static final class Record {
+        final long finishedAt;
+        final boolean query;
+        final String label;
+        final String outcome;
+        // By Stage ordinal; -1 where the stage does not apply
+        final long[] stageNanos;
+        // Body size as transferred and once decoded; -1 for a query
+        final long bytes;
+        final long decodedBytes;
+        final int alerts;
+
+        Record(boolean query, String label, String outcome, long[] stageNanos, long bytes, long decodedBytes,
+               int alerts) {
+            this.finishedAt = System.currentTimeMillis();
+            this.query = query;
+            this.label = label;
+            this.outcome = outcome;
+            this.stageNanos = stageNanos;
+            this.bytes = bytes;
+            this.decodedBytes = decodedBytes;
+            this.alerts = alerts;
+        }
+    }
+
+    @Name("weatheralerts.Fetch")
+    @Label("Alert Fetch")
+    @Category("Weather Alerts")
+    @Description("One alerts/active exchange, split into stages")
+    static final class FetchEvent extends jdk.jfr.Event {
+        @Label("Area")
+        String area;
+        @Label("Outcome")
+        String outcome;
+        @Label("Connect")
+        @Timespan
+        long connect;
+        @Label("Download")
+        @Timespan
+        long download;
+        @Label("Parse")
+        @Timespan
+        long parse;
+        @Label("Deliver")
+        @Timespan
+        long deliver;
+        @Label("On Wire")
+        @DataAmount
+        long bytes;
+        @Label("Decoded")
+        @DataAmount
+        long decodedBytes;
+        @Label("Alerts")
+        int alerts;
+    }
+
+    @Name("weatheralerts.Query")
+    @Label("Alert Query")
+    @Category("Weather Alerts")
+    @Description("One Get Alerts query, from click to the last row on screen")
+    static final class QueryEvent extends jdk.jfr.Event {
+        @Label("Query")
+        String query;
+        @Label("EDT")
+        @Timespan
+        long edt;
+        @Label("First Row")
+        @Timespan
+        long firstRow;
+        @Label("Alerts")
+        int alerts;
+    }
+
+    // Timing of one exchange, used from the thread running it. OFF is handed out while nothing
+    // is listening and ignores every call.
+    static final class Fetch {
+        static final Fetch OFF = new Fetch(null, null);
+
+        private final String url;
+        private final FetchEvent event;
+        private final long start;
+        private long connected;
+        private long readNanos;
+        private long deliverNanos;
+        private long bytes;
+        // -1 until the body turns out to be compressed
+        private long decodedBytes = -1;
+        private int alerts;
+        private String outcome = "failed";
+
+        private Fetch(String url, FetchEvent event) {
+            this.url = url;
+            this.event = event;
+            this.start = url != null ? System.nanoTime() : 0;
+            if (event != null) {
+                event.begin();
+            }
+        }
+
+        void connected() {
+            if (url != null) {
+                connected = System.nanoTime();
+            }
+        }
+
+        void outcome(String outcome) {
+            this.outcome = outcome;
+        }
+
+        // Counts the bytes read from in and the time spent blocked reading them
+        InputStream timeReads(InputStream in) {
+            if (url == null) {
+                return in;
+            }
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    long t = System.nanoTime();
+                    int b = super.read();
+                    readNanos += System.nanoTime() - t;
+                    if (b >= 0) {
+                        bytes++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    long t = System.nanoTime();
+                    int n = super.read(b, off, len);
+                    readNanos += System.nanoTime() - t;
+                    if (n > 0) {
+                        bytes += n;
+                    }
+                    return n;
+                }
+            };
+        }
+
+        // Counts the bytes decoded from a compressed body
+        InputStream countDecoded(InputStream in) {
+            if (url == null) {
+                return in;
+            }
+            decodedBytes = 0;
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        decodedBytes++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        decodedBytes += n;
+                    }
+                    return n;
+                }
+            };
+        }
+
+        // Counts the alerts handed to handler and the time it takes with them
+        AlertJsonReader.Handler timeDelivery(AlertJsonReader.Handler handler) {
+            if (url == null) {
+                return handler;
+            }
+            return alert -> {
+                long t = System.nanoTime();
+                alerts++;
+                try {
+                    handler.onAlert(alert);
+                } finally {
+                    deliverNanos += System.nanoTime() - t;
+                }
+            };
+        }
+
+        void end() {
+            if (url == null) {
+                return;
+            }
+            long end = System.nanoTime();
+            long connect = connected != 0 ? connected - start : -1;
+            long bodyStart = connected != 0 ? connected : start;
+            long parse = Math.max(0, end - bodyStart - readNanos - deliverNanos);
+            long decoded = decodedBytes < 0 ? bytes : decodedBytes;
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.area = areaOf(url);
+                    event.outcome = outcome;
+                    event.connect = Math.max(0, connect);
+                    event.download = readNanos;
+                    event.parse = parse;
+                    event.deliver = deliverNanos;
+                    event.bytes = bytes;
+                    event.decodedBytes = decoded;
+                    event.alerts = alerts;
+                    event.commit();
+                }
+            }
+            if (enabled) {
+                long[] stages = emptyStages();
+                stages[Stage.CONNECT.ordinal()] = connect;
+                stages[Stage.DOWNLOAD.ordinal()] = readNanos;
+                stages[Stage.PARSE.ordinal()] = parse;
+                stages[Stage.DELIVER.ordinal()] = deliverNanos;
+                stages[Stage.FETCH_TOTAL.ordinal()] = end - start;
+                requests.increment();
+                if (connected == 0 || outcome.equals("304")) {
+                    cacheHits.increment();
+                }
+                bytesDownloaded.add(bytes);
+                bytesDecoded.add(decoded);
+                alertsDelivered.add(alerts);
+                finish(new Record(false, areaOf(url), outcome, stages, bytes, decoded, alerts));
+            }
+        }
+    }
+
+    // Timing of one query; every call comes from the EDT. OFF ignores every call.
+    static final class Query {
+        static final Query OFF = new Query(null, null);
+
+        private final String label;
+        private final QueryEvent event;
+        private final long start;
+        private long edtNanos;
+        private long firstRow = -1;
+
+        private Query(String label, QueryEvent event) {
+            this.label = label;
+            this.event = event;
+            this.start = label != null ? System.nanoTime() : 0;
+            if (event != null) {
+                event.begin();
+            }
+        }
+
+        // Runs one of the query's EDT updates, counting its time
+        void onEdt(Runnable update) {
+            if (label == null) {
+                update.run();
+                return;
+            }
+            long t = System.nanoTime();
+            try {
+                update.run();
+            } finally {
+                edtNanos += System.nanoTime() - t;
+            }
+        }
+
+        void firstRow() {
+            if (label != null && firstRow < 0) {
+                firstRow = System.nanoTime() - start;
+            }
+        }
+
+        void end(int alerts) {
+            if (label == null) {
+                return;
+            }
+            long total = System.nanoTime() - start;
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.query = label;
+                    event.edt = edtNanos;
+                    event.firstRow = Math.max(0, firstRow);
+                    event.alerts = alerts;
+                    event.commit();
+                }
+            }
+            if (enabled) {
+                long[] stages = emptyStages();
+                stages[Stage.EDT.ordinal()] = edtNanos;
+                stages[Stage.FIRST_ROW.ordinal()] = firstRow;
+                stages[Stage.QUERY_TOTAL.ordinal()] = total;
+                queries.increment();
+                finish(new Record(true, label, "done", stages, -1, -1, alerts));
+            }
+        }
+    }
+
+    // Log-linear latency histogram: eight buckets per power of two of nanoseconds
+    private static final class StageHistogram implements StageStatsMXBean {
+        private static final int SUB_BUCKETS = 8;
+        private static final int BUCKETS = (64 - 2) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private volatile long max;
+
+        void record(long nanos) {
+            if (nanos < 0) {
+                return;
+            }
+            counts.incrementAndGet(bucket(nanos));
+            count.increment();
+            sum.add(nanos);
+            if (nanos > max) {
+                max = nanos;
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            count.reset();
+            sum.reset();
+            max = 0;
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : sum.sum() / (double) n / 1e6;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return percentile(0.50);
+        }
+
+        @Override
+        public double getP95Millis() {
+            return percentile(0.95);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return percentile(0.99);
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return max / 1e6;
+        }
+
+        // Midpoint of the bucket holding the p-th value
+        double percentile(double p) {
+            long[] snapshot = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(p * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return (lowerBound(i) + lowerBound(i + 1)) / 2.0 / 1e6;
+                }
+            }
+            return max / 1e6;
+        }
+
+        private static int bucket(long nanos) {
+            if (nanos < SUB_BUCKETS) {
+                return (int) nanos;
+            }
+            int msb = 63 - Long.numberOfLeadingZeros(nanos);
+            return (msb - 2) * SUB_BUCKETS + (int) ((nanos >>> (msb - 3)) & (SUB_BUCKETS - 1));
+        }
+
+        private static long lowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int msb = bucket / SUB_BUCKETS + 2;
+            return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (msb - 3);
+        }
+    }
+
+    private static final class Controls implements DiagnosticsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        public void setEnabled(boolean on) {
+            Diagnostics.setEnabled(on);
+        }
+
+        @Override
+        public long getRequestCount() {
+            return requests.sum();
+        }
+
+        @Override
+        public long getCacheHitCount() {
+            return cacheHits.sum();
+        }
+
+        @Override
+        public long getBytesDownloaded() {
+            return bytesDownloaded.sum();
+        }
+
+        @Override
+        public long getBytesDecoded() {
+            return bytesDecoded.sum();
+        }
+
+        @Override
+        public long getAlertsDelivered() {
+            return alertsDelivered.sum();
+        }
+
+        @Override
+        public long getQueryCount() {
+            return queries.sum();
+        }
+
+        @Override
+        public void reset() {
+            Diagnostics.reset();
+        }
+    }
+
+    private static volatile boolean enabled = Boolean.getBoolean("weatheralerts.diagnostics");
+    private static final StageHistogram[] HISTOGRAMS = new StageHistogram[Stage.values().length];
+    private static final Deque<Record> RECENT = new ArrayDeque<>();
+    private static final LongAdder requests = new LongAdder();
+    private static final LongAdder cacheHits = new LongAdder();
+    private static final LongAdder bytesDownloaded = new LongAdder();
+    private static final LongAdder bytesDecoded = new LongAdder();
+    private static final LongAdder alertsDelivered = new LongAdder();
+    private static final LongAdder queries = new LongAdder();
+
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i] = new StageHistogram();
+        }
+    }
+
+    private Diagnostics() {
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    // Registers the JMX beans; a second call, or a platform without JMX, changes nothing
+    static void registerMBeans() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new Controls(), new ObjectName("weatheralerts:type=Diagnostics"));
+            server.registerMBean(UpstreamGuard.SHARED, new ObjectName("weatheralerts:type=Upstream"));
+            server.registerMBean(TextStore.SHARED, new ObjectName("weatheralerts:type=TextStore"));
+            for (Stage stage : Stage.values()) {
+                server.registerMBean(HISTOGRAMS[stage.ordinal()],
+                    new ObjectName("weatheralerts:type=Stage,name=" + stage.label.replace(' ', '-')));
+            }
+        } catch (JMException | RuntimeException e) {
+            // Diagnostics still work in-app
+        }
+    }
+
+    static Fetch startFetch(String url) {
+        FetchEvent event = new FetchEvent();
+        boolean recording = event.isEnabled();
+        if (!enabled && !recording) {
+            return Fetch.OFF;
+        }
+        return new Fetch(url, recording ? event : null);
+    }
+
+    static Query startQuery(String label) {
+        QueryEvent event = new QueryEvent();
+        boolean recording = event.isEnabled();
+        if (!enabled && !recording) {
+            return Query.OFF;
+        }
+        return new Query(label, recording ? event : null);
+    }
+
+    // Callers check isEnabled() before timing a row, so painting stays untimed while off
+    static void rowRendered(long nanos) {
+        HISTOGRAMS[Stage.ROW_RENDER.ordinal()].record(nanos);
+    }
+
+    static StageStatsMXBean stats(Stage stage) {
+        return HISTOGRAMS[stage.ordinal()];
+    }
+
+    // Newest first
+    static List<Record> recent() {
+        synchronized (RECENT) {
+            List<Record> records = new ArrayList<>(RECENT);
+            Collections.reverse(records);
+            return records;
+        }
+    }
+
+    static void reset() {
+        for (StageHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+        requests.reset();
+        cacheHits.reset();
+        bytesDownloaded.reset();
+        bytesDecoded.reset();
+        alertsDelivered.reset();
+        queries.reset();
+        synchronized (RECENT) {
+            RECENT.clear();
+        }
+    }
+
+    private static void finish(Record record) {
+        for (Stage stage : Stage.values()) {
+            HISTOGRAMS[stage.ordinal()].record(record.stageNanos[stage.ordinal()]);
+        }
+        synchronized (RECENT) {
+            RECENT.addLast(record);
+            if (RECENT.size() > RECENT_LIMIT) {
+                RECENT.removeFirst();
+            }
+        }
+    }
+
+    private static long[] emptyStages() {
+        long[] stages = new long[Stage.values().length];
+        Arrays.fill(stages, -1);
+        return stages;
+    }
+
+    private static String areaOf(String url) {
+        int at = url.lastIndexOf("area=");
+        return at >= 0 ? url.substring(at + "area=".length()) : url;
+    }
+}
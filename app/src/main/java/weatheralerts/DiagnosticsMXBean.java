@@ -0,0 +1,25 @@
+package weatheralerts;
+
+// JMX view of Diagnostics (weatheralerts:type=Diagnostics): switches instrumentation on and
+// off and exposes its counters. Per-stage latencies are StageStatsMXBeans.
+public interface DiagnosticsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getRequestCount();
+
+    long getCacheHitCount();
+
+    // Response bodies as transferred, so compressed where the server compressed them
+    long getBytesDownloaded();
+
+    long getBytesDecoded();
+
+    long getAlertsDelivered();
+
+    long getQueryCount();
+
+    void reset();
+}
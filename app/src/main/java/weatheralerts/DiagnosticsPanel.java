@@ -0,0 +1,179 @@
+package weatheralerts;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+
+// Docked under the status bar while diagnostics are on: p50/p95/p99 per stage over everything
+// measured so far, and the stage breakdown of the most recent exchanges and queries. Refreshed
+// once a second while shown.
+final class DiagnosticsPanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    private static final int REFRESH_MILLIS = 1000;
+    private static final Diagnostics.Stage[] COLUMN_STAGES = {
+        Diagnostics.Stage.CONNECT, Diagnostics.Stage.DOWNLOAD, Diagnostics.Stage.PARSE, Diagnostics.Stage.DELIVER,
+        Diagnostics.Stage.EDT, Diagnostics.Stage.FIRST_ROW
+    };
+    private static final Diagnostics.Stage[] SUMMARY_STAGES = {
+        Diagnostics.Stage.CONNECT, Diagnostics.Stage.DOWNLOAD, Diagnostics.Stage.PARSE, Diagnostics.Stage.EDT,
+        Diagnostics.Stage.FIRST_ROW, Diagnostics.Stage.ROW_RENDER
+    };
+
+    private final JLabel summaryLabel = new JLabel(" ");
+    private final RecordTableModel tableModel = new RecordTableModel();
+    private final Timer refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+
+    private static final class RecordTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+        private static final int FIXED_COLUMNS = 3;
+
+        private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.US);
+        private List<Diagnostics.Record> records = Collections.emptyList();
+
+        void setRecords(List<Diagnostics.Record> records) {
+            this.records = records;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return records.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return FIXED_COLUMNS + COLUMN_STAGES.length + 4;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            switch (column) {
+                case 0:
+                    return "Time";
+                case 1:
+                    return "Request";
+                case 2:
+                    return "Cache";
+                default:
+                    break;
+            }
+            int stage = column - FIXED_COLUMNS;
+            if (stage < COLUMN_STAGES.length) {
+                return COLUMN_STAGES[stage].label;
+            }
+            switch (stage - COLUMN_STAGES.length) {
+                case 0:
+                    return "Total";
+                case 1:
+                    return "KB on wire";
+                case 2:
+                    return "KB decoded";
+                default:
+                    return "Alerts";
+            }
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Diagnostics.Record record = records.get(row);
+            switch (column) {
+                case 0:
+                    return timeFormat.format(new Date(record.finishedAt));
+                case 1:
+                    return record.query ? "Query " + record.label : record.label;
+                case 2:
+                    return record.query ? "" : record.outcome;
+                default:
+                    break;
+            }
+            int stage = column - FIXED_COLUMNS;
+            if (stage < COLUMN_STAGES.length) {
+                return millis(record.stageNanos[COLUMN_STAGES[stage].ordinal()]);
+            }
+            switch (stage - COLUMN_STAGES.length) {
+                case 0:
+                    // Each row has the total of its own kind
+                    Diagnostics.Stage total = record.query
+                        ? Diagnostics.Stage.QUERY_TOTAL : Diagnostics.Stage.FETCH_TOTAL;
+                    return millis(record.stageNanos[total.ordinal()]);
+                case 1:
+                    return kilobytes(record.bytes);
+                case 2:
+                    return kilobytes(record.decodedBytes);
+                default:
+                    return String.valueOf(record.alerts);
+            }
+        }
+
+        private static String kilobytes(long bytes) {
+            return bytes < 0 ? "" : String.format(Locale.US, "%.1f", bytes / 1024.0);
+        }
+
+        private static String millis(long nanos) {
+            return nanos < 0 ? "" : String.format(Locale.US, "%.1f ms", nanos / 1e6);
+        }
+    }
+
+    DiagnosticsPanel() {
+        super(new BorderLayout());
+        setBorder(new EmptyBorder(0, 10, 6, 10));
+        summaryLabel.setFont(new Font("Arial", Font.PLAIN, 11));
+        summaryLabel.setBorder(new EmptyBorder(0, 0, 4, 0));
+        add(summaryLabel, BorderLayout.NORTH);
+        JTable table = new JTable(tableModel);
+        table.setFillsViewportHeight(true);
+        table.setFocusable(false);
+        JScrollPane tableScroll = new JScrollPane(table);
+        tableScroll.setPreferredSize(new Dimension(0, 150));
+        add(tableScroll, BorderLayout.CENTER);
+    }
+
+    @Override
+    public void setVisible(boolean visible) {
+        super.setVisible(visible);
+        if (visible) {
+            refresh();
+            refreshTimer.start();
+        } else {
+            refreshTimer.stop();
+        }
+    }
+
+    private void refresh() {
+        StringBuilder summary = new StringBuilder("<html>p50 / p95 / p99 ms:");
+        for (Diagnostics.Stage stage : SUMMARY_STAGES) {
+            StageStatsMXBean stats = Diagnostics.stats(stage);
+            summary.append(" &nbsp;<b>").append(stage.label).append("</b> ");
+            if (stats.getCount() == 0) {
+                summary.append("-");
+            } else {
+                summary.append(String.format(Locale.US, "%.2f / %.2f / %.2f",
+                    stats.getP50Millis(), stats.getP95Millis(), stats.getP99Millis()));
+            }
+        }
+        UpstreamMXBean upstream = UpstreamGuard.SHARED;
+        summary.append(String.format(Locale.US, " &nbsp;<b>Upstream</b> %s, %.1f req/s, %d retries, %d stale",
+            upstream.getCircuitState().toLowerCase(Locale.US), upstream.getRateLimit(), upstream.getRetryCount(),
+            upstream.getStaleServedCount()));
+        TextStoreMXBean texts = TextStore.SHARED;
+        summary.append(String.format(Locale.US, " &nbsp;<b>Texts</b> %,d held (%,d KB), %.1fx dedup, %,d KB saved",
+            texts.getUniqueTexts(), texts.getUniqueBytes() / 1024, texts.getDedupRatio(),
+            texts.getBytesSaved() / 1024));
+        summaryLabel.setText(summary.append("</html>").toString());
+        tableModel.setRecords(Diagnostics.recent());
+    }
+}
@@ -0,0 +1,115 @@
+package weatheralerts;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+// Hands items produced on fetch threads to the EDT in time slices. Producers offer items from
+// any thread and at most one drain is queued on the EDT at a time; a drain consumes items
+// until its slice is used up, flushes, and queues the next drain behind whatever paint and
+// input events arrived meanwhile. However fast a feed arrives, the EDT is never busy with it
+// for much more than a slice at once, and the list revalidates once per slice, not per alert.
+final class EdtPublisher<T> {
+
+    // A quarter of a 60 Hz frame
+    static final long SLICE_NANOS = 4_000_000;
+    // Items consumed between clock reads
+    private static final int CHECK_EVERY = 16;
+
+    // Called on the EDT
+    interface Sink<T> {
+        void accept(T item);
+
+        // After each slice, with the items published so far and the items offered so far
+        void flush(int published, int offered);
+    }
+
+    private final Executor edt;
+    private final Sink<T> sink;
+    private final long sliceNanos;
+    private final LongSupplier clock;
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> whenDrained = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger offered = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    // EDT only
+    private int published;
+
+    // edt runs each drain on the EDT, and may drop it once the items are no longer wanted
+    EdtPublisher(Executor edt, Sink<T> sink) {
+        this(edt, sink, SLICE_NANOS);
+    }
+
+    EdtPublisher(Executor edt, Sink<T> sink, long sliceNanos) {
+        this(edt, sink, sliceNanos, System::nanoTime);
+    }
+
+    // clock reads nanoseconds as System.nanoTime does
+    EdtPublisher(Executor edt, Sink<T> sink, long sliceNanos, LongSupplier clock) {
+        this.edt = edt;
+        this.sink = sink;
+        this.sliceNanos = sliceNanos;
+        this.clock = clock;
+    }
+
+    // Any thread
+    void offer(T item) {
+        queue.add(item);
+        offered.incrementAndGet();
+        schedule();
+    }
+
+    // Runs action on the EDT once every item offered before this call has been published
+    void finish(Runnable action) {
+        whenDrained.add(action);
+        schedule();
+    }
+
+    int offered() {
+        return offered.get();
+    }
+
+    // EDT only
+    int published() {
+        return published;
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            edt.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        long deadline = clock.getAsLong() + sliceNanos;
+        int count = 0;
+        T item;
+        while ((item = queue.poll()) != null) {
+            sink.accept(item);
+            published++;
+            if (++count % CHECK_EVERY == 0 && clock.getAsLong() - deadline >= 0) {
+                break;
+            }
+        }
+        if (count > 0) {
+            sink.flush(published, offered.get());
+        }
+        if (!queue.isEmpty()) {
+            edt.execute(this::drain);
+            return;
+        }
+        scheduled.set(false);
+        // An item offered after the last poll but before the reset found a drain scheduled
+        if (!queue.isEmpty()) {
+            schedule();
+            return;
+        }
+        Runnable action;
+        while ((action = whenDrained.poll()) != null) {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package weatheralerts;
+
+// Interned event name such as "Tornado Warning". There is one instance per distinct name for
+// the life of the process, numbered in order of first appearance, so every alert of a type
+// shares it, types compare by identity, and the icon category is classified once per type.
+// The parser interns straight from its decode buffer; a name already seen allocates nothing,
+// and takes no lock, so parallel parse workers do not queue up on the table.
+final class EventType {
+
+    // Stand-in for alerts without an event name
+    static final EventType NONE = new EventType(0, "");
+
+    private static final int MAX_LOAD_PERCENT = 50;
+
+    // Open-addressed by name hash; NWS uses ~130 event names, so this rarely grows. Slots only
+    // go from null to a type, and a grown table is filled before it is published, so lookups
+    // read it without the lock; a miss is rechecked under the lock before adding.
+    private static volatile EventType[] table = new EventType[256];
+    private static int count = 1;
+
+    final int code;
+    final String name;
+    final AlertClassifier.Category category;
+    private final int hash;
+
+    private EventType(int code, String name) {
+        this.code = code;
+        this.name = name;
+        this.category = AlertClassifier.categoryOf(name);
+        this.hash = name.hashCode();
+    }
+
+    static EventType of(String name) {
+        return intern(name.toCharArray(), 0, name.length());
+    }
+
+    static EventType intern(char[] text, int offset, int length) {
+        if (length == 0) {
+            return NONE;
+        }
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + text[offset + i];
+        }
+        EventType type = find(table, hash, text, offset, length);
+        return type != null ? type : add(hash, text, offset, length);
+    }
+
+    private static synchronized EventType add(int hash, char[] text, int offset, int length) {
+        EventType[] current = table;
+        EventType type = find(current, hash, text, offset, length);
+        if (type != null) {
+            return type;
+        }
+        int mask = current.length - 1;
+        int slot = spread(hash) & mask;
+        while (current[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        type = new EventType(count++, new String(text, offset, length));
+        current[slot] = type;
+        if (count * 100 > current.length * MAX_LOAD_PERCENT) {
+            rehash();
+        }
+        return type;
+    }
+
+    private static EventType find(EventType[] in, int hash, char[] text, int offset, int length) {
+        int mask = in.length - 1;
+        int slot = spread(hash) & mask;
+        for (EventType type = in[slot]; type != null; type = in[slot]) {
+            if (type.hash == hash && type.nameEquals(text, offset, length)) {
+                return type;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    // Name to show, or fallback for alerts that had none
+    String nameOr(String fallback) {
+        return name.isEmpty() ? fallback : name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private boolean nameEquals(char[] text, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != text[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void rehash() {
+        EventType[] old = table;
+        EventType[] grown = new EventType[old.length * 2];
+        int mask = grown.length - 1;
+        for (EventType type : old) {
+            if (type != null) {
+                int slot = spread(type.hash) & mask;
+                while (grown[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                grown[slot] = type;
+            }
+        }
+        table = grown;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
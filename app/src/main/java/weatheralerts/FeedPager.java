@@ -0,0 +1,135 @@
+package weatheralerts;
+
+import java.io.IOException;
+import java.net.URL;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reads a paged alerts feed (the national alerts/active, or the /alerts archive) by following
+// pagination.next, with download and parse overlapped: a pager thread fetches page N+1, having
+// skimmed page N for its next link, while the calling thread parses page N. At most
+// PAGES_AHEAD downloaded pages wait in between, so memory stays bounded by a few pages however
+// many the feed has. Each page is parsed by a ParallelAlertParser, on several cores where there
+// are several.
+final class FeedPager {
+
+    static final int PAGES_AHEAD = 2;
+    // Guards against a server that never stops handing out cursors
+    private static final int MAX_PAGES = 10000;
+
+    // Queued after the last page
+    private static final Object END = new Object();
+
+    private final NwsClient client;
+    private final ParallelAlertParser parser;
+
+    FeedPager(NwsClient client) {
+        this(client, ParallelAlertParser.SHARED);
+    }
+
+    FeedPager(NwsClient client, ParallelAlertParser parser) {
+        this.client = client;
+        this.parser = parser;
+    }
+
+    // Delivers every alert of the feed starting at firstUrl on this thread, in page order, and
+    // returns the number of pages read. A page without alerts ends the feed. Throws
+    // CancellationException once call is cancelled.
+    int fetch(String firstUrl, AlertJsonReader.Handler handler, NwsClient.Call call) throws IOException {
+        BlockingQueue<Object> pages = new ArrayBlockingQueue<>(PAGES_AHEAD);
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread pager = new Thread(() -> download(firstUrl, pages, stop, call), "alerts-pager");
+        pager.setDaemon(true);
+        pager.start();
+        int pageCount = 0;
+        try {
+            while (true) {
+                Object page;
+                try {
+                    page = pages.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException();
+                }
+                if (page == END) {
+                    return pageCount;
+                }
+                if (page instanceof IOException) {
+                    throw (IOException) page;
+                }
+                if (page instanceof RuntimeException) {
+                    throw (RuntimeException) page;
+                }
+                pageCount++;
+                int[] alerts = {0};
+                parser.parse((byte[]) page, alert -> {
+                    if (call.isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    alerts[0]++;
+                    handler.onAlert(alert);
+                });
+                if (alerts[0] == 0) {
+                    return pageCount;
+                }
+            }
+        } finally {
+            // Unblocks a pager waiting for room in the queue
+            stop.set(true);
+            pager.interrupt();
+        }
+    }
+
+    // Records every archived alert of the last days into the local history
+    static void backfill(long days) throws IOException {
+        String url = NwsClient.archiveUrl(NwsClient.upstream(), Instant.now().minus(days, ChronoUnit.DAYS));
+        AtomicLong alerts = new AtomicLong();
+        long start = System.nanoTime();
+        int pages;
+        AlertHistory history = AlertHistory.openDefault();
+        try {
+            pages = new FeedPager(new NwsClient(HttpCache.openDefault())).fetch(url, alert -> {
+                // Fetched for no one area, so only the alert's own states are kept
+                history.record(null, alert);
+                if (alerts.incrementAndGet() % 10000 == 0) {
+                    System.out.println(alerts.get() + " alerts...");
+                }
+            }, new NwsClient.Call());
+        } finally {
+            history.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Recorded %d alerts from %d pages in %.1f s (%.0f alerts/s)%n", alerts.get(), pages, seconds,
+            alerts.get() / seconds);
+    }
+
+    private void download(String firstUrl, BlockingQueue<Object> pages, AtomicBoolean stop, NwsClient.Call call) {
+        Object last = END;
+        try {
+            Set<String> requested = new HashSet<>();
+            String url = firstUrl;
+            while (url != null && !stop.get() && requested.size() < MAX_PAGES && requested.add(url)) {
+                byte[] page = client.fetchPage(url, call);
+                String next = AlertJsonReader.nextPageUrl(page);
+                url = next != null ? new URL(new URL(url), next).toString() : null;
+                pages.put(page);
+            }
+        } catch (IOException | RuntimeException e) {
+            last = e;
+        } catch (InterruptedException e) {
+            return;
+        }
+        try {
+            pages.put(last);
+        } catch (InterruptedException e) {
+            // The reader has stopped
+        }
+    }
+}
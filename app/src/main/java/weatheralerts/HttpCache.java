@@ -0,0 +1,271 @@
+package weatheralerts;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+// On-disk cache of response bodies keyed by URL, with the validators needed for conditional
+// requests. Each entry is a <key>.body file plus a <key>.meta properties file; the total body
+// size is bounded and the least recently used entries are evicted first. The parsed alerts
+// of an entry are kept softly in memory so a 304 can be answered without re-parsing.
+final class HttpCache {
+
+    static final class Entry {
+        final String url;
+        final File body;
+        final long size;
+        final String etag;
+        final String lastModified;
+        volatile long expiresAt;
+        volatile SoftReference<List<Alert>> alerts = new SoftReference<>(null);
+
+        Entry(String url, File body, long size, String etag, String lastModified, long expiresAt) {
+            this.url = url;
+            this.body = body;
+            this.size = size;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+
+        List<Alert> parsedAlerts() {
+            return alerts.get();
+        }
+
+        void setParsedAlerts(List<Alert> parsed) {
+            alerts = new SoftReference<>(parsed);
+        }
+
+        InputStream openBody() throws IOException {
+            return new FileInputStream(body);
+        }
+    }
+
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    // A .tmp file older than this is a leftover; a younger one may be another process's download
+    static final long STALE_TEMP_MILLIS = 60L * 60 * 1000;
+
+    private final File directory;
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    HttpCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        load();
+    }
+
+    // Cache under ~/.weatheralerts/http-cache unless weatheralerts.cacheDir points elsewhere
+    static HttpCache openDefault() {
+        String dir = System.getProperty("weatheralerts.cacheDir",
+            System.getProperty("user.home") + File.separator + ".weatheralerts" + File.separator + "http-cache");
+        return new HttpCache(new File(dir), DEFAULT_MAX_BYTES);
+    }
+
+    synchronized Entry get(String url) {
+        Entry entry = entries.get(url);
+        if (entry != null && !entry.body.isFile()) {
+            remove(url);
+            return null;
+        }
+        if (entry != null) {
+            // The meta file's timestamp carries the access order across launches
+            new File(directory, keyFor(url) + ".meta").setLastModified(System.currentTimeMillis());
+        }
+        return entry;
+    }
+
+    // Temporary file for a body being downloaded; committed with put() or deleted by the caller
+    File newTempFile() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create cache directory " + directory);
+        }
+        return File.createTempFile("download", ".tmp", directory);
+    }
+
+    synchronized Entry put(String url, File downloaded, String etag, String lastModified, long expiresAt) throws IOException {
+        String key = keyFor(url);
+        File body = new File(directory, key + ".body");
+        remove(url);
+        if (!downloaded.renameTo(body)) {
+            downloaded.delete();
+            throw new IOException("Cannot store cache entry for " + url);
+        }
+        Entry entry = new Entry(url, body, body.length(), etag, lastModified, expiresAt);
+        writeMeta(entry, key);
+        entries.put(url, entry);
+        totalBytes += entry.size;
+        evict();
+        return entry;
+    }
+
+    // Records a successful revalidation (304): the stored body stays, its freshness is renewed
+    synchronized void revalidated(Entry entry, long expiresAt) {
+        entry.expiresAt = expiresAt;
+        try {
+            writeMeta(entry, keyFor(entry.url));
+        } catch (IOException e) {
+            // Freshness is still tracked in memory; the next launch just revalidates sooner
+        }
+    }
+
+    synchronized void remove(String url) {
+        Entry entry = entries.remove(url);
+        if (entry != null) {
+            totalBytes -= entry.size;
+            entry.body.delete();
+            new File(directory, keyFor(url) + ".meta").delete();
+        }
+    }
+
+    synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    // Expiry time from Cache-Control max-age minus Age; 0 (stale, revalidate) otherwise
+    static long expiresAt(String cacheControl, String age, long now) {
+        if (cacheControl == null) {
+            return 0;
+        }
+        long maxAge = -1;
+        for (String directive : cacheControl.split(",")) {
+            String d = directive.trim().toLowerCase(Locale.ROOT);
+            if (d.equals("no-cache") || d.equals("no-store")) {
+                return 0;
+            }
+            if (d.startsWith("max-age=")) {
+                maxAge = parseSeconds(d.substring("max-age=".length()));
+            }
+        }
+        if (maxAge <= 0) {
+            return 0;
+        }
+        long ageSeconds = age != null ? Math.max(0, parseSeconds(age.trim())) : 0;
+        return now + Math.max(0, maxAge - ageSeconds) * 1000;
+    }
+
+    static boolean isStorable(String cacheControl) {
+        return cacheControl == null || !cacheControl.toLowerCase(Locale.ROOT).contains("no-store");
+    }
+
+    private static long parseSeconds(String value) {
+        try {
+            return Long.parseLong(value.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.size;
+            eldest.body.delete();
+            new File(directory, keyFor(eldest.url) + ".meta").delete();
+        }
+    }
+
+    private void writeMeta(Entry entry, String key) throws IOException {
+        Properties meta = new Properties();
+        meta.setProperty("url", entry.url);
+        if (entry.etag != null) {
+            meta.setProperty("etag", entry.etag);
+        }
+        if (entry.lastModified != null) {
+            meta.setProperty("lastModified", entry.lastModified);
+        }
+        meta.setProperty("expiresAt", Long.toString(entry.expiresAt));
+        // Written aside and renamed over the old one, so a crash never leaves half a meta file;
+        // a leftover .tmp is dropped by a later load once it is stale
+        File written = new File(directory, key + ".meta.tmp");
+        try (OutputStream out = new FileOutputStream(written)) {
+            meta.store(out, null);
+        }
+        try {
+            Files.move(written.toPath(), new File(directory, key + ".meta").toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            written.delete();
+            throw e;
+        }
+    }
+
+    // Rebuilds the index from the meta files, oldest first, and drops leftovers of earlier runs.
+    // Another process may share the directory, so only .tmp files too old to be in use go.
+    private void load() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long staleBefore = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+        List<File> metas = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(".meta")) {
+                metas.add(file);
+            } else if (file.getName().endsWith(".tmp") && file.lastModified() < staleBefore) {
+                file.delete();
+            }
+        }
+        metas.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File metaFile : metas) {
+            Properties meta = new Properties();
+            File body = new File(directory, metaFile.getName().replace(".meta", ".body"));
+            long expiresAt;
+            try (InputStream in = new FileInputStream(metaFile)) {
+                meta.load(in);
+                expiresAt = Long.parseLong(meta.getProperty("expiresAt", "0"));
+            } catch (IOException | IllegalArgumentException e) {
+                // Unreadable or corrupt (a bad escape or number): the entry is dropped, not the cache
+                metaFile.delete();
+                body.delete();
+                continue;
+            }
+            String url = meta.getProperty("url");
+            if (url == null || !body.isFile()) {
+                metaFile.delete();
+                continue;
+            }
+            Entry entry = new Entry(url, body, body.length(), meta.getProperty("etag"),
+                meta.getProperty("lastModified"), expiresAt);
+            entries.put(url, entry);
+            totalBytes += entry.size;
+        }
+        evict();
+    }
+
+    private static String keyFor(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                key.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
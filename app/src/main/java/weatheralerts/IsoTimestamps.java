@@ -0,0 +1,141 @@
+package weatheralerts;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+// ISO-8601 timestamps as used by the NWS API ("2024-05-01T10:00:00-05:00"). Parsing works
+// directly on the parser's char buffer and allocates nothing; the offset is applied, so the
+// result is a true epoch instant. Display goes through one shared, thread-safe formatter.
+final class IsoTimestamps {
+
+    // Marks a missing or unparseable timestamp
+    static final long NONE = Long.MIN_VALUE;
+
+    private static final DateTimeFormatter DISPLAY_FORMAT =
+        DateTimeFormatter.ofPattern("MMM dd, yyyy h:mm a", Locale.getDefault()).withZone(ZoneId.systemDefault());
+
+    private IsoTimestamps() {
+    }
+
+    // Parses yyyy-MM-ddTHH:mm[:ss[.fraction]][Z|+HH:MM|-HH:MM|+HHMM]; a missing offset means UTC
+    static long parse(char[] text, int offset, int length) {
+        int end = offset + length;
+        if (length < 16 || text[offset + 4] != '-' || text[offset + 7] != '-'
+                || (text[offset + 10] != 'T' && text[offset + 10] != 't' && text[offset + 10] != ' ')
+                || text[offset + 13] != ':') {
+            return NONE;
+        }
+        int year = digits(text, offset, 4);
+        int month = digits(text, offset + 5, 2);
+        int day = digits(text, offset + 8, 2);
+        int hour = digits(text, offset + 11, 2);
+        int minute = digits(text, offset + 14, 2);
+        int second = 0;
+        int i = offset + 16;
+        if (i < end && text[i] == ':') {
+            if (end - i < 3) {
+                return NONE;
+            }
+            second = digits(text, i + 1, 2);
+            i += 3;
+        }
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return NONE;
+        }
+
+        // A point with no digits after it is a zero fraction, as java.time reads it
+        int millis = 0;
+        if (i == offset + 19 && i < end && (text[i] == '.' || text[i] == ',')) {
+            i++;
+            int scale = 100;
+            while (i < end && text[i] >= '0' && text[i] <= '9') {
+                millis += (text[i] - '0') * scale;
+                scale /= 10;
+                i++;
+            }
+        }
+
+        int offsetSeconds = 0;
+        if (i < end) {
+            char sign = text[i];
+            if ((sign == 'Z' || sign == 'z') && i + 1 == end) {
+                i++;
+            } else if (sign == '+' || sign == '-') {
+                int remaining = end - i - 1;
+                int offsetHours;
+                int offsetMinutes;
+                if (remaining == 5 && text[i + 3] == ':') {
+                    offsetHours = digits(text, i + 1, 2);
+                    offsetMinutes = digits(text, i + 4, 2);
+                } else if (remaining == 4) {
+                    offsetHours = digits(text, i + 1, 2);
+                    offsetMinutes = digits(text, i + 3, 2);
+                } else if (remaining == 2) {
+                    offsetHours = digits(text, i + 1, 2);
+                    offsetMinutes = 0;
+                } else {
+                    return NONE;
+                }
+                if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                    return NONE;
+                }
+                offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (sign == '-' ? -1 : 1);
+                i = end;
+            } else {
+                return NONE;
+            }
+        }
+        if (i != end) {
+            return NONE;
+        }
+
+        long epochSeconds = daysFromCivil(year, month, day) * 86400L
+            + hour * 3600 + minute * 60 + second - offsetSeconds;
+        return epochSeconds * 1000 + millis;
+    }
+
+    // e.g. "May 01, 2024 10:00 AM" in the local time zone
+    static String format(long epochMillis) {
+        return DISPLAY_FORMAT.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    private static int digits(char[] text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = text[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Days since 1970-01-01 for a proleptic Gregorian date (H. Hinnant's days_from_civil)
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
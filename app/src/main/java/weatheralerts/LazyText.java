@@ -0,0 +1,142 @@
+package weatheralerts;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// A JSON string value kept as its raw bytes (UTF-8, escapes intact), and decoded in a single
+// pass the first time it is read. Texts held by the TextStore own exactly their bytes and are
+// shared by every alert carrying them. The list never shows descriptions or instructions, so
+// most are never decoded.
+final class LazyText {
+
+    // Receives the text one char at a time
+    interface CharSink {
+        void put(char c);
+    }
+
+    private final byte[] raw;
+    private final int offset;
+    private final int length;
+    // Cached on first read; an unsynchronized race only decodes twice, String being immutable
+    private String text;
+
+    // raw[offset + length] must be the closing quote of the JSON string
+    LazyText(byte[] raw, int offset, int length) {
+        this.raw = raw;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public String toString() {
+        String decoded = text;
+        if (decoded == null) {
+            decoded = decode();
+            text = decoded;
+        }
+        return decoded;
+    }
+
+    // Decoded text without keeping it, for one-off readers such as the search index
+    String decode() {
+        String decoded = text;
+        if (decoded != null) {
+            return decoded;
+        }
+        try {
+            return AlertJsonReader.decodeText(raw, offset, length);
+        } catch (IOException e) {
+            // Escapes were checked when the field was captured, so only a truncated
+            // UTF-8 sequence gets here; show what is there
+            return new String(raw, offset, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Feeds the decoded text to sink, decoding the raw bytes as it goes, so a reader that only
+    // scans the text, such as the search index, never builds the String. Decodes as
+    // AlertJsonReader does; a UTF-8 sequence cut short by the end of the text is one U+FFFD.
+    void decodeTo(CharSink sink) {
+        String decoded = text;
+        if (decoded != null) {
+            for (int i = 0; i < decoded.length(); i++) {
+                sink.put(decoded.charAt(i));
+            }
+            return;
+        }
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            int b = raw[i++] & 0xFF;
+            if (b < 0x80) {
+                if (b != '\\') {
+                    sink.put((char) b);
+                    continue;
+                }
+                // Escapes were checked when the field was captured
+                byte escape = raw[i++];
+                if (escape == 'u') {
+                    int value = 0;
+                    for (int k = 0; k < 4; k++) {
+                        value = (value << 4) | Character.digit(raw[i++], 16);
+                    }
+                    sink.put((char) value);
+                } else {
+                    sink.put(unescape(escape));
+                }
+                continue;
+            }
+            int extra = (b & 0xE0) == 0xC0 ? 1 : (b & 0xF0) == 0xE0 ? 2 : (b & 0xF8) == 0xF0 ? 3 : -1;
+            if (extra < 0 || i + extra > end) {
+                sink.put('\uFFFD');
+                i = extra < 0 ? i : end;
+                continue;
+            }
+            int codePoint = b & (0x3F >> extra);
+            for (int k = 0; k < extra; k++) {
+                codePoint = (codePoint << 6) | (raw[i++] & 0x3F);
+            }
+            if (extra == 3) {
+                sink.put(Character.highSurrogate(codePoint));
+                sink.put(Character.lowSurrogate(codePoint));
+            } else {
+                sink.put((char) codePoint);
+            }
+        }
+    }
+
+    private static char unescape(byte escape) {
+        switch (escape) {
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            default: return (char) escape;
+        }
+    }
+
+    // Same raw bytes as raw[offset, offset + length)
+    boolean rawEquals(byte[] raw, int offset, int length) {
+        return this.length == length
+            && Arrays.equals(this.raw, this.offset, this.offset + length, raw, offset, offset + length);
+    }
+
+    int rawLength() {
+        return length;
+    }
+
+    // Writes the raw bytes followed by the closing quote, which is how the history stores them
+    void writeRaw(OutputStream out) throws IOException {
+        out.write(raw, offset, length + 1);
+    }
+
+    // Same raw bytes, which for one feed means the same text
+    static boolean same(LazyText a, LazyText b) {
+        if (a == b) {
+            return true;
+        }
+        return a != null && b != null && a.rawEquals(b.raw, b.offset, b.length);
+    }
+}
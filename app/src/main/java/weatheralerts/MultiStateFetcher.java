@@ -0,0 +1,194 @@
+package weatheralerts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fetches several areas in parallel through the RequestCoordinator and merges them into one
+// deduplicated stream: an alert covering two queried states is delivered once. Each state
+// is timed and reported on its own, so a slow or failing state never holds back the rest.
+// NATIONAL stands for the whole national feed, read page by page rather than state by state.
+// A query records every alert it delivers in the local history, on the history's own thread:
+// the handler runs on the coordinator's fetch threads, which must not wait on the disk. A
+// poll records only what changed since the previous one, once it has been diffed.
+final class MultiStateFetcher {
+
+    interface Listener {
+        // Called from fetch threads for each alert not already delivered by another state
+        void onAlert(String state, Alert alert);
+
+        void onStateDone(StateResult result);
+    }
+
+    static final class StateResult {
+        final String state;
+        final long latencyMillis;
+        final int alertCount;
+        final String error;
+
+        StateResult(String state, long latencyMillis, int alertCount, String error) {
+            this.state = state;
+            this.latencyMillis = latencyMillis;
+            this.alertCount = alertCount;
+            this.error = error;
+        }
+
+        boolean failed() {
+            return error != null;
+        }
+    }
+
+    // Every active alert in the country, from the national feed
+    static final String NATIONAL = "US";
+
+    // Two-letter area codes accepted by alerts/active?area=
+    private static final List<String> STATES = Arrays.asList(
+        "AL", "AK", "AZ", "AR", "CA", "CO", "CT", "DE", "DC", "FL", "GA", "HI", "ID", "IL", "IN", "IA",
+        "KS", "KY", "LA", "ME", "MD", "MA", "MI", "MN", "MS", "MO", "MT", "NE", "NV", "NH", "NJ", "NM",
+        "NY", "NC", "ND", "OH", "OK", "OR", "PA", "RI", "SC", "SD", "TN", "TX", "UT", "VT", "VA", "WA",
+        "WV", "WI", "WY");
+    private static final List<String> TERRITORIES = Arrays.asList("PR", "VI", "GU", "AS", "MP");
+
+    // Region presets (US Census regions) usable in place of a state list
+    static final Map<String, List<String>> REGIONS = new LinkedHashMap<>();
+    static {
+        REGIONS.put("NORTHEAST", Arrays.asList("CT", "ME", "MA", "NH", "RI", "VT", "NJ", "NY", "PA"));
+        REGIONS.put("MIDWEST", Arrays.asList("IL", "IN", "MI", "OH", "WI", "IA", "KS", "MN", "MO", "NE", "ND", "SD"));
+        REGIONS.put("SOUTH", Arrays.asList("DE", "DC", "FL", "GA", "MD", "NC", "SC", "VA", "WV", "AL", "KY", "MS",
+            "TN", "AR", "LA", "OK", "TX"));
+        REGIONS.put("WEST", Arrays.asList("AZ", "CO", "ID", "MT", "NV", "NM", "UT", "WY", "AK", "CA", "HI", "OR", "WA"));
+        REGIONS.put("TERRITORIES", TERRITORIES);
+        List<String> all = new ArrayList<>(STATES);
+        all.addAll(TERRITORIES);
+        REGIONS.put("ALL", Collections.unmodifiableList(all));
+    }
+
+    private final RequestCoordinator coordinator;
+    private final AlertHistory history;
+
+    MultiStateFetcher(RequestCoordinator coordinator, AlertHistory history) {
+        this.coordinator = coordinator;
+        this.history = history;
+    }
+
+    // Parses "TX", "TX, OK LA" or a region preset such as "SOUTH" into distinct area codes;
+    // NATIONAL anywhere in the input covers everything else
+    static List<String> parseStates(String input) {
+        Set<String> states = new LinkedHashSet<>();
+        for (String token : input.trim().toUpperCase().split("[,;\\s]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            List<String> region = REGIONS.get(token);
+            if (token.equals(NATIONAL)) {
+                states.add(NATIONAL);
+            } else if (region != null) {
+                states.addAll(region);
+            } else if (STATES.contains(token) || TERRITORIES.contains(token)) {
+                states.add(token);
+            } else {
+                throw new IllegalArgumentException("Unknown state code or region: " + token);
+            }
+        }
+        if (states.isEmpty()) {
+            throw new IllegalArgumentException("No state code given");
+        }
+        if (states.contains(NATIONAL)) {
+            return Collections.singletonList(NATIONAL);
+        }
+        return new ArrayList<>(states);
+    }
+
+    // Fetches every state concurrently and blocks until all have finished; results are in input
+    // order. Throws CancellationException if the query is cancelled before then. Alerts are
+    // recorded in the history as they are delivered if record is set.
+    List<StateResult> fetchAll(List<String> states, Listener listener, RequestCoordinator.Query query,
+                               boolean record) throws InterruptedException {
+        Set<String> seenIds = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<StateResult>> pending = new ArrayList<>();
+        for (String state : states) {
+            long start = System.nanoTime();
+            AtomicInteger count = new AtomicInteger();
+            AlertJsonReader.Handler handler = alert -> {
+                count.incrementAndGet();
+                String id = alert.id;
+                if (id == null || seenIds.add(id)) {
+                    if (record) {
+                        history.recordLater(historyArea(state), alert);
+                    }
+                    listener.onAlert(state, alert);
+                }
+            };
+            RequestCoordinator.Subscription subscription = state.equals(NATIONAL)
+                ? coordinator.subscribePaged(query, NwsClient.nationalAlertsUrl(NwsClient.upstream()), handler)
+                : coordinator.subscribe(query, NwsClient.activeAlertsUrl(state), handler);
+            pending.add(subscription.completion().handle((retrieved, failure) -> {
+                if (failure instanceof CancellationException) {
+                    return null;
+                }
+                long latencyMillis = (System.nanoTime() - start) / 1_000_000;
+                StateResult result = new StateResult(state, latencyMillis, count.get(), errorFor(retrieved, failure));
+                listener.onStateDone(result);
+                return result;
+            }));
+        }
+        List<StateResult> results = new ArrayList<>();
+        for (CompletableFuture<StateResult> future : pending) {
+            StateResult result;
+            try {
+                result = future.get();
+            } catch (ExecutionException e) {
+                // Fetch failures are reported as results; anything else is a listener bug
+                throw new IllegalStateException(e.getCause());
+            }
+            if (result == null) {
+                throw new CancellationException();
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    // Records the alerts a poll found added or updated, each under the area that delivered it
+    // (id -> area). A poll of an unchanged feed finds none and leaves the history alone.
+    void recordChanges(AlertWatcher.Changes changes, Map<String, String> areas) {
+        for (Alert alert : changes.added) {
+            history.recordLater(historyArea(areas.get(alert.id)), alert);
+        }
+        for (Alert alert : changes.updated) {
+            history.recordLater(historyArea(areas.get(alert.id)), alert);
+        }
+    }
+
+    // The national feed is no one area, so its alerts keep only the states they list
+    private static String historyArea(String state) {
+        return state == null || state.equals(NATIONAL) ? null : state;
+    }
+
+    private static String errorFor(Boolean retrieved, Throwable failure) {
+        if (failure instanceof AlertJsonReader.MalformedJsonException) {
+            return "Error parsing response: " + failure.getMessage();
+        }
+        if (failure instanceof UpstreamGuard.UpstreamException) {
+            return "Weather service unavailable: " + failure.getMessage();
+        }
+        if (failure instanceof IOException) {
+            return "Connection error: " + failure.getMessage();
+        }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+        return retrieved ? null : "Failed to retrieve data from the server.";
+    }
+}
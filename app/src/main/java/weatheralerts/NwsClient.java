@@ -0,0 +1,404 @@
+package weatheralerts;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Fetches and parses NWS alert feeds. Responses go through an HttpCache: fresh entries are
+// served without touching the network, stale ones are revalidated with If-None-Match /
+// If-Modified-Since, and a 304 replays the alerts parsed from the stored body. Bodies are
+// requested gzip- or deflate-compressed and decoded as they stream into the parser; the cache
+// keeps the decoded document. Network requests go through an UpstreamGuard for rate limiting,
+// retries and circuit breaking; when the upstream keeps failing, a cached copy of any age is
+// replayed rather than nothing.
+final class NwsClient {
+
+    private static final String DEFAULT_UPSTREAM = "https://api.weather.gov";
+    private static final String ACTIVE_ALERTS_PATH = "/alerts/active?area=";
+    private static final String NATIONAL_ALERTS_PATH = "/alerts/active";
+    // The archive serves at most 500 alerts a page
+    private static final String ARCHIVE_PATH = "/alerts?limit=500&start=";
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+    private static final int DECODE_BUFFER = 64 * 1024;
+
+    // Base URL of the alerts API; a desktop can point it at a --serve instance instead of NWS
+    private static volatile String upstream = trimSlash(System.getProperty("weatheralerts.upstream", DEFAULT_UPSTREAM));
+
+    static {
+        // HttpURLConnection pools idle keep-alive sockets per host; keep enough of them for
+        // the parallel multi-state fetches so each request reuses a warm TLS connection
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(RequestCoordinator.MAX_CONCURRENT_FETCHES));
+        }
+    }
+
+    // Handle on one exchange; cancel() from any thread aborts its socket read and its parse
+    static final class Call {
+        private volatile boolean cancelled;
+        private volatile HttpURLConnection connection;
+
+        void cancel() {
+            cancelled = true;
+            HttpURLConnection open = connection;
+            if (open != null) {
+                open.disconnect();
+            }
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void checkCancelled() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+        }
+    }
+
+    private final HttpCache cache;
+    private final UpstreamGuard guard;
+
+    NwsClient(HttpCache cache) {
+        this(cache, UpstreamGuard.SHARED);
+    }
+
+    NwsClient(HttpCache cache, UpstreamGuard guard) {
+        this.cache = cache;
+        this.guard = guard;
+    }
+
+    static String activeAlertsUrl(String area) {
+        return activeAlertsUrl(upstream, area);
+    }
+
+    static String activeAlertsUrl(String baseUrl, String area) {
+        return trimSlash(baseUrl) + ACTIVE_ALERTS_PATH + area;
+    }
+
+    // Every active alert in the country, in one or more pages
+    static String nationalAlertsUrl(String baseUrl) {
+        return trimSlash(baseUrl) + NATIONAL_ALERTS_PATH;
+    }
+
+    // First page of the /alerts archive from start until now
+    static String archiveUrl(String baseUrl, Instant start) {
+        return trimSlash(baseUrl) + ARCHIVE_PATH + start;
+    }
+
+    static String upstream() {
+        return upstream;
+    }
+
+    static void setUpstream(String baseUrl) {
+        upstream = trimSlash(baseUrl);
+    }
+
+    private static String trimSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    // Streams the alerts at urlString to the handler; returns false on a 4xx response other than
+    // 429. Throws UpstreamGuard.UpstreamException if the upstream is failing and nothing is
+    // cached, and CancellationException once call is cancelled, whether mid-read or mid-parse.
+    boolean fetchAlerts(String urlString, AlertJsonReader.Handler handler, Call call) throws IOException {
+        call.checkCancelled();
+        Diagnostics.Fetch trace = Diagnostics.startFetch(urlString);
+        try {
+            return exchange(urlString, trace.timeDelivery(alert -> {
+                call.checkCancelled();
+                handler.onAlert(alert);
+            }), call, trace);
+        } catch (IOException e) {
+            // Disconnecting under a blocked read surfaces as a socket error
+            call.checkCancelled();
+            throw e;
+        } finally {
+            trace.end();
+        }
+    }
+
+    private boolean exchange(String urlString, AlertJsonReader.Handler handler, Call call, Diagnostics.Fetch trace)
+            throws IOException {
+        HttpCache.Entry cached = cache.get(urlString);
+        if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+            trace.outcome("fresh");
+            replay(cached, handler);
+            return true;
+        }
+        int[] delivered = {0};
+        AlertJsonReader.Handler counting = alert -> {
+            delivered[0]++;
+            handler.onAlert(alert);
+        };
+        try {
+            return guard.run(call, () -> attempt(urlString, cached, counting, call, trace), () -> delivered[0]);
+        } catch (AlertJsonReader.MalformedJsonException e) {
+            throw e;
+        } catch (IOException e) {
+            if (cached == null || delivered[0] > 0) {
+                throw e;
+            }
+            // Stale-if-error: the last good copy beats an error while the upstream is down
+            trace.outcome("stale");
+            guard.servedStale();
+            replay(cached, handler);
+            return true;
+        }
+    }
+
+    private boolean attempt(String urlString, HttpCache.Entry cached, AlertJsonReader.Handler handler, Call call,
+                            Diagnostics.Fetch trace) throws IOException {
+        HttpURLConnection connection = null;
+        boolean reusable = false;
+        try {
+            URL url = new URL(urlString);
+            connection = (HttpURLConnection) url.openConnection();
+            call.connection = connection;
+            call.checkCancelled();
+            connection.setRequestMethod("GET");
+            connection.setRequestProperty("Accept", "application/json");
+            connection.setRequestProperty("Accept-Encoding", ACCEPT_ENCODING);
+            connection.setConnectTimeout(10000);
+            connection.setReadTimeout(10000);
+            if (cached != null) {
+                if (cached.etag != null) {
+                    connection.setRequestProperty("If-None-Match", cached.etag);
+                }
+                if (cached.lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+                }
+            }
+
+            int responseCode = connection.getResponseCode();
+            trace.connected();
+            trace.outcome(responseCode == HttpURLConnection.HTTP_OK || responseCode == HttpURLConnection.HTTP_NOT_MODIFIED
+                ? String.valueOf(responseCode) : "HTTP " + responseCode);
+            long now = System.currentTimeMillis();
+            String cacheControl = connection.getHeaderField("Cache-Control");
+            long expiresAt = HttpCache.expiresAt(cacheControl, connection.getHeaderField("Age"), now);
+
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                reusable = true;
+                cache.revalidated(cached, expiresAt);
+                replay(cached, handler);
+                return true;
+            }
+            if (UpstreamGuard.isRetryable(responseCode)) {
+                throw new UpstreamGuard.UpstreamException(responseCode,
+                    UpstreamGuard.retryAfterMillis(connection.getHeaderField("Retry-After"), now),
+                    "HTTP " + responseCode + " from " + connection.getURL().getHost());
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                return false;
+            }
+
+            String etag = connection.getHeaderField("ETag");
+            String lastModified = connection.getHeaderField("Last-Modified");
+            boolean storable = HttpCache.isStorable(cacheControl)
+                && (etag != null || lastModified != null || expiresAt > now);
+            String encoding = contentCoding(connection.getContentEncoding());
+            if (encoding != null) {
+                trace.outcome(responseCode + " " + encoding);
+            }
+            // Bytes are counted off the socket, before decoding, so the metrics show the wire size
+            InputStream wire = trace.timeReads(connection.getInputStream());
+            try (InputStream inputStream = encoding == null ? wire : trace.countDecoded(decode(wire, encoding))) {
+                if (!storable) {
+                    new AlertJsonReader(inputStream).parse(handler);
+                } else {
+                    parseAndStore(urlString, inputStream, handler, etag, lastModified, expiresAt);
+                }
+            }
+            reusable = true;
+            return true;
+        } finally {
+            // Closing a fully handled response returns its socket to the keep-alive pool;
+            // only failed exchanges are torn down
+            if (connection != null && !reusable) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    // The Content-Encoding of a response, or null for an identity body
+    static String contentCoding(String contentEncoding) {
+        if (contentEncoding == null) {
+            return null;
+        }
+        String coding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        return coding.isEmpty() || coding.equals("identity") ? null : coding;
+    }
+
+    // Streams the decoded body of a response sent with the given Content-Encoding
+    static InputStream decode(InputStream body, String coding) throws IOException {
+        switch (coding) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(body, DECODE_BUFFER);
+            case "deflate":
+                return inflate(body);
+            default:
+                throw new IOException("Unsupported Content-Encoding: " + coding);
+        }
+    }
+
+    // "deflate" means a zlib stream, but some servers send raw deflate data; the first two
+    // bytes tell them apart, since a zlib header is a multiple of 31 with method 8
+    private static InputStream inflate(InputStream body) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(body, DECODE_BUFFER);
+        in.mark(2);
+        int cmf = in.read();
+        int flg = in.read();
+        in.reset();
+        boolean zlib = cmf >= 0 && flg >= 0 && (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+        Inflater inflater = new Inflater(!zlib);
+        return new InflaterInputStream(in, inflater, DECODE_BUFFER) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    try {
+                        super.close();
+                    } finally {
+                        // Only the default Inflater is released by the stream itself
+                        inflater.end();
+                    }
+                }
+            }
+        };
+    }
+
+    // Downloads one page of a paged feed and returns its decoded body. Pages are addressed by
+    // one-shot cursors, so they bypass the cache; any status but 200 is an IOException.
+    byte[] fetchPage(String urlString, Call call) throws IOException {
+        call.checkCancelled();
+        Diagnostics.Fetch trace = Diagnostics.startFetch(urlString);
+        try {
+            // Nothing is delivered until the page is whole, so every failure can be retried
+            return guard.run(call, () -> pageAttempt(urlString, call, trace), () -> 0);
+        } finally {
+            trace.end();
+        }
+    }
+
+    private byte[] pageAttempt(String urlString, Call call, Diagnostics.Fetch trace) throws IOException {
+        HttpURLConnection connection = null;
+        boolean reusable = false;
+        try {
+            connection = (HttpURLConnection) new URL(urlString).openConnection();
+            call.connection = connection;
+            call.checkCancelled();
+            connection.setRequestMethod("GET");
+            connection.setRequestProperty("Accept", "application/json");
+            connection.setRequestProperty("Accept-Encoding", ACCEPT_ENCODING);
+            connection.setConnectTimeout(10000);
+            connection.setReadTimeout(10000);
+            int responseCode = connection.getResponseCode();
+            trace.connected();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                trace.outcome("HTTP " + responseCode);
+                throw new UpstreamGuard.UpstreamException(responseCode, UpstreamGuard.retryAfterMillis(
+                    connection.getHeaderField("Retry-After"), System.currentTimeMillis()),
+                    "HTTP " + responseCode + " for " + urlString);
+            }
+            String encoding = contentCoding(connection.getContentEncoding());
+            trace.outcome(encoding == null ? "page" : "page " + encoding);
+            int length = connection.getContentLength();
+            ByteArrayOutputStream body = new ByteArrayOutputStream(
+                encoding == null && length > 0 ? length : DECODE_BUFFER);
+            InputStream wire = trace.timeReads(connection.getInputStream());
+            try (InputStream in = encoding == null ? wire : trace.countDecoded(decode(wire, encoding))) {
+                byte[] buffer = new byte[DECODE_BUFFER];
+                int n;
+                while ((n = in.read(buffer)) >= 0) {
+                    body.write(buffer, 0, n);
+                }
+            }
+            reusable = true;
+            return body.toByteArray();
+        } finally {
+            if (connection != null && !reusable) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    // Parses the live body while copying it to the cache; the entry is only committed once
+    // the whole document has parsed, so a broken download never replaces a good entry
+    private void parseAndStore(String url, InputStream body, AlertJsonReader.Handler handler,
+                               String etag, String lastModified, long expiresAt) throws IOException {
+        File download;
+        try {
+            download = cache.newTempFile();
+        } catch (IOException e) {
+            // Cache unavailable: still serve the live response
+            new AlertJsonReader(body).parse(handler);
+            return;
+        }
+        List<Alert> parsed = new ArrayList<>();
+        boolean committed = false;
+        try {
+            try (OutputStream copy = new FileOutputStream(download)) {
+                InputStream tee = new FilterInputStream(body) {
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int n = super.read(b, off, len);
+                        if (n > 0) {
+                            copy.write(b, off, n);
+                        }
+                        return n;
+                    }
+                };
+                new AlertJsonReader(tee).parse(alert -> {
+                    parsed.add(alert);
+                    handler.onAlert(alert);
+                });
+            }
+            try {
+                HttpCache.Entry entry = cache.put(url, download, etag, lastModified, expiresAt);
+                entry.setParsedAlerts(parsed);
+            } catch (IOException e) {
+                // The alerts were already delivered; only the cached copy is lost
+            }
+            committed = true;
+        } finally {
+            if (!committed) {
+                download.delete();
+            }
+        }
+    }
+
+    private void replay(HttpCache.Entry entry, AlertJsonReader.Handler handler) throws IOException {
+        List<Alert> parsed = entry.parsedAlerts();
+        if (parsed == null) {
+            // Parsed copy was never loaded this session or was reclaimed: re-read the stored body
+            List<Alert> reparsed = new ArrayList<>();
+            try (InputStream in = entry.openBody()) {
+                new AlertJsonReader(in).parse(reparsed::add);
+            }
+            entry.setParsedAlerts(reparsed);
+            parsed = reparsed;
+        }
+        for (Alert alert : parsed) {
+            handler.onAlert(alert);
+        }
+    }
+}
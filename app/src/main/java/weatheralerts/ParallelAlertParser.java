@@ -0,0 +1,163 @@
+package weatheralerts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+// Parses a whole payload held in memory on several cores, as fork/join tasks over the shared
+// bytes. Stretches of the document are first scanned in parallel for quotes and brackets only;
+// joining the stretches in order then tells where each feature starts and ends, without
+// anything being decoded or copied. Contiguous runs of features are then decoded in parallel,
+// each by its own reader. The handler still sees every alert on the calling thread and in
+// document order: the runs are joined one after another and delivered as each completes, so
+// the first alerts go out while later runs are still being decoded. Payloads below the
+// threshold, or with a single worker, are parsed sequentially as before.
+final class ParallelAlertParser {
+
+    // A state feed of a few dozen alerts is done before the tasks would be scheduled
+    static final int MIN_PARALLEL_BYTES = 256 * 1024;
+    // Features per task at least, so each one amortizes its hand-off
+    static final int MIN_RUN_FEATURES = 32;
+    // Bytes per scan task at least
+    private static final int MIN_STRETCH_BYTES = 64 * 1024;
+    // Bracket offsets are packed into ints with two flag bits
+    private static final int MAX_PARALLEL_BYTES = 1 << 29;
+    // Runs per worker, so a worker held up by long descriptions does not stall the rest
+    private static final int RUNS_PER_WORKER = 4;
+
+    static final ParallelAlertParser SHARED = new ParallelAlertParser(newPool(Integer.getInteger(
+        "weatheralerts.parseThreads", Runtime.getRuntime().availableProcessors())), MIN_PARALLEL_BYTES);
+
+    private final ForkJoinPool pool;
+    private final int minBytes;
+
+    // A null pool parses everything sequentially
+    ParallelAlertParser(ForkJoinPool pool, int minBytes) {
+        this.pool = pool;
+        this.minBytes = minBytes;
+    }
+
+    // Parse workers are daemons named after the pool; none is started until the first large payload
+    static ForkJoinPool newPool(int parallelism) {
+        if (parallelism < 2) {
+            return null;
+        }
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName("alerts-parse-" + worker.getPoolIndex());
+            return worker;
+        }, null, false);
+    }
+
+    int parallelism() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    // Same contract as AlertJsonReader.parse: alerts before a malformed or truncated spot are
+    // delivered before the exception, and an exception from the handler stops the parse
+    void parse(byte[] data, AlertJsonReader.Handler handler) throws IOException {
+        if (pool == null || data.length < minBytes || data.length > MAX_PARALLEL_BYTES) {
+            new AlertJsonReader(data).parse(handler);
+            return;
+        }
+        int[] bounds;
+        try {
+            bounds = featureBounds(data);
+        } catch (AlertJsonReader.MalformedJsonException e) {
+            bounds = null;
+        }
+        if (bounds == null) {
+            // No features, a broken document or elements between the features: let the
+            // sequential reader deliver what it can before failing at the same spot
+            new AlertJsonReader(data).parse(handler);
+            return;
+        }
+        int features = bounds.length / 2;
+        int runCount = Math.min(features / MIN_RUN_FEATURES, pool.getParallelism() * RUNS_PER_WORKER);
+        if (runCount < 2) {
+            new AlertJsonReader(data).parseFeatures(bounds, 0, features, handler);
+            return;
+        }
+        List<Run> runs = new ArrayList<>(runCount);
+        for (int i = 0; i < runCount; i++) {
+            Run run = new Run(data, bounds, (int) ((long) features * i / runCount),
+                (int) ((long) features * (i + 1) / runCount));
+            runs.add(run);
+            pool.execute(run);
+        }
+        int delivered = 0;
+        try {
+            for (Run run : runs) {
+                run.join();
+                for (Alert alert : run.alerts) {
+                    handler.onAlert(alert);
+                }
+                delivered++;
+                if (run.failure != null) {
+                    throw run.failure;
+                }
+            }
+        } finally {
+            // Runs not yet started are dropped; running ones finish their few features
+            for (int i = delivered; i < runCount; i++) {
+                runs.get(i).cancel(false);
+            }
+        }
+    }
+
+    // Bounds of the features as pairs of offsets, or null if the document has no features array
+    // or the bounds miss something between the features
+    private int[] featureBounds(byte[] data) throws IOException {
+        int start = AlertJsonReader.featuresStart(data);
+        if (start < 0) {
+            return null;
+        }
+        int stretchCount = Math.max(1, Math.min(pool.getParallelism() * RUNS_PER_WORKER,
+            (data.length - start) / MIN_STRETCH_BYTES));
+        List<ForkJoinTask<AlertJsonReader.Structure>> scans = new ArrayList<>(stretchCount);
+        for (int i = 0; i < stretchCount; i++) {
+            int from = start + (int) ((long) (data.length - start) * i / stretchCount);
+            int to = start + (int) ((long) (data.length - start) * (i + 1) / stretchCount);
+            scans.add(pool.submit(() -> AlertJsonReader.scanStructure(data, from, to)));
+        }
+        AlertJsonReader.Structure[] stretches = new AlertJsonReader.Structure[stretchCount];
+        for (int i = 0; i < stretchCount; i++) {
+            stretches[i] = scans.get(i).join();
+        }
+        int[] bounds = AlertJsonReader.featureBounds(stretches);
+        return AlertJsonReader.separated(data, start, bounds) ? bounds : null;
+    }
+
+    // Decodes features [from, to) into a list, or up to the first malformed one
+    private static final class Run extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] data;
+        private final int[] bounds;
+        private final int from;
+        private final int to;
+        final List<Alert> alerts;
+        IOException failure;
+
+        Run(byte[] data, int[] bounds, int from, int to) {
+            this.data = data;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.alerts = new ArrayList<>(to - from);
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                new AlertJsonReader(data).parseFeatures(bounds, from, to, alerts::add);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package weatheralerts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs every alert fetch with at most MAX_CONCURRENT_FETCHES at once. A caller asking for a URL
+// that is already being fetched joins that exchange instead of opening another (single-flight):
+// it is replayed the alerts delivered so far and then receives the rest as they stream in. The
+// flight's lock only guards its lists; handlers run outside it, so a subscriber that leaves or
+// joins never waits behind another's per-alert work. An exchange that
+// nobody is waiting for any more is aborted mid-read, and queries carry increasing generation
+// numbers so results of a superseded query can be recognised and dropped.
+final class RequestCoordinator {
+
+    static final int MAX_CONCURRENT_FETCHES = 8;
+
+    // The subscriptions made for one query; cancelling the query releases all of them
+    static final class Query {
+        final int generation;
+        private final List<Subscription> subscriptions = new ArrayList<>();
+        private boolean cancelled;
+
+        private Query(int generation) {
+            this.generation = generation;
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        void cancel() {
+            List<Subscription> released;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                released = new ArrayList<>(subscriptions);
+                subscriptions.clear();
+            }
+            for (Subscription subscription : released) {
+                subscription.cancel();
+            }
+        }
+
+        private synchronized boolean register(Subscription subscription) {
+            if (!cancelled) {
+                subscriptions.add(subscription);
+            }
+            return !cancelled;
+        }
+    }
+
+    // One caller's interest in a URL. The completion holds whether the server returned alerts,
+    // or the IOException of the exchange; it is cancelled when the subscription is.
+    static final class Subscription {
+        private final AlertJsonReader.Handler handler;
+        private final CompletableFuture<Boolean> completion = new CompletableFuture<>();
+        private Flight flight;
+        // Index of the next of the flight's alerts to hand over; guarded by this
+        private int next;
+
+        private Subscription(AlertJsonReader.Handler handler) {
+            this.handler = handler;
+        }
+
+        CompletableFuture<Boolean> completion() {
+            return completion;
+        }
+
+        void cancel() {
+            if (completion.cancel(false)) {
+                flight.leave(this);
+            }
+        }
+
+        // Hands over every alert the flight has that this has not had yet, in order. Called from
+        // the fetch thread and from a joining one; the lock keeps them to one alert at a time.
+        private synchronized void catchUp() {
+            Alert alert;
+            while (!completion.isDone() && (alert = flight.delivered(next)) != null) {
+                next++;
+                handler.onAlert(alert);
+            }
+        }
+
+        // Once the flight has ended: the last alerts, then the outcome
+        private synchronized void finish(Boolean retrieved, Throwable failure) {
+            catchUp();
+            if (failure == null) {
+                completion.complete(retrieved);
+            } else {
+                completion.completeExceptionally(failure);
+            }
+        }
+    }
+
+    // One HTTP exchange shared by every subscription to its URL while it runs
+    private final class Flight implements Runnable {
+        final String url;
+        // Read page by page through the FeedPager instead of in one cached exchange
+        final boolean paged;
+        final NwsClient.Call call = new NwsClient.Call();
+        private final List<Alert> delivered = new ArrayList<>();
+        // Iterated on every alert without the lock, and changed only as subscribers come and go
+        private final List<Subscription> subscribers = new CopyOnWriteArrayList<>();
+        private boolean finished;
+
+        Flight(String url, boolean paged) {
+            this.url = url;
+            this.paged = paged;
+        }
+
+        @Override
+        public void run() {
+            Boolean retrieved = null;
+            Throwable failure = null;
+            try {
+                if (paged) {
+                    pager.fetch(url, this::deliver, call);
+                    retrieved = true;
+                } else {
+                    retrieved = client.fetchAlerts(url, this::deliver, call);
+                }
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            }
+            synchronized (flights) {
+                flights.remove(url, this);
+            }
+            List<Subscription> waiting;
+            synchronized (this) {
+                finished = true;
+                waiting = new ArrayList<>(subscribers);
+                subscribers.clear();
+            }
+            for (Subscription subscription : waiting) {
+                subscription.finish(retrieved, failure);
+            }
+        }
+
+        private void deliver(Alert alert) {
+            synchronized (this) {
+                delivered.add(alert);
+            }
+            for (Subscription subscription : subscribers) {
+                subscription.catchUp();
+            }
+        }
+
+        // The alert delivered at index, or null if there is none yet
+        synchronized Alert delivered(int index) {
+            return index < delivered.size() ? delivered.get(index) : null;
+        }
+
+        // Adds a subscriber, to be caught up on what was already delivered; false once finished
+        synchronized boolean join(Subscription subscription) {
+            if (finished) {
+                return false;
+            }
+            subscription.flight = this;
+            subscribers.add(subscription);
+            return true;
+        }
+
+        void leave(Subscription subscription) {
+            boolean abandoned;
+            synchronized (this) {
+                subscribers.remove(subscription);
+                abandoned = subscribers.isEmpty() && !finished;
+            }
+            if (abandoned) {
+                synchronized (flights) {
+                    flights.remove(url, this);
+                }
+                call.cancel();
+            }
+        }
+    }
+
+    private final NwsClient client;
+    private final FeedPager pager;
+    private final Map<String, Flight> flights = new HashMap<>();
+    private final AtomicInteger generations = new AtomicInteger();
+    private final Executor fetchExecutor = fetchExecutor();
+    // Query bodies block until their fetches finish, so they get their own thread
+    private final ExecutorService queryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "alerts-query");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    RequestCoordinator(NwsClient client) {
+        this.client = client;
+        this.pager = new FeedPager(client);
+    }
+
+    Query newQuery() {
+        return new Query(generations.incrementAndGet());
+    }
+
+    // Runs a query body off the EDT; bodies run one at a time, so a superseded query that was
+    // cancelled unwinds before the next one starts
+    void execute(Runnable queryBody) {
+        queryExecutor.execute(queryBody);
+    }
+
+    // Delivers the alerts at url to handler, sharing an exchange already running for url.
+    // Handlers are called one alert at a time and in order, from the fetch thread or, for the
+    // replayed part, from this one.
+    Subscription subscribe(Query query, String url, AlertJsonReader.Handler handler) {
+        return subscribe(query, url, false, handler);
+    }
+
+    // Same for a paged feed starting at url, whose pages are all delivered in order
+    Subscription subscribePaged(Query query, String url, AlertJsonReader.Handler handler) {
+        return subscribe(query, url, true, handler);
+    }
+
+    private Subscription subscribe(Query query, String url, boolean paged, AlertJsonReader.Handler handler) {
+        Subscription subscription = new Subscription(handler);
+        Flight started = null;
+        synchronized (flights) {
+            Flight flight = flights.get(url);
+            if (flight == null || !flight.join(subscription)) {
+                started = new Flight(url, paged);
+                started.join(subscription);
+                flights.put(url, started);
+            }
+        }
+        if (started != null) {
+            fetchExecutor.execute(started);
+        } else {
+            subscription.catchUp();
+        }
+        if (!query.register(subscription)) {
+            subscription.cancel();
+        }
+        return subscription;
+    }
+
+    // A virtual thread per exchange where the runtime has them (JDK 21+), with a semaphore
+    // letting MAX_CONCURRENT_FETCHES run at once: virtual threads are not pooled, and waiting
+    // for a permit costs one no carrier. A fixed pool of daemon platform threads otherwise.
+    private static Executor fetchExecutor() {
+        ThreadFactory virtual = virtualThreadFactory();
+        if (virtual == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return Executors.newFixedThreadPool(MAX_CONCURRENT_FETCHES, runnable -> {
+                Thread thread = new Thread(runnable, "alerts-fetch-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        Semaphore permits = new Semaphore(MAX_CONCURRENT_FETCHES, true);
+        return task -> virtual.newThread(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        }).start();
+    }
+
+    // Thread.ofVirtual().name("alerts-fetch-", 0).factory(), or null before JDK 21
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "alerts-fetch-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package weatheralerts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+// Grid index over alert areas for "which alerts cover this point" lookups. The globe is cut
+// into half-degree cells and each geometry is listed in every cell its bounding box touches,
+// so a point lookup reads one cell and tests only the few polygons listed there. Cell rows
+// are allocated on first use and hold the ids of an AlertIndex's documents; a geometry whose
+// box spans more than MAX_CELLS cells (a large fire weather or marine area) is kept in a short
+// list checked on every lookup instead. An area that wraps past the 180th meridian is listed
+// in the cells of its box counted on eastward round the globe, so Alaska's western marine
+// zones take a few columns either side of it rather than every column in between. Updated
+// incrementally as alerts come and go.
+final class SpatialIndex {
+
+    private static final double CELL_DEGREES = 0.5;
+    private static final int COLUMNS = (int) (360 / CELL_DEGREES);
+    private static final int ROWS = (int) (180 / CELL_DEGREES);
+    private static final int MAX_CELLS = 1024;
+
+    // Where to look: one or more points, or a box between two corners. A document matches
+    // when its area contains any of the points or shares any point with the box.
+    static final class Region {
+        // lat0, lon0, lat1, lon1, ...
+        private final double[] points;
+        // south, west, north, east, or null for a point region
+        private final double[] box;
+
+        private Region(double[] points, double[] box) {
+            this.points = points;
+            this.box = box;
+        }
+
+        static Region point(double lat, double lon) {
+            return points(new double[] {lat, lon});
+        }
+
+        static Region points(double[] latLons) {
+            if (latLons.length == 0 || latLons.length % 2 != 0) {
+                throw new IllegalArgumentException("Expected latitude, longitude pairs");
+            }
+            for (int i = 0; i < latLons.length; i += 2) {
+                checkPoint(latLons[i], latLons[i + 1]);
+            }
+            return new Region(latLons.clone(), null);
+        }
+
+        static Region box(double lat0, double lon0, double lat1, double lon1) {
+            checkPoint(lat0, lon0);
+            checkPoint(lat1, lon1);
+            return new Region(null, new double[] {
+                Math.min(lat0, lat1), Math.min(lon0, lon1), Math.max(lat0, lat1), Math.max(lon0, lon1)
+            });
+        }
+
+        // "lat, lon", several of them separated by ";", or two corners "lat, lon to lat, lon";
+        // null for blank text
+        static Region parse(String text) {
+            String trimmed = text.trim();
+            if (trimmed.isEmpty()) {
+                return null;
+            }
+            int to = trimmed.toLowerCase(Locale.ROOT).indexOf(" to ");
+            if (to >= 0) {
+                double[] first = numbers(trimmed.substring(0, to));
+                double[] second = numbers(trimmed.substring(to + 4));
+                if (first.length != 2 || second.length != 2) {
+                    throw new IllegalArgumentException("Expected two corners: lat, lon to lat, lon");
+                }
+                return box(first[0], first[1], second[0], second[1]);
+            }
+            return points(numbers(trimmed.replace(';', ',')));
+        }
+
+        boolean matches(AlertGeometry geometry) {
+            if (geometry == null) {
+                return false;
+            }
+            if (box != null) {
+                return geometry.intersects(box[0], box[1], box[2], box[3]);
+            }
+            for (int i = 0; i < points.length; i += 2) {
+                if (geometry.contains(points[i], points[i + 1])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static double[] numbers(String text) {
+            String[] parts = text.split(",");
+            double[] values = new double[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                try {
+                    values[i] = Double.parseDouble(parts[i].trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Not a coordinate: " + parts[i].trim());
+                }
+            }
+            return values;
+        }
+
+        private static void checkPoint(double lat, double lon) {
+            if (!(lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180)) {
+                throw new IllegalArgumentException("Out of range: " + lat + ", " + lon);
+            }
+        }
+    }
+
+    // Documents per cell: cells[row][column] is {count, id, id, ...} or null
+    private final int[][][] cells = new int[ROWS][][];
+    // Indexed by document id
+    private AlertGeometry[] geometries = new AlertGeometry[64];
+    private final List<Integer> oversized = new ArrayList<>();
+    private int size;
+
+    void put(int id, AlertGeometry geometry) {
+        remove(id);
+        if (id >= geometries.length) {
+            geometries = Arrays.copyOf(geometries, Math.max(id + 1, geometries.length * 2));
+        }
+        geometries[id] = geometry;
+        size++;
+        if (cellCount(geometry) > MAX_CELLS) {
+            oversized.add(id);
+            return;
+        }
+        for (int row = row(geometry.minLat); row <= row(geometry.maxLat); row++) {
+            if (cells[row] == null) {
+                cells[row] = new int[COLUMNS][];
+            }
+            for (int column = firstColumn(geometry); column <= lastColumn(geometry); column++) {
+                cells[row][column % COLUMNS] = add(cells[row][column % COLUMNS], id);
+            }
+        }
+    }
+
+    void remove(int id) {
+        AlertGeometry geometry = id < geometries.length ? geometries[id] : null;
+        if (geometry == null) {
+            return;
+        }
+        geometries[id] = null;
+        size--;
+        if (cellCount(geometry) > MAX_CELLS) {
+            oversized.remove(Integer.valueOf(id));
+            return;
+        }
+        for (int row = row(geometry.minLat); row <= row(geometry.maxLat); row++) {
+            for (int column = firstColumn(geometry); column <= lastColumn(geometry); column++) {
+                delete(cells[row][column % COLUMNS], id);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Sets the ids of every document matching the region
+    void find(Region region, BitSet into) {
+        if (region.box != null) {
+            intersecting(region.box[0], region.box[1], region.box[2], region.box[3], into);
+        } else {
+            for (int i = 0; i < region.points.length; i += 2) {
+                containing(region.points[i], region.points[i + 1], into);
+            }
+        }
+    }
+
+    // Sets the ids of the documents whose area contains the point
+    void containing(double lat, double lon, BitSet into) {
+        int[][] row = cells[row(lat)];
+        int[] cell = row != null ? row[column(lon)] : null;
+        if (cell != null) {
+            for (int i = 1; i <= cell[0]; i++) {
+                if (geometries[cell[i]].contains(lat, lon)) {
+                    into.set(cell[i]);
+                }
+            }
+        }
+        for (int id : oversized) {
+            if (geometries[id].contains(lat, lon)) {
+                into.set(id);
+            }
+        }
+    }
+
+    // Sets the ids of the documents whose area shares a point with the box
+    void intersecting(double south, double west, double north, double east, BitSet into) {
+        BitSet tested = new BitSet();
+        for (int r = row(south); r <= row(north); r++) {
+            int[][] row = cells[r];
+            if (row == null) {
+                continue;
+            }
+            for (int column = column(west); column <= column(east); column++) {
+                int[] cell = row[column];
+                for (int i = 1; cell != null && i <= cell[0]; i++) {
+                    int id = cell[i];
+                    if (!tested.get(id)) {
+                        tested.set(id);
+                        if (geometries[id].intersects(south, west, north, east)) {
+                            into.set(id);
+                        }
+                    }
+                }
+            }
+        }
+        for (int id : oversized) {
+            if (geometries[id].intersects(south, west, north, east)) {
+                into.set(id);
+            }
+        }
+    }
+
+    private static long cellCount(AlertGeometry geometry) {
+        return (long) (row(geometry.maxLat) - row(geometry.minLat) + 1)
+            * (lastColumn(geometry) - firstColumn(geometry) + 1);
+    }
+
+    // Columns of the geometry's box counted eastward from its west side, taken modulo COLUMNS:
+    // a wrapping box runs past the last column and on from the first, and no box lists a
+    // document in the same cell twice
+    private static int firstColumn(AlertGeometry geometry) {
+        return column(geometry.minLon);
+    }
+
+    private static int lastColumn(AlertGeometry geometry) {
+        int east = (int) Math.floor((geometry.maxLon + 180) / CELL_DEGREES);
+        return Math.max(firstColumn(geometry), Math.min(firstColumn(geometry) + COLUMNS - 1, east));
+    }
+
+    private static int row(double lat) {
+        return Math.max(0, Math.min(ROWS - 1, (int) Math.floor((lat + 90) / CELL_DEGREES)));
+    }
+
+    private static int column(double lon) {
+        return Math.max(0, Math.min(COLUMNS - 1, (int) Math.floor((lon + 180) / CELL_DEGREES)));
+    }
+
+    private static int[] add(int[] cell, int id) {
+        if (cell == null) {
+            cell = new int[4];
+        } else if (cell[0] + 1 == cell.length) {
+            cell = Arrays.copyOf(cell, cell.length * 2);
+        }
+        cell[++cell[0]] = id;
+        return cell;
+    }
+
+    private static void delete(int[] cell, int id) {
+        for (int i = 1; i <= cell[0]; i++) {
+            if (cell[i] == id) {
+                // Order within a cell does not matter
+                cell[i] = cell[cell[0]--];
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package weatheralerts;
+
+// Latency distribution of one pipeline stage (weatheralerts:type=Stage,name=...), measured
+// while diagnostics are on. Percentiles are bucket midpoints, within ~6% of the true value.
+public interface StageStatsMXBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
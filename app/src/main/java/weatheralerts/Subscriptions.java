@@ -0,0 +1,588 @@
+package weatheralerts;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+// Standing rules an operator wants to be told about, one per line, such as
+//   severity >= Severe AND event contains Tornado AND area in {Dallas, Tarrant}
+// Each rule is compiled once into bit masks over the severity, urgency and certainty enums, a
+// test on the event name and tests on the area names. The event test runs once per EventType,
+// when an alert of that type is first seen; from then on the rules that can match an event
+// type at a severity are one array lookup away, so an alert only meets the rules naming its
+// event and severity, and the area of a candidate is split once per alert however many rules
+// look at it. Only alerts new or changed since the last poll are offered, and an alert is
+// reported again only when a different rule matches it. Areas may be written with their
+// state, as NWS writes them: area in {Dallas, TX, Tarrant, TX} names two counties.
+final class Subscriptions {
+
+    private static final String[] FIELDS = {"severity", "urgency", "certainty", "event", "area"};
+    private static final int ALL = ~0;
+
+    // One compiled line
+    static final class Rule {
+        // As written, to show when it matches
+        final String text;
+        final int index;
+        // Bit per ordinal of the Severity, Urgency and Certainty the rule accepts
+        final int severities;
+        final int urgencies;
+        final int certainties;
+        // Lower-case event name; null accepts any event
+        final Predicate<String> event;
+        // Every one must accept the alert's areas
+        final AreaTest[] areas;
+
+        Rule(String text, int index, int severities, int urgencies, int certainties, Predicate<String> event,
+                AreaTest[] areas) {
+            this.text = text;
+            this.index = index;
+            this.severities = severities;
+            this.urgencies = urgencies;
+            this.certainties = certainties;
+            this.event = event;
+            this.areas = areas;
+        }
+    }
+
+    static final class Match {
+        final Rule rule;
+        final Alert alert;
+
+        Match(Rule rule, Alert alert) {
+            this.rule = rule;
+            this.alert = alert;
+        }
+    }
+
+    // "area in {...}" or "area = ..." names whole areas; "area contains" any part of the text
+    private static final class AreaTest {
+        final Set<String> names;
+        final String contains;
+
+        AreaTest(Set<String> names, String contains) {
+            this.names = names;
+            this.contains = contains;
+        }
+
+        boolean matches(Areas areas) {
+            if (contains != null) {
+                return areas.text().contains(contains);
+            }
+            for (String name : areas.names()) {
+                if (names.contains(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // An alert's area description, split and lower-cased on first use
+    private static final class Areas {
+        private final String desc;
+        private String text;
+        private String[] names;
+
+        Areas(String desc) {
+            this.desc = desc != null ? desc : "";
+        }
+
+        String text() {
+            if (text == null) {
+                text = desc.toLowerCase(Locale.ROOT);
+            }
+            return text;
+        }
+
+        String[] names() {
+            if (names == null) {
+                String[] parts = text().split(";");
+                names = new String[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    names[i] = areaName(parts[i]);
+                }
+            }
+            return names;
+        }
+    }
+
+    private final File file;
+    private List<Rule> rules;
+    // Rule indexes by event code and then severity ordinal, filled in as event types appear
+    private int[][][] byEvent = new int[0][][];
+    // Last rule reported for each alert id still active
+    private final Map<String, Rule> reported = new HashMap<>();
+
+    Subscriptions(File file) {
+        this.file = file;
+    }
+
+    // Rules in ~/.weatheralerts/subscriptions.txt unless weatheralerts.subscriptionsFile points elsewhere
+    static Subscriptions openDefault() {
+        String path = System.getProperty("weatheralerts.subscriptionsFile", System.getProperty("user.home")
+            + File.separator + ".weatheralerts" + File.separator + "subscriptions.txt");
+        return new Subscriptions(new File(path));
+    }
+
+    // The rules file as written, or an empty string if there is none
+    synchronized String text() {
+        try {
+            return file.isFile() ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8) : "";
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    synchronized int size() {
+        return rules().size();
+    }
+
+    // Compiles text and, only if every line compiles, saves it and puts its rules in force
+    synchronized List<Rule> update(String text) throws IOException {
+        List<Rule> compiled = compile(text);
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        setRules(compiled);
+        return compiled;
+    }
+
+    // Matches among the alerts of one poll: each new or changed alert that matches a rule other
+    // than the one it was last reported for. Expired alerts are forgotten.
+    synchronized List<Match> evaluate(AlertWatcher.Changes changes) {
+        List<Match> matches = new ArrayList<>();
+        offer(changes.added, matches);
+        offer(changes.updated, matches);
+        for (Alert alert : changes.expired) {
+            reported.remove(alert.id);
+        }
+        return matches;
+    }
+
+    // Same as evaluate, for the alerts of a query just loaded, which are all that is active:
+    // alerts reported before and missing from them are forgotten
+    synchronized List<Match> evaluate(List<Alert> alerts) {
+        List<Match> matches = new ArrayList<>();
+        offer(alerts, matches);
+        Set<String> active = new HashSet<>();
+        for (Alert alert : alerts) {
+            active.add(alert.id);
+        }
+        reported.keySet().retainAll(active);
+        return matches;
+    }
+
+    // First rule, in file order, that alert matches, or null
+    synchronized Rule match(Alert alert) {
+        List<Rule> all = rules();
+        if (all.isEmpty()) {
+            return null;
+        }
+        int[] candidates = candidates(alert.event)[alert.severity.ordinal()];
+        Areas areas = null;
+        for (int index : candidates) {
+            Rule rule = all.get(index);
+            if ((rule.urgencies & 1 << alert.urgency.ordinal()) == 0
+                    || (rule.certainties & 1 << alert.certainty.ordinal()) == 0) {
+                continue;
+            }
+            if (rule.areas.length > 0) {
+                if (areas == null) {
+                    areas = new Areas(alert.areaDesc);
+                }
+                if (!matchesAll(rule.areas, areas)) {
+                    continue;
+                }
+            }
+            return rule;
+        }
+        return null;
+    }
+
+    private void offer(List<Alert> alerts, List<Match> matches) {
+        for (Alert alert : alerts) {
+            if (alert.id == null) {
+                continue;
+            }
+            Rule rule = match(alert);
+            if (rule == null) {
+                reported.remove(alert.id);
+            } else if (reported.put(alert.id, rule) != rule) {
+                matches.add(new Match(rule, alert));
+            }
+        }
+    }
+
+    private List<Rule> rules() {
+        if (rules == null) {
+            // A rule that no longer compiles is left out until the file is fixed
+            List<Rule> loaded = new ArrayList<>();
+            for (String line : text().split("\n")) {
+                try {
+                    Rule rule = compileLine(line, loaded.size());
+                    if (rule != null) {
+                        loaded.add(rule);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Skipped
+                }
+            }
+            setRules(loaded);
+        }
+        return rules;
+    }
+
+    private void setRules(List<Rule> compiled) {
+        rules = compiled;
+        byEvent = new int[0][][];
+        // Reported alerts are reported again if they match the new rules
+        reported.clear();
+    }
+
+    // Rules whose event test and severity admit the type, by severity ordinal
+    private int[][] candidates(EventType type) {
+        if (type.code >= byEvent.length) {
+            byEvent = Arrays.copyOf(byEvent, Math.max(type.code + 1, byEvent.length * 2));
+        }
+        int[][] bySeverity = byEvent[type.code];
+        if (bySeverity == null) {
+            String name = type.name.toLowerCase(Locale.ROOT);
+            List<List<Integer>> lists = new ArrayList<>();
+            for (int s = 0; s < Alert.Severity.values().length; s++) {
+                lists.add(new ArrayList<>());
+            }
+            for (Rule rule : rules) {
+                if (rule.event == null || rule.event.test(name)) {
+                    for (int s = 0; s < lists.size(); s++) {
+                        if ((rule.severities & 1 << s) != 0) {
+                            lists.get(s).add(rule.index);
+                        }
+                    }
+                }
+            }
+            bySeverity = new int[lists.size()][];
+            for (int s = 0; s < lists.size(); s++) {
+                bySeverity[s] = lists.get(s).stream().mapToInt(Integer::intValue).toArray();
+            }
+            byEvent[type.code] = bySeverity;
+        }
+        return bySeverity;
+    }
+
+    private static boolean matchesAll(AreaTest[] tests, Areas areas) {
+        for (AreaTest test : tests) {
+            if (!test.matches(areas)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // One rule per line; blank lines and lines starting with # are ignored. The message of the
+    // exception names the line of the first error.
+    static List<Rule> compile(String text) {
+        List<Rule> compiled = new ArrayList<>();
+        String[] lines = text.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            try {
+                Rule rule = compileLine(lines[i], compiled.size());
+                if (rule != null) {
+                    compiled.add(rule);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        return compiled;
+    }
+
+    // Null for a blank or comment line
+    private static Rule compileLine(String line, int index) {
+        String text = line.trim();
+        if (text.isEmpty() || text.startsWith("#")) {
+            return null;
+        }
+        List<String> tokens = tokenize(text);
+        int severities = ALL;
+        int urgencies = ALL;
+        int certainties = ALL;
+        Predicate<String> event = null;
+        List<AreaTest> areas = new ArrayList<>();
+        int at = 0;
+        while (true) {
+            if (at >= tokens.size()) {
+                throw new IllegalArgumentException("Expected one of " + String.join(", ", FIELDS));
+            }
+            String name = tokens.get(at++);
+            String field = name.toLowerCase(Locale.ROOT);
+            if (at >= tokens.size()) {
+                throw new IllegalArgumentException("Expected a comparison after " + field);
+            }
+            String op = tokens.get(at++).toLowerCase(Locale.ROOT);
+            List<String> values = new ArrayList<>();
+            at = readValues(tokens, at, values, op, field.equals("area"));
+            switch (field) {
+                case "severity":
+                    severities &= levels(op, values, Alert.Severity.values(), true);
+                    break;
+                case "urgency":
+                    urgencies &= levels(op, values, Alert.Urgency.values(), false);
+                    break;
+                case "certainty":
+                    certainties &= levels(op, values, Alert.Certainty.values(), false);
+                    break;
+                case "event":
+                    Predicate<String> test = textTest(op, values);
+                    event = event == null ? test : event.and(test);
+                    break;
+                case "area":
+                    areas.add(areaTest(op, values));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown field " + name + "; expected one of "
+                        + String.join(", ", FIELDS));
+            }
+            if (at == tokens.size()) {
+                break;
+            }
+            if (!tokens.get(at++).equalsIgnoreCase("and")) {
+                throw new IllegalArgumentException("Expected AND before " + tokens.get(at - 1));
+            }
+        }
+        return new Rule(text, index, severities, urgencies, certainties, event, areas.toArray(new AreaTest[0]));
+    }
+
+    // Reads one value, or a {list} after "in", into values and returns the next token index.
+    // A value is a quoted string or the words up to the next AND, comma or brace. For an area,
+    // a comma followed by a two-letter word that ends the value is kept with it, as the
+    // area's state: "Dallas, TX" is one area, not Dallas and an area named TX.
+    private static int readValues(List<String> tokens, int at, List<String> values, String op, boolean area) {
+        boolean list = op.equals("in");
+        if (list) {
+            if (at >= tokens.size() || !tokens.get(at).equals("{")) {
+                throw new IllegalArgumentException("Expected { after in");
+            }
+            at++;
+        }
+        while (true) {
+            StringBuilder value = new StringBuilder();
+            while (at < tokens.size()) {
+                String token = tokens.get(at);
+                if (area && token.equals(",") && value.length() > 0 && isStateSuffix(tokens, at + 1, list)) {
+                    value.append(", ").append(tokens.get(at + 1));
+                    at += 2;
+                    continue;
+                }
+                if (token.equals(",") || token.equals("{") || token.equals("}")
+                        || !list && token.equalsIgnoreCase("and")) {
+                    break;
+                }
+                value.append(value.length() > 0 ? " " : "").append(unquote(token));
+                at++;
+            }
+            if (value.length() == 0) {
+                throw new IllegalArgumentException("Expected a value after " + op);
+            }
+            values.add(value.toString());
+            if (!list) {
+                return at;
+            }
+            if (at >= tokens.size()) {
+                throw new IllegalArgumentException("Expected } to close the list");
+            }
+            String separator = tokens.get(at++);
+            if (separator.equals("}")) {
+                return at;
+            }
+            if (!separator.equals(",")) {
+                throw new IllegalArgumentException("Expected , or } in the list");
+            }
+        }
+    }
+
+    // Whether tokens[at] is a two-letter word that ends a value
+    private static boolean isStateSuffix(List<String> tokens, int at, boolean list) {
+        if (at >= tokens.size()) {
+            return false;
+        }
+        String word = tokens.get(at);
+        if (word.length() != 2 || !Character.isLetter(word.charAt(0)) || !Character.isLetter(word.charAt(1))) {
+            return false;
+        }
+        if (at + 1 == tokens.size()) {
+            return true;
+        }
+        String next = tokens.get(at + 1);
+        return list ? next.equals(",") || next.equals("}") : next.equalsIgnoreCase("and");
+    }
+
+    // Bit mask of the levels op selects. Ordered comparisons are by severity, from Minor up to
+    // Extreme, and never select Unknown.
+    private static <E extends Enum<E>> int levels(String op, List<String> values, E[] all, boolean ordered) {
+        int mask = 0;
+        for (String value : values) {
+            mask |= 1 << level(value, all).ordinal();
+        }
+        switch (op) {
+            case "=":
+            case "is":
+            case "in":
+                return mask;
+            case "!=":
+                return ~mask;
+            default:
+                break;
+        }
+        if (!ordered) {
+            throw new IllegalArgumentException("Use =, != or in with this field");
+        }
+        // Values run from Extreme (0) down to Minor, with Unknown last
+        int bound = level(values.get(0), all).ordinal();
+        int unknown = all.length - 1;
+        if (bound == unknown) {
+            throw new IllegalArgumentException("Unknown cannot be compared");
+        }
+        int selected = 0;
+        for (int ordinal = 0; ordinal < unknown; ordinal++) {
+            boolean in;
+            switch (op) {
+                case ">=":
+                    in = ordinal <= bound;
+                    break;
+                case ">":
+                    in = ordinal < bound;
+                    break;
+                case "<=":
+                    in = ordinal >= bound;
+                    break;
+                case "<":
+                    in = ordinal > bound;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown comparison " + op);
+            }
+            if (in) {
+                selected |= 1 << ordinal;
+            }
+        }
+        return selected;
+    }
+
+    private static <E extends Enum<E>> E level(String value, E[] all) {
+        for (E level : all) {
+            if (level.name().equalsIgnoreCase(value)) {
+                return level;
+            }
+        }
+        List<String> names = new ArrayList<>();
+        for (E level : all) {
+            names.add(level.name().charAt(0) + level.name().substring(1).toLowerCase(Locale.ROOT));
+        }
+        throw new IllegalArgumentException("Unknown level " + value + "; expected one of " + String.join(", ", names));
+    }
+
+    // On lower-case text
+    private static Predicate<String> textTest(String op, List<String> values) {
+        Set<String> lower = new HashSet<>();
+        for (String value : values) {
+            lower.add(value.toLowerCase(Locale.ROOT));
+        }
+        switch (op) {
+            case "contains": {
+                String part = lower.iterator().next();
+                return name -> name.contains(part);
+            }
+            case "=":
+            case "is":
+            case "in":
+                return lower::contains;
+            case "!=":
+                return name -> !lower.contains(name);
+            default:
+                throw new IllegalArgumentException("Use contains, =, != or in with event");
+        }
+    }
+
+    private static AreaTest areaTest(String op, List<String> values) {
+        switch (op) {
+            case "contains":
+                return new AreaTest(null, values.get(0).toLowerCase(Locale.ROOT));
+            case "=":
+            case "is":
+            case "in":
+                Set<String> names = new HashSet<>();
+                for (String value : values) {
+                    names.add(areaName(value));
+                }
+                return new AreaTest(names, null);
+            default:
+                throw new IllegalArgumentException("Use contains, = or in with area");
+        }
+    }
+
+    // "Dallas, TX" and " dallas" both name the area dallas
+    private static String areaName(String text) {
+        String name = text.trim().toLowerCase(Locale.ROOT);
+        int comma = name.lastIndexOf(',');
+        if (comma >= 0 && name.length() - comma - 1 <= 3 && name.substring(comma + 1).trim().length() == 2) {
+            name = name.substring(0, comma).trim();
+        }
+        return name;
+    }
+
+    // Words, quoted strings, braces, commas and comparison operators
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int end = text.indexOf('"', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed quote");
+                }
+                tokens.add(text.substring(i, end + 1));
+                i = end + 1;
+            } else if (c == '{' || c == '}' || c == ',') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if (c == '<' || c == '>' || c == '=' || c == '!') {
+                int end = i + 1 < text.length() && text.charAt(i + 1) == '=' ? i + 2 : i + 1;
+                String op = text.substring(i, end);
+                if (op.equals("!")) {
+                    throw new IllegalArgumentException("Expected != ");
+                }
+                tokens.add(op);
+                i = end;
+            } else {
+                int end = i;
+                while (end < text.length() && !Character.isWhitespace(text.charAt(end))
+                        && "\"{},<>=!".indexOf(text.charAt(end)) < 0) {
+                    end++;
+                }
+                tokens.add(text.substring(i, end));
+                i = end;
+            }
+        }
+        return tokens;
+    }
+
+    private static String unquote(String token) {
+        return token.length() >= 2 && token.charAt(0) == '"' ? token.substring(1, token.length() - 1) : token;
+    }
+}
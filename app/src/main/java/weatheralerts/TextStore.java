@@ -0,0 +1,290 @@
+package weatheralerts;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Content-addressed store for the alert texts NWS repeats verbatim. One product is issued as an
+// alert per zone, often across neighboring states, and every copy carries the same headline,
+// description and instruction; polls and history searches bring the same texts back again.
+// Each text is hashed as it is ingested and looked up, and one seen before comes back as the
+// instance already held, so all the alerts sharing it point at one compact copy: the exact
+// raw bytes for descriptions and instructions, a String (Latin-1 for most) for headlines.
+// The alerts holding a text are its references. Entries are held weakly, so once the last
+// alert holding a text has expired or been replaced the collector frees it, and the store
+// drops its entry on a later lookup. The table is split into stripes by hash, each with its
+// own lock, so parallel parse workers seldom wait on each other.
+final class TextStore implements TextStoreMXBean {
+
+    static final TextStore SHARED = new TextStore();
+
+    private static final int STRIPES = 16;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    // A held text: a LazyText owning its bytes, or a String
+    private static final class Entry extends WeakReference<Object> {
+        final int hash;
+        final int bytes;
+        Entry next;
+
+        Entry(Object text, int hash, int bytes, ReferenceQueue<Object> queue, Entry next) {
+            super(text, queue);
+            this.hash = hash;
+            this.bytes = bytes;
+            this.next = next;
+        }
+    }
+
+    // A chained hash table over the texts whose hash picks it, with its counters
+    private static final class Stripe {
+        private final ReferenceQueue<Object> released = new ReferenceQueue<>();
+        private Entry[] table = new Entry[INITIAL_CAPACITY];
+        int size;
+        long uniqueBytes;
+        long textsIngested;
+        long bytesIngested;
+        long textsShared;
+        long bytesShared;
+
+        synchronized LazyText text(byte[] raw, int offset, int length, int hash) {
+            expunge();
+            for (Entry entry = table[hash & (table.length - 1)]; entry != null; entry = entry.next) {
+                if (entry.hash == hash) {
+                    Object held = entry.get();
+                    if (held instanceof LazyText && ((LazyText) held).rawEquals(raw, offset, length)) {
+                        ingested(length, true);
+                        return (LazyText) held;
+                    }
+                }
+            }
+            LazyText text = new LazyText(Arrays.copyOfRange(raw, offset, offset + length + 1), 0, length);
+            add(text, hash, length);
+            ingested(length, false);
+            return text;
+        }
+
+        synchronized String text(String text, int hash) {
+            expunge();
+            for (Entry entry = table[hash & (table.length - 1)]; entry != null; entry = entry.next) {
+                if (entry.hash == hash) {
+                    Object held = entry.get();
+                    if (text.equals(held)) {
+                        ingested(entry.bytes, true);
+                        return (String) held;
+                    }
+                }
+            }
+            int bytes = stringBytes(text);
+            add(text, hash, bytes);
+            ingested(bytes, false);
+            return text;
+        }
+
+        // Unlinks the entries of texts the collector has freed
+        synchronized void expunge() {
+            Object freed;
+            while ((freed = released.poll()) != null) {
+                Entry entry = (Entry) freed;
+                int bucket = entry.hash & (table.length - 1);
+                Entry previous = null;
+                for (Entry e = table[bucket]; e != null; previous = e, e = e.next) {
+                    if (e == entry) {
+                        if (previous == null) {
+                            table[bucket] = e.next;
+                        } else {
+                            previous.next = e.next;
+                        }
+                        size--;
+                        uniqueBytes -= entry.bytes;
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void ingested(int bytes, boolean shared) {
+            textsIngested++;
+            bytesIngested += bytes;
+            if (shared) {
+                textsShared++;
+                bytesShared += bytes;
+            }
+        }
+
+        private void add(Object text, int hash, int bytes) {
+            if (size >= table.length - (table.length >> 2)) {
+                resize();
+            }
+            int bucket = hash & (table.length - 1);
+            table[bucket] = new Entry(text, hash, bytes, released, table[bucket]);
+            size++;
+            uniqueBytes += bytes;
+        }
+
+        private void resize() {
+            Entry[] grown = new Entry[table.length * 2];
+            for (Entry head : table) {
+                Entry entry = head;
+                while (entry != null) {
+                    Entry next = entry.next;
+                    int bucket = entry.hash & (grown.length - 1);
+                    entry.next = grown[bucket];
+                    grown[bucket] = entry;
+                    entry = next;
+                }
+            }
+            table = grown;
+        }
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    TextStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // The held copy of the JSON string body raw[offset, offset + length), escapes intact, whose
+    // closing quote is at raw[offset + length]. Bytes are compared as they arrive: NWS escapes
+    // a text the same way every time, so equal texts have equal raw bytes.
+    LazyText text(byte[] raw, int offset, int length) {
+        int hash = hash(raw, offset, length);
+        return stripe(hash).text(raw, offset, length, hash);
+    }
+
+    // The held String equal to text, which becomes the held one if there is none. A String
+    // built only to be looked up is cheaper than comparing characters one by one: its hash and
+    // equals are intrinsics, and one found is garbage in the young generation.
+    String text(String text) {
+        if (text == null) {
+            return null;
+        }
+        int hash = spread(text.hashCode());
+        return stripe(hash).text(text, hash);
+    }
+
+    @Override
+    public long getTextsIngested() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.textsIngested;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public long getBytesIngested() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.bytesIngested;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public long getTextsShared() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.textsShared;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public long getBytesSaved() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.bytesShared;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public double getDedupRatio() {
+        long ingested = 0;
+        long kept = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                ingested += stripe.textsIngested;
+                kept += stripe.textsIngested - stripe.textsShared;
+            }
+        }
+        return kept == 0 ? 1 : (double) ingested / kept;
+    }
+
+    @Override
+    public int getUniqueTexts() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.expunge();
+                total += stripe.size;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public long getUniqueBytes() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.expunge();
+                total += stripe.uniqueBytes;
+            }
+        }
+        return total;
+    }
+
+    // Stripes by the top bits, buckets by the bottom ones
+    private Stripe stripe(int hash) {
+        return stripes[hash >>> 28];
+    }
+
+    // Sixteen bytes per step in two independent lanes, so the multiplies overlap, then the
+    // tail byte by byte
+    private static int hash(byte[] raw, int offset, int length) {
+        long even = length;
+        long odd = 0;
+        int i = offset;
+        int end = offset + length;
+        for (; i + 16 <= end; i += 16) {
+            even = (even ^ (long) LONGS.get(raw, i)) * MULTIPLIER;
+            odd = (odd ^ (long) LONGS.get(raw, i + 8)) * MULTIPLIER;
+        }
+        for (; i < end; i++) {
+            even = (even ^ raw[i]) * MULTIPLIER;
+        }
+        long hash = even ^ Long.rotateLeft(odd, 31);
+        return spread((int) (hash ^ (hash >>> 32)));
+    }
+
+    // Folds the high bits into the low ones the buckets are picked by
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // What the String keeps: a byte per character when all are Latin-1, else two
+    private static int stringBytes(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0xFF) {
+                return text.length() * 2;
+            }
+        }
+        return text.length();
+    }
+}
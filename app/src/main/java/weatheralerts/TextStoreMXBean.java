@@ -0,0 +1,24 @@
+package weatheralerts;
+
+// JMX view of the TextStore (weatheralerts:type=TextStore): how much of the ingested alert
+// text was already held and shared instead of copied.
+public interface TextStoreMXBean {
+
+    // Headlines, descriptions and instructions looked up since launch, and their bytes
+    long getTextsIngested();
+
+    long getBytesIngested();
+
+    // Of those, the ones already held, whose bytes were therefore not kept again
+    long getTextsShared();
+
+    long getBytesSaved();
+
+    // Texts ingested per copy kept
+    double getDedupRatio();
+
+    // Distinct texts held now, and their bytes; released once no alert refers to them
+    int getUniqueTexts();
+
+    long getUniqueBytes();
+}
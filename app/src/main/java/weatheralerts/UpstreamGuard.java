@@ -0,0 +1,340 @@
+package weatheralerts;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Stands between the app and the alerts API, shared by every NwsClient. Each request takes a
+// token from one bucket first, so a burst of queries and auto-refreshes is spread out instead
+// of hammering the upstream; the rate halves whenever the upstream answers 429 or 503 and
+// creeps back up with each success. Failed requests are retried with jittered exponential
+// backoff, or after the server's Retry-After. After FAILURE_THRESHOLD failures in a row (or a
+// Retry-After too long to wait out) the circuit opens: calls fail at once without a request,
+// and NwsClient serves its last good cached copy instead, until a single trial request after
+// the open period succeeds.
+final class UpstreamGuard implements UpstreamMXBean {
+
+    static final double DEFAULT_RATE = 10;
+    // Enough for every state at once
+    static final int DEFAULT_BURST = 60;
+    static final int MAX_ATTEMPTS = 3;
+    // Consecutive failed requests, retries included; eight in a row is rare below ~40% errors
+    static final int FAILURE_THRESHOLD = 8;
+    private static final double MIN_RATE = 0.5;
+    static final long BASE_BACKOFF_MILLIS = 500;
+    static final long MAX_BACKOFF_MILLIS = 8000;
+    // A longer Retry-After fails the call and opens the circuit for that long
+    private static final long MAX_RETRY_AFTER_MILLIS = 30_000;
+    private static final long OPEN_MILLIS = 30_000;
+    // How often a waiting call checks whether it was cancelled
+    private static final long WAIT_SLICE_MILLIS = 50;
+
+    static final UpstreamGuard SHARED = new UpstreamGuard(
+        Double.parseDouble(System.getProperty("weatheralerts.rateLimit", String.valueOf(DEFAULT_RATE))),
+        DEFAULT_BURST, OPEN_MILLIS);
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    // An error status from the upstream, or a call refused while the circuit is open (status 0)
+    static final class UpstreamException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+        // -1 when the server gave no Retry-After
+        final long retryAfterMillis;
+
+        UpstreamException(int status, long retryAfterMillis, String message) {
+            super(message);
+            this.status = status;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+    }
+
+    // One request against the upstream
+    interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    // Number of alerts the attempts have handed out so far
+    interface Delivered {
+        int count();
+    }
+
+    private final double maxRate;
+    private final int burst;
+    private final long openMillis;
+
+    private double rate;
+    // Goes negative while callers wait for reserved tokens
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    private long requests;
+    private long throttled;
+    private long throttleWaitNanos;
+    private long retries;
+    private long failures;
+    private long staleServed;
+    private long rejected;
+    private long circuitOpens;
+
+    UpstreamGuard(double rate, int burst, long openMillis) {
+        this.maxRate = rate;
+        this.rate = rate;
+        this.burst = burst;
+        this.tokens = burst;
+        this.openMillis = openMillis;
+    }
+
+    static boolean isRetryable(int status) {
+        return status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+    }
+
+    // Retry-After as delay-seconds or an HTTP date; -1 if absent or unreadable
+    static long retryAfterMillis(String header, long now) {
+        if (header == null || header.trim().isEmpty()) {
+            return -1;
+        }
+        String value = header.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            // Not seconds, so a date
+        }
+        try {
+            long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - now);
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    // Runs attempt once the circuit and the rate limit let it, retrying failures until
+    // MAX_ATTEMPTS while delivered() is still 0; a retry after alerts went out would deliver
+    // them twice. Throws CancellationException once call is cancelled, also while waiting.
+    <T> T run(NwsClient.Call call, Attempt<T> attempt, Delivered delivered) throws IOException {
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            admit(call);
+            IOException failure;
+            try {
+                T result = attempt.run();
+                succeeded();
+                return result;
+            } catch (AlertJsonReader.MalformedJsonException e) {
+                // The upstream answered; retrying would not fix the document
+                succeeded();
+                throw e;
+            } catch (UpstreamException e) {
+                if (!isRetryable(e.status)) {
+                    // A 404 and the like: the upstream is fine, the request is not
+                    succeeded();
+                    throw e;
+                }
+                failure = e;
+            } catch (IOException e) {
+                if (call.isCancelled()) {
+                    abandoned();
+                    throw new CancellationException();
+                }
+                failure = e;
+            } catch (RuntimeException | Error e) {
+                // Cancelled mid-parse or a failing handler, which says nothing about the upstream
+                abandoned();
+                throw e;
+            }
+            long retryAfter = failure instanceof UpstreamException ? ((UpstreamException) failure).retryAfterMillis : -1;
+            int status = failure instanceof UpstreamException ? ((UpstreamException) failure).status : 0;
+            boolean open = failed(status, retryAfter);
+            if (open || attemptNumber >= MAX_ATTEMPTS || delivered.count() > 0
+                    || retryAfter > MAX_RETRY_AFTER_MILLIS) {
+                throw failure;
+            }
+            long delay = retryAfter >= 0 ? retryAfter : backoffMillis(attemptNumber);
+            synchronized (this) {
+                retries++;
+            }
+            pause(delay, call);
+        }
+    }
+
+    synchronized void servedStale() {
+        staleServed++;
+    }
+
+    synchronized State state() {
+        return currentState(System.nanoTime());
+    }
+
+    // Seconds until the open circuit lets a trial request through
+    synchronized long secondsUntilRetry() {
+        return state == State.OPEN ? Math.max(1, (openUntil - System.nanoTime() + 999_999_999) / 1_000_000_000) : 0;
+    }
+
+    // Anywhere between a quarter of the exponential bound and the bound, so clients that failed
+    // together do not all come back together
+    static long backoffMillis(int attemptNumber) {
+        long bound = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attemptNumber - 1, 20));
+        return ThreadLocalRandom.current().nextLong(bound / 4, bound + 1);
+    }
+
+    // Passes the circuit, then waits for a token
+    private void admit(NwsClient.Call call) throws UpstreamException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            State current = currentState(now);
+            if (current == State.OPEN || (current == State.HALF_OPEN && trialInFlight)) {
+                rejected++;
+                throw new UpstreamException(0, -1, "Upstream unavailable, next try in " + secondsUntilRetry() + " s");
+            }
+            if (current == State.HALF_OPEN) {
+                trialInFlight = true;
+            }
+            requests++;
+            refill(now);
+            tokens -= 1;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+            if (waitNanos > 0) {
+                throttled++;
+                throttleWaitNanos += waitNanos;
+            }
+        }
+        try {
+            pause(waitNanos / 1_000_000, call);
+        } catch (CancellationException e) {
+            synchronized (this) {
+                tokens += 1;
+                trialInFlight = false;
+            }
+            throw e;
+        }
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - refilledAt) / 1e9 * rate);
+        refilledAt = now;
+    }
+
+    private State currentState(long now) {
+        if (state == State.OPEN && now - openUntil >= 0) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        return state;
+    }
+
+    private synchronized void succeeded() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+        trialInFlight = false;
+        // Additive increase back towards the configured rate
+        rate = Math.min(maxRate, rate + maxRate / 20);
+    }
+
+    // A request that ended without an answer either way, such as a cancelled one
+    private synchronized void abandoned() {
+        trialInFlight = false;
+    }
+
+    // Records a failure; returns whether the circuit is now open
+    private synchronized boolean failed(int status, long retryAfter) {
+        long now = System.nanoTime();
+        failures++;
+        consecutiveFailures++;
+        if (status == 429 || status == 503) {
+            refill(now);
+            rate = Math.max(MIN_RATE, rate / 2);
+        }
+        boolean trialFailed = state == State.HALF_OPEN;
+        trialInFlight = false;
+        if (trialFailed || consecutiveFailures >= FAILURE_THRESHOLD || retryAfter > MAX_RETRY_AFTER_MILLIS) {
+            state = State.OPEN;
+            openUntil = now + Math.max(openMillis, retryAfter) * 1_000_000;
+            circuitOpens++;
+            return true;
+        }
+        return false;
+    }
+
+    private static void pause(long millis, NwsClient.Call call) {
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        for (long left = millis; left > 0; left = (deadline - System.nanoTime()) / 1_000_000) {
+            if (call.isCancelled()) {
+                throw new CancellationException();
+            }
+            try {
+                Thread.sleep(Math.min(left, WAIT_SLICE_MILLIS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+        }
+        if (call.isCancelled()) {
+            throw new CancellationException();
+        }
+    }
+
+    @Override
+    public synchronized String getCircuitState() {
+        return currentState(System.nanoTime()).name();
+    }
+
+    @Override
+    public synchronized double getRateLimit() {
+        return rate;
+    }
+
+    @Override
+    public synchronized double getTokensAvailable() {
+        refill(System.nanoTime());
+        return Math.max(0, tokens);
+    }
+
+    @Override
+    public synchronized long getRequestCount() {
+        return requests;
+    }
+
+    @Override
+    public synchronized long getThrottledCount() {
+        return throttled;
+    }
+
+    @Override
+    public synchronized long getThrottleWaitMillis() {
+        return throttleWaitNanos / 1_000_000;
+    }
+
+    @Override
+    public synchronized long getRetryCount() {
+        return retries;
+    }
+
+    @Override
+    public synchronized long getFailureCount() {
+        return failures;
+    }
+
+    @Override
+    public synchronized long getStaleServedCount() {
+        return staleServed;
+    }
+
+    @Override
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    @Override
+    public synchronized long getCircuitOpenCount() {
+        return circuitOpens;
+    }
+}
@@ -0,0 +1,33 @@
+package weatheralerts;
+
+// JMX view of the UpstreamGuard (weatheralerts:type=Upstream): the rate limiter, retries and
+// circuit breaker in front of every network request.
+public interface UpstreamMXBean {
+
+    // CLOSED, OPEN or HALF_OPEN
+    String getCircuitState();
+
+    // Requests per second currently allowed; lowered while the upstream pushes back
+    double getRateLimit();
+
+    double getTokensAvailable();
+
+    long getRequestCount();
+
+    // Requests that had to wait for a token, and how long they waited in total
+    long getThrottledCount();
+
+    long getThrottleWaitMillis();
+
+    long getRetryCount();
+
+    long getFailureCount();
+
+    // Calls answered from the cache because the upstream was failing or the circuit was open
+    long getStaleServedCount();
+
+    // Calls refused without a request because the circuit was open
+    long getRejectedCount();
+
+    long getCircuitOpenCount();
+}
@@ -0,0 +1,1295 @@
+package weatheralerts;
+
+import java.awt.BorderLayout;
+import java.awt.CardLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Cursor;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.AbstractAction;
+import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.ListModel;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.UIManager;
+import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+public class WeatherAlertsApp extends JFrame implements ActionListener {
+    private static final long serialVersionUID = 1L;
+    private JTextField stateCodeField;
+    private JScrollPane scrollPane;
+    private JLabel messageLabel;
+    private JLabel headerLabel;
+    private CardLayout resultsLayout;
+    private JPanel resultsPanel;
+    private AlertListModel alertModel;
+    private JList<Alert> alertList;
+    private AlertCellRenderer alertRenderer;
+    private JLabel statusLabel;
+    private JCheckBox autoRefreshBox;
+    // Created the first time diagnostics are shown
+    private DiagnosticsPanel diagnosticsPanel;
+    private JPanel southPanel;
+    private JComboBox<String> refreshIntervalBox;
+    private Timer flashTimer;
+    private JTextField searchField;
+    private JComboBox<String> severityFilterBox;
+    private JComboBox<Object> eventFilterBox;
+    private JTextField areaField;
+    private JTextField locationField;
+    private JComboBox<AlertIndex.TimeWindow> windowFilterBox;
+    // Set while the event choices are rebuilt, so that does not count as a filter change
+    private boolean updatingEventChoices;
+    private final RequestCoordinator coordinator = new RequestCoordinator(new NwsClient(HttpCache.openDefault()));
+    private final AlertHistory history = AlertHistory.openDefault();
+    private final MultiStateFetcher fetcher = new MultiStateFetcher(coordinator, history);
+    private final Subscriptions subscriptions = Subscriptions.openDefault();
+    // Subscriptions are checked on the watch thread, against the changes of each poll only
+    private final AlertWatcher watcher = new AlertWatcher(coordinator, fetcher, (generation, changes, results) -> {
+        List<Subscriptions.Match> matches = subscriptions.evaluate(changes);
+        postUpdate(generation, () -> {
+            applyChanges(changes, results);
+            announce(matches);
+        });
+    });
+    private final AlertSnapshot snapshot = AlertSnapshot.openDefault();
+    private final AlertNotifier notifier = new AlertNotifier(this::showDetailedView);
+    
+    // Query whose results the window currently shows; only touched on the EDT
+    private RequestCoordinator.Query activeQuery;
+    // Stage timing of the active query until its last update has run
+    private Diagnostics.Query queryTrace = Diagnostics.Query.OFF;
+    // Every alert of the active query, searched on each filter change; the list shows the
+    // matches of filter
+    private AlertIndex alertIndex = new AlertIndex();
+    private AlertIndex.Filter filter = AlertIndex.Filter.ALL;
+    private String resultLabel;
+    private boolean loading;
+    // Last completed query, re-polled while auto-refresh is on
+    private List<String> watchedStates;
+    // Its text as typed, saved with its alerts for the next launch
+    private String watchedQuery;
+    // When the snapshot on screen was saved, until alerts fetched since replace or confirm it;
+    // 0 once the list is fresh
+    private long staleSavedAt;
+    private boolean painted;
+    
+    private static final String MESSAGE_CARD = "message";
+    private static final String LIST_CARD = "list";
+    private static final int[] REFRESH_MINUTES = {1, 2, 5, 10, 15, 30};
+    private static final int DEFAULT_REFRESH_INDEX = 2;
+    private static final String[] HISTORY_RANGES = {"Last 24 hours", "Last 7 days", "Last 30 days", "All history"};
+    private static final int[] HISTORY_RANGE_DAYS = {1, 7, 30, 0};
+    private static final int HISTORY_LIMIT = 2000;
+    private static final String LOCATION_HINT = "lat, lon (several separated by ;) or a box: lat, lon to lat, lon";
+    private static final Color INVALID_FIELD_BACKGROUND = new Color(255, 225, 225);
+    // -Dweatheralerts.startupTiming=true prints the time to the first paint and to the snapshot
+    private static final boolean STARTUP_TIMING = Boolean.getBoolean("weatheralerts.startupTiming");
+    private static final long LAUNCH_NANOS = System.nanoTime();
+    
+    // An alert made ready for the EDT on a fetch thread
+    private static final class PreparedAlert {
+        final AlertIndex.Entry entry;
+        final AlertRow row;
+        
+        PreparedAlert(AlertIndex.Entry entry, AlertRow row) {
+            this.entry = entry;
+            this.row = row;
+        }
+    }
+
+    public WeatherAlertsApp() {
+        setTitle("Weather Alerts");
+        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        setSize(800, 600);
+
+        // Create input panel
+        JPanel inputPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        inputPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        inputPanel.add(new JLabel("State Codes or Region:"));
+        stateCodeField = new JTextField(12);
+        stateCodeField.setFont(new Font("Arial", Font.PLAIN, 14));
+        inputPanel.add(stateCodeField);
+        JButton runButton = new JButton("Get Alerts");
+        runButton.addActionListener(this);
+        inputPanel.add(runButton);
+        JButton historyButton = new JButton("History");
+        historyButton.addActionListener(e -> showHistory());
+        inputPanel.add(historyButton);
+        JButton subscriptionsButton = new JButton("Subscriptions");
+        subscriptionsButton.addActionListener(e -> showSubscriptions());
+        inputPanel.add(subscriptionsButton);
+        autoRefreshBox = new JCheckBox("Auto-refresh every");
+        autoRefreshBox.addActionListener(e -> restartWatch());
+        inputPanel.add(autoRefreshBox);
+        String[] intervals = new String[REFRESH_MINUTES.length];
+        for (int i = 0; i < intervals.length; i++) {
+            intervals[i] = REFRESH_MINUTES[i] + " min";
+        }
+        refreshIntervalBox = new JComboBox<>(intervals);
+        refreshIntervalBox.setSelectedIndex(DEFAULT_REFRESH_INDEX);
+        refreshIntervalBox.addActionListener(e -> restartWatch());
+        inputPanel.add(refreshIntervalBox);
+        JCheckBox diagnosticsBox = new JCheckBox("Diagnostics", Diagnostics.isEnabled());
+        diagnosticsBox.addActionListener(e -> showDiagnostics(diagnosticsBox.isSelected()));
+        inputPanel.add(diagnosticsBox);
+        getContentPane().add(inputPanel, BorderLayout.NORTH);
+
+        // Create the result view: a message card, or the alert list under its header
+        messageLabel = new JLabel();
+        messageLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        messageLabel.setBorder(new EmptyBorder(20, 20, 20, 20));
+        JPanel messagePanel = new JPanel(new BorderLayout());
+        messagePanel.add(messageLabel, BorderLayout.NORTH);
+
+        headerLabel = new JLabel();
+        headerLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        headerLabel.setBorder(new EmptyBorder(0, 0, 10, 0));
+        alertModel = new AlertListModel();
+        alertRenderer = new AlertCellRenderer();
+        alertList = createAlertList(alertModel, alertRenderer);
+        // Repaints the visible rows while a new alert's highlight fades; idle otherwise
+        flashTimer = new Timer(50, e -> {
+            if (!alertRenderer.pruneFlashes(System.currentTimeMillis())) {
+                ((Timer) e.getSource()).stop();
+            }
+            alertList.repaint(alertList.getVisibleRect());
+        });
+        scrollPane = new JScrollPane(alertList);
+        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
+        scrollPane.setBorder(null);
+        JPanel listTop = new JPanel(new BorderLayout());
+        listTop.add(createFilterBar(), BorderLayout.NORTH);
+        listTop.add(headerLabel, BorderLayout.CENTER);
+        JPanel listPanel = new JPanel(new BorderLayout());
+        listPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        listPanel.add(listTop, BorderLayout.NORTH);
+        listPanel.add(scrollPane, BorderLayout.CENTER);
+
+        resultsLayout = new CardLayout();
+        resultsPanel = new JPanel(resultsLayout);
+        resultsPanel.add(messagePanel, MESSAGE_CARD);
+        resultsPanel.add(listPanel, LIST_CARD);
+        getContentPane().add(resultsPanel, BorderLayout.CENTER);
+
+        // Per-query timing and failures, above the diagnostics panel while it is shown
+        statusLabel = new JLabel(" ");
+        statusLabel.setBorder(new EmptyBorder(4, 10, 4, 10));
+        southPanel = new JPanel(new BorderLayout());
+        southPanel.add(statusLabel, BorderLayout.NORTH);
+        if (Diagnostics.isEnabled()) {
+            showDiagnostics(true);
+        }
+        getContentPane().add(southPanel, BorderLayout.SOUTH);
+        
+        // Initial message
+        showMessage("Enter a 2-letter state code, a list, a region or US and click \"Get Alerts\"",
+            new Font("Arial", Font.PLAIN, 16), null);
+        
+        // The last query's alerts are read and made ready for the list while the window opens,
+        // then shown as stale until the refresh started over them comes back
+        coordinator.execute(() -> {
+            AlertSnapshot.Saved saved = snapshot.load();
+            if (saved == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            List<PreparedAlert> rows = new ArrayList<>(saved.alerts.size());
+            for (Alert alert : saved.alerts) {
+                if (alert.expires == IsoTimestamps.NONE || alert.expires > now) {
+                    rows.add(new PreparedAlert(AlertIndex.prepare(alert), AlertRow.of(alert)));
+                }
+            }
+            SwingUtilities.invokeLater(() -> showSnapshot(saved, rows));
+        });
+        // Saves whatever was last shown fresh, in case the periodic saves missed the last poll
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                if (watchedQuery != null && staleSavedAt == 0 && !loading) {
+                    snapshot.save(watchedQuery, alertIndex.alerts());
+                }
+            }
+        });
+
+        setLocationRelativeTo(null);
+        setVisible(true);
+    }
+    
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!painted) {
+            painted = true;
+            if (STARTUP_TIMING) {
+                long sinceStart = ProcessHandle.current().info().startInstant()
+                    .map(start -> System.currentTimeMillis() - start.toEpochMilli()).orElse(-1L);
+                System.err.printf("First paint %d ms after main, %d ms after JVM start%n",
+                    (System.nanoTime() - LAUNCH_NANOS) / 1_000_000, sinceStart);
+            }
+        }
+    }
+
+    // Options: --upstream <url> fetches from another alerts API (such as a --serve instance)
+    // instead of NWS; --serve [host]:port runs headless as a caching proxy for desktops, and
+    // --refresh <seconds> sets how often it re-fetches an area; --backfill <days> pages the
+    // NWS archive of the last days into the local history and exits
+    public static void main(String[] args) {
+        String serveAddress = null;
+        long backfillDays = 0;
+        long refreshSeconds = AlertServer.DEFAULT_REFRESH_SECONDS;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--serve":
+                        serveAddress = value;
+                        break;
+                    case "--upstream":
+                        NwsClient.setUpstream(value);
+                        break;
+                    case "--refresh":
+                        refreshSeconds = Long.parseLong(value);
+                        break;
+                    case "--backfill":
+                        backfillDays = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: weather-alerts [--upstream <url>] [--serve [host]:port [--refresh <seconds>]]"
+                + " [--backfill <days>]");
+            System.exit(2);
+        }
+        
+        if (backfillDays > 0) {
+            try {
+                FeedPager.backfill(backfillDays);
+            } catch (IOException e) {
+                System.err.println("Backfill failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        if (serveAddress != null) {
+            System.setProperty("java.awt.headless", "true");
+            try {
+                AlertServer.serve(serveAddress, refreshSeconds);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Cannot serve on " + serveAddress + ": " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        // Starting the platform MBean server takes longer than opening the window
+        Thread mbeans = new Thread(Diagnostics::registerMBeans, "alerts-mbeans");
+        mbeans.setDaemon(true);
+        mbeans.start();
+        SwingUtilities.invokeLater(() -> new WeatherAlertsApp());
+    }
+    
+    // Shows the snapshot of the last session and refreshes its query over it, unless a query
+    // was started in the meantime
+    private void showSnapshot(AlertSnapshot.Saved saved, List<PreparedAlert> rows) {
+        if (activeQuery != null) {
+            return;
+        }
+        List<String> states;
+        try {
+            states = MultiStateFetcher.parseStates(saved.query.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        stateCodeField.setText(saved.query);
+        if (rows.isEmpty()) {
+            // Everything saved has expired since
+            runQuery(saved.query, states, false);
+            return;
+        }
+        AlertIndex index = new AlertIndex();
+        for (PreparedAlert prepared : rows) {
+            index.put(prepared.entry);
+            alertModel.putView(prepared.row);
+        }
+        alertIndex = index;
+        staleSavedAt = saved.savedAt;
+        alertModel.replaceAll(index.search(filter, System.currentTimeMillis()));
+        resultsLayout.show(resultsPanel, LIST_CARD);
+        runQuery(saved.query, states, true);
+        updateEventChoices();
+        statusLabel.setText("Showing alerts saved " + IsoTimestamps.format(saved.savedAt) + " \u00b7 refreshing...");
+        if (STARTUP_TIMING) {
+            System.err.printf("Snapshot of %d alerts shown %d ms after main%n", rows.size(),
+                (System.nanoTime() - LAUNCH_NANOS) / 1_000_000);
+        }
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        // Validate state codes / region
+        String query = stateCodeField.getText().trim().toUpperCase();
+        List<String> states;
+        try {
+            states = MultiStateFetcher.parseStates(query);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, 
+                "Please enter 2-letter state codes (e.g. TX or TX, OK), " + MultiStateFetcher.NATIONAL
+                    + " for the whole country, or a region: " + String.join(", ", MultiStateFetcher.REGIONS.keySet()), 
+                "Input Error", 
+                JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        runQuery(query, states, false);
+    }
+    
+    // Over a stale snapshot, its rows stay on screen until the first fresh alert replaces them,
+    // and stay for good if every state fails
+    private void runQuery(String query, List<String> states, boolean overStale) {
+        String queryLabel = states.size() == 1 ? states.get(0) : query + " (" + states.size() + " states)";
+
+        // A new query supersedes the running one and whatever was being watched
+        if (activeQuery != null) {
+            activeQuery.cancel();
+        }
+        watcher.stop();
+        RequestCoordinator.Query fetch = coordinator.newQuery();
+        activeQuery = fetch;
+        queryTrace = Diagnostics.startQuery(queryLabel);
+        int generation = fetch.generation;
+        watchedStates = null;
+        AlertIndex index = new AlertIndex();
+        resultLabel = queryLabel;
+        loading = true;
+        staleSavedAt = overStale ? staleSavedAt : 0;
+        
+        // Clear current alerts and show loading message
+        if (overStale) {
+            updateHeader();
+        } else {
+            showFresh(index);
+            showMessage("Fetching alerts for " + queryLabel + "...", new Font("Arial", Font.ITALIC, 14), null);
+            statusLabel.setText(" ");
+        }
+        
+        // Alerts reach the EDT in time slices, already tokenized and formatted for display,
+        // so indexing and showing a batch costs the EDT a few lookups per alert and one layout
+        AtomicInteger statesDone = new AtomicInteger();
+        EdtPublisher<PreparedAlert> publisher = new EdtPublisher<>(update -> postUpdate(generation, update),
+            new EdtPublisher.Sink<PreparedAlert>() {
+                private final List<Alert> shown = new ArrayList<>();
+
+                @Override
+                public void accept(PreparedAlert prepared) {
+                    if (alertIndex != index) {
+                        showFresh(index);
+                    }
+                    index.put(prepared.entry);
+                    alertModel.putView(prepared.row);
+                    if (index.matches(prepared.row.alert, filter, System.currentTimeMillis())) {
+                        shown.add(prepared.row.alert);
+                    }
+                }
+
+                @Override
+                public void flush(int published, int offered) {
+                    if (published > 0) {
+                        resultsLayout.show(resultsPanel, LIST_CARD);
+                    }
+                    if (!shown.isEmpty()) {
+                        alertModel.addAll(shown);
+                        shown.clear();
+                        queryTrace.firstRow();
+                    }
+                    updateHeader();
+                    statusLabel.setText(progress(published, offered, statesDone.get(), states.size()));
+                }
+            });
+        
+        // Fetch off the EDT; every UI update is dropped once a newer query has started
+        coordinator.execute(() -> {
+            List<MultiStateFetcher.StateResult> results;
+            try {
+                results = fetcher.fetchAll(states, new MultiStateFetcher.Listener() {
+                    @Override
+                    public void onAlert(String state, Alert alert) {
+                        publisher.offer(new PreparedAlert(AlertIndex.prepare(alert), AlertRow.of(alert)));
+                    }
+
+                    @Override
+                    public void onStateDone(MultiStateFetcher.StateResult result) {
+                        statesDone.incrementAndGet();
+                        if (states.size() > 1) {
+                            postUpdate(generation, () -> statusLabel.setText(
+                                progress(publisher.published(), publisher.offered(), statesDone.get(), states.size())));
+                        }
+                    }
+                }, fetch, true);
+            } catch (CancellationException ce) {
+                return;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException re) {
+                // A failure that is not a fetch error, such as a listener bug: stop the other
+                // states and end the query with what arrived instead of leaving it loading
+                fetch.cancel();
+                failQuery(publisher, index, re.getMessage());
+                return;
+            }
+
+            // Alerts are rendered as they stream in, so the count is only known at the end
+            int total = publisher.offered();
+            String summary = summarize(results);
+            boolean complete = succeeded(results) == results.size();
+            MultiStateFetcher.StateResult firstFailure = null;
+            for (MultiStateFetcher.StateResult result : results) {
+                if (!result.failed()) {
+                    firstFailure = null;
+                    break;
+                }
+                if (firstFailure == null) {
+                    firstFailure = result;
+                }
+            }
+            // Set when every state failed
+            String error = firstFailure != null ? firstFailure.error : null;
+            publisher.finish(() -> {
+                if (alertIndex != index && error == null) {
+                    // No alerts came, but the query did answer
+                    showFresh(index);
+                }
+                boolean stale = alertIndex != index;
+                statusLabel.setText(stale ? "Refresh failed: " + error : summary);
+                loading = false;
+                updateHeader();
+                updateEventChoices();
+                watchedStates = states;
+                watchedQuery = query;
+                List<Alert> loaded = index.alerts();
+                if (complete) {
+                    snapshot.saveLater(query, loaded);
+                }
+                coordinator.execute(() -> {
+                    List<Subscriptions.Match> matches = subscriptions.evaluate(loaded);
+                    postUpdate(generation, () -> announce(matches));
+                });
+                restartWatch();
+                if (total == 0 && !stale) {
+                    if (error != null) {
+                        showMessage(error, null, Color.RED);
+                    } else {
+                        showMessage("No active alerts found for " + queryLabel + ".",
+                            new Font("Arial", Font.PLAIN, 14), null);
+                    }
+                }
+                // Ended from its own event so the time of this update is counted
+                Diagnostics.Query trace = queryTrace;
+                queryTrace = Diagnostics.Query.OFF;
+                SwingUtilities.invokeLater(() -> trace.end(total));
+            });
+        });
+    }
+    
+    // Ends a query that broke off, once the alerts already offered are shown; over a stale
+    // snapshot the snapshot stays, as when every state fails
+    private void failQuery(EdtPublisher<PreparedAlert> publisher, AlertIndex index, String error) {
+        int total = publisher.offered();
+        publisher.finish(() -> {
+            boolean stale = alertIndex != index;
+            statusLabel.setText((stale ? "Refresh failed: " : "Query failed: ") + error);
+            loading = false;
+            updateHeader();
+            updateEventChoices();
+            if (total == 0 && !stale) {
+                showMessage("Query failed: " + error, null, Color.RED);
+            }
+            Diagnostics.Query trace = queryTrace;
+            queryTrace = Diagnostics.Query.OFF;
+            SwingUtilities.invokeLater(() -> trace.end(total));
+        });
+    }
+
+    // Replaces whatever the list shows with the alerts of index, which may still be arriving
+    private void showFresh(AlertIndex index) {
+        alertIndex = index;
+        staleSavedAt = 0;
+        alertModel.clear();
+        updateEventChoices();
+        alertRenderer.clearFlashes();
+    }
+    
+    private static int succeeded(List<MultiStateFetcher.StateResult> results) {
+        int succeeded = 0;
+        for (MultiStateFetcher.StateResult result : results) {
+            if (!result.failed()) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+    
+    // "N of M loaded" while a query streams in: alerts loaded into the list of those received
+    private static String progress(int published, int received, int statesDone, int stateCount) {
+        String alerts = String.format("Loaded %,d of %,d alerts...", published, received);
+        return stateCount > 1 ? alerts + " \u00b7 " + statesDone + " of " + stateCount + " states done" : alerts;
+    }
+    
+    // Runs update on the EDT unless a newer query has started in the meantime
+    private void postUpdate(int generation, Runnable update) {
+        SwingUtilities.invokeLater(() -> {
+            if (activeQuery != null && activeQuery.generation == generation) {
+                queryTrace.onEdt(update);
+            }
+        });
+    }
+    
+    private void showDiagnostics(boolean on) {
+        Diagnostics.setEnabled(on);
+        if (diagnosticsPanel == null) {
+            if (!on) {
+                return;
+            }
+            diagnosticsPanel = new DiagnosticsPanel();
+            southPanel.add(diagnosticsPanel, BorderLayout.CENTER);
+        }
+        diagnosticsPanel.setVisible(on);
+        getContentPane().revalidate();
+    }
+    
+    // (Re)starts polling the last query with the selected interval, or stops when unchecked
+    private void restartWatch() {
+        if (!autoRefreshBox.isSelected() || watchedStates == null) {
+            watcher.stop();
+            return;
+        }
+        // The watcher diffs against every loaded alert, not only those the filters let through
+        List<Alert> onScreen = alertIndex.alerts();
+        int minutes = REFRESH_MINUTES[refreshIntervalBox.getSelectedIndex()];
+        watcher.watch(activeQuery.generation, watchedStates, onScreen, minutes, TimeUnit.MINUTES);
+    }
+    
+    // Applies one poll to the list in place: only added, updated and expired rows are touched
+    private void applyChanges(AlertWatcher.Changes changes, List<MultiStateFetcher.StateResult> results) {
+        String checked = "Checked " + IsoTimestamps.format(System.currentTimeMillis()) + " \u00b7 ";
+        int succeeded = succeeded(results);
+        if (succeeded > 0 && staleSavedAt != 0) {
+            // The poll was diffed against the snapshot, so the list is now as fetched
+            staleSavedAt = 0;
+            updateHeader();
+        }
+        if (changes.isEmpty()) {
+            statusLabel.setText(checked + "no changes \u00b7 " + summarize(results));
+            saveShown(succeeded == results.size());
+            return;
+        }
+        // The index takes every change; the list then only touches rows whose alert is shown
+        List<Alert> added = new ArrayList<>();
+        List<Alert> changed = new ArrayList<>();
+        for (Alert alert : changes.added) {
+            // A watch restarted over a screen that had not yet applied the last poll may
+            // report an alert again; it replaces the indexed one rather than duplicating it
+            Alert replaced = alertIndex.put(alert);
+            if (replaced != null) {
+                alertModel.forget(replaced);
+                changed.add(alert);
+            } else {
+                added.add(alert);
+            }
+        }
+        for (Alert alert : changes.updated) {
+            Alert replaced = alertIndex.put(alert);
+            if (replaced != null) {
+                alertModel.forget(replaced);
+            }
+            changed.add(alert);
+        }
+        for (Alert alert : changes.expired) {
+            Alert removed = alertIndex.remove(alert.id);
+            if (removed != null) {
+                alertModel.forget(removed);
+            }
+        }
+        
+        long now = System.currentTimeMillis();
+        Map<String, Integer> rows = new HashMap<>();
+        for (int i = 0; i < alertModel.size(); i++) {
+            String id = alertModel.get(i).id;
+            if (id != null) {
+                rows.put(id, i);
+            }
+        }
+        List<Integer> removedRows = new ArrayList<>();
+        boolean reorder = false;
+        for (Alert alert : changed) {
+            Integer row = rows.get(alert.id);
+            boolean shown = alertIndex.matches(alert, filter, now);
+            if (row == null) {
+                // Now matches the filters; it belongs at its original place, not the end
+                reorder |= shown;
+            } else if (shown) {
+                alertModel.set(row, alert);
+            } else {
+                removedRows.add(row);
+            }
+        }
+        for (Alert alert : changes.expired) {
+            Integer row = rows.get(alert.id);
+            if (row != null) {
+                removedRows.add(row);
+            }
+        }
+        for (Alert alert : added) {
+            alertRenderer.flash(alert);
+        }
+        if (reorder) {
+            refilter();
+        } else {
+            // Remove from the bottom up so the remaining indices stay valid
+            removedRows.sort(Collections.reverseOrder());
+            for (int row : removedRows) {
+                alertModel.remove(row);
+            }
+            for (Alert alert : added) {
+                if (alertIndex.matches(alert, filter, now)) {
+                    alertModel.add(alert);
+                }
+            }
+        }
+        if (!added.isEmpty() && !flashTimer.isRunning()) {
+            flashTimer.start();
+        }
+        updateEventChoices();
+        
+        statusLabel.setText(checked + changes.added.size() + " new, " + changes.updated.size() + " updated, "
+            + changes.expired.size() + " expired \u00b7 " + summarize(results));
+        if (alertIndex.size() == 0) {
+            showMessage("No active alerts found for " + resultLabel + ".", new Font("Arial", Font.PLAIN, 14), null);
+        } else {
+            updateHeader();
+            resultsLayout.show(resultsPanel, LIST_CARD);
+        }
+        saveShown(succeeded == results.size());
+    }
+    
+    // Raises matches on the desktop and names the lead one in the status line, after the summary
+    // of the update that brought it
+    private void announce(List<Subscriptions.Match> matches) {
+        if (matches.isEmpty()) {
+            return;
+        }
+        notifier.announce(matches);
+        Subscriptions.Match first = matches.get(0);
+        String status = statusLabel.getText().trim();
+        statusLabel.setText((status.isEmpty() ? "" : status + " \u00b7 ") + "Subscription: " + first.alert.event.name
+            + (matches.size() > 1 ? " and " + (matches.size() - 1) + " more" : "") + " matched " + first.rule.text);
+    }
+    
+    // Saves the list as the last poll left it, unless some state failed and its alerts are
+    // missing or out of date
+    private void saveShown(boolean complete) {
+        if (complete && staleSavedAt == 0 && watchedQuery != null) {
+            snapshot.saveLater(watchedQuery, alertIndex.alerts());
+        }
+    }
+    
+    // Search box and facets above the list; every change refilters at once
+    private JPanel createFilterBar() {
+        JPanel filterBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        JPanel placeBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        placeBar.setBorder(new EmptyBorder(5, 0, 10, 0));
+        DocumentListener typing = new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                refilter();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                refilter();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                refilter();
+            }
+        };
+        filterBar.add(new JLabel("Search:"));
+        searchField = new JTextField(14);
+        searchField.getDocument().addDocumentListener(typing);
+        filterBar.add(searchField);
+        
+        String[] severities = new String[Alert.Severity.values().length + 1];
+        severities[0] = "Any severity";
+        for (Alert.Severity severity : Alert.Severity.values()) {
+            severities[severity.ordinal() + 1] = severity.label;
+        }
+        severityFilterBox = new JComboBox<>(severities);
+        severityFilterBox.addActionListener(e -> refilter());
+        filterBar.add(severityFilterBox);
+        
+        eventFilterBox = new JComboBox<>();
+        eventFilterBox.addActionListener(e -> {
+            if (!updatingEventChoices) {
+                refilter();
+            }
+        });
+        filterBar.add(eventFilterBox);
+        updateEventChoices();
+        
+        windowFilterBox = new JComboBox<>(AlertIndex.TimeWindow.values());
+        windowFilterBox.addActionListener(e -> refilter());
+        filterBar.add(windowFilterBox);
+        
+        placeBar.add(new JLabel("Area:"));
+        areaField = new JTextField(8);
+        areaField.getDocument().addDocumentListener(typing);
+        placeBar.add(areaField);
+        
+        // Matches alerts whose polygon covers any of the points or overlaps the box
+        placeBar.add(new JLabel("Location:"));
+        locationField = new JTextField(22);
+        locationField.setToolTipText(LOCATION_HINT);
+        locationField.getDocument().addDocumentListener(typing);
+        placeBar.add(locationField);
+        
+        JPanel filterPanel = new JPanel(new BorderLayout());
+        filterPanel.add(filterBar, BorderLayout.NORTH);
+        filterPanel.add(placeBar, BorderLayout.CENTER);
+        return filterPanel;
+    }
+    
+    // Reruns the search over the index and swaps the list's rows in one step
+    private void refilter() {
+        int severityIndex = severityFilterBox.getSelectedIndex();
+        Alert.Severity severity = severityIndex > 0 ? Alert.Severity.values()[severityIndex - 1] : null;
+        Object event = eventFilterBox.getSelectedItem();
+        SpatialIndex.Region region = null;
+        try {
+            region = SpatialIndex.Region.parse(locationField.getText());
+            locationField.setBackground(UIManager.getColor("TextField.background"));
+            locationField.setToolTipText(LOCATION_HINT);
+        } catch (IllegalArgumentException e) {
+            // Half-typed coordinates: keep filtering without a location until they parse
+            locationField.setBackground(INVALID_FIELD_BACKGROUND);
+            locationField.setToolTipText(e.getMessage());
+        }
+        filter = new AlertIndex.Filter(searchField.getText(), areaField.getText(), severity,
+            event instanceof EventType ? (EventType) event : null,
+            (AlertIndex.TimeWindow) windowFilterBox.getSelectedItem(), region);
+        // Row indices change, so a selection or hover would land on another alert
+        alertList.clearSelection();
+        alertRenderer.setHoverIndex(-1);
+        alertModel.replaceAll(alertIndex.search(filter, System.currentTimeMillis()));
+        updateHeader();
+    }
+    
+    // Offers the event types of the loaded alerts, keeping the current choice even once
+    // no alert of its type is left
+    private void updateEventChoices() {
+        Object selected = eventFilterBox.getSelectedItem();
+        List<Object> choices = new ArrayList<>();
+        choices.add("Any event");
+        for (EventType type : alertIndex.eventTypes()) {
+            if (type != EventType.NONE) {
+                choices.add(type);
+            }
+        }
+        if (selected instanceof EventType && !choices.contains(selected)) {
+            choices.add(selected);
+        }
+        updatingEventChoices = true;
+        try {
+            eventFilterBox.removeAllItems();
+            for (Object choice : choices) {
+                eventFilterBox.addItem(choice);
+            }
+            eventFilterBox.setSelectedItem(selected instanceof EventType ? selected : choices.get(0));
+        } finally {
+            updatingEventChoices = false;
+        }
+    }
+    
+    private void updateHeader() {
+        if (staleSavedAt != 0) {
+            String count = filter.isEmpty() ? alertIndex.size() + " alerts"
+                : alertModel.size() + " of " + alertIndex.size() + " alerts";
+            headerLabel.setText("Showing " + count + " for " + resultLabel + " as of "
+                + IsoTimestamps.format(staleSavedAt) + (loading ? " \u00b7 refreshing..." : " \u00b7 not refreshed"));
+        } else if (loading) {
+            headerLabel.setText("Loading alerts for " + resultLabel + "...");
+        } else if (filter.isEmpty()) {
+            headerLabel.setText("Found " + alertIndex.size() + " active alerts for " + resultLabel);
+        } else {
+            headerLabel.setText("Showing " + alertModel.size() + " of " + alertIndex.size() + " alerts for "
+                + resultLabel);
+        }
+    }
+    
+    // One-line per-query report: overall time, slowest state and any failures
+    private String summarize(List<MultiStateFetcher.StateResult> results) {
+        if (results.size() == 1) {
+            MultiStateFetcher.StateResult result = results.get(0);
+            return result.failed()
+                ? result.state + ": " + result.error
+                : result.state + ": " + result.alertCount + " alerts in " + result.latencyMillis + " ms";
+        }
+        MultiStateFetcher.StateResult slowest = null;
+        List<String> failed = new ArrayList<>();
+        for (MultiStateFetcher.StateResult result : results) {
+            if (result.failed()) {
+                failed.add(result.state);
+            } else if (slowest == null || result.latencyMillis > slowest.latencyMillis) {
+                slowest = result;
+            }
+        }
+        StringBuilder summary = new StringBuilder();
+        summary.append(results.size() - failed.size()).append(" of ").append(results.size()).append(" states loaded");
+        if (slowest != null) {
+            summary.append(" \u00b7 slowest ").append(slowest.state).append(" ").append(slowest.latencyMillis).append(" ms");
+        }
+        if (!failed.isEmpty()) {
+            summary.append(" \u00b7 failed: ").append(String.join(", ", failed));
+        }
+        return summary.toString();
+    }
+    
+    // Replaces the result view with a single message; null font/color use the defaults
+    private void showMessage(String message, Font font, Color color) {
+        messageLabel.setText(message);
+        messageLabel.setFont(font != null ? font : UIManager.getFont("Label.font"));
+        messageLabel.setForeground(color != null ? color : UIManager.getColor("Label.foreground"));
+        resultsLayout.show(resultsPanel, MESSAGE_CARD);
+    }
+    
+    // Renderer-based list: rows are stamped by one AlertCellRenderer, so layout and paint
+    // cost depend on the viewport height rather than on the number of alerts
+    private JList<Alert> createAlertList(ListModel<Alert> model, AlertCellRenderer renderer) {
+        JList<Alert> list = new JList<Alert>(model) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean getScrollableTracksViewportWidth() {
+                return true;
+            }
+        };
+        list.setCellRenderer(renderer);
+        // Fixed cell sizes keep the list from measuring every row; rows span the viewport width
+        list.setFixedCellHeight(AlertCellRenderer.ROW_HEIGHT);
+        list.setFixedCellWidth(1);
+        list.setBackground(UIManager.getColor("Panel.background"));
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        
+        // Make rows clickable, with a hover highlight
+        MouseAdapter mouseHandler = new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = rowAt(list, e);
+                if (index >= 0) {
+                    showDetailedView(model.getElementAt(index));
+                }
+            }
+            
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                setHover(rowAt(list, e));
+            }
+            
+            @Override
+            public void mouseExited(MouseEvent e) {
+                setHover(-1);
+            }
+            
+            private void setHover(int index) {
+                int previous = renderer.getHoverIndex();
+                if (previous != index) {
+                    renderer.setHoverIndex(index);
+                    repaintRow(list, previous);
+                    repaintRow(list, index);
+                }
+            }
+        };
+        list.addMouseListener(mouseHandler);
+        list.addMouseMotionListener(mouseHandler);
+        list.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "showDetails");
+        list.getActionMap().put("showDetails", new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Alert selected = list.getSelectedValue();
+                if (selected != null) {
+                    showDetailedView(selected);
+                }
+            }
+        });
+        return list;
+    }
+    
+    // Browses the local alert history; searches run off the EDT and never touch the network
+    private void showHistory() {
+        JDialog historyDialog = new JDialog(this, "Alert History", false);
+        historyDialog.setLayout(new BorderLayout());
+        historyDialog.setSize(760, 560);
+        historyDialog.setLocationRelativeTo(this);
+        
+        JPanel queryPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        queryPanel.add(new JLabel("State:"));
+        JTextField stateField = new JTextField(3);
+        queryPanel.add(stateField);
+        queryPanel.add(new JLabel("Event:"));
+        JTextField eventField = new JTextField(16);
+        queryPanel.add(eventField);
+        JComboBox<String> rangeBox = new JComboBox<>(HISTORY_RANGES);
+        rangeBox.setSelectedIndex(1);
+        queryPanel.add(rangeBox);
+        JButton searchButton = new JButton("Search");
+        queryPanel.add(searchButton);
+        historyDialog.add(queryPanel, BorderLayout.NORTH);
+        
+        AlertListModel historyModel = new AlertListModel();
+        JList<Alert> historyList = createAlertList(historyModel, new AlertCellRenderer());
+        JScrollPane historyScroll = new JScrollPane(historyList);
+        historyScroll.setBorder(new EmptyBorder(0, 10, 0, 10));
+        historyDialog.add(historyScroll, BorderLayout.CENTER);
+        JLabel historyStatus = new JLabel(" ");
+        historyStatus.setBorder(new EmptyBorder(4, 10, 4, 10));
+        historyDialog.add(historyStatus, BorderLayout.SOUTH);
+        
+        List<AlertHistory.Entry> shown = new ArrayList<>();
+        AtomicInteger searches = new AtomicInteger();
+        ActionListener search = e -> {
+            String state = stateField.getText().trim().toUpperCase();
+            if (!state.isEmpty() && state.length() != 2) {
+                historyStatus.setText("Enter a 2-letter state code, or leave it blank for every state");
+                return;
+            }
+            String event = eventField.getText().trim();
+            int days = HISTORY_RANGE_DAYS[rangeBox.getSelectedIndex()];
+            long now = System.currentTimeMillis();
+            long from = days > 0 ? now - TimeUnit.DAYS.toMillis(days) : Long.MIN_VALUE;
+            int searchNumber = searches.incrementAndGet();
+            historyStatus.setText("Searching...");
+            // On the history's search thread, where a search superseded while it waited is
+            // dropped unread; it never waits for a network query to finish
+            history.searchLater(() -> {
+                if (searches.get() != searchNumber) {
+                    return;
+                }
+                long start = System.nanoTime();
+                List<AlertHistory.Entry> found;
+                String error = null;
+                try {
+                    found = history.query(state.isEmpty() ? null : state, event.isEmpty() ? null : event,
+                        from, Long.MAX_VALUE, HISTORY_LIMIT);
+                } catch (IOException ex) {
+                    found = Collections.emptyList();
+                    error = "Error reading history: " + ex.getMessage();
+                }
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                // Read here, since the history's writer may hold its lock while it appends
+                int versions = history.size();
+                long kilobytes = history.totalBytes() / 1024;
+                List<AlertHistory.Entry> results = found;
+                String failure = error;
+                SwingUtilities.invokeLater(() -> {
+                    if (searches.get() != searchNumber) {
+                        return;
+                    }
+                    shown.clear();
+                    shown.addAll(results);
+                    List<Alert> alerts = new ArrayList<>(results.size());
+                    for (AlertHistory.Entry entry : results) {
+                        alerts.add(entry.alert);
+                    }
+                    historyList.clearSelection();
+                    historyModel.replaceAll(alerts);
+                    historyStatus.setText(failure != null ? failure
+                        : results.size() + (results.size() == HISTORY_LIMIT ? "+" : "") + " stored versions in "
+                            + millis + " ms \u00b7 " + versions + " versions, " + kilobytes + " KB on disk");
+                });
+            });
+        };
+        searchButton.addActionListener(search);
+        stateField.addActionListener(search);
+        eventField.addActionListener(search);
+        historyList.addListSelectionListener(e -> {
+            int index = historyList.getSelectedIndex();
+            if (!e.getValueIsAdjusting() && index >= 0 && index < shown.size()) {
+                AlertHistory.Entry entry = shown.get(index);
+                historyStatus.setText("Version " + entry.version + " recorded "
+                    + IsoTimestamps.format(entry.recordedAt)
+                    + (entry.states.isEmpty() ? "" : " for " + String.join(", ", entry.states)));
+            }
+        });
+        
+        search.actionPerformed(null);
+        historyDialog.setVisible(true);
+    }
+    
+    // Edits the subscription rules; they are compiled on save and only saved if all compile
+    private void showSubscriptions() {
+        JDialog rulesDialog = new JDialog(this, "Subscriptions", false);
+        rulesDialog.setLayout(new BorderLayout());
+        rulesDialog.setSize(640, 420);
+        rulesDialog.setLocationRelativeTo(this);
+        
+        JLabel hint = new JLabel("<html>One rule per line, for example<br><code>severity &gt;= Severe AND event"
+            + " contains Tornado AND area in {Dallas, Tarrant}</code><br>Fields: severity, urgency, certainty"
+            + " (=, !=, in, and &lt; &lt;= &gt; &gt;= for severity), event (contains, =, !=, in), area"
+            + " (contains, =, in; names may carry their state, as Dallas, TX). Lines starting with # are"
+            + " ignored.</html>");
+        hint.setBorder(new EmptyBorder(10, 10, 10, 10));
+        rulesDialog.add(hint, BorderLayout.NORTH);
+        JTextArea rulesArea = new JTextArea(subscriptions.text());
+        rulesArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+        JScrollPane rulesScroll = new JScrollPane(rulesArea);
+        rulesScroll.setBorder(new EmptyBorder(0, 10, 0, 10));
+        rulesDialog.add(rulesScroll, BorderLayout.CENTER);
+        
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.setBorder(new EmptyBorder(6, 10, 10, 10));
+        JLabel rulesStatus = new JLabel(subscriptions.size() + " rules in force");
+        bottom.add(rulesStatus, BorderLayout.CENTER);
+        JButton saveButton = new JButton("Save");
+        saveButton.addActionListener(e -> {
+            try {
+                List<Subscriptions.Rule> rules = subscriptions.update(rulesArea.getText());
+                rulesStatus.setForeground(null);
+                rulesStatus.setText(rules.size() + " rules saved and in force");
+            } catch (IllegalArgumentException | IOException ex) {
+                rulesStatus.setForeground(Color.RED);
+                rulesStatus.setText(ex.getMessage());
+            }
+        });
+        bottom.add(saveButton, BorderLayout.EAST);
+        rulesDialog.add(bottom, BorderLayout.SOUTH);
+        rulesDialog.setVisible(true);
+    }
+    
+    private static int rowAt(JList<?> list, MouseEvent e) {
+        int index = list.locationToIndex(e.getPoint());
+        if (index >= 0 && list.getCellBounds(index, index).contains(e.getPoint())) {
+            return index;
+        }
+        return -1;
+    }
+    
+    private static void repaintRow(JList<?> list, int index) {
+        if (index >= 0 && index < list.getModel().getSize()) {
+            list.repaint(list.getCellBounds(index, index));
+        }
+    }
+    
+    private void showDetailedView(Alert alert) {
+        JDialog detailDialog = new JDialog(this, "Alert Details", true);
+        detailDialog.setLayout(new BorderLayout());
+        detailDialog.setSize(600, 500);
+        detailDialog.setLocationRelativeTo(this);
+        
+        // Header panel with event name and severity
+        JPanel headerPanel = new JPanel(new BorderLayout());
+        headerPanel.setBackground(alert.severity.color);
+        headerPanel.setBorder(BorderFactory.createEmptyBorder(10, 15, 10, 15));
+        
+        JLabel titleLabel = new JLabel(alert.event.nameOr("Alert Details"));
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        titleLabel.setForeground(Color.WHITE);
+        headerPanel.add(titleLabel, BorderLayout.WEST);
+        
+        JLabel severityLabel = new JLabel("Severity: " + alert.severity.label);
+        severityLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        severityLabel.setForeground(Color.WHITE);
+        headerPanel.add(severityLabel, BorderLayout.EAST);
+        
+        detailDialog.add(headerPanel, BorderLayout.NORTH);
+        
+        // Content panel
+        JPanel contentPanel = new JPanel();
+        contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
+        contentPanel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        
+        // Times section
+        JPanel timesPanel = new JPanel(new GridBagLayout());
+        timesPanel.setBorder(BorderFactory.createTitledBorder("Time Information"));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(2, 5, 2, 15);
+        
+        addDetailRow(timesPanel, gbc, "Effective:", formatDate(alert.effective, alert.effectiveText));
+        gbc.gridy++;
+        addDetailRow(timesPanel, gbc, "Expires:", formatDate(alert.expires, alert.expiresText));
+        
+        if (alert.hasOnset()) {
+            gbc.gridy++;
+            addDetailRow(timesPanel, gbc, "Onset:", formatDate(alert.onset, alert.onsetText));
+        }
+        
+        timesPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        contentPanel.add(timesPanel);
+        contentPanel.add(createVerticalStrut(10));
+        
+        // Headline section if available
+        String headline = alert.headline != null ? alert.headline.trim() : "";
+        if (!headline.isEmpty()) {
+            JPanel headlinePanel = new JPanel(new BorderLayout());
+            headlinePanel.setBorder(BorderFactory.createTitledBorder("Headline"));
+            
+            JTextArea headlineText = new JTextArea(headline);
+            headlineText.setEditable(false);
+            headlineText.setLineWrap(true);
+            headlineText.setWrapStyleWord(true);
+            headlineText.setFont(new Font("Arial", Font.PLAIN, 14));
+            headlineText.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+            headlineText.setBackground(new Color(240, 240, 240));
+            
+            headlinePanel.add(headlineText, BorderLayout.CENTER);
+            headlinePanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            contentPanel.add(headlinePanel);
+            contentPanel.add(createVerticalStrut(10));
+        }
+        
+        // Description section
+        JPanel descPanel = new JPanel(new BorderLayout());
+        descPanel.setBorder(BorderFactory.createTitledBorder("Description"));
+        
+        String description = alert.description != null ? alert.description.toString() : "No description available.";
+        JTextArea descText = new JTextArea(description);
+        descText.setEditable(false);
+        descText.setLineWrap(true);
+        descText.setWrapStyleWord(true);
+        descText.setFont(new Font("Arial", Font.PLAIN, 14));
+        
+        JScrollPane descScroll = new JScrollPane(descText);
+        descScroll.setPreferredSize(new Dimension(550, 200));
+        descPanel.add(descScroll, BorderLayout.CENTER);
+        
+        descPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        contentPanel.add(descPanel);
+        
+        // Add instruction section if available
+        String instruction = alert.instruction != null ? alert.instruction.toString().trim() : "";
+        if (!instruction.isEmpty()) {
+            contentPanel.add(createVerticalStrut(10));
+            
+            JPanel instructPanel = new JPanel(new BorderLayout());
+            instructPanel.setBorder(BorderFactory.createTitledBorder("Instructions"));
+            
+            JTextArea instructText = new JTextArea(instruction);
+            instructText.setEditable(false);
+            instructText.setLineWrap(true);
+            instructText.setWrapStyleWord(true);
+            instructText.setFont(new Font("Arial", Font.PLAIN, 14));
+            instructText.setBackground(new Color(255, 255, 220)); // Light yellow background
+            
+            JScrollPane instructScroll = new JScrollPane(instructText);
+            instructScroll.setPreferredSize(new Dimension(550, 100));
+            instructPanel.add(instructScroll, BorderLayout.CENTER);
+            
+            instructPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            contentPanel.add(instructPanel);
+        }
+        
+        JScrollPane contentScroll = new JScrollPane(contentPanel);
+        detailDialog.add(contentScroll, BorderLayout.CENTER);
+        
+        // Close button
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> detailDialog.dispose());
+        buttonPanel.add(closeButton);
+        detailDialog.add(buttonPanel, BorderLayout.SOUTH);
+        
+        detailDialog.setVisible(true);
+    }
+    
+    private void addDetailRow(JPanel panel, GridBagConstraints gbc, String label, String value) {
+        JLabel labelComponent = new JLabel(label);
+        labelComponent.setFont(new Font("Arial", Font.BOLD, 12));
+        panel.add(labelComponent, gbc);
+        
+        gbc.gridx = 1;
+        JLabel valueComponent = new JLabel(value);
+        valueComponent.setFont(new Font("Arial", Font.PLAIN, 12));
+        panel.add(valueComponent, gbc);
+        
+        gbc.gridx = 0;
+    }
+    
+    private Component createVerticalStrut(int height) {
+        JPanel strut = new JPanel();
+        strut.setPreferredSize(new Dimension(0, height));
+        strut.setMaximumSize(new Dimension(0, height));
+        strut.setMinimumSize(new Dimension(0, height));
+        strut.setOpaque(false);
+        return strut;
+    }
+    
+    // Timestamps arrive already parsed; raw is the original text of one that did not parse
+    static String formatDate(long epochMillis, String raw) {
+        if (epochMillis != IsoTimestamps.NONE) {
+            return IsoTimestamps.format(epochMillis);
+        }
+        if (raw == null || raw.trim().isEmpty()) {
+            return "N/A";
+        }
+        return raw;
+    }
+    
+    static String truncateText(String text, int maxLength) {
+        if (text == null || text.length() <= maxLength) {
+            return text;
+        }
+        return text.substring(0, maxLength - 3) + "...";
+    }
+}
\ No newline at end of file
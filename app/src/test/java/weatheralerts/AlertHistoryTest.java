@@ -0,0 +1,249 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The history's log and index on disk: what is stored comes back as it was recorded, after a
+// reopen, a torn write or a compaction, and the state, event and time filters find exactly
+// the versions that match
+class AlertHistoryTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long YEAR = 365 * DAY;
+    private static final long NOW = System.currentTimeMillis();
+
+    @TempDir
+    File directory;
+
+    private final List<AlertHistory> opened = new ArrayList<>();
+
+    @AfterEach
+    void close() {
+        for (AlertHistory history : opened) {
+            history.close();
+        }
+    }
+
+    private AlertHistory open() {
+        return open(1L << 30, 8L * 1024 * 1024);
+    }
+
+    private AlertHistory open(long maxBytes, long segmentBytes) {
+        AlertHistory history = new AlertHistory(directory, maxBytes, YEAR, segmentBytes);
+        opened.add(history);
+        return history;
+    }
+
+    private static Alert alert(String id, String event, String headline, long effective, long expires,
+                               String... ugc) throws IOException {
+        StringBuilder codes = new StringBuilder();
+        for (String code : ugc) {
+            codes.append(codes.length() > 0 ? ", " : "").append('"').append(code).append('"');
+        }
+        String json = "{\"features\": [{\"properties\": {\"id\": \"" + id + "\", \"event\": \"" + event
+            + "\", \"headline\": \"" + headline + "\", \"effective\": \"" + Instant.ofEpochMilli(effective)
+            + "\", \"expires\": \"" + Instant.ofEpochMilli(expires) + "\", \"description\": \"Line one\\nline two\""
+            + (ugc.length > 0 ? ", \"geocode\": {\"SAME\": [\"048113\"], \"UGC\": [" + codes + "]}" : "")
+            + "}}]}";
+        return AlertJsonReaderTest.parse(json.getBytes(StandardCharsets.UTF_8)).get(0);
+    }
+
+    private static Alert alert(String id, String headline, String... ugc) throws IOException {
+        return alert(id, "Flood Watch", headline, NOW - DAY, NOW + DAY, ugc);
+    }
+
+    private static List<AlertHistory.Entry> all(AlertHistory history) throws IOException {
+        return history.query(null, null, Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    private static List<String> ids(List<AlertHistory.Entry> entries) {
+        List<String> ids = new ArrayList<>();
+        for (AlertHistory.Entry entry : entries) {
+            ids.add(entry.alert.id + " v" + entry.version);
+        }
+        return ids;
+    }
+
+    private File log(int segment) {
+        return new File(directory, String.format("segment-%08d.log", segment));
+    }
+
+    @Test
+    void recordsComeBackAfterAReopen() throws IOException {
+        List<Alert> feed = AlertJsonReaderTest.parse(AlertJsonReaderTest.fixture("alerts-tx.json"));
+        AlertHistory history = open();
+        for (Alert alert : feed) {
+            history.record("TX", alert);
+        }
+        history.close();
+
+        AlertHistory reopened = open();
+        List<AlertHistory.Entry> entries = all(reopened);
+        assertEquals(feed.size(), entries.size());
+        assertEquals(feed.size(), reopened.size());
+        // Newest first
+        for (int i = 0; i < feed.size(); i++) {
+            AlertHistory.Entry entry = entries.get(feed.size() - 1 - i);
+            assertTrue(feed.get(i).sameContent(entry.alert), feed.get(i).id);
+            assertEquals(1, entry.version);
+        }
+        assertEquals(List.of("TX"), entries.get(entries.size() - 1).states);
+    }
+
+    @Test
+    void unchangedAlertsAreNotWrittenAgain() throws IOException {
+        AlertHistory history = open();
+        Alert first = alert("a", "Flood Watch until noon", "TXC113");
+        history.record("TX", first);
+        long bytes = history.totalBytes();
+        // The same instance, as a replayed feed delivers it, and a re-parsed copy
+        history.record("TX", first);
+        history.record("TX", alert("a", "Flood Watch until noon", "TXC113"));
+        assertEquals(1, history.size());
+        assertEquals(bytes, history.totalBytes());
+
+        history.record("TX", alert("a", "Flood Watch until evening", "TXC113"));
+        history.record("TX", alert("a", "Flood Watch until evening", "TXC113", "OKC001"));
+        assertEquals(List.of("a v3", "a v2", "a v1"), ids(all(history)));
+
+        // Versions carry on from the stored ones after a reopen, and so does the comparison
+        history.close();
+        AlertHistory reopened = open();
+        reopened.record("TX", alert("a", "Flood Watch until evening", "TXC113", "OKC001"));
+        reopened.record("TX", alert("a", "Flood Watch cancelled", "TXC113", "OKC001"));
+        assertEquals(List.of("a v4", "a v3", "a v2", "a v1"), ids(all(reopened)));
+    }
+
+    @Test
+    void statesComeFromTheAlertWhereverItWasFetched() throws IOException {
+        AlertHistory history = open();
+        history.record("TX", alert("both", "Red River flooding", "TXC485", "OKC033", "TXZ100"));
+        history.record(null, alert("national", "Heat", "AZZ530"));
+        // An alert listing no zones keeps the area it was fetched for
+        history.record("tx", alert("zoneless", "Heat"));
+        history.record(null, alert("nowhere", "Heat"));
+
+        assertEquals(List.of("zoneless v1", "both v1"), ids(history.query("TX", null, Long.MIN_VALUE,
+            Long.MAX_VALUE, 100)));
+        assertEquals(List.of("both v1"), ids(history.query("ok", null, Long.MIN_VALUE, Long.MAX_VALUE, 100)));
+        assertEquals(List.of("national v1"), ids(history.query("AZ", null, Long.MIN_VALUE, Long.MAX_VALUE, 100)));
+        assertTrue(history.query("KS", null, Long.MIN_VALUE, Long.MAX_VALUE, 100).isEmpty());
+        assertTrue(history.query("Texas", null, Long.MIN_VALUE, Long.MAX_VALUE, 100).isEmpty());
+        List<AlertHistory.Entry> all = all(history);
+        assertEquals(List.of(), all.get(0).states);
+        assertEquals(List.of("TX", "OK"), all.get(3).states);
+    }
+
+    @Test
+    void eventAndTimeFiltersMatchOverlappingWindows() throws IOException {
+        AlertHistory history = open();
+        history.record("TX", alert("old", "Flood Watch", "Old", NOW - 10 * DAY, NOW - 9 * DAY, "TXC113"));
+        history.record("TX", alert("recent", "Flood Watch", "Recent", NOW - 2 * DAY, NOW - DAY, "TXC113"));
+        history.record("TX", alert("current", "Heat Advisory", "Current", NOW - DAY, NOW + DAY, "TXC113"));
+        history.record("OK", alert("other", "Flood Watch", "Other", NOW - DAY, NOW + DAY, "OKC001"));
+
+        assertEquals(List.of("other v1", "recent v1"),
+            ids(history.query(null, "flood watch", NOW - 3 * DAY, Long.MAX_VALUE, 100)));
+        assertEquals(List.of("recent v1"), ids(history.query("TX", "Flood Watch", NOW - 3 * DAY, NOW, 100)));
+        assertEquals(List.of("old v1"), ids(history.query(null, null, NOW - 11 * DAY, NOW - 8 * DAY, 100)));
+        assertEquals(List.of("current v1"), ids(history.query("TX", null, NOW, NOW, 100)));
+        assertTrue(history.query(null, "Tornado Warning", Long.MIN_VALUE, Long.MAX_VALUE, 100).isEmpty());
+        // The limit keeps the newest
+        assertEquals(List.of("other v1", "current v1"), ids(history.query(null, null, Long.MIN_VALUE,
+            Long.MAX_VALUE, 2)));
+    }
+
+    @Test
+    void tornTailIsCutOffAndAMissingIndexRebuilt() throws IOException {
+        AlertHistory history = open();
+        for (int i = 0; i < 3; i++) {
+            history.record("TX", alert("a" + i, "Headline " + i, "TXC113"));
+        }
+        long size = history.totalBytes();
+        history.close();
+
+        // A crash part way through a fourth record
+        try (FileOutputStream out = new FileOutputStream(log(1), true)) {
+            out.write(new byte[] {0, 0, 1, 0, 1, 2, 3, 4, 2, 0, 0});
+        }
+        AlertHistory recovered = open();
+        assertEquals(List.of("a2 v1", "a1 v1", "a0 v1"), ids(all(recovered)));
+        assertEquals(size, log(1).length());
+        recovered.record("TX", alert("a3", "Headline 3", "TXC113"));
+        recovered.close();
+
+        // An index lost or left behind its log is rebuilt from the records
+        assertTrue(new File(directory, "segment-00000001.idx").delete());
+        AlertHistory rebuilt = open();
+        assertEquals(List.of("a3 v1", "a2 v1", "a1 v1", "a0 v1"), ids(all(rebuilt)));
+        assertEquals(List.of("a1 v1"), ids(rebuilt.query("TX", null, Long.MIN_VALUE, Long.MAX_VALUE, 100)
+            .subList(2, 3)));
+        rebuilt.close();
+
+        // A corrupt record ends the log there
+        try (RandomAccessFile file = new RandomAccessFile(log(1), "rw")) {
+            file.seek(size / 3 * 2);
+            file.write(0x55);
+        }
+        assertTrue(new File(directory, "segment-00000001.idx").delete());
+        assertTrue(all(open()).size() < 4);
+    }
+
+    @Test
+    void supersededVersionsOfLongExpiredAlertsAreCompacted() throws IOException {
+        // Every record starts a segment, and each new segment compacts the sealed ones
+        AlertHistory history = open(1L << 30, 1);
+        history.record("TX", alert("a", "Flood Watch", "First", NOW - 40 * DAY, NOW - 30 * DAY, "TXC113"));
+        history.record("TX", alert("a", "Flood Watch", "Second", NOW - 40 * DAY, NOW - 30 * DAY, "TXC113"));
+        long before = history.totalBytes();
+        history.record("TX", alert("b", "Flood Watch", "Other", NOW - 40 * DAY, NOW - 30 * DAY, "TXC113"));
+
+        assertEquals(List.of("b v1", "a v2"), ids(all(history)));
+        assertEquals(2, history.size());
+        assertTrue(history.totalBytes() < before + log(3).length());
+        assertEquals(0, log(1).length());
+
+        // The compacted history reopens as it was, and keeps numbering a's versions
+        history.close();
+        AlertHistory reopened = open(1L << 30, 1);
+        assertEquals(List.of("b v1", "a v2"), ids(all(reopened)));
+        reopened.record("TX", alert("a", "Flood Watch", "Second", NOW - 40 * DAY, NOW - 30 * DAY, "TXC113"));
+        reopened.record("TX", alert("a", "Flood Watch", "Third", NOW - 40 * DAY, NOW - 30 * DAY, "TXC113"));
+        assertEquals(List.of("a v3", "b v1", "a v2"), ids(all(reopened)));
+    }
+
+    @Test
+    void oldestSegmentsGoOnceOverTheSizeBudget() throws IOException {
+        AlertHistory history = open(1L << 30, 1);
+        history.record("TX", alert("probe", "Sizing", "TXC113"));
+        long recordBytes = history.totalBytes();
+        history.close();
+        for (File file : directory.listFiles()) {
+            assertTrue(file.delete());
+        }
+
+        AlertHistory bounded = open(recordBytes * 5 / 2, 1);
+        for (int i = 0; i < 6; i++) {
+            bounded.record("TX", alert("a" + i, "Sizing", "TXC113"));
+        }
+        List<String> kept = ids(all(bounded));
+        assertTrue(kept.size() < 6 && kept.size() >= 2, kept.toString());
+        assertEquals(Arrays.asList("a5 v1", "a4 v1"), kept.subList(0, 2));
+        assertEquals(kept.size(), bounded.size());
+    }
+}
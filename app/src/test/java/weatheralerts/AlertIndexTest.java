@@ -0,0 +1,58 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+// Description words are indexed from the raw bytes without decoding the text; every word of
+// the decoded description must still be found, escapes and non-ASCII included
+class AlertIndexTest {
+
+    private static AlertIndex.Filter words(String text) {
+        return new AlertIndex.Filter(text, "", null, null, AlertIndex.TimeWindow.ANY, null);
+    }
+
+    // The words of the decoded text, split as the index splits them
+    private static Set<String> words(LazyText text) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : text.toString().split("[^\\p{L}\\p{Nd}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word.toLowerCase());
+            }
+        }
+        return words;
+    }
+
+    @Test
+    void everyDescriptionWordIsFound() throws IOException {
+        List<Alert> alerts = new ArrayList<>(AlertJsonReaderTest.parse(AlertJsonReaderTest.fixture("alerts-tx.json")));
+        String json = "{\"features\": [{\"properties\": {\"id\": \"escaped\", \"description\": "
+            + "\"Caf\\u00e9 naïve\\trésumé\\nSTA\\u0054ION 42b\\/c \\\"quoted\\\" — "
+            + "🌪\\ud83c\\udf2a Straße\\\\end\"}}]}";
+        Alert escaped = AlertJsonReaderTest.parse(json.getBytes(StandardCharsets.UTF_8)).get(0);
+        alerts.add(escaped);
+        AlertIndex index = new AlertIndex();
+        for (Alert alert : alerts) {
+            index.put(AlertIndex.prepare(alert));
+        }
+
+        for (Alert alert : alerts) {
+            for (String word : words(alert.description)) {
+                assertTrue(index.search(words(word), 0).contains(alert), word + " in " + alert.id);
+            }
+        }
+        assertEquals(List.of(escaped), index.search(words("café résumé station straße"), 0));
+        assertEquals(List.of(escaped), index.search(words("42b c quoted end"), 0));
+        // Separators stay separators, whether escaped or not
+        assertTrue(index.search(words("trésumé"), 0).isEmpty());
+        assertTrue(index.search(words("nsta"), 0).isEmpty());
+    }
+}
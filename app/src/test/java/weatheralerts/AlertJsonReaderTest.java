@@ -0,0 +1,252 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+// AlertJsonReader against the substring parser it replaced, on a recorded NWS payload and on
+// the edge cases the old parser got right; where it got them wrong the reader's value is
+// checked on its own
+class AlertJsonReaderTest {
+
+    static byte[] fixture(String name) throws IOException {
+        try (InputStream in = AlertJsonReaderTest.class.getResourceAsStream(name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    static List<Alert> parse(byte[] json) throws IOException {
+        List<Alert> alerts = new ArrayList<>();
+        new AlertJsonReader(json).parse(alerts::add);
+        return alerts;
+    }
+
+    private static List<Alert> parse(String json) throws IOException {
+        return parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String properties(String members) {
+        return "{\"type\": \"FeatureCollection\", \"features\": [{\"type\": \"Feature\", \"properties\": {" + members
+            + "}}]}";
+    }
+
+    @Test
+    void matchesLegacyParserOnRecordedPayload() throws IOException {
+        byte[] json = fixture("alerts-tx.json");
+        List<Map<String, String>> expected = LegacyParser.parseAlerts(new String(json, StandardCharsets.UTF_8));
+        assertEquals(3, expected.size());
+
+        List<Alert> fromArray = parse(json);
+        List<Alert> fromStream = new ArrayList<>();
+        // A stream read through the small buffer splits fields across refills
+        new AlertJsonReader(new ByteArrayInputStream(json)).parse(fromStream::add);
+        assertEquals(expected.size(), fromArray.size());
+        assertEquals(expected.size(), fromStream.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameFields(expected.get(i), fromArray.get(i));
+            assertSameFields(expected.get(i), fromStream.get(i));
+        }
+    }
+
+    @Test
+    void keepsFieldsAcrossEscapesAndNonAscii() throws IOException {
+        Alert alert = parse(fixture("alerts-tx.json")).get(0);
+        assertTrue(alert.description.toString().contains("a confirmed \"large and extremely dangerous\" tornado\n"));
+        assertTrue(alert.description.toString().contains("\tHAZARD...Deadly tornado. {Radar confirmed} [RC]\r\n"));
+        assertTrue(alert.description.toString().endsWith("Spotter \\ storm chaser report."));
+        assertTrue(alert.instruction.toString().endsWith("room on the lowest floor \u2014 avoid windows."));
+        assertEquals("Dallas, TX; Tarrant, TX", alert.areaDesc);
+        assertEquals(Alert.Urgency.IMMEDIATE, alert.urgency);
+        assertEquals(Alert.Certainty.OBSERVED, alert.certainty);
+    }
+
+    @Test
+    void decodesEscapesTheLegacyParserLeftRaw() throws IOException {
+        Alert alert = parse(properties("\"headline\": \"Wind chill 10\\u00b0F\", "
+            + "\"description\": \"See https:\\/\\/weather.gov and \\u2014 C:\\\\new\", "
+            + "\"event\": \"Wind \\u0041dvisory\""))
+            .get(0);
+        assertEquals("Wind chill 10\u00b0F", alert.headline);
+        assertEquals("See https://weather.gov and \u2014 C:\\new", alert.description.toString());
+        assertEquals("Wind Advisory", alert.event.name);
+    }
+
+    // The body of a JSON string as the headline, decoded as it is read, and as the description,
+    // kept raw; the description must decode to the headline, as a String and char by char, and
+    // the same when read from a stream with every escape split across a refill
+    private static void assertDecodesAsEager(String expected, String body) throws IOException {
+        Alert alert = parse(properties("\"headline\": \"" + body + "\", \"description\": \"" + body + "\"")).get(0);
+        assertEquals(expected, alert.headline, body);
+        StringBuilder fed = new StringBuilder();
+        alert.description.decodeTo(fed::append);
+        assertEquals(expected, fed.toString(), body);
+        assertEquals(expected, alert.description.toString(), body);
+
+        String padding = " ".repeat(8192 - 64);
+        for (int shift = 0; shift < 8; shift++) {
+            String json = properties("\"instruction\": \"" + padding.substring(shift) + "\", \"description\": \""
+                + body + "\"");
+            List<Alert> streamed = new ArrayList<>();
+            new AlertJsonReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))).parse(streamed::add);
+            assertEquals(expected, streamed.get(0).description.toString(), body + " shifted " + shift);
+        }
+    }
+
+    @Test
+    void everyEscapeDecodesAsTheEagerString() throws IOException {
+        assertDecodesAsEager("\"", "\\\"");
+        assertDecodesAsEager("\\", "\\\\");
+        assertDecodesAsEager("/", "\\/");
+        assertDecodesAsEager("\b", "\\b");
+        assertDecodesAsEager("\f", "\\f");
+        assertDecodesAsEager("\n", "\\n");
+        assertDecodesAsEager("\r", "\\r");
+        assertDecodesAsEager("\t", "\\t");
+        assertDecodesAsEager("A\u00e9\u2014\uffff\u0000", "\\u0041\\u00e9\\u2014\\uFFFF\\u0000");
+        assertDecodesAsEager("a\"b\\c/d\be\ff\ng\rh\ti\u00b0j",
+            "a\\\"b\\\\c\\/d\\be\\ff\\ng\\rh\\ti\\u00B0j");
+        // Raw UTF-8 of every length beside the escapes
+        assertDecodesAsEager("\u00e9\u2014\ud83c\udf2a\\n", "\u00e9\u2014\ud83c\udf2a\\\\n");
+    }
+
+    @Test
+    void surrogatePairsDecodeToOneCodePoint() throws IOException {
+        String tornado = new String(Character.toChars(0x1F32A));
+        assertDecodesAsEager(tornado, "\\ud83c\\udf2a");
+        assertDecodesAsEager(tornado, "\\uD83C\\uDF2A");
+        assertDecodesAsEager("x" + tornado + tornado + "y", "x\\ud83c\\udf2a" + tornado + "y");
+        assertEquals(1, parse(properties("\"headline\": \"\\ud83c\\udf2a\"")).get(0).headline.codePointCount(0, 2));
+    }
+
+    @Test
+    void loneSurrogatesAreKeptAsTheyWereEscaped() throws IOException {
+        assertDecodesAsEager("a\ud83cb", "a\\ud83cb");
+        assertDecodesAsEager("\udf2a", "\\udf2a");
+        assertDecodesAsEager("end \ud83c", "end \\ud83c");
+        // A low surrogate before the high one is two lone ones
+        assertDecodesAsEager("\udf2a\ud83c", "\\udf2a\\ud83c");
+    }
+
+    @Test
+    void truncatedUnicodeEscapesFail() {
+        for (String field : new String[] {"headline", "description"}) {
+            // Cut by the closing quote, which is not a hex digit
+            String shortEscape = properties("\"" + field + "\": \"cut \\u12\"");
+            assertThrows(AlertJsonReader.MalformedJsonException.class, () -> parse(shortEscape), shortEscape);
+            // Cut by the end of the document
+            String json = properties("\"" + field + "\": \"cut \\u00e9\"");
+            for (int cut = json.indexOf("\\u"); cut < json.indexOf("\\u") + 6; cut++) {
+                String truncated = json.substring(0, cut);
+                assertThrows(EOFException.class, () -> parse(truncated), truncated);
+            }
+        }
+    }
+
+    @Test
+    void nullsAreAbsentFields() throws IOException {
+        // Last in the object, where the old parser also found no value
+        String json = properties("\"event\": \"Flood Watch\", \"severity\": \"Moderate\", \"instruction\": null");
+        Map<String, String> expected = LegacyParser.parseAlerts(json).get(0);
+        Alert alert = parse(json).get(0);
+        assertSameFields(expected, alert);
+        assertNull(alert.instruction);
+
+        // Followed by another string, which the old parser took for the value
+        json = properties("\"headline\": null, \"event\": \"Flood Watch\", \"onset\": null, \"description\": null,"
+            + " \"response\": \"Monitor\"");
+        assertEquals("event", LegacyParser.parseAlerts(json).get(0).get("headline"));
+        alert = parse(json).get(0);
+        assertNull(alert.headline);
+        assertNull(alert.description);
+        assertEquals(IsoTimestamps.NONE, alert.onset);
+        assertNull(alert.onsetText);
+        assertEquals("Flood Watch", alert.event.name);
+    }
+
+    @Test
+    void missingKeysKeepDefaults() throws IOException {
+        String json = "{\"features\": [{\"properties\": {}}, {\"id\": \"no-properties\", \"geometry\": null},"
+            + " {\"properties\": {\"event\": \"Heat Advisory\"}}]}";
+        List<Map<String, String>> expected = LegacyParser.parseAlerts(json);
+        List<Alert> alerts = parse(json);
+        assertEquals(2, expected.size());
+        assertEquals(2, alerts.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameFields(expected.get(i), alerts.get(i));
+        }
+        Alert empty = alerts.get(0);
+        assertEquals(EventType.NONE, empty.event);
+        assertEquals(Alert.Severity.UNKNOWN, empty.severity);
+        assertEquals(IsoTimestamps.NONE, empty.effective);
+        assertNull(empty.headline);
+        assertNull(empty.description);
+        assertNull(empty.geometry);
+
+        assertTrue(parse("{\"type\": \"FeatureCollection\", \"features\": []}").isEmpty());
+        assertTrue(parse("{\"type\": \"FeatureCollection\"}").isEmpty());
+    }
+
+    @Test
+    void truncatedDocumentsFailAfterTheFeaturesThatClosed() throws IOException {
+        byte[] json = fixture("alerts-tx.json");
+        List<Alert> full = parse(json);
+        int featuresEnd = new String(json, StandardCharsets.UTF_8).lastIndexOf("    ],");
+        for (int cut = 1; cut < featuresEnd; cut++) {
+            byte[] truncated = Arrays.copyOf(json, cut);
+            // The old parser finds no closed features array and returns nothing
+            assertTrue(LegacyParser.parseAlerts(new String(truncated, StandardCharsets.UTF_8)).isEmpty());
+            List<Alert> delivered = new ArrayList<>();
+            // An end of input, which a caller retries, not a malformed document
+            assertThrows(EOFException.class, () -> new AlertJsonReader(truncated).parse(delivered::add),
+                "cut at " + cut);
+            assertTrue(delivered.size() < full.size());
+            for (int i = 0; i < delivered.size(); i++) {
+                assertTrue(delivered.get(i).sameContent(full.get(i)));
+            }
+        }
+    }
+
+    @Test
+    void malformedDocumentsFail() {
+        String[] malformed = {
+            properties("\"event\": \"Flood Watch\" \"severity\": \"Minor\""),
+            properties("\"event\": \"Flood Watch\", \"description\": \"bad \\x escape\""),
+            properties("\"event\": \"Flood Watch\", \"description\": \"bad \\u12G4 escape\""),
+            properties("\"event\" \"Flood Watch\""),
+            "{\"features\": [{\"properties\": {\"event\": \"Flood Watch\"}},, {}]}",
+            "{\"features\": [{\"properties\": {\"event\": \"Flood Watch\"]]}",
+        };
+        for (String json : malformed) {
+            assertThrows(AlertJsonReader.MalformedJsonException.class, () -> parse(json), json);
+        }
+    }
+
+    // The fields the old parser extracted, as it extracted them
+    private static void assertSameFields(Map<String, String> expected, Alert alert) {
+        assertEquals(expected.get("event"), alert.event.nameOr(null));
+        assertEquals(expected.getOrDefault("severity", Alert.Severity.UNKNOWN.label), alert.severity.label);
+        assertEquals(expected.get("headline"), alert.headline);
+        assertEquals(expected.get("description"), alert.description != null ? alert.description.toString() : null);
+        assertEquals(expected.get("instruction"), alert.instruction != null ? alert.instruction.toString() : null);
+        assertEquals(timestamp(expected.get("effective")), alert.effective);
+        assertEquals(timestamp(expected.get("expires")), alert.expires);
+        assertEquals(timestamp(expected.get("onset")), alert.onset);
+    }
+
+    private static long timestamp(String text) {
+        return text == null ? IsoTimestamps.NONE : IsoTimestamps.parse(text.toCharArray(), 0, text.length());
+    }
+}
@@ -0,0 +1,244 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The caching proxy between a stub upstream and plain HTTP clients: one upstream fetch shared
+// by the requests that arrive during it, 304s for a matching ETag, gzip only when asked for,
+// stale snapshots served without waiting for their refresh, and no upstream requests while a
+// failed area backs off
+class AlertServerTest {
+
+    private static final byte[] EMPTY = "{\"features\": []}".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    File directory;
+
+    private StubServer upstream;
+    private AlertServer server;
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void start() throws IOException {
+        upstream = new StubServer();
+    }
+
+    @AfterEach
+    void stop() {
+        if (server != null) {
+            server.stop();
+        }
+        upstream.close();
+    }
+
+    private void serve(long refreshMillis) throws IOException {
+        server = new AlertServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+            StubServer.client(new HttpCache(directory, 1 << 20)), upstream.url(""), refreshMillis);
+        server.start();
+    }
+
+    // Upstream answers with body, kept out of the client's cache so every fetch reaches it
+    private void upstreamServes(byte[] body) {
+        upstream.respond(exchange -> StubServer.send(exchange, 200, body, "Cache-Control", "no-store"));
+    }
+
+    private HttpResponse<byte[]> get(String path, String... headers) throws Exception {
+        return send(path, headers).get(30, TimeUnit.SECONDS);
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> send(String path, String... headers) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+            URI.create("http://127.0.0.1:" + server.port() + path));
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        return http.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static int alerts(byte[] body) throws IOException {
+        return AlertJsonReaderTest.parse(body).size();
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+
+    // Polls /stats until it shows line, as counted behind the requests that caused it
+    private void awaitStat(String line) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        String stats;
+        do {
+            stats = new String(get("/stats").body(), StandardCharsets.UTF_8);
+            if (stats.contains("\n" + line + "\n")) {
+                return;
+            }
+            Thread.sleep(5);
+        } while (System.nanoTime() < deadline);
+        throw new AssertionError("No \"" + line + "\" in\n" + stats);
+    }
+
+    @Test
+    void requestsArrivingDuringAFetchShareIt() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        byte[] feed = StubServer.feed();
+        upstream.respond(exchange -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            StubServer.send(exchange, 200, feed, "Cache-Control", "no-store");
+        });
+        serve(60_000);
+
+        List<CompletableFuture<HttpResponse<byte[]>>> waiting = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            waiting.add(send("/alerts/active?area=tx"));
+        }
+        awaitStat("coalesced 7");
+        release.countDown();
+        byte[] first = null;
+        for (CompletableFuture<HttpResponse<byte[]>> response : waiting) {
+            HttpResponse<byte[]> done = response.get(30, TimeUnit.SECONDS);
+            assertEquals(200, done.statusCode());
+            first = first == null ? done.body() : first;
+            assertArrayEquals(first, done.body());
+        }
+        assertEquals(3, alerts(first));
+        assertEquals(1, upstream.requests());
+        // Fresh for the interval: served without asking upstream
+        assertEquals(200, get("/alerts/active?area=TX").statusCode());
+        assertEquals(1, upstream.requests());
+    }
+
+    @Test
+    void matchingEtagGetsNotModified() throws Exception {
+        upstreamServes(StubServer.feed());
+        serve(60_000);
+
+        HttpResponse<byte[]> first = get("/alerts/active?area=TX");
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        assertTrue(first.headers().firstValue("Cache-Control").orElseThrow().startsWith("public, max-age="));
+        HttpResponse<byte[]> revalidated = get("/alerts/active?area=TX", "If-None-Match", etag);
+        assertEquals(304, revalidated.statusCode());
+        assertEquals(0, revalidated.body().length);
+        assertEquals(etag, revalidated.headers().firstValue("ETag").orElseThrow());
+        assertEquals(200, get("/alerts/active?area=TX", "If-None-Match", "\"other\"").statusCode());
+        assertEquals(1, upstream.requests());
+        awaitStat("not modified 1");
+    }
+
+    @Test
+    void gzipOnlyWhenAccepted() throws Exception {
+        upstreamServes(StubServer.feed());
+        serve(60_000);
+
+        HttpResponse<byte[]> identity = get("/alerts/active?area=TX");
+        assertFalse(identity.headers().firstValue("Content-Encoding").isPresent());
+        assertEquals("Accept-Encoding", identity.headers().firstValue("Vary").orElseThrow());
+        HttpResponse<byte[]> gzipped = get("/alerts/active?area=TX", "Accept-Encoding", "br, gzip;q=0.8");
+        assertEquals("gzip", gzipped.headers().firstValue("Content-Encoding").orElseThrow());
+        assertTrue(gzipped.body().length < identity.body().length);
+        assertArrayEquals(identity.body(), gunzip(gzipped.body()));
+        HttpResponse<byte[]> refused = get("/alerts/active?area=TX", "Accept-Encoding", "gzip;q=0");
+        assertNull(refused.headers().firstValue("Content-Encoding").orElse(null));
+        assertArrayEquals(identity.body(), refused.body());
+
+        // Each encoding has its own tag, and one does not revalidate the other
+        String identityTag = identity.headers().firstValue("ETag").orElseThrow();
+        String gzipTag = gzipped.headers().firstValue("ETag").orElseThrow();
+        assertFalse(identityTag.equals(gzipTag));
+        assertEquals(200, get("/alerts/active?area=TX", "Accept-Encoding", "gzip", "If-None-Match", identityTag)
+            .statusCode());
+        assertEquals(304, get("/alerts/active?area=TX", "Accept-Encoding", "gzip", "If-None-Match", gzipTag)
+            .statusCode());
+        assertEquals(1, upstream.requests());
+    }
+
+    @Test
+    void staleSnapshotsAreServedWhileTheyRefresh() throws Exception {
+        upstreamServes(StubServer.feed());
+        // Every snapshot is due for refresh as soon as it is taken
+        serve(0);
+        assertEquals(3, alerts(get("/alerts/active?area=TX").body()));
+
+        CountDownLatch release = new CountDownLatch(1);
+        upstream.respond(exchange -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            StubServer.send(exchange, 200, EMPTY, "Cache-Control", "no-store");
+        });
+        // Answered from the old snapshot while upstream holds the refresh
+        HttpResponse<byte[]> stale = get("/alerts/active?area=TX");
+        assertEquals(3, alerts(stale.body()));
+        assertEquals("public, max-age=0", stale.headers().firstValue("Cache-Control").orElseThrow());
+        assertEquals(3, alerts(get("/alerts/active?area=TX").body()));
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (alerts(get("/alerts/active?area=TX").body()) != 0) {
+            assertTrue(System.nanoTime() < deadline, "refresh never replaced the snapshot");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void failedRefreshesBackOff() throws Exception {
+        upstreamServes(StubServer.feed());
+        serve(0);
+        assertEquals(3, alerts(get("/alerts/active?area=TX").body()));
+        upstream.respond(exchange -> StubServer.send(exchange, 404, new byte[0]));
+
+        // The failure happens behind a stale answer
+        assertEquals(3, alerts(get("/alerts/active?area=TX").body()));
+        awaitStat("upstream failures 1");
+        int asked = upstream.requests();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(3, alerts(get("/alerts/active?area=TX").body()));
+        }
+        assertEquals(asked, upstream.requests());
+
+        // A first request for another area fails with the error, and then fails fast
+        assertEquals(502, get("/alerts/active?area=OK").statusCode());
+        int askedForOk = upstream.requests();
+        assertEquals(502, get("/alerts/active?area=OK").statusCode());
+        assertEquals(askedForOk, upstream.requests());
+
+        // Once the backoff is over, upstream is asked again
+        upstreamServes(EMPTY);
+        Thread.sleep(1100);
+        get("/alerts/active?area=TX");
+        awaitStat("upstream fetches 4");
+        assertEquals(askedForOk + 1, upstream.requests());
+    }
+}
@@ -0,0 +1,139 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The launch snapshot's two slots: what is saved loads back with the same content, the newest
+// intact slot wins, and a slot torn, corrupted or of another format is passed over for the
+// other one, or for nothing
+class AlertSnapshotTest {
+
+    @TempDir
+    File directory;
+
+    private static List<Alert> alerts() throws IOException {
+        List<Alert> alerts = new ArrayList<>(AlertJsonReaderTest.parse(StubServer.feed()));
+        String json = "{\"features\": [{\"properties\": {\"id\": \"escaped\", "
+            + "\"headline\": \"Caf\\u00e9 \\\"hot\\\"\", \"description\": \"Line one\\nline two \\ud83c\\udf2a\", "
+            + "\"instruction\": \"Stay \\/ go\", "
+            + "\"geocode\": {\"UGC\": [\"AKZ185\", \"TXC113\"]}}}]}";
+        alerts.addAll(AlertJsonReaderTest.parse(json.getBytes(StandardCharsets.UTF_8)));
+        return alerts;
+    }
+
+    private static void assertSameAlerts(List<Alert> expected, List<Alert> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(expected.get(i).sameContent(actual.get(i)), expected.get(i).id);
+        }
+    }
+
+    private File slot(String name) {
+        return new File(directory, "snapshot-" + name + ".bin");
+    }
+
+    private static void overwrite(File file, long position, int value) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(position);
+            out.write(value);
+        }
+    }
+
+    @Test
+    void savedAlertsLoadBackWithTheSameContent() throws IOException {
+        List<Alert> alerts = alerts();
+        long before = System.currentTimeMillis();
+        assertTrue(new AlertSnapshot(directory).save("TX, AK", alerts));
+
+        AlertSnapshot.Saved saved = new AlertSnapshot(directory).load();
+        assertNotNull(saved);
+        assertEquals("TX, AK", saved.query);
+        assertTrue(saved.savedAt >= before && saved.savedAt <= System.currentTimeMillis());
+        assertSameAlerts(alerts, saved.alerts);
+        Alert escaped = saved.alerts.get(saved.alerts.size() - 1);
+        assertEquals("Line one\nline two 🌪", escaped.description.toString());
+        assertEquals(List.of("AK", "TX"), escaped.states);
+        assertTrue(saved.alerts.stream().anyMatch(alert -> alert.geometry != null));
+
+        assertTrue(new AlertSnapshot(directory).save("", new ArrayList<>()));
+        AlertSnapshot.Saved empty = new AlertSnapshot(directory).load();
+        assertEquals("", empty.query);
+        assertTrue(empty.alerts.isEmpty());
+    }
+
+    @Test
+    void theNewestIntactSlotWins() throws IOException {
+        List<Alert> alerts = alerts();
+        AlertSnapshot snapshot = new AlertSnapshot(directory);
+        assertNull(snapshot.load());
+        assertTrue(snapshot.save("TX", alerts));
+        assertTrue(snapshot.save("OK", alerts.subList(0, 1)));
+        assertTrue(slot("a").isFile() && slot("b").isFile());
+        assertEquals("OK", new AlertSnapshot(directory).load().query);
+
+        // A smaller snapshot written over a larger one leaves its tail behind, which is ignored
+        long larger = slot("a").length();
+        assertTrue(snapshot.save("KS", alerts.subList(0, 1)));
+        assertEquals(larger, slot("a").length());
+        AlertSnapshot.Saved saved = new AlertSnapshot(directory).load();
+        assertEquals("KS", saved.query);
+        assertSameAlerts(alerts.subList(0, 1), saved.alerts);
+    }
+
+    @Test
+    void corruptOrTornSlotsFallBackToTheOther() throws IOException {
+        List<Alert> alerts = alerts();
+        AlertSnapshot snapshot = new AlertSnapshot(directory);
+        assertTrue(snapshot.save("older", alerts));
+        assertTrue(snapshot.save("newer", alerts));
+
+        // A flipped byte in the newer body fails its CRC
+        overwrite(slot("b"), slot("b").length() / 2, 0x55);
+        AlertSnapshot.Saved saved = new AlertSnapshot(directory).load();
+        assertEquals("older", saved.query);
+        assertSameAlerts(alerts, saved.alerts);
+
+        // A save torn part way through its body, after the header was written. Loading picked
+        // slot a, so the next save goes to b.
+        AlertSnapshot loaded = new AlertSnapshot(directory);
+        assertEquals("older", loaded.load().query);
+        assertTrue(loaded.save("torn", alerts));
+        try (RandomAccessFile file = new RandomAccessFile(slot("b"), "rw")) {
+            file.setLength(file.length() / 2);
+        }
+        AlertSnapshot.Saved fallback = new AlertSnapshot(directory).load();
+        assertEquals("older", fallback.query);
+        assertSameAlerts(alerts, fallback.alerts);
+    }
+
+    @Test
+    void unreadableSlotsGiveNoSnapshot() throws IOException {
+        AlertSnapshot snapshot = new AlertSnapshot(directory);
+        assertTrue(snapshot.save("first", alerts()));
+        assertTrue(snapshot.save("second", alerts()));
+        // Another format, and a header cut short
+        overwrite(slot("a"), 4, 99);
+        try (RandomAccessFile file = new RandomAccessFile(slot("b"), "rw")) {
+            file.setLength(10);
+        }
+        assertNull(new AlertSnapshot(directory).load());
+
+        // A body length past the end of the file; a snapshot that has loaded nothing saves to a
+        assertTrue(new AlertSnapshot(directory).save("third", alerts()));
+        assertEquals("third", new AlertSnapshot(directory).load().query);
+        overwrite(slot("a"), 13, 0x7F);
+        assertNull(new AlertSnapshot(directory).load());
+    }
+}
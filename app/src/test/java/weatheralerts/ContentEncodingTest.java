@@ -0,0 +1,158 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static weatheralerts.StubServer.fetch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Compressed responses decoded on their way into the parser: every encoding the client asks
+// for must give the same alerts as the identity body, and a broken one must fail as I/O
+class ContentEncodingTest {
+
+    @TempDir
+    File directory;
+
+    private StubServer server;
+    private byte[] payload;
+    private List<Alert> identity;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new StubServer();
+        payload = StubServer.feed();
+        identity = AlertJsonReaderTest.parse(payload);
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    private NwsClient client() throws IOException {
+        return StubServer.client(new HttpCache(directory, 1 << 20));
+    }
+
+    private void serve(byte[] body, String encoding) {
+        server.respond(exchange -> StubServer.send(exchange, 200, body, "Content-Encoding", encoding,
+            "ETag", "\"v1\""));
+    }
+
+    private void assertSameAsIdentity(List<Alert> alerts) {
+        assertEquals(identity.size(), alerts.size());
+        for (int i = 0; i < identity.size(); i++) {
+            assertTrue(identity.get(i).sameContent(alerts.get(i)));
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data, boolean raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, deflater)) {
+            deflate.write(data);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void identityBodyIsParsedAsSent() throws IOException {
+        serve(payload, "identity");
+        assertSameAsIdentity(fetch(client(), server.url("/alerts/active?area=TX")));
+        assertEquals("gzip, deflate", server.request(0).getFirst("Accept-Encoding"));
+    }
+
+    @Test
+    void gzipBodyMatchesIdentity() throws IOException {
+        byte[] body = gzip(payload);
+        assertTrue(body.length < payload.length);
+        serve(body, "gzip");
+        NwsClient client = client();
+        String url = server.url("/alerts/active?area=TX");
+        assertSameAsIdentity(fetch(client, url));
+
+        // The cache keeps the decoded body, so a revalidated replay needs no decoding
+        HttpCache cache = new HttpCache(directory, 1 << 20);
+        assertEquals(payload.length, cache.totalBytes());
+        server.respond(exchange -> StubServer.send(exchange, 304, new byte[0], "ETag", "\"v1\""));
+        assertSameAsIdentity(fetch(StubServer.client(cache), url));
+    }
+
+    @Test
+    void zlibWrappedDeflateBodyMatchesIdentity() throws IOException {
+        serve(deflate(payload, false), "deflate");
+        assertSameAsIdentity(fetch(client(), server.url("/alerts/active?area=TX")));
+    }
+
+    @Test
+    void rawDeflateBodyMatchesIdentity() throws IOException {
+        serve(deflate(payload, true), "Deflate");
+        assertSameAsIdentity(fetch(client(), server.url("/alerts/active?area=TX")));
+    }
+
+    @Test
+    void pagesAreDecodedToTheSentBytes() throws IOException {
+        serve(gzip(payload), "gzip");
+        assertArrayEquals(payload, client().fetchPage(server.url("/alerts?cursor=1"), new NwsClient.Call()));
+        serve(deflate(payload, true), "deflate");
+        assertArrayEquals(payload, client().fetchPage(server.url("/alerts?cursor=2"), new NwsClient.Call()));
+    }
+
+    @Test
+    void unknownEncodingFailsWithoutParsing() throws IOException {
+        serve(payload, "br");
+        List<Alert> alerts = new ArrayList<>();
+        IOException e = assertThrows(IOException.class,
+            () -> client().fetchAlerts(server.url("/alerts/active?area=TX"), alerts::add, new NwsClient.Call()));
+        assertEquals("Unsupported Content-Encoding: br", e.getMessage());
+        assertTrue(alerts.isEmpty());
+    }
+
+    @Test
+    void truncatedGzipStreamFailsAsIo() throws IOException {
+        byte[] body = gzip(payload);
+        // Cut well past the first feature, so the parser has alerts in hand when the stream ends
+        serve(Arrays.copyOf(body, body.length * 3 / 4), "gzip");
+        HttpCache cache = new HttpCache(directory, 1 << 20);
+        NwsClient client = StubServer.client(cache);
+        String url = server.url("/alerts/active?area=TX");
+        List<Alert> alerts = new ArrayList<>();
+
+        IOException e = assertThrows(IOException.class,
+            () -> client.fetchAlerts(url, alerts::add, new NwsClient.Call()));
+        assertFalse(e instanceof AlertJsonReader.MalformedJsonException, e.toString());
+        assertFalse(alerts.isEmpty());
+        assertTrue(alerts.size() < identity.size());
+        for (int i = 0; i < alerts.size(); i++) {
+            assertTrue(identity.get(i).sameContent(alerts.get(i)));
+        }
+        // Alerts were delivered, so the exchange is not retried, and nothing partial is cached
+        assertEquals(1, server.requests());
+        assertEquals(0, cache.totalBytes());
+    }
+}
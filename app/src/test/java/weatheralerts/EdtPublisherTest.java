@@ -0,0 +1,184 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.Test;
+
+// EdtPublisher putting a large feed on a headless screen: the list, its model and the alert
+// index, fed the way a query feeds them. The drains read a clock that each shown row moves
+// on by a fixed cost, so how many rows each EDT task takes, and so how long it holds the EDT,
+// does not depend on the machine. The wall-clock latency of the same screen is measured by
+// EdtLatencyReport in the benchmarks.
+class EdtPublisherTest {
+
+    // A row costs this much of the slice, so a drain reaches its deadline part way through a
+    // batch of CHECK_EVERY items and stops at the end of it
+    private static final long ROW_NANOS = 60_000;
+    private static final int ROWS_PER_TASK = 80;
+
+    // Created and used on the EDT
+    private static final class Screen {
+        final AlertListModel model = new AlertListModel();
+        final JList<Alert> list = new JList<>(model);
+        final JLabel header = new JLabel();
+        final AlertIndex index = new AlertIndex();
+
+        Screen() {
+            // As the app's list, which would otherwise measure every row on each append
+            list.setFixedCellHeight(AlertCellRenderer.ROW_HEIGHT);
+            list.setCellRenderer(new AlertCellRenderer());
+        }
+    }
+
+    private static final class Prepared {
+        final AlertIndex.Entry entry;
+        final AlertRow row;
+
+        Prepared(AlertIndex.Entry entry, AlertRow row) {
+            this.entry = entry;
+            this.row = row;
+        }
+    }
+
+    @Test
+    void largeFeedIsShownInSlicesOfEqualRows() throws Exception {
+        List<Alert> alerts = alerts(5_000);
+        Screen screen = onEdt(Screen::new);
+        Queue<Runnable> edt = new ConcurrentLinkedQueue<>();
+        long[] clock = {0};
+        List<Integer> rowsPerTask = new ArrayList<>();
+        EdtPublisher<Prepared> publisher = new EdtPublisher<>(edt::add, new EdtPublisher.Sink<Prepared>() {
+            private final List<Alert> shown = new ArrayList<>();
+
+            @Override
+            public void accept(Prepared prepared) {
+                screen.index.put(prepared.entry);
+                screen.model.putView(prepared.row);
+                shown.add(prepared.row.alert);
+                clock[0] += ROW_NANOS;
+            }
+
+            @Override
+            public void flush(int published, int offered) {
+                rowsPerTask.add(shown.size());
+                screen.model.addAll(shown);
+                shown.clear();
+                screen.header.setText("Loaded " + published + " of " + offered + " alerts...");
+            }
+        }, EdtPublisher.SLICE_NANOS, () -> clock[0]);
+
+        // The whole feed is queued before the EDT gets to it, as when a cached feed parses faster
+        // than the EDT shows it, so the drains face the full batch at once
+        for (Alert alert : alerts) {
+            publisher.offer(new Prepared(AlertIndex.prepare(alert), AlertRow.of(alert)));
+        }
+        boolean[] finished = {false};
+        publisher.finish(() -> finished[0] = true);
+        assertEquals(1, edt.size());
+        int tasks = onEdt(() -> {
+            int count = 0;
+            for (Runnable task; (task = edt.poll()) != null; count++) {
+                task.run();
+            }
+            return count;
+        });
+
+        List<Integer> expected = new ArrayList<>();
+        for (int left = alerts.size(); left > 0; left -= ROWS_PER_TASK) {
+            expected.add(Math.min(left, ROWS_PER_TASK));
+        }
+        assertEquals(expected, rowsPerTask);
+        assertEquals(expected.size(), tasks);
+        // No task holds the EDT for more than a slice and the rows between two clock reads
+        assertTrue(ROWS_PER_TASK * ROW_NANOS < EdtPublisher.SLICE_NANOS + 16 * ROW_NANOS);
+        assertTrue(finished[0]);
+        assertEquals(alerts.size(), onEdt(screen.model::size));
+        assertEquals(alerts.size(), onEdt(screen.index::size));
+        assertEquals("Loaded 5000 of 5000 alerts...", onEdt(screen.header::getText));
+    }
+
+    @Test
+    void drainsStopAtTheSliceAndFinishAfterTheLastItem() {
+        Queue<Runnable> edt = new ArrayDeque<>();
+        List<Integer> accepted = new ArrayList<>();
+        List<String> flushes = new ArrayList<>();
+        EdtPublisher<Integer> publisher = new EdtPublisher<>(edt::add, new EdtPublisher.Sink<Integer>() {
+            @Override
+            public void accept(Integer item) {
+                accepted.add(item);
+            }
+
+            @Override
+            public void flush(int published, int offered) {
+                flushes.add(published + "/" + offered);
+            }
+        }, 0);
+        for (int i = 0; i < 40; i++) {
+            publisher.offer(i);
+        }
+        boolean[] finished = {false};
+        publisher.finish(() -> {
+            assertEquals(40, accepted.size());
+            finished[0] = true;
+        });
+        // A single drain queued, however many items were offered
+        assertEquals(1, edt.size());
+        while (!edt.isEmpty()) {
+            edt.poll().run();
+        }
+        // An expired slice still consumes items between clock reads, then yields
+        assertEquals(List.of("16/40", "32/40", "40/40"), flushes);
+        assertTrue(finished[0]);
+        assertEquals(40, publisher.published());
+    }
+
+    private interface EdtCall<T> {
+        T call();
+    }
+
+    private static <T> T onEdt(EdtCall<T> call) throws Exception {
+        List<T> result = new ArrayList<>(1);
+        SwingUtilities.invokeAndWait(() -> result.add(call.call()));
+        return result.get(0);
+    }
+
+    // Distinct alerts with descriptions of a realistic length
+    private static List<Alert> alerts(int count) throws IOException {
+        StringBuilder json = new StringBuilder("{\"type\": \"FeatureCollection\", \"features\": [");
+        String[] events = {"Tornado Warning", "Flood Watch", "Heat Advisory", "Winter Storm Warning"};
+        String[] severities = {"Extreme", "Severe", "Moderate", "Minor"};
+        for (int i = 0; i < count; i++) {
+            json.append(i > 0 ? ", " : "")
+                .append("{\"id\": \"urn:test:").append(i).append("\", \"properties\": {")
+                .append("\"id\": \"urn:test:").append(i).append("\", ")
+                .append("\"areaDesc\": \"County ").append(i % 254).append(", TX\", ")
+                .append("\"effective\": \"2024-05-09T02:45:00-05:00\", ")
+                .append("\"expires\": \"2024-05-09T0").append(3 + i % 6).append(":45:00-05:00\", ")
+                .append("\"severity\": \"").append(severities[i % severities.length]).append("\", ")
+                .append("\"event\": \"").append(events[i % events.length]).append("\", ")
+                .append("\"headline\": \"").append(events[i % events.length]).append(" issued for County ")
+                .append(i % 254).append(" until further notice\", ")
+                .append("\"description\": \"");
+            for (int line = 0; line < 6; line++) {
+                json.append("* WHAT...Conditions described in line ").append(line).append(" of alert ").append(i)
+                    .append(".\\n");
+            }
+            json.append("\"}}");
+        }
+        json.append("]}");
+        return AlertJsonReaderTest.parse(json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
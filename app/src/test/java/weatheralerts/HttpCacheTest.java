@@ -0,0 +1,223 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static weatheralerts.StubServer.client;
+import static weatheralerts.StubServer.fetch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// NwsClient and HttpCache against a local server: what is stored, revalidated, served fresh,
+// evicted, and replayed when the upstream fails
+class HttpCacheTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    @TempDir
+    File directory;
+
+    private StubServer server;
+    private byte[] payload;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new StubServer();
+        payload = StubServer.feed();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    private static void assertSameAlerts(List<Alert> expected, List<Alert> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(expected.get(i).sameContent(actual.get(i)));
+        }
+    }
+
+    @Test
+    void storesOkResponse() throws IOException {
+        server.respond(exchange -> StubServer.send(exchange, 200, payload, "ETag", ETAG,
+            "Last-Modified", "Thu, 09 May 2024 02:45:00 GMT"));
+        HttpCache cache = new HttpCache(directory, 1 << 20);
+        String url = server.url("/alerts/active?area=TX");
+
+        assertEquals(3, fetch(client(cache), url).size());
+        HttpCache.Entry entry = cache.get(url);
+        assertNotNull(entry);
+        assertEquals(ETAG, entry.etag);
+        assertEquals("Thu, 09 May 2024 02:45:00 GMT", entry.lastModified);
+        assertArrayEquals(payload, Files.readAllBytes(entry.body.toPath()));
+        assertEquals(payload.length, cache.totalBytes());
+    }
+
+    @Test
+    void notModifiedIsAnsweredFromStoredBody() throws IOException {
+        server.respond(exchange -> StubServer.send(exchange, 200, payload, "ETag", ETAG));
+        String url = server.url("/alerts/active?area=TX");
+        List<Alert> first = fetch(client(new HttpCache(directory, 1 << 20)), url);
+
+        // A new launch: the index comes from disk and nothing parsed is held in memory
+        server.respond(exchange -> {
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                StubServer.send(exchange, 304, new byte[0], "ETag", ETAG);
+            } else {
+                StubServer.send(exchange, 200, "{\"features\": []}".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        List<Alert> second = fetch(client(new HttpCache(directory, 1 << 20)), url);
+        assertEquals(2, server.requests());
+        assertEquals(ETAG, server.request(1).getFirst("If-None-Match"));
+        assertSameAlerts(first, second);
+    }
+
+    @Test
+    void freshEntryIsServedWithoutRequest() throws IOException {
+        server.respond(exchange -> StubServer.send(exchange, 200, payload, "Cache-Control", "public, max-age=60",
+            "Age", "30"));
+        NwsClient client = client(new HttpCache(directory, 1 << 20));
+        String url = server.url("/alerts/active?area=TX");
+
+        List<Alert> first = fetch(client, url);
+        List<Alert> second = fetch(client, url);
+        assertEquals(1, server.requests());
+        assertSameAlerts(first, second);
+
+        // Served as old as its max-age: stale at once, so the next fetch asks again
+        server.respond(exchange -> StubServer.send(exchange, 200, payload, "Cache-Control", "max-age=60",
+            "Age", "60"));
+        String aged = server.url("/alerts/active?area=OK");
+        fetch(client, aged);
+        fetch(client, aged);
+        assertEquals(3, server.requests());
+    }
+
+    @Test
+    void noStoreResponseIsNotStored() throws IOException {
+        server.respond(exchange -> StubServer.send(exchange, 200, payload, "Cache-Control", "no-store",
+            "ETag", ETAG));
+        HttpCache cache = new HttpCache(directory, 1 << 20);
+        NwsClient client = client(cache);
+        String url = server.url("/alerts/active?area=TX");
+
+        assertEquals(3, fetch(client, url).size());
+        assertNull(cache.get(url));
+        assertEquals(0, cache.totalBytes());
+        String[] files = directory.list();
+        assertTrue(files == null || files.length == 0);
+        fetch(client, url);
+        assertEquals(2, server.requests());
+        assertNull(server.request(1).getFirst("If-None-Match"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedPastMaxBytes() throws IOException {
+        server.respond(exchange -> StubServer.send(exchange, 200, payload, "ETag", ETAG));
+        HttpCache cache = new HttpCache(directory, payload.length * 2L + 100);
+        NwsClient client = client(cache);
+        String a = server.url("/alerts/active?area=TX");
+        String b = server.url("/alerts/active?area=OK");
+        String c = server.url("/alerts/active?area=LA");
+
+        fetch(client, a);
+        fetch(client, b);
+        // Using a makes b the least recently used
+        assertNotNull(cache.get(a));
+        fetch(client, c);
+        assertNotNull(cache.get(a));
+        assertNull(cache.get(b));
+        assertNotNull(cache.get(c));
+        assertEquals(payload.length * 2L, cache.totalBytes());
+        assertEquals(4, directory.list().length);
+
+        // The order survives a restart through the meta files' timestamps
+        HttpCache reloaded = new HttpCache(directory, payload.length * 2L + 100);
+        assertNotNull(reloaded.get(a));
+        assertNotNull(reloaded.get(c));
+        assertEquals(payload.length * 2L, reloaded.totalBytes());
+    }
+
+    @Test
+    void staleCopyIsServedWhenUpstreamFails() throws IOException {
+        server.respond(exchange -> StubServer.send(exchange, 200, payload, "ETag", ETAG));
+        HttpCache cache = new HttpCache(directory, 1 << 20);
+        UpstreamGuard guard = StubServer.guard();
+        NwsClient client = new NwsClient(cache, guard);
+        String url = server.url("/alerts/active?area=TX");
+        List<Alert> first = fetch(client, url);
+
+        server.respond(exchange -> StubServer.send(exchange, 503, new byte[0], "Retry-After", "0"));
+        List<Alert> stale = fetch(client, url);
+        assertSameAlerts(first, stale);
+        assertEquals(1 + UpstreamGuard.MAX_ATTEMPTS, server.requests());
+        assertEquals(1, guard.getStaleServedCount());
+        // Still the last good copy
+        assertEquals(ETAG, cache.get(url).etag);
+
+        // With nothing cached there is nothing to fall back on
+        assertThrows(UpstreamGuard.UpstreamException.class,
+            () -> fetch(client, server.url("/alerts/active?area=OK")));
+    }
+
+    @Test
+    void corruptMetaFileDropsOnlyItsEntry() throws IOException {
+        server.respond(exchange -> StubServer.send(exchange, 200, payload, "ETag", ETAG));
+        HttpCache cache = new HttpCache(directory, 1 << 20);
+        NwsClient client = client(cache);
+        String good = server.url("/alerts/active?area=TX");
+        String badNumber = server.url("/alerts/active?area=OK");
+        String badEscape = server.url("/alerts/active?area=LA");
+        fetch(client, good);
+        fetch(client, badNumber);
+        fetch(client, badEscape);
+
+        File numberMeta = meta(cache.get(badNumber));
+        String text = new String(Files.readAllBytes(numberMeta.toPath()), StandardCharsets.ISO_8859_1);
+        // As a save torn halfway through the number would leave it
+        Files.write(numberMeta.toPath(),
+            text.replaceAll("expiresAt=\\d+", "expiresAt=17x").getBytes(StandardCharsets.ISO_8859_1));
+        Files.write(meta(cache.get(badEscape)).toPath(), "url=\\uZZ".getBytes(StandardCharsets.ISO_8859_1));
+
+        HttpCache reloaded = new HttpCache(directory, 1 << 20);
+        assertNotNull(reloaded.get(good));
+        assertNull(reloaded.get(badNumber));
+        assertNull(reloaded.get(badEscape));
+        assertEquals(payload.length, reloaded.totalBytes());
+        assertEquals(2, directory.list().length);
+    }
+
+    @Test
+    void onlyStaleTempFilesAreDroppedOnLoad() throws IOException {
+        HttpCache cache = new HttpCache(directory, 1 << 20);
+        // One left by a run that died long ago, and one another process is still writing
+        File leftover = cache.newTempFile();
+        assertTrue(leftover.setLastModified(System.currentTimeMillis() - HttpCache.STALE_TEMP_MILLIS - 60_000));
+        File downloading = cache.newTempFile();
+        Files.write(downloading.toPath(), payload);
+
+        new HttpCache(directory, 1 << 20);
+        assertFalse(leftover.exists());
+        assertTrue(downloading.isFile());
+        assertEquals(payload.length, downloading.length());
+    }
+
+    private static File meta(HttpCache.Entry entry) {
+        return new File(entry.body.getPath().replace(".body", ".meta"));
+    }
+}
@@ -0,0 +1,123 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+// The allocation-free timestamp parser must give the instant java.time gives for every form
+// NWS sends, and NONE for dates and times that do not exist or cannot be read
+class IsoTimestampsTest {
+
+    // Parses text from the middle of a larger buffer, as the JSON reader hands it over
+    private static long parse(String text) {
+        char[] buffer = ("\"x" + text + "y\"").toCharArray();
+        return IsoTimestamps.parse(buffer, 2, text.length());
+    }
+
+    private static long javaTime(String text) {
+        return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+    }
+
+    private static void assertSameAsJavaTime(String text) {
+        assertEquals(javaTime(text), parse(text), text);
+    }
+
+    @Test
+    void numericOffsetsAndZ() {
+        assertSameAsJavaTime("2024-05-01T10:00:00-05:00");
+        assertSameAsJavaTime("2024-05-01T10:00:00+00:00");
+        assertSameAsJavaTime("2024-05-01T10:00:00Z");
+        assertSameAsJavaTime("2024-05-01T23:30:00+09:30");
+        assertSameAsJavaTime("2024-01-01T02:00:00+14:00");
+        assertSameAsJavaTime("2023-12-31T22:00:00-10:00");
+        assertSameAsJavaTime("2024-11-03T01:59:59-04:00");
+        assertSameAsJavaTime("1969-12-31T23:59:59Z");
+        assertSameAsJavaTime("2099-12-31T23:59:59-18:00");
+        // Offsets without a colon or minutes, lower case and a space separator, read as java.time
+        // reads them written out in full
+        assertEquals(javaTime("2024-05-01T10:00:00-05:00"), parse("2024-05-01T10:00:00-0500"));
+        assertEquals(javaTime("2024-05-01T10:00:00+05:00"), parse("2024-05-01T10:00:00+05"));
+        assertEquals(javaTime("2024-05-01T10:00:00Z"), parse("2024-05-01t10:00:00z"));
+        assertEquals(javaTime("2024-05-01T10:00:00-05:00"), parse("2024-05-01 10:00:00-05:00"));
+        // No offset at all is read as UTC
+        assertEquals(LocalDateTime.parse("2024-05-01T10:00:00").toInstant(ZoneOffset.UTC).toEpochMilli(),
+            parse("2024-05-01T10:00:00"));
+    }
+
+    @Test
+    void fractionalSecondsAreCutToTheMillisecond() {
+        assertSameAsJavaTime("2024-05-01T10:00:00.5Z");
+        assertSameAsJavaTime("2024-05-01T10:00:00.25-05:00");
+        assertSameAsJavaTime("2024-05-01T10:00:00.125+01:00");
+        assertSameAsJavaTime("2024-05-01T10:00:00.1239Z");
+        assertSameAsJavaTime("2024-05-01T10:00:00.999999999Z");
+        assertSameAsJavaTime("2024-05-01T10:00:00.000001-05:00");
+        assertSameAsJavaTime("1969-12-31T23:59:59.5Z");
+        assertSameAsJavaTime("2024-05-01T10:00:00.Z");
+        assertEquals(javaTime("2024-05-01T10:00:00.5Z"), parse("2024-05-01T10:00:00,5Z"));
+    }
+
+    @Test
+    void secondsMayBeLeftOut() {
+        assertSameAsJavaTime("2024-05-01T10:00-05:00");
+        assertSameAsJavaTime("2024-05-01T10:45Z");
+        assertEquals(javaTime("2024-05-01T10:45:00Z"), parse("2024-05-01T10:45"));
+    }
+
+    @Test
+    void leapDays() {
+        assertSameAsJavaTime("2024-02-29T12:00:00-05:00");
+        assertSameAsJavaTime("2000-02-29T00:00:00Z");
+        assertSameAsJavaTime("2024-02-29T23:59:59.999-12:00");
+        assertSameAsJavaTime("2024-03-01T00:00:00+14:00");
+        assertSameAsJavaTime("2023-02-28T23:59:59Z");
+    }
+
+    @Test
+    void malformedTimestampsGiveNone() {
+        String[] invalid = {
+            "2023-02-29T00:00:00Z",
+            "1900-02-29T00:00:00Z",
+            "2024-04-31T00:00:00Z",
+            "2024-13-01T00:00:00Z",
+            "2024-00-10T00:00:00Z",
+            "2024-05-00T00:00:00Z",
+            "2024-05-01T24:00:00Z",
+            "2024-05-01T10:60:00Z",
+            "2024-05-01T10:00:60Z",
+            "2024-05-01T10:00:00+19:00",
+            "2024-05-01T10:00:00+05:60",
+            "2024-05-01T10:00.5Z",
+        };
+        for (String text : invalid) {
+            assertEquals(IsoTimestamps.NONE, parse(text), text);
+            assertThrows(DateTimeException.class, () -> OffsetDateTime.parse(text), text);
+        }
+        String[] unreadable = {
+            "",
+            "2024-05-01",
+            "2024-05-01T10",
+            "2024/05/01T10:00:00Z",
+            "2024-05-01X10:00:00Z",
+            "2024-5-01T10:00:00Z",
+            "2024-05-01T1a:00:00Z",
+            "2024-05-01T10:00:0",
+            "2024-05-01T10:00:00Zulu",
+            "2024-05-01T10:00:00Z ",
+            "2024-05-01T10:00:00+5:00",
+            "2024-05-01T10:00:00+05:0",
+            "2024-05-01T10:00:00+05:00:00",
+            "2024-05-01T10:00:00 -05:00",
+            "not a timestamp at all",
+        };
+        for (String text : unreadable) {
+            assertEquals(IsoTimestamps.NONE, parse(text), text);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package weatheralerts;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The substring parser WeatherAlertsApp used before AlertJsonReader, copied unchanged as the
+// reference the reader is checked against
+final class LegacyParser {
+
+    private LegacyParser() {
+    }
+
+    // Custom JSON parsing function for this specific API response - kept same as before
+    static List<Map<String, String>> parseAlerts(String json) {
+        List<Map<String, String>> alerts = new ArrayList<>();
+        
+        try {
+            // Find the features array
+            int featuresStart = json.indexOf("\"features\":");
+            if (featuresStart == -1) {
+                return alerts;
+            }
+            
+            // Extract the features array
+            int arrayStart = json.indexOf('[', featuresStart);
+            if (arrayStart == -1) {
+                return alerts;
+            }
+            
+            // Find the end of the array with proper bracket matching
+            int arrayEnd = findMatchingBracket(json, arrayStart);
+            if (arrayEnd == -1) {
+                return alerts;
+            }
+            
+            String featuresArray = json.substring(arrayStart + 1, arrayEnd);
+            
+            // Split the array into individual objects
+            List<String> alertObjects = splitJsonArray(featuresArray);
+            
+            for (String alertObj : alertObjects) {
+                // Find the properties object within each alert
+                int propertiesStart = alertObj.indexOf("\"properties\":");
+                if (propertiesStart == -1) {
+                    continue;
+                }
+                
+                int propObjStart = alertObj.indexOf('{', propertiesStart);
+                if (propObjStart == -1) {
+                    continue;
+                }
+                
+                int propObjEnd = findMatchingBracket(alertObj, propObjStart);
+                if (propObjEnd == -1) {
+                    continue;
+                }
+                
+                String propertiesObj = alertObj.substring(propObjStart + 1, propObjEnd);
+                
+                // Extract the fields we need
+                Map<String, String> alertData = new HashMap<>();
+                extractField(propertiesObj, "effective", alertData);
+                extractField(propertiesObj, "expires", alertData);
+                extractField(propertiesObj, "headline", alertData);
+                extractField(propertiesObj, "description", alertData);
+                extractField(propertiesObj, "severity", alertData);
+                extractField(propertiesObj, "event", alertData);
+                extractField(propertiesObj, "instruction", alertData);
+                extractField(propertiesObj, "onset", alertData);
+                
+                alerts.add(alertData);
+            }
+        } catch (Exception e) {
+            // If any parsing error occurs, return empty list
+            return new ArrayList<>();
+        }
+        
+        return alerts;
+    }
+    
+    static void extractField(String jsonObj, String fieldName, Map<String, String> result) {
+        String fieldPattern = "\"" + fieldName + "\":";
+        int fieldStart = jsonObj.indexOf(fieldPattern);
+        if (fieldStart != -1) {
+            int valueStart = jsonObj.indexOf('"', fieldStart + fieldPattern.length());
+            if (valueStart != -1) {
+                int valueEnd = findEndOfJsonString(jsonObj, valueStart + 1);
+                if (valueEnd != -1) {
+                    String value = jsonObj.substring(valueStart + 1, valueEnd);
+                    // Unescape JSON string
+                    value = value.replace("\\\"", "\"")
+                                .replace("\\\\", "\\")
+                                .replace("\\n", "\n")
+                                .replace("\\r", "\r")
+                                .replace("\\t", "\t");
+                    result.put(fieldName, value);
+                }
+            }
+        }
+    }
+    
+    static int findEndOfJsonString(String json, int startIndex) {
+        boolean escaped = false;
+        for (int i = startIndex; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    static int findMatchingBracket(String json, int openBracketIndex) {
+        char openBracket = json.charAt(openBracketIndex);
+        char closeBracket;
+        if (openBracket == '{') {
+            closeBracket = '}';
+        } else if (openBracket == '[') {
+            closeBracket = ']';
+        } else {
+            return -1;
+        }
+        
+        int nesting = 1;
+        boolean inString = false;
+        boolean escaped = false;
+        
+        for (int i = openBracketIndex + 1; i < json.length(); i++) {
+            char c = json.charAt(i);
+            
+            if (escaped) {
+                escaped = false;
+                continue;
+            }
+            
+            if (c == '\\' && inString) {
+                escaped = true;
+                continue;
+            }
+            
+            if (c == '"') {
+                inString = !inString;
+                continue;
+            }
+            
+            if (!inString) {
+                if (c == openBracket) {
+                    nesting++;
+                } else if (c == closeBracket) {
+                    nesting--;
+                    if (nesting == 0) {
+                        return i;
+                    }
+                }
+            }
+        }
+        
+        return -1;
+    }
+    
+    static List<String> splitJsonArray(String jsonArray) {
+        List<String> result = new ArrayList<>();
+        
+        boolean inString = false;
+        boolean escaped = false;
+        int bracketNesting = 0;
+        int objectStart = 0;
+        
+        for (int i = 0; i < jsonArray.length(); i++) {
+            char c = jsonArray.charAt(i);
+            
+            if (escaped) {
+                escaped = false;
+                continue;
+            }
+            
+            if (c == '\\' && inString) {
+                escaped = true;
+                continue;
+            }
+            
+            if (c == '"') {
+                inString = !inString;
+                continue;
+            }
+            
+            if (!inString) {
+                if (c == '{') {
+                    if (bracketNesting == 0) {
+                        objectStart = i;
+                    }
+                    bracketNesting++;
+                } else if (c == '}') {
+                    bracketNesting--;
+                    if (bracketNesting == 0) {
+                        // We found a complete object
+                        result.add(jsonArray.substring(objectStart, i + 1));
+                    }
+                }
+            }
+        }
+        
+        return result;
+    }
+}
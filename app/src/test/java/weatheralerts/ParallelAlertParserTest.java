@@ -0,0 +1,132 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// ParallelAlertParser against the sequential reader it stands in for: the same alerts in the
+// same order, and the same failure after the same alerts, whatever lies between the features
+class ParallelAlertParserTest {
+
+    private static final int FEATURES = 200;
+
+    private ForkJoinPool pool;
+    private ParallelAlertParser parser;
+
+    @BeforeEach
+    void start() {
+        pool = new ForkJoinPool(4);
+        // Every payload is large enough to be split
+        parser = new ParallelAlertParser(pool, 0);
+    }
+
+    @AfterEach
+    void stop() {
+        pool.shutdownNow();
+    }
+
+    // Features numbered from 0, each followed by its separator, with separator(i) after feature i
+    private static String document(String... separators) {
+        StringBuilder json = new StringBuilder("{\"type\": \"FeatureCollection\", \"features\": [\n");
+        for (int i = 0; i < FEATURES; i++) {
+            json.append("  {\"id\": \"urn:test:").append(i).append("\", \"properties\": {\"id\": \"urn:test:").append(i)
+                .append("\", \"event\": \"Flood Watch\", \"headline\": \"Brace { and [ in \\\"text\\\"\"}}");
+            if (i < FEATURES - 1) {
+                json.append(i < separators.length && separators[i] != null ? separators[i] : ",\n");
+            }
+        }
+        return json.append("\n], \"title\": \"Alerts\"}").toString();
+    }
+
+    // Separators with the one after feature at replaced
+    private static String[] replaced(int at, String separator) {
+        String[] separators = new String[at + 1];
+        separators[at] = separator;
+        return separators;
+    }
+
+    private static final class Outcome {
+        final List<Alert> alerts = new ArrayList<>();
+        IOException failure;
+    }
+
+    private static Outcome sequential(byte[] json) {
+        Outcome outcome = new Outcome();
+        try {
+            new AlertJsonReader(json).parse(outcome.alerts::add);
+        } catch (IOException e) {
+            outcome.failure = e;
+        }
+        return outcome;
+    }
+
+    private Outcome parallel(byte[] json) {
+        Outcome outcome = new Outcome();
+        try {
+            parser.parse(json, outcome.alerts::add);
+        } catch (IOException e) {
+            outcome.failure = e;
+        }
+        return outcome;
+    }
+
+    private void assertSameOutcome(String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        Outcome expected = sequential(bytes);
+        Outcome actual = parallel(bytes);
+        assertEquals(expected.alerts.size(), actual.alerts.size());
+        for (int i = 0; i < expected.alerts.size(); i++) {
+            assertTrue(expected.alerts.get(i).sameContent(actual.alerts.get(i)));
+        }
+        if (expected.failure == null) {
+            assertEquals(null, actual.failure);
+        } else {
+            assertNotNull(actual.failure);
+            assertEquals(expected.failure.getClass(), actual.failure.getClass());
+            assertEquals(expected.failure.getMessage(), actual.failure.getMessage());
+        }
+    }
+
+    @Test
+    void wellFormedFeedMatchesSequential() throws IOException {
+        String json = document();
+        List<Alert> alerts = new ArrayList<>();
+        parser.parse(json.getBytes(StandardCharsets.UTF_8), alerts::add);
+        assertEquals(FEATURES, alerts.size());
+        for (int i = 0; i < FEATURES; i++) {
+            assertEquals("urn:test:" + i, alerts.get(i).id);
+        }
+        assertSameOutcome(json);
+        assertSameOutcome(document(replaced(120, " \t,\r\n ")));
+    }
+
+    @Test
+    void brokenSeparatorsFailAsSequential() {
+        assertSameOutcome(document(replaced(120, "\n")));
+        assertSameOutcome(document(replaced(120, ",,")));
+        assertSameOutcome(document(replaced(120, ", x ,")));
+        assertSameOutcome(document(replaced(0, ";")));
+        assertSameOutcome(document().replace("[\n  {\"id\": \"urn:test:0\"", "[,\n  {\"id\": \"urn:test:0\""));
+        assertSameOutcome(document().replace("\n], \"title\"", ",\n], \"title\""));
+    }
+
+    @Test
+    void elementsThatAreNotObjectsAreSkippedAsSequential() {
+        assertSameOutcome(document(replaced(120, ", 42, \"text\", null,\n")));
+        assertSameOutcome(document(replaced(120, ", [1, {\"properties\": {}}],\n")));
+        assertSameOutcome(document().replace("\n], \"title\"", ", true\n], \"title\""));
+        Outcome skipped = parallel(document(replaced(120, ", [1, 2], 3,\n")).getBytes(StandardCharsets.UTF_8));
+        assertEquals(null, skipped.failure);
+        assertEquals(FEATURES, skipped.alerts.size());
+    }
+}
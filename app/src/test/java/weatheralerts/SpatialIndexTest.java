@@ -0,0 +1,220 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// The grid index must find exactly what testing every stored geometry finds, for points and
+// boxes, whatever was put and removed before: holes, multipolygons, areas too large for the
+// grid, edges and points on cell boundaries, and areas lying across the 180th meridian
+class SpatialIndexTest {
+
+    private static final double CELL = 0.5;
+
+    // Rings of lon, lat pairs, each closed here as GeoJSON closes it
+    private static AlertGeometry geometry(double[]... rings) {
+        List<Float> points = new ArrayList<>();
+        int[] ringStarts = new int[rings.length + 1];
+        for (int ring = 0; ring < rings.length; ring++) {
+            ringStarts[ring] = points.size() / 2;
+            for (double value : rings[ring]) {
+                points.add((float) value);
+            }
+            points.add((float) rings[ring][0]);
+            points.add((float) rings[ring][1]);
+        }
+        ringStarts[rings.length] = points.size() / 2;
+        float[] coordinates = new float[points.size()];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = points.get(i);
+        }
+        return new AlertGeometry(coordinates, ringStarts);
+    }
+
+    private static double[] square(double west, double south, double east, double north) {
+        return new double[] {west, south, east, south, east, north, west, north};
+    }
+
+    // What the index finds, checked against every geometry tested one by one
+    private static final class Checked {
+        final SpatialIndex index = new SpatialIndex();
+        final Map<Integer, AlertGeometry> stored = new HashMap<>();
+
+        void put(int id, AlertGeometry geometry) {
+            index.put(id, geometry);
+            stored.put(id, geometry);
+        }
+
+        void remove(int id) {
+            index.remove(id);
+            stored.remove(id);
+        }
+
+        BitSet containing(double lat, double lon) {
+            BitSet found = new BitSet();
+            index.containing(lat, lon, found);
+            BitSet expected = new BitSet();
+            for (Map.Entry<Integer, AlertGeometry> entry : stored.entrySet()) {
+                if (entry.getValue().contains(lat, lon)) {
+                    expected.set(entry.getKey());
+                }
+            }
+            assertEquals(expected, found, lat + ", " + lon);
+            assertEquals(stored.size(), index.size());
+            return found;
+        }
+
+        BitSet intersecting(double south, double west, double north, double east) {
+            BitSet found = new BitSet();
+            index.intersecting(south, west, north, east, found);
+            BitSet expected = new BitSet();
+            for (Map.Entry<Integer, AlertGeometry> entry : stored.entrySet()) {
+                if (entry.getValue().intersects(south, west, north, east)) {
+                    expected.set(entry.getKey());
+                }
+            }
+            assertEquals(expected, found, south + ", " + west + " to " + north + ", " + east);
+            return found;
+        }
+    }
+
+    private static BitSet ids(int... ids) {
+        BitSet set = new BitSet();
+        for (int id : ids) {
+            set.set(id);
+        }
+        return set;
+    }
+
+    @Test
+    void holesAndMultipolygonParts() {
+        Checked checked = new Checked();
+        // A county with a lake in it, and a county in two parts
+        checked.put(1, geometry(square(-98, 30, -97, 31), square(-97.8, 30.2, -97.2, 30.8)));
+        checked.put(2, geometry(square(-96, 30, -95.5, 30.5), square(-95, 30, -94.5, 30.5)));
+
+        assertEquals(ids(1), checked.containing(30.1, -97.9));
+        assertEquals(ids(), checked.containing(30.5, -97.5));
+        assertEquals(ids(2), checked.containing(30.25, -95.75));
+        assertEquals(ids(2), checked.containing(30.25, -94.75));
+        assertEquals(ids(), checked.containing(30.25, -95.25));
+        // A box inside the hole misses, one reaching the shore finds it
+        assertEquals(ids(), checked.intersecting(30.4, -97.6, 30.6, -97.4));
+        assertEquals(ids(1), checked.intersecting(30.4, -97.9, 30.6, -97.4));
+        // A box between the parts misses, one over both finds the area once
+        assertEquals(ids(), checked.intersecting(30.1, -95.4, 30.4, -95.1));
+        assertEquals(ids(2), checked.intersecting(30.1, -95.9, 30.4, -94.6));
+    }
+
+    @Test
+    void areasLargerThanTheGridAllowsAreCheckedEverywhere() {
+        Checked checked = new Checked();
+        // 40 by 40 cells, over MAX_CELLS, with a hole
+        checked.put(1, geometry(square(-110, 30, -90, 50), square(-100, 40, -95, 45)));
+        checked.put(2, geometry(square(-99, 42, -98, 43)));
+
+        assertEquals(ids(1), checked.containing(35, -105));
+        assertEquals(ids(2), checked.containing(42.5, -98.5));
+        assertEquals(ids(), checked.containing(44, -96));
+        assertEquals(ids(), checked.containing(55, -105));
+        assertEquals(ids(1, 2), checked.intersecting(41, -101, 43, -97));
+        assertEquals(ids(1), checked.intersecting(20, -120, 31, -100));
+        checked.remove(1);
+        assertEquals(ids(), checked.containing(35, -105));
+        assertEquals(ids(2), checked.intersecting(41, -101, 43, -97));
+    }
+
+    @Test
+    void pointsAndEdgesOnCellBoundaries() {
+        Checked checked = new Checked();
+        // Sides on cell boundaries, and a side through the middle of a cell
+        checked.put(1, geometry(square(-98, 30, -97, 31)));
+        checked.put(2, geometry(square(-97, 30, -96.25, 30.5)));
+        checked.put(3, geometry(new double[] {-98, 31, -97, 32, -98, 32}));
+        for (double lat = 29.5; lat <= 32.5; lat += CELL / 2) {
+            for (double lon = -98.5; lon <= -95.5; lon += CELL / 2) {
+                checked.containing(lat, lon);
+                checked.intersecting(lat, lon, lat, lon);
+                checked.intersecting(lat, lon, lat + CELL, lon + CELL);
+            }
+        }
+        // Whichever side a shared boundary falls to, it falls to exactly one of the two
+        assertEquals(1, checked.containing(30.25, -97).cardinality());
+    }
+
+    @Test
+    void putAndRemoveChurnMatchesAFullScan() {
+        Random random = new Random(18);
+        Checked checked = new Checked();
+        for (int round = 0; round < 2_000; round++) {
+            int id = random.nextInt(64);
+            if (random.nextInt(4) == 0) {
+                checked.remove(id);
+            } else {
+                double west = -125 + random.nextDouble() * 50;
+                double south = 25 + random.nextDouble() * 20;
+                // Mostly county-sized, sometimes over MAX_CELLS
+                double size = random.nextInt(10) == 0 ? 18 + random.nextDouble() * 10 : random.nextDouble() * 3;
+                double[] outer = square(west, south, west + size, south + size / 2);
+                checked.put(id, random.nextBoolean() ? geometry(outer)
+                    : geometry(outer, square(west + size / 4, south + size / 8, west + size / 2, south + size / 4)));
+            }
+            double lat = 25 + random.nextDouble() * 35;
+            double lon = -125 + random.nextDouble() * 80;
+            checked.containing(lat, lon);
+            checked.containing(Math.floor(lat / CELL) * CELL, Math.floor(lon / CELL) * CELL);
+            checked.intersecting(lat, lon, lat + random.nextDouble() * 5, lon + random.nextDouble() * 5);
+        }
+    }
+
+    @Test
+    void areasAcrossThe180thMeridian() {
+        Checked checked = new Checked();
+        // A marine zone from 175E to 170W, and Aleutian islands on either side of the meridian
+        AlertGeometry zone = geometry(new double[] {175, 50, -170, 50, -170, 55, 175, 55});
+        AlertGeometry islands = geometry(square(178, 51, 179, 52), square(-179, 51, -178, 52));
+        checked.put(1, zone);
+        checked.put(2, islands);
+        checked.put(3, geometry(square(-98, 30, -97, 31)));
+        assertTrue(zone.wraps);
+        assertTrue(islands.wraps);
+        assertEquals(15, zone.maxLon - zone.minLon, 1e-3);
+
+        assertEquals(ids(1), checked.containing(52, 176));
+        assertEquals(ids(1, 2), checked.containing(51.5, 178.5));
+        assertEquals(ids(1, 2), checked.containing(51.5, -178.5));
+        assertEquals(ids(1), checked.containing(52, 180));
+        assertEquals(ids(1), checked.containing(52, -180));
+        assertEquals(ids(1), checked.containing(54, -171));
+        // Nothing between the western and eastern ends the box used to span
+        assertEquals(ids(), checked.containing(52, 0));
+        assertEquals(ids(), checked.containing(52, 170));
+        assertEquals(ids(), checked.containing(52, -160));
+        assertEquals(ids(3), checked.containing(30.5, -97.5));
+        // At sea between the islands
+        assertEquals(ids(1), checked.containing(51.5, 179.5));
+
+        assertEquals(ids(1), checked.intersecting(53, -175, 54, -172));
+        assertEquals(ids(1, 2), checked.intersecting(51.2, 178.2, 51.4, 178.4));
+        assertEquals(ids(), checked.intersecting(50, -160, 55, 170));
+        assertEquals(ids(), checked.intersecting(51, -100, 56, 0));
+        // A box from -179 to 179 is everything but the meridian strip, and overlaps both ends
+        assertEquals(ids(1, 2, 3), checked.intersecting(29, -179, 56, 179));
+
+        checked.remove(1);
+        assertEquals(ids(2), checked.containing(51.5, -178.5));
+        assertFalse(checked.containing(52, 176).get(1));
+        for (double lon = -180; lon <= 180; lon += CELL / 2) {
+            checked.containing(51.5, lon);
+        }
+    }
+}
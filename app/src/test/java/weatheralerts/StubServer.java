@@ -0,0 +1,119 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Local HTTP server for tests, answering every path with whatever the current Responder does
+// and keeping the headers and arrival time of each request it saw. Requests are handled on
+// threads of their own, so a stalled response does not hold up the next one. Also the pieces
+// every test of a client against it needs: the feed to serve, a client and a fetch.
+final class StubServer implements AutoCloseable {
+
+    interface Responder {
+        void respond(HttpExchange exchange) throws IOException;
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<Headers> requests = new ArrayList<>();
+    private final List<Long> arrivals = new ArrayList<>();
+    private volatile Responder responder = exchange -> send(exchange, 404, new byte[0]);
+
+    StubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            synchronized (requests) {
+                requests.add(exchange.getRequestHeaders());
+                arrivals.add(System.nanoTime());
+            }
+            try {
+                responder.respond(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    void respond(Responder next) {
+        responder = next;
+    }
+
+    int requests() {
+        synchronized (requests) {
+            return requests.size();
+        }
+    }
+
+    // Headers of the request numbered index, from 0
+    Headers request(int index) {
+        synchronized (requests) {
+            return requests.get(index);
+        }
+    }
+
+    // System.nanoTime() when the request numbered index arrived
+    long arrival(int index) {
+        synchronized (requests) {
+            return arrivals.get(index);
+        }
+    }
+
+    // Sends a whole response; headers are name, value pairs
+    static void send(HttpExchange exchange, int status, byte[] body, String... headers) throws IOException {
+        for (int i = 0; i < headers.length; i += 2) {
+            exchange.getResponseHeaders().add(headers[i], headers[i + 1]);
+        }
+        boolean empty = body.length == 0 || status == 304;
+        exchange.sendResponseHeaders(status, empty ? -1 : body.length);
+        if (!empty) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    // The Texas feed fixture, as NWS serves it
+    static byte[] feed() throws IOException {
+        return AlertJsonReaderTest.fixture("alerts-tx.json");
+    }
+
+    // Its own guard, fast enough never to throttle, so tests do not share circuit state
+    static UpstreamGuard guard() {
+        return new UpstreamGuard(1000, 1000, 60_000);
+    }
+
+    static NwsClient client(HttpCache cache) {
+        return new NwsClient(cache, guard());
+    }
+
+    // The alerts of one fetch, which must succeed
+    static List<Alert> fetch(NwsClient client, String url) throws IOException {
+        List<Alert> alerts = new ArrayList<>();
+        assertTrue(client.fetchAlerts(url, alerts::add, new NwsClient.Call()));
+        return alerts;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
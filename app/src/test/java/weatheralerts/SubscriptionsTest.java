@@ -0,0 +1,187 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Rule parsing and matching, and which matches are reported again
+class SubscriptionsTest {
+
+    @TempDir
+    File directory;
+
+    private Subscriptions subscriptions(String rules) throws IOException {
+        Subscriptions subscriptions = new Subscriptions(new File(directory, "subscriptions.txt"));
+        subscriptions.update(rules);
+        return subscriptions;
+    }
+
+    private static Alert alert(String id, String event, String severity, String urgency, String certainty,
+                               String areaDesc) throws IOException {
+        String json = "{\"features\": [{\"properties\": {\"id\": \"" + id + "\", \"event\": \"" + event
+            + "\", \"severity\": \"" + severity + "\", \"urgency\": \"" + urgency + "\", \"certainty\": \""
+            + certainty + "\", \"areaDesc\": \"" + areaDesc + "\"}}]}";
+        return AlertJsonReaderTest.parse(json.getBytes(StandardCharsets.UTF_8)).get(0);
+    }
+
+    private static Alert alert(String id, String event, String severity, String areaDesc) throws IOException {
+        return alert(id, event, severity, "Immediate", "Observed", areaDesc);
+    }
+
+    private static String error(String rules) {
+        return assertThrows(IllegalArgumentException.class, () -> Subscriptions.compile(rules)).getMessage();
+    }
+
+    @Test
+    void compilesRulesAndSkipsCommentsAndBlankLines() {
+        List<Subscriptions.Rule> rules = Subscriptions.compile("# storms\n\n"
+            + "severity >= Severe AND event contains Tornado AND area in {Dallas, Tarrant}\n"
+            + "  urgency = Immediate and certainty in {Observed, Likely}  \n"
+            + "event = \"Flood Watch\"\n");
+        assertEquals(3, rules.size());
+        assertEquals("severity >= Severe AND event contains Tornado AND area in {Dallas, Tarrant}", rules.get(0).text);
+        assertEquals("urgency = Immediate and certainty in {Observed, Likely}", rules.get(1).text);
+        for (int i = 0; i < rules.size(); i++) {
+            assertEquals(i, rules.get(i).index);
+        }
+    }
+
+    @Test
+    void severityComparisonsFollowTheScaleAndLeaveOutUnknown() {
+        Subscriptions.Rule atLeast = Subscriptions.compile("severity >= Severe").get(0);
+        assertEquals(1 << Alert.Severity.EXTREME.ordinal() | 1 << Alert.Severity.SEVERE.ordinal(), atLeast.severities);
+        Subscriptions.Rule below = Subscriptions.compile("severity < Moderate").get(0);
+        assertEquals(1 << Alert.Severity.MINOR.ordinal(), below.severities);
+        Subscriptions.Rule not = Subscriptions.compile("severity != Minor").get(0);
+        assertEquals(0, not.severities & 1 << Alert.Severity.MINOR.ordinal());
+        assertTrue((not.severities & 1 << Alert.Severity.UNKNOWN.ordinal()) != 0);
+    }
+
+    @Test
+    void errorsNameTheLineAndWhatWasExpected() {
+        assertEquals("Line 2: Unknown field colour; expected one of severity, urgency, certainty, event, area",
+            error("event = Flood Watch\ncolour = red"));
+        assertEquals("Line 1: Expected one of severity, urgency, certainty, event, area",
+            error("event = Flood Watch AND"));
+        assertEquals("Line 1: Expected a comparison after severity", error("severity"));
+        assertEquals("Line 1: Expected a value after =", error("event = AND severity = Minor"));
+        assertEquals("Line 1: Expected { after in", error("area in Dallas"));
+        assertEquals("Line 1: Expected } to close the list", error("area in {Dallas, Tarrant"));
+        assertEquals("Line 1: Unclosed quote", error("event = \"Flood Watch"));
+        assertEquals("Line 1: Use =, != or in with this field", error("urgency >= Expected"));
+        assertEquals("Line 1: Unknown level Awful; expected one of Extreme, Severe, Moderate, Minor, Unknown",
+            error("severity = Awful"));
+        assertEquals("Line 1: Unknown cannot be compared", error("severity > Unknown"));
+    }
+
+    @Test
+    void updateKeepsTheOldRulesWhenALineDoesNotCompile() throws IOException {
+        Subscriptions subscriptions = subscriptions("event = Flood Watch");
+        assertThrows(IllegalArgumentException.class, () -> subscriptions.update("event = Flood Watch\nbogus"));
+        assertEquals(1, subscriptions.size());
+        assertEquals("event = Flood Watch", subscriptions.text());
+        // A file edited by hand loads the rules that compile
+        Files.write(new File(directory, "subscriptions.txt").toPath(),
+            "bogus\nevent = Heat Advisory".getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, new Subscriptions(new File(directory, "subscriptions.txt")).size());
+    }
+
+    @Test
+    void matchesOnEveryCondition() throws IOException {
+        Subscriptions subscriptions = subscriptions(
+            "severity >= Severe AND event contains tornado AND area in {Dallas, Tarrant}\n"
+                + "event in {Flood Watch, Flood Warning} AND urgency != Past\n"
+                + "area contains harris AND certainty = Likely");
+        Alert tornado = alert("a", "Tornado Warning", "Extreme", "Dallas, TX; Collin, TX");
+        assertEquals(0, subscriptions.match(tornado).index);
+        assertNull(subscriptions.match(alert("b", "Tornado Warning", "Moderate", "Dallas, TX")));
+        assertNull(subscriptions.match(alert("c", "Tornado Watch", "Severe", "Denton, TX")));
+        // Whole names, not parts of them
+        assertNull(subscriptions.match(alert("d", "Tornado Warning", "Severe", "North Dallas, TX")));
+
+        assertEquals(1, subscriptions.match(alert("e", "Flood Watch", "Minor", "Travis, TX")).index);
+        assertNull(subscriptions.match(alert("f", "Flood Watch", "Minor", "Past", "Observed", "Travis, TX")));
+        assertNull(subscriptions.match(alert("g", "Flash Flood Watch", "Minor", "Travis, TX")));
+
+        assertEquals(2, subscriptions.match(alert("h", "Heat Advisory", "Moderate", "Expected", "Likely",
+            "Harris, TX; Fort Bend, TX")).index);
+        assertNull(subscriptions.match(alert("i", "Heat Advisory", "Moderate", "Expected", "Possible", "Harris, TX")));
+    }
+
+    @Test
+    void firstMatchingRuleInFileOrderWins() throws IOException {
+        Subscriptions subscriptions = subscriptions("event contains Warning\nseverity = Extreme");
+        assertEquals(0, subscriptions.match(alert("a", "Tornado Warning", "Extreme", "Dallas, TX")).index);
+        assertEquals(1, subscriptions.match(alert("b", "Tornado Watch", "Extreme", "Dallas, TX")).index);
+    }
+
+    @Test
+    void areasMayBeWrittenWithTheirState() throws IOException {
+        Subscriptions subscriptions = subscriptions("area in {Dallas, TX, \"Tarrant\", OK}\n"
+            + "area = Harris, TX AND event = Heat Advisory\n"
+            + "area in {Travis,TX}");
+        assertEquals(0, subscriptions.match(alert("a", "Flood Watch", "Minor", "Tarrant, TX")).index);
+        assertEquals(0, subscriptions.match(alert("b", "Flood Watch", "Minor", "Dallas, TX")).index);
+        assertEquals(1, subscriptions.match(alert("c", "Heat Advisory", "Minor", "Harris, TX")).index);
+        assertEquals(2, subscriptions.match(alert("d", "Flood Watch", "Minor", "Travis, TX")).index);
+        // A longer word after a comma is still the next area
+        Subscriptions pair = subscriptions("area in {Dallas, Tarrant}");
+        assertEquals(0, pair.match(alert("e", "Flood Watch", "Minor", "Tarrant, TX")).index);
+    }
+
+    @Test
+    void alertsAreReportedAgainOnlyForADifferentRule() throws IOException {
+        Subscriptions subscriptions = subscriptions("event contains Tornado\nseverity = Extreme");
+        Alert watch = alert("a", "Tornado Watch", "Severe", "Dallas, TX");
+        List<Alert> none = Collections.emptyList();
+        List<Subscriptions.Match> first = subscriptions.evaluate(
+            new AlertWatcher.Changes(List.of(watch), none, none));
+        assertEquals(1, first.size());
+        assertSame(watch, first.get(0).alert);
+
+        // Changed but still matching the same rule: already told
+        Alert changed = alert("a", "Tornado Watch", "Severe", "Dallas, TX; Collin, TX");
+        assertTrue(subscriptions.evaluate(new AlertWatcher.Changes(none, List.of(changed), none)).isEmpty());
+        // Now caught by another rule
+        Alert upgraded = alert("a", "Flood Warning", "Extreme", "Dallas, TX");
+        assertEquals(1, subscriptions.evaluate(new AlertWatcher.Changes(none, List.of(upgraded), none)).size());
+        // Expired and issued again: a new report
+        subscriptions.evaluate(new AlertWatcher.Changes(none, none, List.of(upgraded)));
+        assertEquals(1, subscriptions.evaluate(new AlertWatcher.Changes(List.of(upgraded), none, none)).size());
+    }
+
+    @Test
+    void loadedQueryForgetsAlertsNoLongerActive() throws IOException {
+        Subscriptions subscriptions = subscriptions("event contains Tornado");
+        Alert a = alert("a", "Tornado Warning", "Extreme", "Dallas, TX");
+        Alert b = alert("b", "Tornado Watch", "Severe", "Tarrant, TX");
+        assertEquals(2, subscriptions.evaluate(List.of(a, b)).size());
+        assertTrue(subscriptions.evaluate(List.of(a, b)).isEmpty());
+        // b is gone from the next load, so its return is news
+        assertTrue(subscriptions.evaluate(List.of(a)).isEmpty());
+        List<Subscriptions.Match> back = subscriptions.evaluate(List.of(a, b));
+        assertEquals(1, back.size());
+        assertSame(b, back.get(0).alert);
+    }
+
+    @Test
+    void newRulesReportEveryMatchAgain() throws IOException {
+        Subscriptions subscriptions = subscriptions("event contains Tornado");
+        List<Alert> alerts = List.of(alert("a", "Tornado Warning", "Extreme", "Dallas, TX"));
+        assertEquals(1, subscriptions.evaluate(alerts).size());
+        subscriptions.update("event contains Tornado\n# unchanged rule, new file");
+        assertEquals(1, subscriptions.evaluate(alerts).size());
+    }
+}
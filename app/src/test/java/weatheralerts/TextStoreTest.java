@@ -0,0 +1,101 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// The text store hands back one instance for every copy of a text, however it arrives, and
+// lets go of a text once no alert holds it any more
+class TextStoreTest {
+
+    // A JSON string body after padding and before its closing quote, in an array of its own
+    private static byte[] raw(String padding, String body) {
+        return (padding + body + "\"").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<Alert> parse(byte[] json, TextStore store) throws IOException {
+        List<Alert> alerts = new ArrayList<>();
+        AlertJsonReader reader = new AlertJsonReader(json);
+        reader.setTextStore(store);
+        reader.parse(alerts::add);
+        return alerts;
+    }
+
+    @Test
+    void identicalTextsShareOneInstance() {
+        TextStore store = new TextStore();
+        String body = "* WHAT...Flooding caused by excessive rainfall\\n* WHERE...Travis County";
+        byte[] first = raw("", body);
+        byte[] second = raw("{\"description\": \"", body);
+        int length = body.length();
+        LazyText held = store.text(first, 0, length);
+        assertSame(held, store.text(second, second.length - length - 1, length));
+        assertSame(held, store.text(first, 0, length));
+        assertEquals("* WHAT...Flooding caused by excessive rainfall\n* WHERE...Travis County", held.toString());
+        // The held copy owns its bytes rather than pointing into the first array
+        first[0] = 'x';
+        assertEquals('*', held.toString().charAt(0));
+        // Escaped differently, it is a different text as far as the store can tell
+        byte[] escaped = raw("", body.replace("\\n", "\\u000a"));
+        assertNotSame(held, store.text(escaped, 0, escaped.length - 1));
+        assertNotSame(held, store.text(second, second.length - length - 1, length - 1));
+
+        String headline = new String("Flood Watch issued May 9 at 2:45AM CDT");
+        assertSame(headline, store.text(headline));
+        assertSame(headline, store.text(new String(headline)));
+        assertNotSame(headline, store.text(headline + " "));
+
+        assertEquals(5, store.getUniqueTexts());
+        assertEquals(8, store.getTextsIngested());
+        assertEquals(3, store.getTextsShared());
+    }
+
+    @Test
+    void parsedAlertsShareTheirTexts() throws IOException {
+        byte[] feed = StubServer.feed();
+        TextStore store = new TextStore();
+        List<Alert> first = parse(feed, store);
+        List<Alert> second = parse(feed, store);
+        for (int i = 0; i < first.size(); i++) {
+            assertSame(first.get(i).headline, second.get(i).headline);
+            assertSame(first.get(i).description, second.get(i).description);
+            assertSame(first.get(i).instruction, second.get(i).instruction);
+        }
+        // Without a store, every parse has its own
+        assertNotSame(first.get(0).description, parse(feed, null).get(0).description);
+        assertTrue(store.getDedupRatio() >= 2);
+    }
+
+    @Test
+    void textsNoAlertHoldsAreReclaimed() throws Exception {
+        TextStore store = new TextStore();
+        List<Alert> alerts = parse(StubServer.feed(), store);
+        int held = store.getUniqueTexts();
+        assertTrue(held > 0);
+        byte[] kept = raw("", "kept");
+        LazyText keep = store.text(kept, 0, 4);
+
+        // Drops the only references to the parsed alerts
+        alerts = null;
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (store.getUniqueTexts() > 1 && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, store.getUniqueTexts());
+        assertEquals(4, store.getUniqueBytes());
+        assertSame(keep, store.text(raw("", "kept"), 0, 4));
+        // Texts asked for again after they went are held anew
+        List<Alert> again = parse(StubServer.feed(), store);
+        assertEquals(held + 1, store.getUniqueTexts());
+        assertEquals(3, again.size());
+    }
+}
@@ -0,0 +1,289 @@
+package weatheralerts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// NwsClient behind an UpstreamGuard against a stub that fails on demand: 429 and 503 with
+// Retry-After, dropped connections, bodies cut off mid-feed and responses that stall
+class UpstreamGuardTest {
+
+    // Scheduling slack allowed on top of a computed delay
+    private static final long SLACK_MILLIS = 400;
+
+    @TempDir
+    File directory;
+
+    private StubServer server;
+    private byte[] payload;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new StubServer();
+        payload = AlertJsonReaderTest.fixture("alerts-tx.json");
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    private NwsClient client(UpstreamGuard guard) {
+        return new NwsClient(new HttpCache(directory, 1 << 20), guard);
+    }
+
+    private static List<Alert> fetch(NwsClient client, String url) throws IOException {
+        List<Alert> alerts = new ArrayList<>();
+        assertTrue(client.fetchAlerts(url, alerts::add, new NwsClient.Call()));
+        return alerts;
+    }
+
+    private long millisBetween(int first, int second) {
+        return (server.arrival(second) - server.arrival(first)) / 1_000_000;
+    }
+
+    @Test
+    void backoffStaysWithinJitteredExponentialBounds() {
+        for (int attempt = 1; attempt <= 8; attempt++) {
+            long bound = Math.min(UpstreamGuard.MAX_BACKOFF_MILLIS, UpstreamGuard.BASE_BACKOFF_MILLIS << (attempt - 1));
+            long low = Long.MAX_VALUE;
+            long high = 0;
+            for (int i = 0; i < 2000; i++) {
+                long delay = UpstreamGuard.backoffMillis(attempt);
+                low = Math.min(low, delay);
+                high = Math.max(high, delay);
+            }
+            assertTrue(low >= bound / 4, "attempt " + attempt + " waited " + low);
+            assertTrue(high <= bound, "attempt " + attempt + " waited " + high);
+            // Jittered, not fixed
+            assertTrue(high - low > bound / 4, "attempt " + attempt);
+        }
+    }
+
+    @Test
+    void serverErrorsAreRetriedUpToMaxAttemptsWithBackoff() throws IOException {
+        server.respond(exchange -> StubServer.send(exchange, 500, new byte[0]));
+        UpstreamGuard guard = new UpstreamGuard(1000, 1000, 60_000);
+        String url = server.url("/alerts/active?area=TX");
+
+        UpstreamGuard.UpstreamException failure = assertThrows(UpstreamGuard.UpstreamException.class,
+            () -> fetch(client(guard), url));
+        assertEquals(500, failure.status);
+        assertEquals(UpstreamGuard.MAX_ATTEMPTS, server.requests());
+        assertEquals(UpstreamGuard.MAX_ATTEMPTS - 1, guard.getRetryCount());
+        assertEquals(UpstreamGuard.MAX_ATTEMPTS, guard.getFailureCount());
+        for (int retry = 1; retry < UpstreamGuard.MAX_ATTEMPTS; retry++) {
+            long bound = UpstreamGuard.BASE_BACKOFF_MILLIS << (retry - 1);
+            long waited = millisBetween(retry - 1, retry);
+            assertTrue(waited >= bound / 4 && waited <= bound + SLACK_MILLIS, "retry " + retry + " after " + waited);
+        }
+    }
+
+    @Test
+    void retryAfterIsWaitedOutAndSlowsTheRate() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        server.respond(exchange -> {
+            if (calls.incrementAndGet() == 1) {
+                StubServer.send(exchange, 429, new byte[0], "Retry-After", "1");
+            } else {
+                StubServer.send(exchange, 200, payload);
+            }
+        });
+        UpstreamGuard guard = new UpstreamGuard(10, 10, 60_000);
+
+        assertEquals(3, fetch(client(guard), server.url("/alerts/active?area=TX")).size());
+        assertEquals(2, server.requests());
+        long waited = millisBetween(0, 1);
+        assertTrue(waited >= 1000 && waited <= 1000 + SLACK_MILLIS, "waited " + waited);
+        // Halved on the 429, then nudged back up by the success
+        assertEquals(5.5, guard.getRateLimit(), 1e-9);
+    }
+
+    @Test
+    void retryAfterTooLongToWaitOpensTheCircuit() {
+        server.respond(exchange -> StubServer.send(exchange, 503, new byte[0], "Retry-After", "120"));
+        UpstreamGuard guard = new UpstreamGuard(1000, 1000, 1000);
+        long start = System.nanoTime();
+
+        assertThrows(UpstreamGuard.UpstreamException.class,
+            () -> fetch(client(guard), server.url("/alerts/active?area=TX")));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, server.requests());
+        assertEquals(UpstreamGuard.State.OPEN, guard.state());
+        // Open for the Retry-After, not the shorter configured period
+        assertTrue(guard.secondsUntilRetry() > 100);
+    }
+
+    @Test
+    void droppedConnectionsAreRetried() {
+        server.respond(exchange -> {
+            throw new IOException("dropped");
+        });
+        UpstreamGuard guard = new UpstreamGuard(1000, 1000, 60_000);
+
+        IOException failure = assertThrows(IOException.class,
+            () -> fetch(client(guard), server.url("/alerts/active?area=TX")));
+        assertFalse(failure instanceof UpstreamGuard.UpstreamException);
+        assertEquals(UpstreamGuard.MAX_ATTEMPTS, guard.getFailureCount());
+        assertEquals(UpstreamGuard.MAX_ATTEMPTS - 1, guard.getRetryCount());
+        // HttpURLConnection may itself resend a GET once after an empty reply
+        assertTrue(server.requests() >= UpstreamGuard.MAX_ATTEMPTS);
+    }
+
+    @Test
+    void noRetryOnceAlertsWereDelivered() throws IOException {
+        // The first feature arrives whole, then the connection drops
+        String second = "\"id\": \"https://api.weather.gov/alerts/urn:oid:2.49.0.1.840.0.8d2a1c";
+        int cut = new String(payload, StandardCharsets.UTF_8).indexOf(second);
+        server.respond(exchange -> {
+            exchange.sendResponseHeaders(200, payload.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(payload, 0, cut);
+            out.flush();
+            throw new IOException("reset");
+        });
+        UpstreamGuard guard = new UpstreamGuard(1000, 1000, 60_000);
+        List<Alert> delivered = new ArrayList<>();
+
+        IOException failure = assertThrows(IOException.class, () -> client(guard).fetchAlerts(
+            server.url("/alerts/active?area=TX"), delivered::add, new NwsClient.Call()));
+        assertFalse(failure instanceof AlertJsonReader.MalformedJsonException, failure.toString());
+        assertEquals(1, delivered.size());
+        assertEquals(1, server.requests());
+        assertEquals(0, guard.getRetryCount());
+        assertEquals(1, guard.getFailureCount());
+    }
+
+    @Test
+    void circuitOpensAfterFailureThresholdAndRejectsWithoutRequests() {
+        server.respond(exchange -> StubServer.send(exchange, 503, new byte[0], "Retry-After", "0"));
+        UpstreamGuard guard = new UpstreamGuard(1000, 1000, 60_000);
+        NwsClient client = client(guard);
+        String url = server.url("/alerts/active?area=TX");
+
+        int calls = 0;
+        while (guard.state() == UpstreamGuard.State.CLOSED) {
+            assertThrows(UpstreamGuard.UpstreamException.class, () -> fetch(client, url));
+            calls++;
+        }
+        assertEquals(UpstreamGuard.State.OPEN, guard.state());
+        assertEquals(UpstreamGuard.FAILURE_THRESHOLD, server.requests());
+        assertEquals(UpstreamGuard.FAILURE_THRESHOLD, guard.getFailureCount());
+        assertEquals((UpstreamGuard.FAILURE_THRESHOLD + UpstreamGuard.MAX_ATTEMPTS - 1) / UpstreamGuard.MAX_ATTEMPTS,
+            calls);
+        assertEquals(1, guard.getCircuitOpenCount());
+
+        UpstreamGuard.UpstreamException rejected = assertThrows(UpstreamGuard.UpstreamException.class,
+            () -> fetch(client, url));
+        assertEquals(0, rejected.status);
+        assertEquals(UpstreamGuard.FAILURE_THRESHOLD, server.requests());
+        assertEquals(1, guard.getRejectedCount());
+    }
+
+    @Test
+    void halfOpenCircuitLetsOneTrialThrough() throws Exception {
+        server.respond(exchange -> StubServer.send(exchange, 503, new byte[0], "Retry-After", "0"));
+        UpstreamGuard guard = new UpstreamGuard(1000, 1000, 200);
+        NwsClient client = client(guard);
+        String url = server.url("/alerts/active?area=TX");
+        while (guard.state() == UpstreamGuard.State.CLOSED) {
+            assertThrows(UpstreamGuard.UpstreamException.class, () -> fetch(client, url));
+        }
+        Thread.sleep(300);
+        assertEquals(UpstreamGuard.State.HALF_OPEN, guard.state());
+
+        // The trial stalls until released; every other call meanwhile is refused
+        CountDownLatch arrived = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        server.respond(exchange -> {
+            arrived.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            StubServer.send(exchange, 200, payload);
+        });
+        int before = server.requests();
+        ExecutorService trialThread = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Alert>> trial = trialThread.submit(() -> fetch(client, url));
+            assertTrue(arrived.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 5; i++) {
+                UpstreamGuard.UpstreamException rejected = assertThrows(UpstreamGuard.UpstreamException.class,
+                    () -> fetch(client, url));
+                assertEquals(0, rejected.status);
+            }
+            assertEquals(before + 1, server.requests());
+            release.countDown();
+            assertEquals(3, trial.get(10, TimeUnit.SECONDS).size());
+        } finally {
+            trialThread.shutdownNow();
+        }
+        assertEquals(UpstreamGuard.State.CLOSED, guard.state());
+        assertEquals(3, fetch(client, url).size());
+    }
+
+    @Test
+    void failedTrialReopensTheCircuit() throws Exception {
+        server.respond(exchange -> StubServer.send(exchange, 503, new byte[0], "Retry-After", "0"));
+        UpstreamGuard guard = new UpstreamGuard(1000, 1000, 200);
+        NwsClient client = client(guard);
+        String url = server.url("/alerts/active?area=TX");
+        while (guard.state() == UpstreamGuard.State.CLOSED) {
+            assertThrows(UpstreamGuard.UpstreamException.class, () -> fetch(client, url));
+        }
+        Thread.sleep(300);
+        int before = server.requests();
+
+        assertThrows(UpstreamGuard.UpstreamException.class, () -> fetch(client, url));
+        // One trial, not a round of retries
+        assertEquals(before + 1, server.requests());
+        assertEquals(UpstreamGuard.State.OPEN, guard.state());
+        assertEquals(2, guard.getCircuitOpenCount());
+    }
+
+    @Test
+    void cachedCopiesAreServedWhileTheCircuitIsOpen() throws IOException {
+        server.respond(exchange -> StubServer.send(exchange, 200, payload, "ETag", "\"v1\""));
+        UpstreamGuard guard = new UpstreamGuard(1000, 1000, 60_000);
+        NwsClient client = client(guard);
+        String[] areas = {"TX", "OK", "LA"};
+        for (String area : areas) {
+            fetch(client, server.url("/alerts/active?area=" + area));
+        }
+
+        server.respond(exchange -> StubServer.send(exchange, 503, new byte[0], "Retry-After", "0"));
+        int served = 0;
+        for (int i = 0; guard.state() != UpstreamGuard.State.OPEN; i++) {
+            served += fetch(client, server.url("/alerts/active?area=" + areas[i % areas.length])).size();
+        }
+        int requests = server.requests();
+        for (int i = 0; i < 10; i++) {
+            served += fetch(client, server.url("/alerts/active?area=" + areas[i % areas.length])).size();
+        }
+        // Answered from the cache without calling the upstream
+        assertEquals(requests, server.requests());
+        assertEquals(3 * guard.getStaleServedCount(), served);
+        assertTrue(guard.getRejectedCount() >= 10);
+    }
+}
@@ -0,0 +1,130 @@
+package weatheralerts;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.SwingUtilities;
+
+// How long the EDT is held at once while EdtPublisher puts N alerts on a headless list, its
+// model and the alert index, fed as a query feeds them. The EDT is blocked until the whole feed
+// is queued, so the drains face it at once. Every task is timed in EDT CPU time, which leaves
+// out the stretches where another thread or the collector had the core, and the longest and
+// the 99th percentile of each run are compared with a budget of two slices. Arguments: alerts,
+// runs.
+//   java -Djava.awt.headless=true -cp benchmarks/target/benchmarks.jar weatheralerts.EdtLatencyReport 20000 5
+public final class EdtLatencyReport {
+
+    // A slice, plus the items a drain consumes past its deadline before it next reads the
+    // clock and the flush after them
+    private static final long BUDGET_NANOS = 2 * EdtPublisher.SLICE_NANOS;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private EdtLatencyReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+            throw new IllegalStateException("Thread CPU time is not supported on this JVM");
+        }
+        List<Alert> alerts = PayloadCorpus.alerts(count);
+        // A first run loads and compiles the code paths, which would otherwise land in one slice
+        publish(alerts.subList(0, Math.min(5_000, alerts.size())));
+
+        System.out.printf("%,d alerts, budget %.1f ms per EDT task%n", count, BUDGET_NANOS / 1e6);
+        int over = 0;
+        for (int run = 1; run <= runs; run++) {
+            long[] tasks = publish(alerts);
+            Arrays.sort(tasks);
+            long longest = tasks[tasks.length - 1];
+            over += longest >= BUDGET_NANOS ? 1 : 0;
+            System.out.printf("run %d: %,d tasks, p50 %.2f ms, p99 %.2f ms, longest %.2f ms%s%n", run, tasks.length,
+                tasks[tasks.length / 2] / 1e6, tasks[tasks.length * 99 / 100] / 1e6, longest / 1e6,
+                longest >= BUDGET_NANOS ? " over budget" : "");
+        }
+        System.out.printf("%d of %d runs over budget%n", over, runs);
+    }
+
+    // Created and used on the EDT
+    private static final class Screen {
+        final AlertListModel model = new AlertListModel();
+        final JList<Alert> list = new JList<>(model);
+        final JLabel header = new JLabel();
+        final AlertIndex index = new AlertIndex();
+
+        Screen() {
+            list.setFixedCellHeight(AlertCellRenderer.ROW_HEIGHT);
+            list.setCellRenderer(new AlertCellRenderer());
+        }
+    }
+
+    private static final class Prepared {
+        final AlertIndex.Entry entry;
+        final AlertRow row;
+
+        Prepared(AlertIndex.Entry entry, AlertRow row) {
+            this.entry = entry;
+            this.row = row;
+        }
+    }
+
+    // The EDT CPU time of every task the publisher posted, in the order they ran
+    private static long[] publish(List<Alert> alerts) throws Exception {
+        Screen[] screen = new Screen[1];
+        SwingUtilities.invokeAndWait(() -> screen[0] = new Screen());
+        List<Long> tasks = new ArrayList<>();
+        Executor edt = task -> SwingUtilities.invokeLater(() -> {
+            long start = THREADS.getCurrentThreadCpuTime();
+            task.run();
+            tasks.add(THREADS.getCurrentThreadCpuTime() - start);
+        });
+        EdtPublisher<Prepared> publisher = new EdtPublisher<>(edt, new EdtPublisher.Sink<Prepared>() {
+            private final List<Alert> shown = new ArrayList<>();
+
+            @Override
+            public void accept(Prepared prepared) {
+                screen[0].index.put(prepared.entry);
+                screen[0].model.putView(prepared.row);
+                shown.add(prepared.row.alert);
+            }
+
+            @Override
+            public void flush(int published, int offered) {
+                screen[0].model.addAll(shown);
+                shown.clear();
+                screen[0].header.setText("Loaded " + published + " of " + offered + " alerts...");
+            }
+        });
+        CountDownLatch queued = new CountDownLatch(1);
+        SwingUtilities.invokeLater(() -> {
+            try {
+                queued.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CountDownLatch shown = new CountDownLatch(1);
+        for (Alert alert : alerts) {
+            publisher.offer(new Prepared(AlertIndex.prepare(alert), AlertRow.of(alert)));
+        }
+        publisher.finish(shown::countDown);
+        queued.countDown();
+        if (!shown.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Feed not shown within 60 s");
+        }
+        // Read back on the EDT, which wrote them
+        long[][] result = new long[1][];
+        SwingUtilities.invokeAndWait(() -> result[0] = tasks.stream().mapToLong(Long::longValue).toArray());
+        return result[0];
+    }
+}
@@ -0,0 +1,57 @@
+package weatheralerts;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+// Retained heap per parsed alert on the 10,000-feature corpus, for the legacy Map<String, String>
+// alerts and the current Alert records. Allocation rates come from the JMH benchmarks with
+// -prof gc; this reports what stays live once a result set is on screen. Run it alone with a
+// serial collector for stable numbers:
+//   java -XX:+UseSerialGC -cp benchmarks/target/benchmarks.jar weatheralerts.FootprintReport
+public final class FootprintReport {
+
+    private static final int FEATURES = 10000;
+
+    // Keeps the measured result reachable while the heap is sampled
+    private static Object retained;
+
+    private FootprintReport() {
+    }
+
+    public static void main(String[] args) {
+        String json = PayloadCorpus.json(FEATURES);
+        byte[] payload = PayloadCorpus.payload(FEATURES);
+        // Warm up both parsers so class loading and JIT metadata are not attributed to them
+        Legacy.parseAlerts(json);
+        PayloadCorpus.alerts(100);
+
+        report("legacy Map<String, String>", () -> Legacy.parseAlerts(json));
+        report("Alert", () -> PayloadCorpus.alerts(payload));
+    }
+
+    private static void report(String label, Supplier<List<?>> parse) {
+        long before = usedAfterGc();
+        List<?> alerts = parse.get();
+        retained = alerts;
+        long after = usedAfterGc();
+        retained = null;
+        System.out.printf(Locale.ROOT, "%-28s %,8d alerts %,12d bytes %,8d bytes/alert%n",
+            label, alerts.size(), after - before, (after - before) / alerts.size());
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Repeat until a collection no longer frees anything
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,439 @@
+package weatheralerts;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Cursor;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.net.URL;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import javax.swing.BorderFactory;
+import javax.swing.ImageIcon;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingConstants;
+
+// The original substring-based parser, SimpleDateFormat date handling and per-alert panel
+// construction, copied unchanged from WeatherAlertsApp before the rewrite. Benchmarks run
+// them side by side with the current code so every number has a baseline.
+final class Legacy {
+
+    private Legacy() {
+    }
+
+    // Icons for different alert types (paths to resources)
+    static final Map<String, String> ALERT_ICONS = new HashMap<>();
+    static {
+        ALERT_ICONS.put("Tornado", "/icons/tornado.png");
+        ALERT_ICONS.put("Severe Thunderstorm", "/icons/thunderstorm.png");
+        ALERT_ICONS.put("Flash Flood", "/icons/flood.png");
+        ALERT_ICONS.put("Flood", "/icons/flood.png");
+        ALERT_ICONS.put("Winter Storm", "/icons/winter.png");
+        ALERT_ICONS.put("Blizzard", "/icons/snow.png");
+        ALERT_ICONS.put("Wind", "/icons/wind.png");
+        ALERT_ICONS.put("Heat", "/icons/heat.png");
+        ALERT_ICONS.put("Fire", "/icons/fire.png");
+        ALERT_ICONS.put("Hurricane", "/icons/hurricane.png");
+        // Add more mappings as needed
+    }
+    
+    // Severity colors
+    static final Map<String, Color> SEVERITY_COLORS = new HashMap<>();
+    static {
+        SEVERITY_COLORS.put("Extreme", new Color(139, 0, 0)); // Dark Red
+        SEVERITY_COLORS.put("Severe", new Color(255, 0, 0)); // Red
+        SEVERITY_COLORS.put("Moderate", new Color(255, 165, 0)); // Orange
+        SEVERITY_COLORS.put("Minor", new Color(255, 255, 0)); // Yellow
+        SEVERITY_COLORS.put("Unknown", new Color(128, 128, 128)); // Gray
+    }
+
+    static JPanel createAlertPanel(Map<String, String> alert, int alertNumber) {
+        JPanel alertPanel = new JPanel(new BorderLayout());
+        alertPanel.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(getSeverityColor(alert.get("severity")), 2),
+            BorderFactory.createEmptyBorder(8, 8, 8, 8)
+        ));
+        alertPanel.setBackground(new Color(250, 250, 250));
+        alertPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 100));
+        alertPanel.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        
+        // Left side: Icon based on event type
+        JPanel iconPanel = new JPanel(new BorderLayout());
+        iconPanel.setBackground(new Color(240, 240, 240));
+        iconPanel.setPreferredSize(new Dimension(60, 60));
+        iconPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        
+        JLabel iconLabel = new JLabel();
+        iconLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        // Find appropriate icon based on event type
+        String eventType = alert.getOrDefault("event", "");
+        for (Map.Entry<String, String> entry : ALERT_ICONS.entrySet()) {
+            if (eventType.contains(entry.getKey())) {
+                try {
+                    URL iconUrl = Legacy.class.getResource(entry.getValue());
+                    if (iconUrl != null) {
+                        iconLabel.setIcon(new ImageIcon(iconUrl));
+                    } else {
+                        // If resource not found, use text instead
+                        iconLabel.setText(entry.getKey().substring(0, 1));
+                        iconLabel.setFont(new Font("Arial", Font.BOLD, 24));
+                    }
+                } catch (Exception e) {
+                    // If any error loading icon, use text instead
+                    iconLabel.setText(entry.getKey().substring(0, 1));
+                    iconLabel.setFont(new Font("Arial", Font.BOLD, 24));
+                }
+                break;
+            }
+        }
+        
+        // If no icon found, use default
+        if (iconLabel.getIcon() == null && iconLabel.getText().isEmpty()) {
+            iconLabel.setText("!");
+            iconLabel.setFont(new Font("Arial", Font.BOLD, 24));
+        }
+        
+        iconPanel.add(iconLabel, BorderLayout.CENTER);
+        alertPanel.add(iconPanel, BorderLayout.WEST);
+        
+        // Right side: Alert details
+        JPanel detailsPanel = new JPanel();
+        detailsPanel.setLayout(new GridBagLayout());
+        detailsPanel.setBackground(new Color(250, 250, 250));
+        
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.gridwidth = 2;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(2, 5, 2, 5);
+        
+        // Event type and number
+        JLabel eventLabel = new JLabel("#" + alertNumber + ": " + alert.getOrDefault("event", "Unknown Event"));
+        eventLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        detailsPanel.add(eventLabel, gbc);
+        
+        // Headline (if available)
+        gbc.gridy++;
+        String headline = alert.getOrDefault("headline", "").trim();
+        if (!headline.isEmpty() && !headline.equals(alert.getOrDefault("event", ""))) {
+            JLabel headlineLabel = new JLabel(truncateText(headline, 100));
+            headlineLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+            detailsPanel.add(headlineLabel, gbc);
+        }
+        
+        // Times
+        gbc.gridy++;
+        gbc.gridwidth = 1;
+        
+        // Format the effective date
+        String effectiveStr = formatDate(alert.getOrDefault("effective", ""));
+        JLabel effectiveLabel = new JLabel("Effective: " + effectiveStr);
+        effectiveLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+        detailsPanel.add(effectiveLabel, gbc);
+        
+        gbc.gridx = 1;
+        // Format the expiration date
+        String expiresStr = formatDate(alert.getOrDefault("expires", ""));
+        JLabel expiresLabel = new JLabel("Expires: " + expiresStr);
+        expiresLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+        detailsPanel.add(expiresLabel, gbc);
+        
+        alertPanel.add(detailsPanel, BorderLayout.CENTER);
+        
+        // Add severity indicator
+        JLabel severityLabel = new JLabel(alert.getOrDefault("severity", "Unknown"));
+        severityLabel.setForeground(Color.WHITE);
+        severityLabel.setFont(new Font("Arial", Font.BOLD, 12));
+        severityLabel.setOpaque(true);
+        severityLabel.setBackground(getSeverityColor(alert.getOrDefault("severity", "Unknown")));
+        severityLabel.setBorder(BorderFactory.createEmptyBorder(2, 8, 2, 8));
+        severityLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        alertPanel.add(severityLabel, BorderLayout.EAST);
+        
+        // Make the panel clickable
+        alertPanel.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                // The detail dialog is not part of what the benchmarks measure
+            }
+            
+            @Override
+            public void mouseEntered(MouseEvent e) {
+                alertPanel.setBackground(new Color(240, 240, 240));
+                detailsPanel.setBackground(new Color(240, 240, 240));
+            }
+            
+            @Override
+            public void mouseExited(MouseEvent e) {
+                alertPanel.setBackground(new Color(250, 250, 250));
+                detailsPanel.setBackground(new Color(250, 250, 250));
+            }
+        });
+        
+        return alertPanel;
+    }
+    
+    static Color getSeverityColor(String severity) {
+        if (severity == null) {
+            return SEVERITY_COLORS.get("Unknown");
+        }
+        
+        for (Map.Entry<String, Color> entry : SEVERITY_COLORS.entrySet()) {
+            if (severity.contains(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        
+        return SEVERITY_COLORS.get("Unknown");
+    }
+    
+    static String formatDate(String dateString) {
+        if (dateString == null || dateString.trim().isEmpty() || dateString.equals("N/A")) {
+            return "N/A";
+        }
+        
+        try {
+            // Parse the ISO 8601 date format
+            SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+            inputFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+            
+            // Parse the input date
+            Date date = null;
+            try {
+                date = inputFormat.parse(dateString.replaceAll("Z$", ""));
+            } catch (ParseException e) {
+                // Try alternate format with milliseconds
+                inputFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+                inputFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+                date = inputFormat.parse(dateString.replaceAll("Z$", ""));
+            }
+            
+            // Format it in a more readable way
+            SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy h:mm a");
+            outputFormat.setTimeZone(TimeZone.getDefault());
+            return outputFormat.format(date);
+            
+        } catch (ParseException e) {
+            // If any error in parsing, return the original
+            return dateString;
+        }
+    }
+    
+    static String truncateText(String text, int maxLength) {
+        if (text == null || text.length() <= maxLength) {
+            return text;
+        }
+        return text.substring(0, maxLength - 3) + "...";
+    }
+
+    // Custom JSON parsing function for this specific API response - kept same as before
+    static List<Map<String, String>> parseAlerts(String json) {
+        List<Map<String, String>> alerts = new ArrayList<>();
+        
+        try {
+            // Find the features array
+            int featuresStart = json.indexOf("\"features\":");
+            if (featuresStart == -1) {
+                return alerts;
+            }
+            
+            // Extract the features array
+            int arrayStart = json.indexOf('[', featuresStart);
+            if (arrayStart == -1) {
+                return alerts;
+            }
+            
+            // Find the end of the array with proper bracket matching
+            int arrayEnd = findMatchingBracket(json, arrayStart);
+            if (arrayEnd == -1) {
+                return alerts;
+            }
+            
+            String featuresArray = json.substring(arrayStart + 1, arrayEnd);
+            
+            // Split the array into individual objects
+            List<String> alertObjects = splitJsonArray(featuresArray);
+            
+            for (String alertObj : alertObjects) {
+                // Find the properties object within each alert
+                int propertiesStart = alertObj.indexOf("\"properties\":");
+                if (propertiesStart == -1) {
+                    continue;
+                }
+                
+                int propObjStart = alertObj.indexOf('{', propertiesStart);
+                if (propObjStart == -1) {
+                    continue;
+                }
+                
+                int propObjEnd = findMatchingBracket(alertObj, propObjStart);
+                if (propObjEnd == -1) {
+                    continue;
+                }
+                
+                String propertiesObj = alertObj.substring(propObjStart + 1, propObjEnd);
+                
+                // Extract the fields we need
+                Map<String, String> alertData = new HashMap<>();
+                extractField(propertiesObj, "effective", alertData);
+                extractField(propertiesObj, "expires", alertData);
+                extractField(propertiesObj, "headline", alertData);
+                extractField(propertiesObj, "description", alertData);
+                extractField(propertiesObj, "severity", alertData);
+                extractField(propertiesObj, "event", alertData);
+                extractField(propertiesObj, "instruction", alertData);
+                extractField(propertiesObj, "onset", alertData);
+                
+                alerts.add(alertData);
+            }
+        } catch (Exception e) {
+            // If any parsing error occurs, return empty list
+            return new ArrayList<>();
+        }
+        
+        return alerts;
+    }
+    
+    static void extractField(String jsonObj, String fieldName, Map<String, String> result) {
+        String fieldPattern = "\"" + fieldName + "\":";
+        int fieldStart = jsonObj.indexOf(fieldPattern);
+        if (fieldStart != -1) {
+            int valueStart = jsonObj.indexOf('"', fieldStart + fieldPattern.length());
+            if (valueStart != -1) {
+                int valueEnd = findEndOfJsonString(jsonObj, valueStart + 1);
+                if (valueEnd != -1) {
+                    String value = jsonObj.substring(valueStart + 1, valueEnd);
+                    // Unescape JSON string
+                    value = value.replace("\\\"", "\"")
+                                .replace("\\\\", "\\")
+                                .replace("\\n", "\n")
+                                .replace("\\r", "\r")
+                                .replace("\\t", "\t");
+                    result.put(fieldName, value);
+                }
+            }
+        }
+    }
+    
+    static int findEndOfJsonString(String json, int startIndex) {
+        boolean escaped = false;
+        for (int i = startIndex; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    static int findMatchingBracket(String json, int openBracketIndex) {
+        char openBracket = json.charAt(openBracketIndex);
+        char closeBracket;
+        if (openBracket == '{') {
+            closeBracket = '}';
+        } else if (openBracket == '[') {
+            closeBracket = ']';
+        } else {
+            return -1;
+        }
+        
+        int nesting = 1;
+        boolean inString = false;
+        boolean escaped = false;
+        
+        for (int i = openBracketIndex + 1; i < json.length(); i++) {
+            char c = json.charAt(i);
+            
+            if (escaped) {
+                escaped = false;
+                continue;
+            }
+            
+            if (c == '\\' && inString) {
+                escaped = true;
+                continue;
+            }
+            
+            if (c == '"') {
+                inString = !inString;
+                continue;
+            }
+            
+            if (!inString) {
+                if (c == openBracket) {
+                    nesting++;
+                } else if (c == closeBracket) {
+                    nesting--;
+                    if (nesting == 0) {
+                        return i;
+                    }
+                }
+            }
+        }
+        
+        return -1;
+    }
+    
+    static List<String> splitJsonArray(String jsonArray) {
+        List<String> result = new ArrayList<>();
+        
+        boolean inString = false;
+        boolean escaped = false;
+        int bracketNesting = 0;
+        int objectStart = 0;
+        
+        for (int i = 0; i < jsonArray.length(); i++) {
+            char c = jsonArray.charAt(i);
+            
+            if (escaped) {
+                escaped = false;
+                continue;
+            }
+            
+            if (c == '\\' && inString) {
+                escaped = true;
+                continue;
+            }
+            
+            if (c == '"') {
+                inString = !inString;
+                continue;
+            }
+            
+            if (!inString) {
+                if (c == '{') {
+                    if (bracketNesting == 0) {
+                        objectStart = i;
+                    }
+                    bracketNesting++;
+                } else if (c == '}') {
+                    bracketNesting--;
+                    if (bracketNesting == 0) {
+                        // We found a complete object
+                        result.add(jsonArray.substring(objectStart, i + 1));
+                    }
+                }
+            }
+        }
+        
+        return result;
+    }
+}
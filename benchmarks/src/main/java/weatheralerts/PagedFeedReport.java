@@ -0,0 +1,114 @@
+package weatheralerts;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Throughput of national ingestion against a paged StubNwsServer: alerts per second when pages
+// are fetched and parsed one after the other, and through FeedPager with download and parse
+// overlapped. Also reports the most heap left live after a collection during each run, which
+// stays at a few pages however many pages there are. Arguments: pages, alerts per page,
+// upstream delay in ms.
+//   java -Xmx128m -cp benchmarks/target/benchmarks.jar weatheralerts.PagedFeedReport 200 500 50
+public final class PagedFeedReport {
+
+    private PagedFeedReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int features = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        long delay = args.length > 2 ? Long.parseLong(args[2]) : 50;
+
+        StubNwsServer stub = new StubNwsServer(0, features, delay);
+        stub.setPageCount(pages);
+        stub.start();
+        File cacheDir = Files.createTempDirectory("paged-feed").toFile();
+        NwsClient client = new NwsClient(new HttpCache(cacheDir, 16L * 1024 * 1024));
+        String url = NwsClient.nationalAlertsUrl(stub.baseUrl());
+
+        System.out.printf("%d pages of %d alerts, %d ms upstream delay%n", pages, features, delay);
+        for (int round = 0; round < 2; round++) {
+            run(round == 0 ? "warm-up" : "sequential", () -> sequential(client, url, counter()));
+            if (round > 0) {
+                run("pipelined", () -> new FeedPager(client).fetch(url, counter(), new NwsClient.Call()));
+            }
+        }
+        stub.stop();
+        System.exit(0);
+    }
+
+    private interface Ingest {
+        int run() throws IOException;
+    }
+
+    private static final AtomicLong ALERTS = new AtomicLong();
+
+    private static AlertJsonReader.Handler counter() {
+        ALERTS.set(0);
+        return alert -> ALERTS.incrementAndGet();
+    }
+
+    // Fetches a page, parses it, then fetches the next
+    private static int sequential(NwsClient client, String url, AlertJsonReader.Handler handler) throws IOException {
+        int pages = 0;
+        while (url != null) {
+            byte[] page = client.fetchPage(url, new NwsClient.Call());
+            pages++;
+            int[] alerts = {0};
+            new AlertJsonReader(page).parse(alert -> {
+                alerts[0]++;
+                handler.onAlert(alert);
+            });
+            String next = AlertJsonReader.nextPageUrl(page);
+            url = alerts[0] > 0 && next != null ? new URL(new URL(url), next).toString() : null;
+        }
+        return pages;
+    }
+
+    private static void run(String label, Ingest ingest) throws Exception {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        AtomicLong maxLive = new AtomicLong();
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                maxLive.accumulateAndGet(liveAfterGc(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+        long start = System.nanoTime();
+        int pages = ingest.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        sampler.interrupt();
+        sampler.join();
+        maxLive.accumulateAndGet(liveAfterGc(), Math::max);
+        System.out.printf("%-10s  %4d pages  %8d alerts  %6.2f s  %8.0f alerts/s  max live after GC %5.1f MB%n",
+            label, pages, ALERTS.get(), seconds, ALERTS.get() / seconds, maxLive.get() / 1048576.0);
+    }
+
+    // Heap in use just after the last collection, summed over heap pools
+    private static long liveAfterGc() {
+        long bytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && usage != null) {
+                bytes += usage.getUsed();
+            }
+        }
+        return bytes;
+    }
+}
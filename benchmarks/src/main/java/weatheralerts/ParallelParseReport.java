@@ -0,0 +1,101 @@
+package weatheralerts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Scaling of ParallelAlertParser on one large payload: the time to parse it with 1 worker (the
+// plain sequential reader) up to N, the speedup over one worker, and the share of the time the
+// structural pre-scan takes on its own. Each worker count is checked to deliver exactly the
+// sequential alerts in the same order. Arguments: alerts, maximum workers (default: all cores).
+//   java -cp benchmarks/target/benchmarks.jar weatheralerts.ParallelParseReport 5000 16
+public final class ParallelParseReport {
+
+    private static final int ROUNDS = 15;
+
+    private ParallelParseReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int maxWorkers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        byte[] payload = PayloadCorpus.payload(count);
+        List<Alert> expected = new ArrayList<>();
+        new AlertJsonReader(payload).parse(expected::add);
+
+        long[] scan = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            int from = AlertJsonReader.featuresStart(payload);
+            AlertJsonReader.featureBounds(new AlertJsonReader.Structure[] {
+                AlertJsonReader.scanStructure(payload, from, payload.length)});
+            scan[round] = System.nanoTime() - start;
+        }
+        double scanMillis = median(scan);
+        System.out.printf("%,d alerts, %.1f MB, %d cores; structural scan on one core %.2f ms (%.0f MB/s)%n", count,
+            payload.length / 1e6, Runtime.getRuntime().availableProcessors(), scanMillis,
+            payload.length / 1e3 / scanMillis);
+        System.out.println("workers   median ms   alerts/s     speedup");
+        double baseline = 0;
+        for (int workers : workerCounts(maxWorkers)) {
+            ForkJoinPool pool = ParallelAlertParser.newPool(workers);
+            ParallelAlertParser parser = new ParallelAlertParser(pool, 0);
+            double millis = time(parser, payload, expected);
+            baseline = workers == 1 ? millis : baseline;
+            System.out.printf("%7d %11.2f %10.0f %10.2fx%n", workers, millis, count / millis * 1000, baseline / millis);
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        System.exit(0);
+    }
+
+    // 1, 2, 4, ... and max itself
+    private static List<Integer> workerCounts(int max) {
+        List<Integer> counts = new ArrayList<>();
+        for (int workers = 1; workers < max; workers *= 2) {
+            counts.add(workers);
+        }
+        counts.add(Math.max(1, max));
+        return counts;
+    }
+
+    // Median of ROUNDS parses after as many for warm-up
+    private static double time(ParallelAlertParser parser, byte[] payload, List<Alert> expected) throws IOException {
+        long[] took = new long[ROUNDS];
+        for (int round = -ROUNDS; round < ROUNDS; round++) {
+            List<Alert> alerts = new ArrayList<>(expected.size());
+            long start = System.nanoTime();
+            parser.parse(payload, alerts::add);
+            long elapsed = System.nanoTime() - start;
+            if (round < 0) {
+                if (!sameAlerts(alerts, expected)) {
+                    throw new IllegalStateException(parser.parallelism() + " workers delivered different alerts");
+                }
+            } else {
+                took[round] = elapsed;
+            }
+        }
+        return median(took);
+    }
+
+    private static boolean sameAlerts(List<Alert> alerts, List<Alert> expected) {
+        if (alerts.size() != expected.size()) {
+            return false;
+        }
+        for (int i = 0; i < alerts.size(); i++) {
+            if (!alerts.get(i).sameContent(expected.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1e6;
+    }
+}
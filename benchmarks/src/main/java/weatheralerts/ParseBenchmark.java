@@ -0,0 +1,73 @@
+package weatheralerts;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Payload-to-alerts throughput. The legacy parser starts from the decoded String, as it did
+// after fetchDataFromURL; the current reader starts from the UTF-8 bytes it gets off the wire.
+// Run with -prof gc for the allocation rate per operation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int features;
+
+    private byte[] payload;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        payload = PayloadCorpus.payload(features);
+        json = new String(payload, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<Map<String, String>> legacyParseAlerts() {
+        return Legacy.parseAlerts(json);
+    }
+
+    @Benchmark
+    public List<Alert> readerFromBytes() throws IOException {
+        List<Alert> alerts = new ArrayList<>();
+        new AlertJsonReader(payload).parse(alerts::add);
+        return alerts;
+    }
+
+    // As a query takes alerts in: parsed, then tokenized for the search index, which reads each
+    // description from its raw bytes and leaves it undecoded
+    @Benchmark
+    public List<AlertIndex.Entry> readerAndIndexPrepare() throws IOException {
+        List<AlertIndex.Entry> entries = new ArrayList<>();
+        new AlertJsonReader(payload).parse(alert -> entries.add(AlertIndex.prepare(alert)));
+        return entries;
+    }
+
+    @Benchmark
+    public List<Alert> readerFromStream() throws IOException {
+        List<Alert> alerts = new ArrayList<>();
+        new AlertJsonReader(new ByteArrayInputStream(payload)).parse(alerts::add);
+        return alerts;
+    }
+}
@@ -0,0 +1,157 @@
+package weatheralerts;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// Synthetic alerts/active payloads shaped like real NWS responses: full property sets,
+// escaped multi-line descriptions, polygons on part of the features and the nested
+// geocode/parameters/references objects the parser has to skip. Generation is seeded by
+// the feature count, so every run benchmarks the same bytes.
+final class PayloadCorpus {
+
+    static final int[] SIZES = {10, 100, 1000, 10000};
+
+    private static final String[][] EVENTS = {
+        {"Tornado Warning", "Extreme", "Immediate", "Observed"},
+        {"Severe Thunderstorm Warning", "Severe", "Immediate", "Observed"},
+        {"Flash Flood Warning", "Severe", "Immediate", "Likely"},
+        {"Flood Watch", "Moderate", "Future", "Possible"},
+        {"Winter Storm Warning", "Moderate", "Expected", "Likely"},
+        {"Wind Advisory", "Minor", "Expected", "Likely"},
+        {"Heat Advisory", "Moderate", "Expected", "Likely"},
+        {"Red Flag Warning", "Severe", "Expected", "Likely"},
+        {"Special Weather Statement", "Minor", "Expected", "Observed"},
+        {"Hurricane Warning", "Extreme", "Expected", "Likely"},
+    };
+    private static final String[] STATES = {"TX", "OK", "LA", "AR", "KS", "NE", "FL", "GA", "CA", "NY"};
+    private static final String[] COUNTIES = {
+        "Dallas", "Tarrant", "Collin", "Denton", "Ellis", "Johnson", "Kaufman", "Rockwall", "Parker", "Hood"
+    };
+
+    private PayloadCorpus() {
+    }
+
+    static byte[] payload(int features) {
+        return json(features).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String json(int features) {
+        return json(features, 0, null);
+    }
+
+    // One page of a paged feed: distinct alerts for each page number, and a pagination.next
+    // link unless next is null
+    static String json(int features, int page, String next) {
+        Random random = new Random(features + 7919L * page);
+        StringBuilder sb = new StringBuilder(features * 3000 + 512);
+        sb.append("{\n    \"@context\": [\n        \"https://geojson.org/geojson-ld/geojson-context.jsonld\",\n")
+            .append("        {\n            \"@version\": \"1.1\",\n            \"wx\": \"https://api.weather.gov/ontology#\"\n")
+            .append("        }\n    ],\n    \"type\": \"FeatureCollection\",\n    \"features\": [\n");
+        for (int i = 0; i < features; i++) {
+            if (i > 0) {
+                sb.append(",\n");
+            }
+            feature(sb, page * features + i, random);
+        }
+        sb.append("\n    ],\n");
+        if (next != null) {
+            sb.append("    \"pagination\": {\n        \"next\": \"").append(next).append("\"\n    },\n");
+        }
+        sb.append("    \"title\": \"Current watches, warnings, and advisories\",\n")
+            .append("    \"updated\": \"2024-05-01T15:00:00+00:00\"\n}");
+        return sb.toString();
+    }
+
+    // Parsed alerts of the payload, for benchmarks that start after ingest
+    static List<Alert> alerts(int features) {
+        return alerts(payload(features));
+    }
+
+    static List<Alert> alerts(byte[] payload) {
+        List<Alert> alerts = new ArrayList<>();
+        try {
+            new AlertJsonReader(payload).parse(alerts::add);
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return alerts;
+    }
+
+    private static void feature(StringBuilder sb, int index, Random random) {
+        String[] event = EVENTS[random.nextInt(EVENTS.length)];
+        String state = STATES[random.nextInt(STATES.length)];
+        String county = COUNTIES[random.nextInt(COUNTIES.length)];
+        String id = "urn:oid:2.49.0.1.840.0." + Long.toHexString(random.nextLong() & Long.MAX_VALUE) + ".001." + index;
+        int day = 1 + random.nextInt(28);
+        int hour = random.nextInt(20);
+        String effective = String.format(Locale.ROOT, "2024-05-%02dT%02d:%02d:00-05:00", day, hour, random.nextInt(60));
+        String expires = String.format(Locale.ROOT, "2024-05-%02dT%02d:%02d:00-05:00", day, hour + 3, random.nextInt(60));
+
+        sb.append("        {\n            \"id\": \"https://api.weather.gov/alerts/").append(id).append("\",\n")
+            .append("            \"type\": \"Feature\",\n            \"geometry\": ");
+        if (random.nextInt(3) == 0) {
+            sb.append("null");
+        } else {
+            double lon = -104 + random.nextDouble() * 20;
+            double lat = 28 + random.nextDouble() * 12;
+            sb.append("{\n                \"type\": \"Polygon\",\n                \"coordinates\": [\n                    [\n");
+            int points = 4 + random.nextInt(12);
+            for (int p = 0; p <= points; p++) {
+                double angle = 2 * Math.PI * (p % points) / points;
+                sb.append("                        [\n                            ")
+                    .append(String.format(Locale.ROOT, "%.4f", lon + Math.cos(angle) * 0.3)).append(",\n                            ")
+                    .append(String.format(Locale.ROOT, "%.4f", lat + Math.sin(angle) * 0.3)).append("\n                        ]")
+                    .append(p < points ? ",\n" : "\n");
+            }
+            sb.append("                    ]\n                ]\n            }");
+        }
+        sb.append(",\n            \"properties\": {\n")
+            .append("                \"@id\": \"https://api.weather.gov/alerts/").append(id).append("\",\n")
+            .append("                \"@type\": \"wx:Alert\",\n")
+            .append("                \"id\": \"").append(id).append("\",\n")
+            .append("                \"areaDesc\": \"").append(county).append("; ").append(COUNTIES[(index + 3) % COUNTIES.length]).append("\",\n")
+            .append("                \"geocode\": {\n                    \"SAME\": [\n                        \"048113\",\n                        \"048439\"\n")
+            .append("                    ],\n                    \"UGC\": [\n                        \"").append(state).append("C113\",\n                        \"")
+            .append(state).append("C439\"\n                    ]\n                },\n")
+            .append("                \"affectedZones\": [\n                    \"https://api.weather.gov/zones/county/").append(state).append("C113\",\n")
+            .append("                    \"https://api.weather.gov/zones/county/").append(state).append("C439\"\n                ],\n")
+            .append("                \"references\": [\n                    {\n                        \"@id\": \"https://api.weather.gov/alerts/urn:oid:prev\",\n")
+            .append("                        \"identifier\": \"urn:oid:prev\",\n                        \"sender\": \"w-nws.webmaster@noaa.gov\",\n")
+            .append("                        \"sent\": \"2024-05-01T09:00:00-05:00\"\n                    }\n                ],\n")
+            .append("                \"sent\": \"").append(effective).append("\",\n")
+            .append("                \"effective\": \"").append(effective).append("\",\n")
+            .append("                \"onset\": \"").append(effective).append("\",\n")
+            .append("                \"expires\": \"").append(expires).append("\",\n")
+            .append("                \"ends\": ").append(random.nextBoolean() ? "null" : "\"" + expires + "\"").append(",\n")
+            .append("                \"status\": \"Actual\",\n                \"messageType\": \"Alert\",\n")
+            .append("                \"category\": \"Met\",\n")
+            .append("                \"severity\": \"").append(event[1]).append("\",\n")
+            .append("                \"certainty\": \"").append(event[3]).append("\",\n")
+            .append("                \"urgency\": \"").append(event[2]).append("\",\n")
+            .append("                \"event\": \"").append(event[0]).append("\",\n")
+            .append("                \"sender\": \"w-nws.webmaster@noaa.gov\",\n")
+            .append("                \"senderName\": \"NWS Fort Worth TX\",\n")
+            .append("                \"headline\": \"").append(event[0]).append(" issued May ").append(day)
+            .append(" at ").append(hour).append(":00AM CDT until May ").append(day).append(" at ").append(hour + 3)
+            .append(":00AM CDT by NWS Fort Worth TX\",\n")
+            .append("                \"description\": \"");
+        int paragraphs = 2 + random.nextInt(4);
+        for (int p = 0; p < paragraphs; p++) {
+            sb.append("* WHAT...").append(event[0]).append(" conditions with gusts up to ").append(40 + random.nextInt(40))
+                .append(" mph. Locations impacted include \\\"").append(county).append("\\\" and surrounding areas.\\n\\n")
+                .append("* WHERE...Portions of north central Texas, including ").append(county)
+                .append(" County.\\n\\n* WHEN...Until ").append(hour + 3).append(" AM CDT.\\n\\n");
+        }
+        sb.append("\",\n")
+            .append("                \"instruction\": ").append(random.nextInt(4) == 0 ? "null" : "\"TAKE COVER NOW! Move to a basement or an interior room on the lowest floor of a sturdy building.\\nAvoid windows.\"").append(",\n")
+            .append("                \"response\": \"Shelter\",\n")
+            .append("                \"parameters\": {\n                    \"AWIPSidentifier\": [\n                        \"TORFWD\"\n                    ],\n")
+            .append("                    \"WMOidentifier\": [\n                        \"WFUS54 KFWD 011500\"\n                    ],\n")
+            .append("                    \"NWSheadline\": [\n                        \"").append(event[0].toUpperCase()).append(" IN EFFECT\"\n                    ],\n")
+            .append("                    \"BLOCKCHANNEL\": [\n                        \"EAS\",\n                        \"NWEM\",\n                        \"CMAS\"\n                    ]\n")
+            .append("                }\n            }\n        }");
+    }
+}
@@ -0,0 +1,113 @@
+package weatheralerts;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.BoxLayout;
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Headless cost of putting N alerts on screen: the legacy path builds and lays out one panel
+// tree per alert, the list path fills the model and stamps only the rows of one viewport.
+// Runs with java.awt.headless, so components have no peers and are laid out explicitly.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+    private static final int WIDTH = 760;
+    private static final int VIEWPORT_ROWS = 6;
+
+    @Param({"100", "1000"})
+    int alerts;
+
+    private List<Alert> parsed;
+    private List<Map<String, String>> legacyAlerts;
+    private BufferedImage canvas;
+    private AlertCellRenderer renderer;
+
+    @Setup
+    public void setUp() {
+        parsed = PayloadCorpus.alerts(alerts);
+        legacyAlerts = Legacy.parseAlerts(PayloadCorpus.json(alerts));
+        canvas = new BufferedImage(WIDTH, AlertCellRenderer.ROW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        renderer = new AlertCellRenderer();
+    }
+
+    @Benchmark
+    public JPanel legacyPanels() {
+        JPanel alertsPanel = new JPanel();
+        alertsPanel.setLayout(new BoxLayout(alertsPanel, BoxLayout.Y_AXIS));
+        int alertNumber = 1;
+        for (Map<String, String> alert : legacyAlerts) {
+            alertsPanel.add(Legacy.createAlertPanel(alert, alertNumber++));
+        }
+        alertsPanel.setSize(WIDTH, alertsPanel.getPreferredSize().height);
+        layout(alertsPanel);
+        return alertsPanel;
+    }
+
+    @Benchmark
+    public BufferedImage listViewport() {
+        DefaultListModel<Alert> model = new DefaultListModel<>();
+        for (Alert alert : parsed) {
+            model.addElement(alert);
+        }
+        JList<Alert> list = new JList<>(model);
+        AlertCellRenderer renderer = new AlertCellRenderer();
+        for (int i = 0; i < VIEWPORT_ROWS && i < model.size(); i++) {
+            paintRow(list, renderer, model.get(i), i);
+        }
+        return canvas;
+    }
+
+    @Benchmark
+    public BufferedImage rendererRow() {
+        return paintRow(new JList<Alert>(), renderer, parsed.get(0), 0);
+    }
+
+    private BufferedImage paintRow(JList<Alert> list, AlertCellRenderer renderer, Alert alert, int index) {
+        Component row = renderer.getListCellRendererComponent(list, alert, index, false, false);
+        row.setBounds(0, 0, WIDTH, AlertCellRenderer.ROW_HEIGHT);
+        layout(row);
+        Graphics2D g = canvas.createGraphics();
+        try {
+            row.paint(g);
+        } finally {
+            g.dispose();
+        }
+        return canvas;
+    }
+
+    // Without peers validate() is a no-op, so lay the tree out directly
+    private static void layout(Component component) {
+        if (component instanceof Container) {
+            Container container = (Container) component;
+            container.doLayout();
+            for (Component child : container.getComponents()) {
+                layout(child);
+            }
+        }
+    }
+}
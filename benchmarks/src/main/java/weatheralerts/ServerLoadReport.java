@@ -0,0 +1,128 @@
+package weatheralerts;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load test of --serve mode against a StubNwsServer, all in one process on loopback. Simulated
+// desktops poll random areas as fast as they can, revalidating with If-None-Match like the app
+// does and half of them asking for gzip; the same load is then sent straight to the stub for
+// comparison. Arguments: clients, seconds, areas, alerts per area, upstream delay in ms.
+//   java -cp benchmarks/target/benchmarks.jar weatheralerts.ServerLoadReport 64 10 10 500 200
+public final class ServerLoadReport {
+
+    private static final String[] AREAS = {"TX", "OK", "LA", "AR", "KS", "NE", "FL", "GA", "CA", "NY",
+        "CO", "NM", "AZ", "UT", "NV", "OR", "WA", "ID", "MT", "WY"};
+
+    private ServerLoadReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int areas = Math.min(AREAS.length, args.length > 2 ? Integer.parseInt(args[2]) : 10);
+        int features = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+        long delay = args.length > 4 ? Long.parseLong(args[4]) : 200;
+        // One pooled keep-alive connection per simulated client
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+
+        StubNwsServer stub = new StubNwsServer(0, features, delay);
+        stub.start();
+        File cacheDir = Files.createTempDirectory("serve-load").toFile();
+        AlertServer server = new AlertServer(new InetSocketAddress("127.0.0.1", 0),
+            new NwsClient(new HttpCache(cacheDir, 64L * 1024 * 1024)), stub.baseUrl(), 60_000);
+        server.start();
+
+        run("via --serve", "http://127.0.0.1:" + server.port(), clients, seconds, areas, stub);
+        run("direct to upstream", stub.baseUrl(), clients, seconds, areas, stub);
+        server.stop();
+        stub.stop();
+        System.exit(0);
+    }
+
+    private static void run(String label, String base, int clients, int seconds, int areas, StubNwsServer stub)
+            throws InterruptedException {
+        long hitsBefore = stub.hits();
+        AtomicLong bytes = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            boolean gzip = c % 2 == 0;
+            long[] samples = new long[1 << 20];
+            latencies.add(samples);
+            Thread thread = new Thread(() -> {
+                Map<String, String> etags = new HashMap<>();
+                int n = 0;
+                byte[] buffer = new byte[65536];
+                while (System.nanoTime() < deadline && n < samples.length - 1) {
+                    String area = AREAS[ThreadLocalRandom.current().nextInt(areas)];
+                    long start = System.nanoTime();
+                    try {
+                        HttpURLConnection connection = (HttpURLConnection) new URL(
+                            base + "/alerts/active?area=" + area).openConnection();
+                        if (gzip) {
+                            connection.setRequestProperty("Accept-Encoding", "gzip");
+                        }
+                        String etag = etags.get(area);
+                        if (etag != null) {
+                            connection.setRequestProperty("If-None-Match", etag);
+                        }
+                        int status = connection.getResponseCode();
+                        if (status == 200) {
+                            etags.put(area, connection.getHeaderField("ETag"));
+                            try (InputStream in = connection.getInputStream()) {
+                                for (int read; (read = in.read(buffer)) > 0; ) {
+                                    bytes.addAndGet(read);
+                                }
+                            }
+                        } else if (status != 304) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    }
+                    samples[++n] = System.nanoTime() - start;
+                }
+                samples[0] = n;
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int total = 0;
+        for (long[] samples : latencies) {
+            total += (int) samples[0];
+        }
+        long[] all = new long[total];
+        int at = 0;
+        for (long[] samples : latencies) {
+            System.arraycopy(samples, 1, all, at, (int) samples[0]);
+            at += (int) samples[0];
+        }
+        Arrays.sort(all);
+        System.out.printf(Locale.ROOT, "%-20s %,9d requests %,9.0f req/s  p50 %7.2f ms  p99 %7.2f ms  %,8d KB sent"
+                + "  %,6d upstream hits  %d errors%n",
+            label, total, total / (double) seconds, percentile(all, 0.50), percentile(all, 0.99),
+            bytes.get() / 1024, stub.hits() - hitsBefore, errors.get());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+}
@@ -0,0 +1,120 @@
+package weatheralerts;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// What the warm start costs for a snapshot of N alerts: its size, the time to save it, to load
+// it back, and to make its rows ready for the list, as launch does before the first query
+// answers. Each load is checked to return exactly the saved alerts, and a slot torn in the
+// middle of a save is checked to fall back to the previous snapshot. Arguments: alerts.
+//   java -cp benchmarks/target/benchmarks.jar weatheralerts.SnapshotReport 5000
+public final class SnapshotReport {
+
+    private static final int ROUNDS = 15;
+
+    private SnapshotReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        List<Alert> alerts = PayloadCorpus.alerts(count);
+        File directory = Files.createTempDirectory("alerts-snapshot").toFile();
+        AlertSnapshot snapshot = new AlertSnapshot(directory);
+
+        long[] save = new long[ROUNDS];
+        long[] load = new long[ROUNDS];
+        long[] prepare = new long[ROUNDS];
+        for (int round = -ROUNDS; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            if (!snapshot.save("TX, OK", alerts)) {
+                throw new IllegalStateException("Snapshot not saved in " + directory);
+            }
+            long saved = System.nanoTime();
+            AlertSnapshot.Saved loaded = new AlertSnapshot(directory).load();
+            long read = System.nanoTime();
+            List<AlertRow> rows = new ArrayList<>(loaded.alerts.size());
+            for (Alert alert : loaded.alerts) {
+                AlertIndex.prepare(alert);
+                rows.add(AlertRow.of(alert));
+            }
+            long prepared = System.nanoTime();
+            if (round < 0) {
+                check(loaded, alerts);
+            } else {
+                save[round] = saved - start;
+                load[round] = read - saved;
+                prepare[round] = prepared - read;
+            }
+        }
+        long bytes = 0;
+        for (File slot : directory.listFiles()) {
+            bytes = Math.max(bytes, slot.length());
+        }
+        System.out.printf("%,d alerts, snapshot %,d KB (%.0f bytes per alert)%n", count, bytes / 1024,
+            (double) bytes / count);
+        System.out.printf("save %.2f ms, load %.2f ms, rows ready %.2f ms (medians of %d)%n", median(save),
+            median(load), median(prepare), ROUNDS);
+
+        // A save cut short leaves the newest slot torn: the previous snapshot must load instead.
+        // Slots keep the length of their largest snapshot, so the tear goes near the start.
+        Thread.sleep(5);
+        snapshot.save("OK", alerts.subList(0, count / 2));
+        File newest = newest(directory);
+        try (RandomAccessFile torn = new RandomAccessFile(newest, "rw")) {
+            torn.seek(64);
+            torn.write(new byte[64]);
+        }
+        AlertSnapshot.Saved fallback = new AlertSnapshot(directory).load();
+        check(fallback, alerts);
+        System.out.println("torn newest slot: fell back to the previous snapshot of " + fallback.alerts.size()
+            + " alerts for " + fallback.query);
+
+        for (File slot : directory.listFiles()) {
+            Files.delete(slot.toPath());
+        }
+        Files.delete(directory.toPath());
+        System.exit(0);
+    }
+
+    private static void check(AlertSnapshot.Saved loaded, List<Alert> expected) {
+        if (loaded == null || !loaded.query.equals("TX, OK") || loaded.alerts.size() != expected.size()) {
+            throw new IllegalStateException("Snapshot did not load as saved");
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (!loaded.alerts.get(i).sameContent(expected.get(i))) {
+                throw new IllegalStateException("Alert " + i + " did not load as saved");
+            }
+        }
+    }
+
+    // The slot whose header has the latest saved-at time
+    private static File newest(File directory) throws IOException {
+        File newest = null;
+        long newestSavedAt = Long.MIN_VALUE;
+        for (File slot : directory.listFiles()) {
+            try (RandomAccessFile in = new RandomAccessFile(slot, "r")) {
+                in.seek(5);
+                long savedAt = in.readLong();
+                if (savedAt > newestSavedAt) {
+                    newest = slot;
+                    newestSavedAt = savedAt;
+                }
+            }
+        }
+        if (newest == null) {
+            throw new IOException("No snapshot in " + directory);
+        }
+        return newest;
+    }
+
+    private static double median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1e6;
+    }
+}
@@ -0,0 +1,237 @@
+package weatheralerts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Local stand-in for api.weather.gov: answers /alerts/active?area=XX with a generated
+// PayloadCorpus document after a fixed delay, with the ETag and max-age headers NWS sends, and
+// counts the requests it gets. Like NWS it gzips or deflates the body for clients asking for
+// it, and counts the body bytes it sends. With paging turned on it also serves the national
+// feed (/alerts/active without an area, and the /alerts archive) as a run of pages linked by
+// pagination.next and ended by an empty page. For resilience tests it can fail a share of
+// requests with a chosen status and Retry-After. Point the app or a --serve instance at it with
+// --upstream; a fourth argument sets the number of national pages:
+//   java -cp benchmarks/target/benchmarks.jar weatheralerts.StubNwsServer 9090 500 200 40
+public final class StubNwsServer {
+
+    // Distinct page bodies cycled through, so many pages cost little memory here
+    private static final int PAGE_VARIANTS = 8;
+    private static final String NEXT = "@NEXT@";
+
+    private final HttpServer server;
+    private final byte[] payload;
+    private final byte[] gzipped;
+    private final byte[] deflated;
+    private final String etag;
+    private final long delayMillis;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    // Each variant split around its pagination.next link; pageCount 0 turns paging off
+    private final byte[][] pageHeads = new byte[PAGE_VARIANTS][];
+    private final byte[][] pageTails = new byte[PAGE_VARIANTS][];
+    private final byte[] lastPage = PayloadCorpus.payload(0);
+    private volatile int pageCount;
+    private volatile int maxAgeSeconds = 30;
+    private volatile double failureRate;
+    private volatile int failureStatus = 503;
+    private volatile long retryAfterSeconds = -1;
+    private final AtomicLong failuresSent = new AtomicLong();
+
+    public StubNwsServer(int port, int features, long delayMillis) throws IOException {
+        this.payload = PayloadCorpus.payload(features);
+        for (int v = 0; v < PAGE_VARIANTS; v++) {
+            String page = PayloadCorpus.json(features, v, NEXT);
+            int at = page.indexOf(NEXT);
+            pageHeads[v] = page.substring(0, at).getBytes(StandardCharsets.UTF_8);
+            pageTails[v] = page.substring(at + NEXT.length()).getBytes(StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(payload);
+        }
+        this.gzipped = gzip.toByteArray();
+        ByteArrayOutputStream deflate = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(deflate)) {
+            out.write(payload);
+        }
+        this.deflated = deflate.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        this.etag = "\"" + Long.toHexString(crc.getValue()) + "\"";
+        this.delayMillis = delayMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 256);
+        server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-nws");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.createContext("/alerts", this::handle);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9090;
+        int features = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        long delay = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        StubNwsServer stub = new StubNwsServer(port, features, delay);
+        stub.setPageCount(args.length > 3 ? Integer.parseInt(args[3]) : 0);
+        stub.start();
+        System.out.println("Stub NWS on " + stub.baseUrl() + ": " + features + " alerts per area, " + delay + " ms delay");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long bytesSent() {
+        return bytesSent.get();
+    }
+
+    public int payloadSize() {
+        return payload.length;
+    }
+
+    // Pages of the national feed before the empty one that ends it
+    public void setPageCount(int pages) {
+        this.pageCount = pages;
+    }
+
+    // max-age of area responses; 0 makes every fetch revalidate
+    public void setMaxAge(int seconds) {
+        this.maxAgeSeconds = seconds;
+    }
+
+    // Answers this share of requests (0 to 1) with status and, unless retryAfterSeconds is
+    // negative, a Retry-After header
+    public void setFaults(double rate, int status, long retryAfterSeconds) {
+        this.failureStatus = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.failureRate = rate;
+    }
+
+    public long failuresSent() {
+        return failuresSent.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            hits.incrementAndGet();
+            Thread.sleep(delayMillis);
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                failuresSent.incrementAndGet();
+                if (retryAfterSeconds >= 0) {
+                    exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+                }
+                exchange.sendResponseHeaders(failureStatus, -1);
+                return;
+            }
+            String query = exchange.getRequestURI().getRawQuery();
+            if (pageCount > 0 && (query == null || !query.contains("area="))) {
+                sendPage(exchange, query);
+                return;
+            }
+            String coding = coding(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            String tag = coding == null ? etag : etag.substring(0, etag.length() - 1) + "-" + coding + "\"";
+            exchange.getResponseHeaders().set("Cache-Control", "public, max-age=" + maxAgeSeconds);
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+            exchange.getResponseHeaders().set("ETag", tag);
+            if (tag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/geo+json");
+            byte[] body = payload;
+            if (coding != null) {
+                exchange.getResponseHeaders().set("Content-Encoding", coding);
+                body = coding.equals("gzip") ? gzipped : deflated;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            bytesSent.addAndGet(body.length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Page n of the feed, from the cursor parameter, linking to page n + 1. Sent uncompressed,
+    // since compressing each page here would take CPU from the client being measured.
+    private void sendPage(HttpExchange exchange, String query) throws IOException {
+        int page = 0;
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("cursor=")) {
+                    page = Integer.parseInt(parameter.substring(7));
+                }
+            }
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/geo+json");
+        if (page >= pageCount) {
+            exchange.sendResponseHeaders(200, lastPage.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(lastPage);
+            }
+            bytesSent.addAndGet(lastPage.length);
+            return;
+        }
+        byte[] head = pageHeads[page % PAGE_VARIANTS];
+        byte[] tail = pageTails[page % PAGE_VARIANTS];
+        byte[] next = (baseUrl() + "/alerts?cursor=" + (page + 1)).getBytes(StandardCharsets.UTF_8);
+        // One write: a short trailing write waits out a delayed ACK under Nagle
+        byte[] body = new byte[head.length + next.length + tail.length];
+        System.arraycopy(head, 0, body, 0, head.length);
+        System.arraycopy(next, 0, body, head.length, next.length);
+        System.arraycopy(tail, 0, body, head.length + next.length, tail.length);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        bytesSent.addAndGet(body.length);
+    }
+
+    // gzip if accepted, else deflate, else null for an uncompressed body
+    private static String coding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean deflate = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String c = coding.trim().toLowerCase(Locale.ROOT);
+            if (c.endsWith("q=0")) {
+                continue;
+            }
+            if (c.startsWith("gzip")) {
+                return "gzip";
+            }
+            deflate |= c.startsWith("deflate");
+        }
+        return deflate ? "deflate" : null;
+    }
+}
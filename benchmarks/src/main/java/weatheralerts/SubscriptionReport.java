@@ -0,0 +1,159 @@
+package weatheralerts;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// What checking subscriptions costs per alert as the rules grow. Rules of the usual shape,
+// "severity >= X AND event contains Y AND area in {...}", are generated over the corpus events
+// and counties and many that are not in it, and the corpus alerts are checked against them by
+// the compiled Subscriptions and by a plain loop that tests every rule's fields as text, as
+// an uncompiled rule list would. Both must pick the same first rule for every alert. Also
+// shown: the cost of one poll of the watch, which only offers new and changed alerts.
+// Arguments: alerts, changed alerts per poll.
+//   java -cp benchmarks/target/benchmarks.jar weatheralerts.SubscriptionReport 5000 50
+public final class SubscriptionReport {
+
+    private static final int[] RULES = {1, 10, 100, 1000};
+    private static final int ROUNDS = 15;
+    private static final String[] SEVERITIES = {"Extreme", "Severe", "Moderate", "Minor"};
+    private static final String[] EVENTS = {
+        "Tornado", "Thunderstorm", "Flash Flood", "Flood", "Winter Storm", "Wind", "Heat", "Red Flag",
+        "Special Weather", "Hurricane", "Blizzard", "Ice Storm", "Dense Fog", "Frost", "Freeze", "Dust Storm",
+        "Tsunami", "Avalanche", "Rip Current", "High Surf", "Excessive Heat", "Fire Weather", "Storm Surge",
+        "Coastal Flood", "Lake Effect Snow", "Wind Chill", "Air Quality", "Small Craft", "Gale", "Tropical Storm"
+    };
+    private static final String[] AREAS = {
+        "Dallas", "Tarrant", "Collin", "Denton", "Ellis", "Johnson", "Kaufman", "Rockwall", "Parker", "Hood"
+    };
+
+    // The fields of one generated rule, for the plain loop to test
+    private static final class Spec {
+        final int severity;
+        final String event;
+        final String[] areas;
+
+        Spec(int severity, String event, String[] areas) {
+            this.severity = severity;
+            this.event = event;
+            this.areas = areas;
+        }
+
+        String text() {
+            return "severity >= " + SEVERITIES[severity] + " AND event contains \"" + event + "\" AND area in {"
+                + String.join(", ", areas) + "}";
+        }
+
+        boolean matches(Alert alert) {
+            int rank = Arrays.asList(SEVERITIES).indexOf(alert.severity.label);
+            if (rank < 0 || rank > severity) {
+                return false;
+            }
+            if (!alert.event.name.toLowerCase(Locale.ROOT).contains(event.toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+            for (String area : alert.areaDesc.split(";")) {
+                for (String wanted : areas) {
+                    if (area.trim().equalsIgnoreCase(wanted)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private SubscriptionReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int changed = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        List<Alert> alerts = PayloadCorpus.alerts(count);
+        Random random = new Random(42);
+        File directory = Files.createTempDirectory("alerts-subscriptions").toFile();
+
+        System.out.printf(Locale.ROOT, "%,d alerts, %,d changed per poll%n", count, changed);
+        System.out.printf(Locale.ROOT, "%6s %9s %16s %16s %16s%n", "rules", "matched", "compiled us/alert",
+            "text us/alert", "poll us");
+        for (int ruleCount : RULES) {
+            List<Spec> specs = new ArrayList<>(ruleCount);
+            StringBuilder text = new StringBuilder("# Generated\n");
+            for (int i = 0; i < ruleCount; i++) {
+                String[] areas = new String[1 + random.nextInt(3)];
+                for (int a = 0; a < areas.length; a++) {
+                    // Mostly counties the corpus never names
+                    areas[a] = random.nextInt(4) == 0 ? AREAS[random.nextInt(AREAS.length)]
+                        : "County " + random.nextInt(3000);
+                }
+                Spec spec = new Spec(random.nextInt(SEVERITIES.length), EVENTS[random.nextInt(EVENTS.length)], areas);
+                specs.add(spec);
+                text.append(spec.text()).append('\n');
+            }
+            Subscriptions subscriptions = new Subscriptions(new File(directory, ruleCount + ".txt"));
+            subscriptions.update(text.toString());
+
+            int matched = 0;
+            for (Alert alert : alerts) {
+                Subscriptions.Rule rule = subscriptions.match(alert);
+                int expected = -1;
+                for (int i = 0; i < specs.size() && expected < 0; i++) {
+                    if (specs.get(i).matches(alert)) {
+                        expected = i;
+                    }
+                }
+                if ((rule == null ? -1 : rule.index) != expected) {
+                    throw new IllegalStateException("Rule " + (rule == null ? -1 : rule.index) + " matched "
+                        + alert.id + ", expected " + expected);
+                }
+                matched += expected >= 0 ? 1 : 0;
+            }
+
+            long[] compiled = new long[ROUNDS];
+            long[] plain = new long[ROUNDS];
+            long[] poll = new long[ROUNDS];
+            int sink = 0;
+            List<Alert> batch = alerts.subList(0, Math.min(changed, alerts.size()));
+            for (int round = -ROUNDS; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (Alert alert : alerts) {
+                    sink += subscriptions.match(alert) != null ? 1 : 0;
+                }
+                long between = System.nanoTime();
+                for (Alert alert : alerts) {
+                    for (Spec spec : specs) {
+                        if (spec.matches(alert)) {
+                            sink++;
+                            break;
+                        }
+                    }
+                }
+                long end = System.nanoTime();
+                AlertWatcher.Changes changes = new AlertWatcher.Changes(List.of(), batch, List.of());
+                long pollStart = System.nanoTime();
+                sink += subscriptions.evaluate(changes).size();
+                long pollEnd = System.nanoTime();
+                if (round >= 0) {
+                    compiled[round] = between - start;
+                    plain[round] = end - between;
+                    poll[round] = pollEnd - pollStart;
+                }
+            }
+            if (sink == Integer.MIN_VALUE) {
+                System.out.println(sink);
+            }
+            System.out.printf(Locale.ROOT, "%6d %9d %16.3f %16.3f %16.1f%n", ruleCount, matched,
+                median(compiled) / 1e3 / count, median(plain) / 1e3 / count, median(poll) / 1e3);
+        }
+    }
+
+    private static long median(long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
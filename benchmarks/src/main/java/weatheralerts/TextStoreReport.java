@@ -0,0 +1,88 @@
+package weatheralerts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// What the TextStore saves when the same alert texts are held many times over, as when a
+// product is issued for many zones, states overlap in a multi-state query, or the history and
+// the list hold versions of the same alerts. The corpus is parsed into copies result sets
+// held at once, with every text kept per document as before and with texts shared through a
+// store, and the retained heap and parse time of each are compared. Dropping the alerts must
+// then release their texts from the store. Run it alone with a serial collector:
+//   java -XX:+UseSerialGC -cp benchmarks/target/benchmarks.jar weatheralerts.TextStoreReport 2000 10
+public final class TextStoreReport {
+
+    // Keeps the measured result sets reachable while the heap is sampled
+    private static Object retained;
+
+    private TextStoreReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        byte[] payload = PayloadCorpus.payload(count);
+        // Warm up the reader both ways so class loading and JIT metadata are not measured
+        parse(payload, 3, null);
+        parse(payload, 3, new TextStore());
+
+        System.out.printf(Locale.ROOT, "%,d alerts x %d result sets%n", count, copies);
+        long unshared = report("texts per document", payload, copies, null);
+        TextStore store = new TextStore();
+        long shared = report("texts shared", payload, copies, store);
+        System.out.printf(Locale.ROOT, "retained %.1fx less; store: %,d texts ingested, %,d held (%,d KB),"
+                + " %.1fx dedup, %,d KB saved%n", (double) unshared / shared, store.getTextsIngested(),
+            store.getUniqueTexts(), store.getUniqueBytes() / 1024, store.getDedupRatio(),
+            store.getBytesSaved() / 1024);
+
+        retained = null;
+        usedAfterGc();
+        System.out.printf(Locale.ROOT, "after the alerts are dropped: %,d texts held (%,d KB)%n",
+            store.getUniqueTexts(), store.getUniqueBytes() / 1024);
+    }
+
+    // Retained bytes of copies result sets parsed with texts, which stay held afterwards
+    private static long report(String label, byte[] payload, int copies, TextStore texts) throws IOException {
+        retained = null;
+        long before = usedAfterGc();
+        long start = System.nanoTime();
+        List<List<Alert>> sets = parse(payload, copies, texts);
+        long nanos = System.nanoTime() - start;
+        retained = sets;
+        long after = usedAfterGc();
+        int alerts = sets.size() * sets.get(0).size();
+        System.out.printf(Locale.ROOT, "%-20s %,12d bytes %,8d bytes/alert %8.2f us/alert parse%n", label,
+            after - before, (after - before) / alerts, nanos / 1e3 / alerts);
+        return after - before;
+    }
+
+    private static List<List<Alert>> parse(byte[] payload, int copies, TextStore texts) throws IOException {
+        List<List<Alert>> sets = new ArrayList<>(copies);
+        for (int i = 0; i < copies; i++) {
+            List<Alert> alerts = new ArrayList<>();
+            AlertJsonReader reader = new AlertJsonReader(payload);
+            reader.setTextStore(texts);
+            reader.parse(alerts::add);
+            sets.add(alerts);
+        }
+        return sets;
+    }
+
+    // Collects a few times, pausing so cleared entries reach the store's queue in between
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,58 @@
+package weatheralerts;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Per-timestamp cost: the legacy formatDate (three SimpleDateFormats and a regex per call)
+// against parse-once IsoTimestamps, split into the ingest-time parse and the display format.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampBenchmark {
+
+    @Param({"2024-05-01T10:00:00-05:00", "2024-05-01T15:00:00.250Z"})
+    String timestamp;
+
+    private char[] chars;
+    private long epochMillis;
+
+    @Setup
+    public void setUp() {
+        chars = timestamp.toCharArray();
+        epochMillis = IsoTimestamps.parse(chars, 0, chars.length);
+    }
+
+    @Benchmark
+    public String legacyFormatDate() {
+        return Legacy.formatDate(timestamp);
+    }
+
+    @Benchmark
+    public long parse() {
+        return IsoTimestamps.parse(chars, 0, chars.length);
+    }
+
+    @Benchmark
+    public String format() {
+        return IsoTimestamps.format(epochMillis);
+    }
+
+    @Benchmark
+    public String parseAndFormat() {
+        return IsoTimestamps.format(IsoTimestamps.parse(chars, 0, chars.length));
+    }
+}